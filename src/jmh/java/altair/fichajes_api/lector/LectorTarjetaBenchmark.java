@@ -0,0 +1,46 @@
+package altair.fichajes_api.lector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmark de la conversión a hexadecimal de la UID leída del lector
+ * NFC, para UIDs de 4 bytes (MIFARE Classic) y 7 bytes (MIFARE Ultralight).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LectorTarjetaBenchmark {
+
+	@Param({ "4", "7" })
+	private int longitudUid;
+
+	private byte[] uid;
+
+	@Setup
+	public void preparar() {
+		uid = new byte[longitudUid];
+		for (int i = 0; i < longitudUid; i++) {
+			uid[i] = (byte) (0x9A + i * 37);
+		}
+	}
+
+	@Benchmark
+	public String uidAHexadecimal() {
+		return LectorTarjetaFuncionalidad.uidAHexadecimal(uid);
+	}
+}
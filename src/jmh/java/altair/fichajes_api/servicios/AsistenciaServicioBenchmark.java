@@ -0,0 +1,127 @@
+package altair.fichajes_api.servicios;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.entidad.AlumnoEntidad;
+import altair.fichajes_api.entidad.AsistenciaEntidad;
+import altair.fichajes_api.entidad.CursoEntidad;
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import altair.fichajes_api.entidad.GrupoEntidad;
+import altair.fichajes_api.entidad.MatriculacionEntidad;
+
+/**
+ * Microbenchmarks de las partes de {@link AsistenciaServicio} que se ejecutan
+ * por cada asistencia devuelta o modificada: conversión a DTO y cálculo del
+ * estado. También el paso a mapas por alumno y estado de las filas
+ * (alumno, estado, cantidad) con que la base de datos devuelve los conteos de
+ * estados de un grupo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsistenciaServicioBenchmark {
+
+	private static final EstadoAsistencia[] ESTADOS = EstadoAsistencia.values();
+
+	@Param({ "20", "200" })
+	private int asistenciasPorConsulta;
+
+	private final AsistenciaServicio servicio = new AsistenciaServicio();
+
+	private AsistenciaEntidad asistencia;
+	private List<Object[]> filasConteo;
+	private LocalDateTime horaEntrada;
+	private LocalDateTime horaSalida;
+
+	@Setup
+	public void preparar() {
+		CursoEntidad curso = new CursoEntidad();
+		curso.setIdCurso(1L);
+		curso.setNombreCurso("1º ESO");
+
+		GrupoEntidad grupo = new GrupoEntidad();
+		grupo.setIdGrupo(1L);
+		grupo.setNombreGrupo("A");
+		grupo.setCurso(curso);
+
+		LocalDate fecha = LocalDate.of(2025, 10, 6);
+		List<AsistenciaEntidad> asistencias = new ArrayList<>(asistenciasPorConsulta);
+		for (int i = 0; i < asistenciasPorConsulta; i++) {
+			AlumnoEntidad alumno = new AlumnoEntidad();
+			alumno.setIdAlumno((long) i);
+			alumno.setNombreAlumno("Alumno" + i);
+			alumno.setApellidoAlumno("Apellido" + i);
+
+			MatriculacionEntidad matricula = new MatriculacionEntidad();
+			matricula.setIdMatriculacion((long) i);
+			matricula.setAlumno(alumno);
+			matricula.setCurso(curso);
+			matricula.setGrupo(grupo);
+			matricula.setAnioEscolar("2025-2026");
+
+			AsistenciaEntidad a = new AsistenciaEntidad();
+			a.setIdAsistencia((long) i);
+			a.setMatriculacion(matricula);
+			a.setFecha(fecha);
+			a.setHoraEntrada(fecha.atTime(8, 15));
+			a.setHoraSalida(fecha.atTime(14, 30));
+			a.setEstado(ESTADOS[i % ESTADOS.length]);
+			a.setFechaModificacion(fecha.atTime(14, 30));
+			asistencias.add(a);
+		}
+
+		// Una fila por alumno y estado, como las del GROUP BY de los conteos
+		filasConteo = new ArrayList<>(asistenciasPorConsulta);
+		for (int i = 0; i < asistenciasPorConsulta; i++) {
+			filasConteo.add(new Object[] { (long) (i / ESTADOS.length), ESTADOS[i % ESTADOS.length], 10L });
+		}
+
+		asistencia = asistencias.get(0);
+		horaEntrada = fecha.atTime(8, 15);
+		horaSalida = fecha.atTime(14, 30);
+	}
+
+	@Benchmark
+	public AsistenciaDto mapearADto() {
+		return servicio.mapearADto(asistencia);
+	}
+
+	@Benchmark
+	public EstadoAsistencia calcularEstadoCompleta() {
+		return servicio.calcularEstado(horaEntrada, horaSalida);
+	}
+
+	@Benchmark
+	public EstadoAsistencia calcularEstadoSinSalida() {
+		return servicio.calcularEstado(horaEntrada, null);
+	}
+
+	@Benchmark
+	public Map<Long, Map<String, Integer>> conteoEstadosDeGrupo() {
+		Map<Long, int[]> conteos = new LinkedHashMap<>();
+		servicio.acumularConteos(conteos, filasConteo);
+		return AsistenciaServicio.conteosPorNombre(conteos);
+	}
+}
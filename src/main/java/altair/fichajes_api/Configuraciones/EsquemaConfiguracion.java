@@ -0,0 +1,67 @@
+package altair.fichajes_api.Configuraciones;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import altair.fichajes_api.logs.Logs;
+
+/**
+ * Configuración de las migraciones del esquema de la base de datos.
+ *
+ * Al arrancar se aplican las migraciones pendientes de db/migration o, si la
+ * migración automática está desactivada (por ejemplo, porque las aplica un
+ * administrador), se comprueba que no falte ninguna y la aplicación no arranca
+ * contra un esquema desactualizado.
+ */
+@Configuration
+public class EsquemaConfiguracion {
+
+    /**
+     * Crea la estrategia que Spring Boot usa con Flyway al arrancar, antes de
+     * inicializar JPA.
+     *
+     * @param migrar true para aplicar las migraciones pendientes, false para
+     *               solo comprobar que no hay ninguna
+     * @return estrategia de migración
+     */
+    @Bean
+    public FlywayMigrationStrategy estrategiaMigracion(
+            @Value("${fichajes.esquema.migrar-al-arrancar:true}") boolean migrar) {
+        return flyway -> {
+            if (migrar) {
+                MigrateResult resultado = flyway.migrate();
+                Logs.ficheroLog("Esquema de la base de datos en la versión " + resultado.targetSchemaVersion + " ("
+                        + resultado.migrationsExecuted + " migraciones aplicadas)");
+            } else {
+                comprobarEsquemaAlDia(flyway);
+            }
+        };
+    }
+
+    /**
+     * Comprueba que el esquema tiene aplicadas todas las migraciones y que las
+     * aplicadas no han cambiado.
+     *
+     * @param flyway Flyway configurado contra la base de datos
+     * @throws IllegalStateException si falta alguna migración
+     */
+    static void comprobarEsquemaAlDia(Flyway flyway) {
+        MigrationInfo[] pendientes = flyway.info().pending();
+        if (pendientes.length > 0) {
+            String versiones = Arrays.stream(pendientes).map(m -> m.getVersion() + " " + m.getDescription())
+                    .collect(Collectors.joining(", "));
+            Logs.ficheroLog("❌ Esquema de la base de datos desactualizado, faltan migraciones: " + versiones);
+            throw new IllegalStateException("El esquema de la base de datos está desactualizado; faltan las "
+                    + "migraciones: " + versiones);
+        }
+        flyway.validate();
+    }
+}
@@ -0,0 +1,115 @@
+package altair.fichajes_api.Configuraciones;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+import altair.fichajes_api.lector.EjecutorFichajes;
+import altair.fichajes_api.logs.Logs;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Configuración de los hilos de la aplicación.
+ *
+ * Con spring.threads.virtual.enabled=true las peticiones HTTP (Tomcat), las
+ * respuestas asíncronas, las tareas programadas y el procesamiento de los
+ * fichajes con tarjeta se ejecutan en hilos virtuales; con false, en grupos de
+ * hilos de plataforma. En ambos casos las conexiones a la base de datos están
+ * limitadas por el pool de Hikari, y los fichajes en proceso a la vez por
+ * fichajes.lector.ejecutor.concurrencia. Con hilos virtuales las peticiones
+ * HTTP a la vez las limita fichajes.http.max-peticiones, que hace el papel del
+ * tope de hilos de Tomcat.
+ */
+@Configuration
+public class HilosConfiguracion implements AsyncConfigurer {
+
+    private static final long ESPERA_CIERRE_MS = 10_000;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean hilosVirtuales;
+
+    @Value("${fichajes.lector.ejecutor.concurrencia:4}")
+    private int concurrenciaFichajes;
+
+    private EjecutorFichajes ejecutorFichajes;
+
+    /**
+     * Devuelve el ejecutor de los métodos {@code @Async}, que solo usa el
+     * procesamiento de los fichajes con tarjeta.
+     *
+     * @return ejecutor de fichajes
+     */
+    @Override
+    public Executor getAsyncExecutor() {
+        ejecutorFichajes = new EjecutorFichajes(hilosVirtuales, concurrenciaFichajes, registro);
+        Logs.ficheroLog("Fichajes procesados en hilos " + (hilosVirtuales ? "virtuales" : "de plataforma")
+                + ", como máximo " + concurrenciaFichajes + " a la vez");
+        return ejecutorFichajes;
+    }
+
+    /**
+     * Deja en el log los errores no capturados de los métodos {@code @Async}.
+     *
+     * @return manejador de errores
+     */
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, metodo, parametros) -> Logs
+                .ficheroLog("❌ Error no controlado en " + metodo.getName() + ": " + e.getMessage());
+    }
+
+    /**
+     * Limita las peticiones a la API atendidas a la vez cuando Tomcat usa hilos
+     * virtuales. La espera de turno es la misma que la de una conexión del pool.
+     *
+     * @param maximo Peticiones atendidas a la vez como máximo
+     * @param espera Tiempo máximo de espera de turno en milisegundos
+     * @return registro del filtro
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public FilterRegistrationBean<LimitePeticionesFiltro> limitePeticionesFiltro(
+            @Value("${fichajes.http.max-peticiones:20}") int maximo,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long espera) {
+        FilterRegistrationBean<LimitePeticionesFiltro> filtro = new FilterRegistrationBean<>(
+                new LimitePeticionesFiltro(maximo, espera, registro));
+        filtro.addUrlPatterns("/api/*");
+        filtro.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return filtro;
+    }
+
+    /**
+     * Crea las métricas de bloqueos de los hilos virtuales cuando están
+     * activados.
+     *
+     * @return métricas de hilos virtuales
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public MetricasHilosVirtuales metricasHilosVirtuales() {
+        return new MetricasHilosVirtuales();
+    }
+
+    /**
+     * Espera a que terminen los fichajes en proceso al detener la aplicación.
+     */
+    @PreDestroy
+    public void cerrarEjecutorFichajes() {
+        if (ejecutorFichajes != null && !ejecutorFichajes.cerrar(ESPERA_CIERRE_MS)) {
+            Logs.ficheroLog("⚠️ Quedaron fichajes sin terminar al detener la aplicación");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package altair.fichajes_api.Configuraciones;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import altair.fichajes_api.logs.Logs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Limita las peticiones HTTP que se atienden a la vez cuando Tomcat usa hilos
+ * virtuales, que no tienen el tope del grupo de hilos de plataforma.
+ *
+ * Las peticiones que superan el límite esperan turno en orden de llegada y, si
+ * no lo consiguen en el tiempo máximo, se responden con 503. Así solo compiten
+ * por las conexiones del pool unas pocas peticiones más de las que caben,
+ * en lugar de todas las que lleguen.
+ *
+ * Métricas:
+ * <ul>
+ * <li>fichajes.http.peticiones.activas: peticiones en proceso.</li>
+ * <li>fichajes.http.peticiones.en-espera: peticiones esperando turno.</li>
+ * <li>fichajes.http.peticiones.rechazadas: peticiones respondidas con 503 por
+ * no conseguir turno.</li>
+ * </ul>
+ */
+public class LimitePeticionesFiltro extends OncePerRequestFilter {
+
+    private final Semaphore turnos;
+    private final long esperaMaximaMs;
+    private final AtomicInteger activas = new AtomicInteger();
+    private final AtomicInteger enEspera = new AtomicInteger();
+    private final Counter rechazadas;
+
+    /**
+     * @param maximo         Peticiones atendidas a la vez como máximo
+     * @param esperaMaximaMs Tiempo máximo de espera de turno en milisegundos
+     * @param registro       Registro de métricas
+     */
+    public LimitePeticionesFiltro(int maximo, long esperaMaximaMs, MeterRegistry registro) {
+        this.turnos = new Semaphore(maximo, true);
+        this.esperaMaximaMs = esperaMaximaMs;
+        Gauge.builder("fichajes.http.peticiones.activas", activas, AtomicInteger::get)
+                .description("Peticiones HTTP en proceso").register(registro);
+        Gauge.builder("fichajes.http.peticiones.en-espera", enEspera, AtomicInteger::get)
+                .description("Peticiones HTTP esperando turno").register(registro);
+        this.rechazadas = Counter.builder("fichajes.http.peticiones.rechazadas")
+                .description("Peticiones HTTP rechazadas por no conseguir turno").register(registro);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest peticion, HttpServletResponse respuesta, FilterChain cadena)
+            throws ServletException, IOException {
+        enEspera.incrementAndGet();
+        boolean turno;
+        try {
+            turno = turnos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            turno = false;
+        } finally {
+            enEspera.decrementAndGet();
+        }
+
+        if (!turno) {
+            rechazadas.increment();
+            Logs.ficheroLog("⚠️ Petición rechazada por exceso de carga: " + peticion.getRequestURI());
+            respuesta.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        activas.incrementAndGet();
+        try {
+            cadena.doFilter(peticion, respuesta);
+        } finally {
+            activas.decrementAndGet();
+            turnos.release();
+        }
+    }
+}
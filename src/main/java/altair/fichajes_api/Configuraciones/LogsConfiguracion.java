@@ -0,0 +1,48 @@
+package altair.fichajes_api.Configuraciones;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.logs.PoliticaColaLlena;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Clase de configuración del log en archivo.
+ * Aplica la capacidad y la política de la cola de mensajes definidas en las
+ * propiedades y publica sus métricas en el actuator.
+ */
+@Configuration
+public class LogsConfiguracion {
+
+    @Value("${fichajes.logs.capacidad-cola:10000}")
+    private int capacidadCola;
+
+    @Value("${fichajes.logs.politica-cola-llena:DESCARTAR_NUEVO}")
+    private PoliticaColaLlena politicaColaLlena;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    /**
+     * Configura la cola de logs y registra las métricas de profundidad,
+     * mensajes escritos y mensajes descartados.
+     */
+    @PostConstruct
+    public void configurarLogs() {
+        Logs.configurar(capacidadCola, politicaColaLlena);
+
+        Gauge.builder("fichajes.logs.cola.profundidad", Logs::profundidadCola)
+                .description("Mensajes de log pendientes de escribir").register(registro);
+        Gauge.builder("fichajes.logs.cola.capacidad", Logs::capacidadCola)
+                .description("Capacidad de la cola de mensajes de log").register(registro);
+        FunctionCounter.builder("fichajes.logs.escritos", Logs.class, c -> Logs.mensajesEscritos())
+                .description("Mensajes de log escritos en archivo").register(registro);
+        FunctionCounter.builder("fichajes.logs.descartados", Logs.class, c -> Logs.mensajesDescartados())
+                .description("Mensajes de log descartados").register(registro);
+    }
+}
@@ -0,0 +1,48 @@
+package altair.fichajes_api.Configuraciones;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Métricas de los hilos virtuales a partir de los eventos de JFR de la propia
+ * JVM.
+ *
+ * <ul>
+ * <li>fichajes.hilos.virtuales.fijados: veces que un hilo virtual se bloqueó
+ * más de {@value #UMBRAL_FIJADO_MS} ms sin soltar su hilo de plataforma (por
+ * ejemplo, dentro de un bloque synchronized), con su duración.</li>
+ * <li>fichajes.hilos.virtuales.envios-fallidos: hilos virtuales que no se
+ * pudieron arrancar o reanudar.</li>
+ * </ul>
+ */
+public class MetricasHilosVirtuales implements MeterBinder, AutoCloseable {
+
+    static final long UMBRAL_FIJADO_MS = 20;
+
+    private final RecordingStream eventos = new RecordingStream();
+
+    @Override
+    public void bindTo(MeterRegistry registro) {
+        Timer fijados = Timer.builder("fichajes.hilos.virtuales.fijados")
+                .description("Bloqueos de hilos virtuales que retienen su hilo de plataforma").register(registro);
+        Counter enviosFallidos = Counter.builder("fichajes.hilos.virtuales.envios-fallidos")
+                .description("Hilos virtuales que no se pudieron arrancar o reanudar").register(registro);
+
+        eventos.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(UMBRAL_FIJADO_MS));
+        eventos.enable("jdk.VirtualThreadSubmitFailed");
+        eventos.onEvent("jdk.VirtualThreadPinned", e -> fijados.record(e.getDuration()));
+        eventos.onEvent("jdk.VirtualThreadSubmitFailed", e -> enviosFallidos.increment());
+        eventos.setMaxAge(Duration.ofSeconds(10));
+        eventos.startAsync();
+    }
+
+    @Override
+    public void close() {
+        eventos.close();
+    }
+}
@@ -6,8 +6,10 @@ import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +20,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import altair.fichajes_api.dtos.AlumnoConMatriculacionDto;
 import altair.fichajes_api.dtos.AlumnoDto;
@@ -26,8 +31,14 @@ import altair.fichajes_api.dtos.CursoDto;
 import altair.fichajes_api.dtos.EventoLectorDto;
 import altair.fichajes_api.dtos.GrupoDto;
 import altair.fichajes_api.dtos.MatriculacionDto;
+import altair.fichajes_api.dtos.PaginaDto;
+import altair.fichajes_api.dtos.ResultadoImportacionFestivosDto;
+import altair.fichajes_api.dtos.ResultadoImportacionMatriculasDto;
+import altair.fichajes_api.dtos.ResumenAsistenciaDto;
 import altair.fichajes_api.entidad.AsistenciaEntidad;
+import altair.fichajes_api.entidad.EstadoAsistencia;
 import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.lector.LectorEventoEmisor;
 import altair.fichajes_api.lector.LectorEventoServicio;
 import altair.fichajes_api.logs.Logs;
 import altair.fichajes_api.repositorios.AsistenciaInterfaz;
@@ -35,8 +46,15 @@ import altair.fichajes_api.repositorios.MatriculacionInterfaz;
 import altair.fichajes_api.servicios.AlumnoServicio;
 import altair.fichajes_api.servicios.AsistenciaServicio;
 import altair.fichajes_api.servicios.CursoServicio;
+import altair.fichajes_api.servicios.ExportacionAsistenciasServicio;
+import altair.fichajes_api.servicios.FestivoServicio;
+import altair.fichajes_api.servicios.FormatoExportacion;
 import altair.fichajes_api.servicios.GrupoServicio;
+import altair.fichajes_api.servicios.ImportacionMatriculasServicio;
 import altair.fichajes_api.servicios.MatriculacionServicio;
+import altair.fichajes_api.servicios.PeriodoResumen;
+import altair.fichajes_api.servicios.ResumenAsistenciaServicio;
+import altair.fichajes_api.utilidades.CursorPaginacion;
 
 /*
  * Clase que se encarga de los metodos CRUD de la API
@@ -61,6 +79,16 @@ public class Controlador {
 	MatriculacionInterfaz matriculacionInterfaz;
 	@Autowired
 	private LectorEventoServicio lectorEventoServicio;
+	@Autowired
+	private LectorEventoEmisor lectorEventoEmisor;
+	@Autowired
+	private ExportacionAsistenciasServicio exportacionAsistenciasServicio;
+	@Autowired
+	private ResumenAsistenciaServicio resumenAsistenciaServicio;
+	@Autowired
+	private FestivoServicio festivoServicio;
+	@Autowired
+	private ImportacionMatriculasServicio importacionMatriculasServicio;
 
 
 
@@ -81,6 +109,24 @@ public class Controlador {
 	    );
 	}
 
+	/**
+	 * Endpoint GET /lector/eventos que abre un stream Server-Sent Events con un
+	 * EventoLectorDto por cada tarjeta detectada, sin necesidad de sondear
+	 * /lector/evento.
+	 *
+	 * @return SseEmitter del cliente, o 503 si hay demasiados suscriptores.
+	 */
+	@GetMapping(value = "/lector/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> suscribirEventosLector() {
+	    Logs.ficheroLog("➡️ Nueva suscripción a eventos del lector");
+	    try {
+	        return ResponseEntity.ok(lectorEventoEmisor.suscribir());
+	    } catch (IllegalStateException e) {
+	        Logs.ficheroLog("⚠️ Suscripción a eventos del lector rechazada: " + e.getMessage());
+	        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+	    }
+	}
+
 
 
 
@@ -116,18 +162,35 @@ public class Controlador {
 	}
 
 	/**
-	 * Lista todos los alumnos registrados.
+	 * Lista los alumnos registrados. Si se indica cursor o límite devuelve una
+	 * página ordenada por ID con el cursor de la siguiente; si no, todos.
 	 *
-	 * @return ArrayList de AlumnoDto.
+	 * @param cursor Cursor devuelto por la página anterior (opcional).
+	 * @param limite Número máximo de alumnos por página (opcional).
+	 * @return ArrayList de AlumnoDto, o PaginaDto si se pide paginación.
 	 */
 	@GetMapping("/alumnos")
-	public ArrayList<AlumnoDto> listaAlumnos() {
+	public ResponseEntity<?> listaAlumnos(@RequestParam(required = false) String cursor,
+	        @RequestParam(required = false) Integer limite) {
+	    if (cursor != null || limite != null) {
+	        Logs.ficheroLog("➡️ Solicitud para listar una página de alumnos");
+	        try {
+	            PaginaDto<AlumnoDto> pagina = alumnoServicio.obtenerPaginaAlumnos(cursor,
+	                    CursorPaginacion.limitar(limite));
+	            Logs.ficheroLog("✅ Página de alumnos obtenida. Total: " + pagina.getElementos().size());
+	            return ResponseEntity.ok(pagina);
+	        } catch (IllegalArgumentException e) {
+	            Logs.ficheroLog("⚠️ " + e.getMessage());
+	            return ResponseEntity.badRequest().body(e.getMessage());
+	        }
+	    }
+
 	    Logs.ficheroLog("➡️ Solicitud para listar todos los alumnos");
 
 	    try {
 	        ArrayList<AlumnoDto> lista = alumnoServicio.obtenerTodosAlumnos();
 	        Logs.ficheroLog("✅ Lista de alumnos obtenida correctamente. Total: " + lista.size());
-	        return lista;
+	        return ResponseEntity.ok(lista);
 	    } catch (Exception e) {
 	        Logs.ficheroLog("❌ Error al listar alumnos: " + e.getMessage());
 	        throw e; // re-lanzamos para que el controlador mantenga el comportamiento original
@@ -139,7 +202,8 @@ public class Controlador {
 	 * Guarda un alumno con su matriculación asociada.
 	 *
 	 * @param dto Objeto AlumnoConMatriculacionDto con los datos a guardar.
-	 * @return ResponseEntity con el alumno guardado o mensaje de error.
+	 * @return ResponseEntity con el alumno guardado, 409 si la tarjeta ya está
+	 *         asignada en ese año escolar, o mensaje de error.
 	 */
 	@PostMapping("/guardarAlumno")
 	public ResponseEntity<?> guardarAlumno(@RequestBody AlumnoConMatriculacionDto dto) {
@@ -148,6 +212,10 @@ public class Controlador {
 			AlumnoConMatriculacionDto alumnoGuardado = alumnoServicio.guardarAlumnoConMatriculacion(dto);
 			Logs.ficheroLog("✅ Alumno guardado exitosamente con ID: " + alumnoGuardado.getIdAlumno());
 			return ResponseEntity.ok(alumnoGuardado);
+		} catch (DataIntegrityViolationException e) {
+			Logs.ficheroLog("⚠️ UID de tarjeta ya asignado en ese año escolar: " + dto.getUidLlave());
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body("La tarjeta ya está asignada a otra matrícula de ese año escolar");
 		} catch (Exception e) {
 			Logs.ficheroLog("❌ Error al guardar alumno: " + e.getMessage());
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -501,6 +569,10 @@ public class Controlador {
 			MatriculacionEntidad nueva = matriculacionServicio.crearMatriculacion(dto);
 			Logs.ficheroLog("✅ Matriculación creada con ID: " + nueva.getIdMatriculacion());
 			return ResponseEntity.ok(nueva);
+		} catch (DataIntegrityViolationException e) {
+			Logs.ficheroLog("⚠️ UID de tarjeta ya asignado en ese año escolar: " + dto.getUidLlave());
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body("La tarjeta ya está asignada a otra matrícula de ese año escolar");
 		} catch (Exception e) {
 			Logs.ficheroLog("❌ Error al crear matriculación: " + e.getMessage());
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -528,6 +600,10 @@ public class Controlador {
 				Logs.ficheroLog("⚠️ Matrícula no encontrada con ID: " + idMatriculacion);
 				return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Matrícula no encontrada");
 			}
+		} catch (DataIntegrityViolationException e) {
+			Logs.ficheroLog("⚠️ UID de tarjeta ya asignado en ese año escolar: " + dto.getUidLlave());
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body("La tarjeta ya está asignada a otra matrícula de ese año escolar");
 		} catch (Exception e) {
 			Logs.ficheroLog("❌ Error al modificar matrícula con ID " + idMatriculacion + ": " + e.getMessage());
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al modificar matrícula");
@@ -535,18 +611,36 @@ public class Controlador {
 	}
 
 	/**
-	 * Obtiene la lista de todas las matriculaciones.
+	 * Obtiene la lista de matriculaciones. Si se indica cursor o límite devuelve
+	 * una página ordenada por ID con el cursor de la siguiente; si no, todas.
 	 *
-	 * @return Lista de MatriculacionDto.
+	 * @param cursor Cursor devuelto por la página anterior (opcional).
+	 * @param limite Número máximo de matriculaciones por página (opcional).
+	 * @return Lista de MatriculacionDto, o PaginaDto si se pide paginación.
 	 */
 	@GetMapping("/matriculaciones")
-	public List<MatriculacionDto> listarMatriculaciones() {
+	public ResponseEntity<?> listarMatriculaciones(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limite) {
+		if (cursor != null || limite != null) {
+			Logs.ficheroLog("➡️ Solicitud para listar una página de matriculaciones");
+			try {
+				return ResponseEntity
+						.ok(matriculacionServicio.obtenerPaginaDto(cursor, CursorPaginacion.limitar(limite)));
+			} catch (IllegalArgumentException e) {
+				Logs.ficheroLog("⚠️ " + e.getMessage());
+				return ResponseEntity.badRequest().body(e.getMessage());
+			} catch (Exception e) {
+				Logs.ficheroLog("❌ Error al listar matriculaciones: " + e.getMessage());
+				return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+			}
+		}
+
 		Logs.ficheroLog("➡️ Solicitud para listar todas las matriculaciones");
 		try {
-			return matriculacionServicio.obtenerTodasDto();
+			return ResponseEntity.ok(matriculacionServicio.obtenerTodasDto());
 		} catch (Exception e) {
 			Logs.ficheroLog("❌ Error al listar matriculaciones: " + e.getMessage());
-			return new ArrayList<>();
+			return ResponseEntity.ok(new ArrayList<MatriculacionDto>());
 		}
 	}
 
@@ -615,6 +709,35 @@ public class Controlador {
 		}
 	}
 
+	/**
+	 * Da de alta alumnos con su matrícula desde un CSV con las columnas nombre,
+	 * apellido, curso, grupo, anio_escolar y uid (opcional). El CSV se lee línea
+	 * a línea y las filas válidas se guardan en lotes; las filas con errores se
+	 * devuelven con su número de línea y no impiden guardar las demás.
+	 *
+	 * @param archivo Archivo CSV.
+	 * @return ResponseEntity con las matrículas creadas y los errores por fila.
+	 */
+	@PostMapping(value = "/matriculaciones/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<?> importarMatriculaciones(@RequestParam("archivo") MultipartFile archivo) {
+		Logs.ficheroLog("➡️ Solicitud para importar matrículas: " + archivo.getOriginalFilename() + " ("
+				+ archivo.getSize() + " bytes)");
+
+		try {
+			ResultadoImportacionMatriculasDto resultado = importacionMatriculasServicio
+					.importar(archivo.getInputStream());
+			Logs.ficheroLog("✅ Matrículas importadas: " + resultado);
+			return ResponseEntity.ok(resultado);
+
+		} catch (IllegalArgumentException e) {
+			Logs.ficheroLog("⚠️ CSV de matrículas no válido: " + e.getMessage());
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (Exception e) {
+			Logs.ficheroLog("❌ Error al importar matrículas. Motivo: " + e.getMessage());
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al importar las matrículas");
+		}
+	}
+
 	/**
 	 * Modifica una asistencia existente.
 	 *
@@ -641,7 +764,7 @@ public class Controlador {
 
 				AsistenciaDto dto = new AsistenciaDto();
 				dto.setIdAsistencia(asistenciaActualizada.getIdAsistencia());
-				dto.setEstado(asistenciaActualizada.getEstado());
+				dto.setEstado(EstadoAsistencia.nombreDe(asistenciaActualizada.getEstado()));
 				dto.setHoraEntrada(asistenciaActualizada.getHoraEntrada());
 				dto.setHoraSalida(asistenciaActualizada.getHoraSalida());
 				dto.setJustificarModificacion(asistenciaActualizada.getJustificar_modificacion());
@@ -659,6 +782,34 @@ public class Controlador {
 		}
 	}
 
+	/**
+	 * Modifica la asistencia de una matrícula en una fecha. Con las faltas
+	 * derivadas permite corregir una falta o un festivo que aún no está guardado
+	 * (y por tanto no tiene ID).
+	 *
+	 * @param idMatriculacion ID de la matrícula.
+	 * @param fecha           Fecha de la asistencia.
+	 * @param asistenciaDto   DTO con los nuevos datos de la asistencia.
+	 * @return ResponseEntity con la asistencia modificada o mensaje de error.
+	 */
+	@PutMapping("/modificarAsistencia/matriculacion/{idMatriculacion}/{fecha}")
+	public ResponseEntity<?> modificarAsistenciaDeMatriculacion(@PathVariable Long idMatriculacion,
+			@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+			@RequestBody AsistenciaDto asistenciaDto) {
+
+		Logs.ficheroLog("➡️ Solicitud para modificar asistencia de la matrícula " + idMatriculacion + " en " + fecha);
+
+		Long idAsistencia;
+		try {
+			idAsistencia = asistenciaServicio.obtenerIdAsistenciaGuardada(idMatriculacion, fecha);
+		} catch (Exception e) {
+			Logs.ficheroLog("⚠️ Asistencia no encontrada para la matrícula " + idMatriculacion + " en " + fecha + ": "
+					+ e.getMessage());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Asistencia no encontrada");
+		}
+		return modificarAsistencia(idAsistencia, asistenciaDto);
+	}
+
 	/**
 	 * Obtiene las asistencias de hoy para un curso y grupo.
 	 *
@@ -716,19 +867,35 @@ public class Controlador {
 
 
 	/**
-	 * Obtiene todas las asistencias registradas.
+	 * Obtiene las asistencias registradas. Si se indica cursor o límite devuelve
+	 * una página ordenada por fecha e ID con el cursor de la siguiente; si no,
+	 * todas (para volcados grandes, mejor /asistencias/exportar).
 	 *
-	 * @return ResponseEntity con la lista completa de asistencias.
+	 * @param cursor Cursor devuelto por la página anterior (opcional).
+	 * @param limite Número máximo de asistencias por página (opcional).
+	 * @return ResponseEntity con la lista completa de asistencias o la página.
 	 */
 	@GetMapping("/asistencias")
-	public ResponseEntity<List<AsistenciaDto>> verTodasAsistencias() {
-	    Logs.ficheroLog("➡️ Solicitud para obtener todas las asistencias");
+	public ResponseEntity<?> verTodasAsistencias(@RequestParam(required = false) String cursor,
+	        @RequestParam(required = false) Integer limite) {
+	    boolean paginada = cursor != null || limite != null;
+	    Logs.ficheroLog("➡️ Solicitud para obtener " + (paginada ? "una página de" : "todas") + " las asistencias");
 
 	    try {
+	        if (paginada) {
+	            PaginaDto<AsistenciaDto> pagina = asistenciaServicio.obtenerPaginaAsistencias(cursor,
+	                    CursorPaginacion.limitar(limite));
+	            Logs.ficheroLog("✅ Asistencias obtenidas: " + pagina.getElementos().size());
+	            return ResponseEntity.ok(pagina);
+	        }
+
 	        List<AsistenciaDto> lista = asistenciaServicio.obtenerTodasAsistencias();
 	        Logs.ficheroLog("✅ Total asistencias obtenidas: " + lista.size());
 	        return ResponseEntity.ok(lista);
 
+	    } catch (IllegalArgumentException e) {
+	        Logs.ficheroLog("⚠️ " + e.getMessage());
+	        return ResponseEntity.badRequest().body(e.getMessage());
 	    } catch (Exception e) {
 	        Logs.ficheroLog("❌ Error al obtener todas las asistencias: " + e.getMessage());
 	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -737,22 +904,86 @@ public class Controlador {
 
 
 	/**
-	 * Lista asistencias por fecha específica.
+	 * Exporta las asistencias en NDJSON o CSV. La respuesta se escribe a medida
+	 * que se leen las filas de la base de datos, sin cargar la tabla en memoria,
+	 * por lo que sirve para exportar años completos.
 	 *
-	 * @param fecha Fecha para filtrar las asistencias.
+	 * @param formato Formato de salida: ndjson (por defecto) o csv.
+	 * @param desde   Fecha inicial del rango (opcional).
+	 * @param hasta   Fecha final del rango (opcional).
+	 * @param curso   Nombre del curso (opcional).
+	 * @param grupo   Nombre del grupo (opcional).
+	 * @return ResponseEntity con el cuerpo que escribe la exportación.
+	 */
+	@GetMapping("/asistencias/exportar")
+	public ResponseEntity<StreamingResponseBody> exportarAsistencias(
+	        @RequestParam(defaultValue = "ndjson") String formato,
+	        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+	        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+	        @RequestParam(required = false) String curso,
+	        @RequestParam(required = false) String grupo) {
+
+	    FormatoExportacion tipo;
+	    try {
+	        tipo = FormatoExportacion.valueOf(formato.trim().toUpperCase());
+	    } catch (IllegalArgumentException e) {
+	        Logs.ficheroLog("⚠️ Formato de exportación no válido: " + formato);
+	        return ResponseEntity.badRequest().build();
+	    }
+
+	    String filtros = "desde " + desde + " hasta " + hasta + ", Curso: " + curso + ", Grupo: " + grupo;
+	    Logs.ficheroLog("➡️ Solicitud para exportar asistencias en " + tipo + " " + filtros);
+
+	    StreamingResponseBody cuerpo = salida -> {
+	        try {
+	            long filas = exportacionAsistenciasServicio.exportar(desde, hasta, curso, grupo, tipo, salida);
+	            Logs.ficheroLog("✅ Asistencias exportadas: " + filas);
+	        } catch (Exception e) {
+	            Logs.ficheroLog("❌ Error al exportar asistencias " + filtros + ". Motivo: " + e.getMessage());
+	            throw e;
+	        }
+	    };
+
+	    String nombreArchivo = "asistencias." + tipo.name().toLowerCase();
+	    return ResponseEntity.ok()
+	            .contentType(MediaType.parseMediaType(tipo.tipoContenido() + ";charset=UTF-8"))
+	            .header("Content-Disposition", "attachment; filename=\"" + nombreArchivo + "\"")
+	            .body(cuerpo);
+	}
+
+
+	/**
+	 * Lista asistencias por fecha específica. Si se indica cursor o límite
+	 * devuelve una página ordenada por ID con el cursor de la siguiente.
+	 *
+	 * @param fecha  Fecha para filtrar las asistencias.
+	 * @param cursor Cursor devuelto por la página anterior (opcional).
+	 * @param limite Número máximo de asistencias por página (opcional).
 	 * @return ResponseEntity con la lista de asistencias en la fecha indicada.
 	 */
 	@GetMapping("/asistencia/fecha/{fecha}")
 	public ResponseEntity<?> listarPorFecha(
-	        @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+	        @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+	        @RequestParam(required = false) String cursor,
+	        @RequestParam(required = false) Integer limite) {
 
 	    Logs.ficheroLog("➡️ Solicitud para obtener asistencias por fecha: " + fecha);
 
 	    try {
+	        if (cursor != null || limite != null) {
+	            PaginaDto<AsistenciaDto> pagina = asistenciaServicio.obtenerPaginaPorFecha(fecha, cursor,
+	                    CursorPaginacion.limitar(limite));
+	            Logs.ficheroLog("✅ Asistencias obtenidas: " + pagina.getElementos().size());
+	            return ResponseEntity.ok(pagina);
+	        }
+
 	        List<AsistenciaDto> lista = asistenciaServicio.obtenerPorFecha(fecha);
 	        Logs.ficheroLog("✅ Asistencias obtenidas: " + lista.size());
 	        return ResponseEntity.ok(lista);
 
+	    } catch (IllegalArgumentException e) {
+	        Logs.ficheroLog("⚠️ " + e.getMessage());
+	        return ResponseEntity.badRequest().body(e.getMessage());
 	    } catch (Exception e) {
 	        Logs.ficheroLog("❌ Error al obtener asistencias por fecha " + fecha + ": " + e.getMessage());
 	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -781,6 +1012,9 @@ public class Controlador {
 	        Logs.ficheroLog("✅ Asistencias obtenidas: " + lista.size());
 	        return ResponseEntity.ok(lista);
 
+	    } catch (IllegalArgumentException e) {
+	        Logs.ficheroLog("⚠️ " + e.getMessage());
+	        return ResponseEntity.badRequest().build();
 	    } catch (Exception e) {
 	        Logs.ficheroLog("❌ Error al obtener asistencias AlumnoID: " + alumnoId + ", Estado: " + estado
 	                + ", Año escolar: " + anioEscolar + ". Motivo: " + e.getMessage());
@@ -795,22 +1029,37 @@ public class Controlador {
 	 * @param alumnoId ID del alumno.
 	 * @param desde    Fecha de inicio del rango.
 	 * @param hasta    Fecha final del rango.
+	 * @param cursor   Cursor devuelto por la página anterior (opcional).
+	 * @param limite   Número máximo de asistencias por página (opcional).
 	 * @return ResponseEntity con la lista de asistencias encontradas dentro del
-	 *         rango.
+	 *         rango, o una página ordenada por fecha e ID si se indica cursor o
+	 *         límite.
 	 */
 	@GetMapping("/asistencia/rango/{alumnoId}")
-	public ResponseEntity<List<AsistenciaDto>> obtenerPorRango(@PathVariable Long alumnoId,
+	public ResponseEntity<?> obtenerPorRango(@PathVariable Long alumnoId,
 	        @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
-	        @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+	        @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+	        @RequestParam(required = false) String cursor,
+	        @RequestParam(required = false) Integer limite) {
 
 	    Logs.ficheroLog(
 	            "➡️ Solicitud para obtener asistencias AlumnoID: " + alumnoId + " desde " + desde + " hasta " + hasta);
 
 	    try {
+	        if (cursor != null || limite != null) {
+	            PaginaDto<AsistenciaDto> pagina = asistenciaServicio.obtenerPaginaPorRango(alumnoId, desde, hasta,
+	                    cursor, CursorPaginacion.limitar(limite));
+	            Logs.ficheroLog("✅ Asistencias obtenidas: " + pagina.getElementos().size());
+	            return ResponseEntity.ok(pagina);
+	        }
+
 	        List<AsistenciaDto> asistencias = asistenciaServicio.obtenerPorRango(alumnoId, desde, hasta);
 	        Logs.ficheroLog("✅ Asistencias obtenidas: " + asistencias.size());
 	        return ResponseEntity.ok(asistencias);
 
+	    } catch (IllegalArgumentException e) {
+	        Logs.ficheroLog("⚠️ " + e.getMessage());
+	        return ResponseEntity.badRequest().body(e.getMessage());
 	    } catch (Exception e) {
 	        Logs.ficheroLog("❌ Error al obtener asistencias por rango AlumnoID: " + alumnoId +
 	                " desde " + desde + " hasta " + hasta + ". Motivo: " + e.getMessage());
@@ -849,5 +1098,168 @@ public class Controlador {
 	    }
 	}
 
+	/**
+	 * Obtiene con una sola consulta el conteo de estados de asistencias de varios
+	 * alumnos en un rango de fechas.
+	 *
+	 * @param alumnoIds IDs de los alumnos separados por comas.
+	 * @param desde     Fecha de inicio del rango.
+	 * @param hasta     Fecha final del rango.
+	 * @return ResponseEntity con un mapa ID de alumno → cantidad de cada estado.
+	 */
+	@GetMapping("/asistencia/conteoEstados")
+	public ResponseEntity<?> obtenerConteoEstadosDeAlumnos(@RequestParam List<Long> alumnoIds,
+	        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+	        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+	    Logs.ficheroLog("➡️ Solicitud para obtener conteo de estados de " + alumnoIds.size() + " alumnos desde "
+	            + desde + " hasta " + hasta);
+
+	    if (alumnoIds.size() > CursorPaginacion.LIMITE_MAXIMO) {
+	        Logs.ficheroLog("⚠️ Demasiados alumnos en la solicitud de conteo: " + alumnoIds.size());
+	        return ResponseEntity.badRequest().body("Como máximo " + CursorPaginacion.LIMITE_MAXIMO + " alumnos");
+	    }
+
+	    try {
+	        Map<Long, Map<String, Integer>> conteos = asistenciaServicio.obtenerConteoEstadosDeAlumnos(alumnoIds,
+	                desde, hasta);
+	        Logs.ficheroLog("✅ Conteo obtenido para " + conteos.size() + " alumnos");
+	        return ResponseEntity.ok(conteos);
+
+	    } catch (Exception e) {
+	        Logs.ficheroLog("❌ Error al obtener conteo de estados de alumnos " + alumnoIds + " desde " + desde
+	                + " hasta " + hasta + ". Motivo: " + e.getMessage());
+	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+	    }
+	}
+
+	/**
+	 * Obtiene con una sola consulta el conteo de estados de asistencias de los
+	 * alumnos de un grupo en un rango de fechas.
+	 *
+	 * @param idGrupo ID del grupo.
+	 * @param desde   Fecha de inicio del rango.
+	 * @param hasta   Fecha final del rango.
+	 * @return ResponseEntity con un mapa ID de alumno → cantidad de cada estado.
+	 */
+	@GetMapping("/asistencia/conteoEstados/grupo/{idGrupo}")
+	public ResponseEntity<Map<Long, Map<String, Integer>>> obtenerConteoEstadosDeGrupo(@PathVariable Long idGrupo,
+	        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+	        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+	    Logs.ficheroLog("➡️ Solicitud para obtener conteo de estados GrupoID: " + idGrupo + " desde " + desde
+	            + " hasta " + hasta);
+
+	    try {
+	        Map<Long, Map<String, Integer>> conteos = asistenciaServicio.obtenerConteoEstadosDeGrupo(idGrupo, desde,
+	                hasta);
+	        Logs.ficheroLog("✅ Conteo obtenido para " + conteos.size() + " alumnos");
+	        return ResponseEntity.ok(conteos);
+
+	    } catch (Exception e) {
+	        Logs.ficheroLog("❌ Error al obtener conteo de estados GrupoID: " + idGrupo + " desde " + desde
+	                + " hasta " + hasta + ". Motivo: " + e.getMessage());
+	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+	    }
+	}
+
+
+	/* RESUMEN DE ASISTENCIAS */
+
+	/**
+	 * Obtiene el resumen de asistencias de un grupo en el día, la semana (de
+	 * lunes a domingo) o el mes de una fecha. Solo lee la tabla de resumen.
+	 *
+	 * @param idGrupo ID del grupo.
+	 * @param periodo Periodo: dia (por defecto), semana o mes.
+	 * @param fecha   Día de referencia (por defecto, hoy).
+	 * @return ResponseEntity con los totales por estado y el detalle por día.
+	 */
+	@GetMapping("/resumen/grupo/{idGrupo}")
+	public ResponseEntity<ResumenAsistenciaDto> obtenerResumenGrupo(@PathVariable Long idGrupo,
+	        @RequestParam(defaultValue = "dia") String periodo,
+	        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+
+	    Logs.ficheroLog("➡️ Solicitud de resumen de asistencias GrupoID: " + idGrupo + ", Periodo: " + periodo
+	            + ", Fecha: " + fecha);
+
+	    PeriodoResumen tipo;
+	    try {
+	        tipo = PeriodoResumen.valueOf(periodo.trim().toUpperCase());
+	    } catch (IllegalArgumentException e) {
+	        Logs.ficheroLog("⚠️ Periodo de resumen no válido: " + periodo);
+	        return ResponseEntity.badRequest().build();
+	    }
+
+	    try {
+	        ResumenAsistenciaDto resumen = resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo, tipo,
+	                fecha != null ? fecha : LocalDate.now());
+	        Logs.ficheroLog("✅ Resumen obtenido: " + resumen.getTotales());
+	        return ResponseEntity.ok(resumen);
+
+	    } catch (Exception e) {
+	        Logs.ficheroLog("❌ Error al obtener resumen de asistencias GrupoID: " + idGrupo + ". Motivo: "
+	                + e.getMessage());
+	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+	    }
+	}
+
+	/**
+	 * Reconstruye el resumen de asistencias de un rango de fechas a partir de las
+	 * asistencias registradas.
+	 *
+	 * @param desde Fecha inicial del rango.
+	 * @param hasta Fecha final del rango.
+	 * @return ResponseEntity con el número de contadores escritos.
+	 */
+	@PostMapping("/resumen/reconstruir")
+	public ResponseEntity<?> reconstruirResumen(
+	        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+	        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+	    Logs.ficheroLog("➡️ Solicitud para reconstruir el resumen de asistencias desde " + desde + " hasta " + hasta);
+
+	    try {
+	        int escritos = resumenAsistenciaServicio.reconstruir(desde, hasta);
+	        Logs.ficheroLog("✅ Resumen reconstruido: " + escritos + " contadores");
+	        return ResponseEntity.ok(Map.of("contadores", escritos));
+
+	    } catch (Exception e) {
+	        Logs.ficheroLog("❌ Error al reconstruir el resumen desde " + desde + " hasta " + hasta + ". Motivo: "
+	                + e.getMessage());
+	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al reconstruir el resumen");
+	    }
+	}
+
+	/* CALENDARIO DE FESTIVOS */
+
+	/**
+	 * Importa un calendario de festivos (uno o varios años) con el formato del
+	 * archivo de festivos. Sustituye a esos años en el archivo y en la tabla, en
+	 * una transacción, y conserva los festivos de los demás años; si el
+	 * calendario es el mismo que el último importado no se toca la tabla.
+	 *
+	 * @param archivo Archivo del calendario.
+	 * @return ResponseEntity con los festivos insertados y eliminados.
+	 */
+	@PostMapping(value = "/festivos/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<?> importarFestivos(@RequestParam("archivo") MultipartFile archivo) {
+		Logs.ficheroLog("➡️ Solicitud para importar el calendario de festivos: " + archivo.getOriginalFilename()
+				+ " (" + archivo.getSize() + " bytes)");
+
+		try {
+			ResultadoImportacionFestivosDto resultado = festivoServicio.importarCalendario(archivo.getBytes());
+			Logs.ficheroLog("✅ Calendario de festivos importado: " + resultado);
+			return ResponseEntity.ok(resultado);
+
+		} catch (IllegalArgumentException e) {
+			Logs.ficheroLog("⚠️ Calendario de festivos no válido: " + e.getMessage());
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (Exception e) {
+			Logs.ficheroLog("❌ Error al importar el calendario de festivos. Motivo: " + e.getMessage());
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body("Error al importar el calendario de festivos");
+		}
+	}
 
 }
@@ -3,6 +3,8 @@ package altair.fichajes_api.dtos;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import altair.fichajes_api.entidad.EstadoAsistencia;
+
 /**
  * Clase que se encarga de los campos de asistencia
  */
@@ -21,6 +23,32 @@ public class AsistenciaDto {
 	private String estado;
 	private String anioEscolar;
 
+	public AsistenciaDto() {
+	}
+
+	/**
+	 * Constructor usado por las consultas que devuelven directamente el DTO sin
+	 * cargar las entidades (por ejemplo, la exportación de asistencias). El
+	 * estado se guarda por su nombre.
+	 */
+	public AsistenciaDto(Long idAsistencia, Long matriculacionId, Long alumnoId, String nombreCompletoAlumno,
+			String nombreCurso, String nombreGrupo, String anioEscolar, LocalDate fecha, LocalDateTime horaEntrada,
+			LocalDateTime horaSalida, EstadoAsistencia estado, String justificarModificacion, LocalDateTime fechaModificacion) {
+		this.idAsistencia = idAsistencia;
+		this.matriculacionId = matriculacionId;
+		this.alumnoId = alumnoId;
+		this.nombreCompletoAlumno = nombreCompletoAlumno;
+		this.nombreCurso = nombreCurso;
+		this.nombreGrupo = nombreGrupo;
+		this.anioEscolar = anioEscolar;
+		this.fecha = fecha;
+		this.horaEntrada = horaEntrada;
+		this.horaSalida = horaSalida;
+		this.estado = EstadoAsistencia.nombreDe(estado);
+		this.justificarModificacion = justificarModificacion;
+		this.fechaModificacion = fechaModificacion;
+	}
+
 	public Long getIdAsistencia() {
 		return idAsistencia;
 	}
@@ -0,0 +1,44 @@
+package altair.fichajes_api.dtos;
+
+import java.util.List;
+
+/**
+ * Clase que se encarga de los campos de una página de resultados paginados por
+ * cursor
+ *
+ * @param <T> Tipo de los elementos de la página
+ */
+public class PaginaDto<T> {
+
+	private List<T> elementos;
+	private int limite;
+	private String siguienteCursor;
+
+	public List<T> getElementos() {
+		return elementos;
+	}
+
+	public void setElementos(List<T> elementos) {
+		this.elementos = elementos;
+	}
+
+	public int getLimite() {
+		return limite;
+	}
+
+	public void setLimite(int limite) {
+		this.limite = limite;
+	}
+
+	/**
+	 * @return Cursor a enviar para pedir la página siguiente, o null si esta es la
+	 *         última
+	 */
+	public String getSiguienteCursor() {
+		return siguienteCursor;
+	}
+
+	public void setSiguienteCursor(String siguienteCursor) {
+		this.siguienteCursor = siguienteCursor;
+	}
+}
@@ -0,0 +1,74 @@
+package altair.fichajes_api.dtos;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Clase que se encarga de los campos del resultado de cerrar las asistencias
+ * de un día
+ */
+public class ResultadoCierreDto {
+
+	private LocalDate fecha;
+	private String modo;
+	private int sinSalidaMarcadas;
+	private int faltasInsertadas;
+	private Map<String, Long> conteoEstados;
+	private long duracionMs;
+
+	public LocalDate getFecha() {
+		return fecha;
+	}
+
+	public void setFecha(LocalDate fecha) {
+		this.fecha = fecha;
+	}
+
+	public String getModo() {
+		return modo;
+	}
+
+	public void setModo(String modo) {
+		this.modo = modo;
+	}
+
+	public int getSinSalidaMarcadas() {
+		return sinSalidaMarcadas;
+	}
+
+	public void setSinSalidaMarcadas(int sinSalidaMarcadas) {
+		this.sinSalidaMarcadas = sinSalidaMarcadas;
+	}
+
+	public int getFaltasInsertadas() {
+		return faltasInsertadas;
+	}
+
+	public void setFaltasInsertadas(int faltasInsertadas) {
+		this.faltasInsertadas = faltasInsertadas;
+	}
+
+	public Map<String, Long> getConteoEstados() {
+		return conteoEstados;
+	}
+
+	public void setConteoEstados(Map<String, Long> conteoEstados) {
+		this.conteoEstados = conteoEstados;
+	}
+
+	public long getDuracionMs() {
+		return duracionMs;
+	}
+
+	public void setDuracionMs(long duracionMs) {
+		this.duracionMs = duracionMs;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultadoCierreDto [fecha=" + fecha + ", modo=" + modo + ", sinSalidaMarcadas=" + sinSalidaMarcadas
+				+ ", faltasInsertadas=" + faltasInsertadas + ", conteoEstados=" + conteoEstados + ", duracionMs="
+				+ duracionMs + "]";
+	}
+
+}
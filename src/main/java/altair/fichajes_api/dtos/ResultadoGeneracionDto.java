@@ -0,0 +1,63 @@
+package altair.fichajes_api.dtos;
+
+import java.time.LocalDate;
+
+/**
+ * Clase que se encarga de los campos del resultado de generar las asistencias
+ * de un día
+ */
+public class ResultadoGeneracionDto {
+
+	private LocalDate fecha;
+	private String anioEscolar;
+	private String estado;
+	private int filasInsertadas;
+	private long duracionMs;
+
+	public LocalDate getFecha() {
+		return fecha;
+	}
+
+	public void setFecha(LocalDate fecha) {
+		this.fecha = fecha;
+	}
+
+	public String getAnioEscolar() {
+		return anioEscolar;
+	}
+
+	public void setAnioEscolar(String anioEscolar) {
+		this.anioEscolar = anioEscolar;
+	}
+
+	public String getEstado() {
+		return estado;
+	}
+
+	public void setEstado(String estado) {
+		this.estado = estado;
+	}
+
+	public int getFilasInsertadas() {
+		return filasInsertadas;
+	}
+
+	public void setFilasInsertadas(int filasInsertadas) {
+		this.filasInsertadas = filasInsertadas;
+	}
+
+	public long getDuracionMs() {
+		return duracionMs;
+	}
+
+	public void setDuracionMs(long duracionMs) {
+		this.duracionMs = duracionMs;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultadoGeneracionDto [fecha=" + fecha + ", anioEscolar=" + anioEscolar + ", estado=" + estado
+				+ ", filasInsertadas=" + filasInsertadas + ", duracionMs=" + duracionMs + "]";
+	}
+
+}
@@ -0,0 +1,111 @@
+package altair.fichajes_api.dtos;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Clase que se encarga de los campos del resultado de importar un calendario de
+ * festivos
+ */
+public class ResultadoImportacionFestivosDto {
+
+	private String origen;
+	private String hash;
+	private boolean sinCambios;
+	private int fechasLeidas;
+	private List<Integer> anios;
+	private List<LocalDate> insertadas;
+	private List<LocalDate> eliminadas;
+	private int duplicadasEliminadas;
+	private List<String> fechasNoValidas;
+	private long duracionMs;
+
+	public String getOrigen() {
+		return origen;
+	}
+
+	public void setOrigen(String origen) {
+		this.origen = origen;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	public boolean isSinCambios() {
+		return sinCambios;
+	}
+
+	public void setSinCambios(boolean sinCambios) {
+		this.sinCambios = sinCambios;
+	}
+
+	public int getFechasLeidas() {
+		return fechasLeidas;
+	}
+
+	public void setFechasLeidas(int fechasLeidas) {
+		this.fechasLeidas = fechasLeidas;
+	}
+
+	public List<Integer> getAnios() {
+		return anios;
+	}
+
+	public void setAnios(List<Integer> anios) {
+		this.anios = anios;
+	}
+
+	public List<LocalDate> getInsertadas() {
+		return insertadas;
+	}
+
+	public void setInsertadas(List<LocalDate> insertadas) {
+		this.insertadas = insertadas;
+	}
+
+	public List<LocalDate> getEliminadas() {
+		return eliminadas;
+	}
+
+	public void setEliminadas(List<LocalDate> eliminadas) {
+		this.eliminadas = eliminadas;
+	}
+
+	public int getDuplicadasEliminadas() {
+		return duplicadasEliminadas;
+	}
+
+	public void setDuplicadasEliminadas(int duplicadasEliminadas) {
+		this.duplicadasEliminadas = duplicadasEliminadas;
+	}
+
+	public List<String> getFechasNoValidas() {
+		return fechasNoValidas;
+	}
+
+	public void setFechasNoValidas(List<String> fechasNoValidas) {
+		this.fechasNoValidas = fechasNoValidas;
+	}
+
+	public long getDuracionMs() {
+		return duracionMs;
+	}
+
+	public void setDuracionMs(long duracionMs) {
+		this.duracionMs = duracionMs;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultadoImportacionFestivosDto [origen=" + origen + ", hash=" + hash + ", sinCambios=" + sinCambios
+				+ ", fechasLeidas=" + fechasLeidas + ", anios=" + anios + ", insertadas=" + insertadas
+				+ ", eliminadas=" + eliminadas + ", duplicadasEliminadas=" + duplicadasEliminadas
+				+ ", fechasNoValidas=" + fechasNoValidas + ", duracionMs=" + duracionMs + "]";
+	}
+
+}
@@ -0,0 +1,67 @@
+package altair.fichajes_api.dtos;
+
+import java.util.Map;
+
+/**
+ * Clase que se encarga de los campos del resultado de importar alumnos y
+ * matrículas desde un CSV
+ */
+public class ResultadoImportacionMatriculasDto {
+
+	private int filasLeidas;
+	private int matriculasCreadas;
+	private int lotes;
+	private Map<Integer, String> errores;
+	private long duracionMs;
+
+	public int getFilasLeidas() {
+		return filasLeidas;
+	}
+
+	public void setFilasLeidas(int filasLeidas) {
+		this.filasLeidas = filasLeidas;
+	}
+
+	public int getMatriculasCreadas() {
+		return matriculasCreadas;
+	}
+
+	public void setMatriculasCreadas(int matriculasCreadas) {
+		this.matriculasCreadas = matriculasCreadas;
+	}
+
+	public int getLotes() {
+		return lotes;
+	}
+
+	public void setLotes(int lotes) {
+		this.lotes = lotes;
+	}
+
+	/**
+	 * @return Motivo del rechazo de cada fila no importada, por número de línea
+	 */
+	public Map<Integer, String> getErrores() {
+		return errores;
+	}
+
+	public void setErrores(Map<Integer, String> errores) {
+		this.errores = errores;
+	}
+
+	public long getDuracionMs() {
+		return duracionMs;
+	}
+
+	public void setDuracionMs(long duracionMs) {
+		this.duracionMs = duracionMs;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultadoImportacionMatriculasDto [filasLeidas=" + filasLeidas + ", matriculasCreadas="
+				+ matriculasCreadas + ", lotes=" + lotes + ", errores=" + (errores != null ? errores.size() : 0)
+				+ ", duracionMs=" + duracionMs + "]";
+	}
+
+}
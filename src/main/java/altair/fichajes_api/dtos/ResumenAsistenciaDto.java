@@ -0,0 +1,66 @@
+package altair.fichajes_api.dtos;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Clase que se encarga de los campos del resumen de asistencias de un grupo en
+ * un periodo
+ */
+public class ResumenAsistenciaDto {
+
+	private Long grupoId;
+	private String periodo;
+	private LocalDate desde;
+	private LocalDate hasta;
+	private Map<String, Long> totales;
+	private Map<LocalDate, Map<String, Long>> dias;
+
+	public Long getGrupoId() {
+		return grupoId;
+	}
+
+	public void setGrupoId(Long grupoId) {
+		this.grupoId = grupoId;
+	}
+
+	public String getPeriodo() {
+		return periodo;
+	}
+
+	public void setPeriodo(String periodo) {
+		this.periodo = periodo;
+	}
+
+	public LocalDate getDesde() {
+		return desde;
+	}
+
+	public void setDesde(LocalDate desde) {
+		this.desde = desde;
+	}
+
+	public LocalDate getHasta() {
+		return hasta;
+	}
+
+	public void setHasta(LocalDate hasta) {
+		this.hasta = hasta;
+	}
+
+	public Map<String, Long> getTotales() {
+		return totales;
+	}
+
+	public void setTotales(Map<String, Long> totales) {
+		this.totales = totales;
+	}
+
+	public Map<LocalDate, Map<String, Long>> getDias() {
+		return dias;
+	}
+
+	public void setDias(Map<LocalDate, Map<String, Long>> dias) {
+		this.dias = dias;
+	}
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -19,8 +20,9 @@ import jakarta.persistence.Table;
 public class AlumnoEntidad {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(name = "id_alumno")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alumno_seq")
+    @SequenceGenerator(name = "alumno_seq", sequenceName = "alumno_seq", allocationSize = 50)
+    @Column(name = "id_alumno", columnDefinition = "bigint default nextval('alumno_seq')")
     private Long idAlumno;
 
     @Column(name = "nombre_alumno", nullable = false, length = 100)
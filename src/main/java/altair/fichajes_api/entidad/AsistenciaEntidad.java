@@ -11,17 +11,29 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "asistencia")
+@Table(name = "asistencia", uniqueConstraints = @UniqueConstraint(name = "uk_asistencia_matriculacion_fecha",
+        columnNames = { "matriculacion_id", "fecha" }), indexes = {
+                @Index(name = "idx_asistencia_fecha", columnList = "fecha") })
 public class AsistenciaEntidad {
 
+    /**
+     * Los ids salen de una secuencia reservada de 50 en 50, de modo que
+     * Hibernate no necesita una ida y vuelta por fila y puede agrupar las
+     * inserciones en lotes. El valor por defecto de la columna usa la misma
+     * secuencia para las inserciones en SQL que no dan el id.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(name = "id_asistencia")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "asistencia_seq")
+    @SequenceGenerator(name = "asistencia_seq", sequenceName = "asistencia_seq", allocationSize = 50)
+    @Column(name = "id_asistencia", columnDefinition = "bigint default nextval('asistencia_seq')")
     private Long idAsistencia;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -38,8 +50,8 @@ public class AsistenciaEntidad {
     @Column(name = "hora_salida")
     private LocalDateTime horaSalida;
 
-    @Column(name = "estado", length = 50)
-    private String estado;
+    @Column(name = "estado")
+    private EstadoAsistencia estado;
 
     @Column(name="justificar_modificacion")
     private String justificarModificacion;
@@ -85,10 +97,10 @@ public class AsistenciaEntidad {
 	public void setHoraSalida(LocalDateTime horaSalida) {
 		this.horaSalida = horaSalida;
 	}
-	public String getEstado() {
+	public EstadoAsistencia getEstado() {
 		return estado;
 	}
-	public void setEstado(String estado) {
+	public void setEstado(EstadoAsistencia estado) {
 		this.estado = estado;
 	}
 
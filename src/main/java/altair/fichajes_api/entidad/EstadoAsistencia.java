@@ -0,0 +1,100 @@
+package altair.fichajes_api.entidad;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Estado de una asistencia.
+ *
+ * En la base de datos se guarda el código numérico de cada estado (columna
+ * smallint), que no debe cambiar aunque se añadan estados o se reordenen. Hacia
+ * fuera (DTOs y JSON) se usa el nombre de siempre, por ejemplo "SIN SALIDA".
+ */
+public enum EstadoAsistencia {
+
+	/** El alumno ha fichado la entrada y aún no la salida. */
+	PRESENTE((short) 1, "PRESENTE"),
+
+	/** El alumno ha fichado la entrada y la salida. */
+	COMPLETA((short) 2, "COMPLETA"),
+
+	/** El día se cerró con el alumno dentro; la salida es la hora de cierre. */
+	SIN_SALIDA((short) 3, "SIN SALIDA"),
+
+	/** El alumno no ha fichado la entrada. */
+	FALTA((short) 4, "FALTA"),
+
+	/** Día festivo para el alumno. */
+	FESTIVO((short) 5, "FESTIVO");
+
+	private static final EstadoAsistencia[] POR_CODIGO = new EstadoAsistencia[6];
+
+	static {
+		for (EstadoAsistencia estado : values()) {
+			POR_CODIGO[estado.codigo] = estado;
+		}
+	}
+
+	private final short codigo;
+	private final String nombre;
+
+	EstadoAsistencia(short codigo, String nombre) {
+		this.codigo = codigo;
+		this.nombre = nombre;
+	}
+
+	/**
+	 * @return Código guardado en la base de datos
+	 */
+	public short getCodigo() {
+		return codigo;
+	}
+
+	/**
+	 * @return Nombre del estado en DTOs y JSON
+	 */
+	@JsonValue
+	public String getNombre() {
+		return nombre;
+	}
+
+	/**
+	 * Obtiene el estado de un código guardado en la base de datos.
+	 *
+	 * @param codigo Código del estado
+	 * @return Estado del código
+	 * @throws IllegalArgumentException si el código no corresponde a ningún estado
+	 */
+	public static EstadoAsistencia desdeCodigo(short codigo) {
+		if (codigo <= 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+			throw new IllegalArgumentException("Código de estado de asistencia desconocido: " + codigo);
+		}
+		return POR_CODIGO[codigo];
+	}
+
+	/**
+	 * Obtiene el estado a partir de su nombre ("SIN SALIDA") o del nombre de la
+	 * constante ("SIN_SALIDA"), sin distinguir mayúsculas.
+	 *
+	 * @param nombre Nombre del estado
+	 * @return Estado con ese nombre
+	 * @throws IllegalArgumentException si el nombre no corresponde a ningún estado
+	 */
+	@JsonCreator
+	public static EstadoAsistencia desdeNombre(String nombre) {
+		for (EstadoAsistencia estado : values()) {
+			if (estado.nombre.equalsIgnoreCase(nombre) || estado.name().equalsIgnoreCase(nombre)) {
+				return estado;
+			}
+		}
+		throw new IllegalArgumentException("Estado de asistencia desconocido: " + nombre);
+	}
+
+	/**
+	 * @param estado Estado o null
+	 * @return Nombre del estado, o null si el estado es null
+	 */
+	public static String nombreDe(EstadoAsistencia estado) {
+		return estado != null ? estado.nombre : null;
+	}
+}
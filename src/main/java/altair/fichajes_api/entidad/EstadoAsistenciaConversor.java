@@ -0,0 +1,23 @@
+package altair.fichajes_api.entidad;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Guarda {@link EstadoAsistencia} como su código numérico en columnas smallint.
+ * Se aplica a todos los atributos de ese tipo, incluidos los parámetros de las
+ * consultas JPQL.
+ */
+@Converter(autoApply = true)
+public class EstadoAsistenciaConversor implements AttributeConverter<EstadoAsistencia, Short> {
+
+	@Override
+	public Short convertToDatabaseColumn(EstadoAsistencia estado) {
+		return estado != null ? estado.getCodigo() : null;
+	}
+
+	@Override
+	public EstadoAsistencia convertToEntityAttribute(Short codigo) {
+		return codigo != null ? EstadoAsistencia.desdeCodigo(codigo) : null;
+	}
+}
@@ -7,14 +7,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "festivos")
+@Table(name = "festivos", indexes = @Index(name = "idx_festivos_fecha", columnList = "fecha"))
 public class FestivoEntidad {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "festivos_seq")
+    @SequenceGenerator(name = "festivos_seq", sequenceName = "festivos_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('festivos_seq')")
     private Long id;
 
     @Column(nullable = false)
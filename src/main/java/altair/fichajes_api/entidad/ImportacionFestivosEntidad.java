@@ -0,0 +1,64 @@
+package altair.fichajes_api.entidad;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Último calendario de festivos importado. La tabla tiene como mucho una fila
+ * (con id {@link #ID}) y guarda el hash del contenido, de modo que una
+ * importación del mismo calendario se salta también tras reiniciar.
+ */
+@Entity
+@Table(name = "importacion_festivos")
+public class ImportacionFestivosEntidad {
+
+    public static final Integer ID = 1;
+
+    @Id
+    private Integer id = ID;
+
+    @Column(nullable = false, length = 64)
+    private String hash;
+
+    @Column(nullable = false, length = 20)
+    private String origen;
+
+    @Column(name = "fecha_importacion", nullable = false)
+    private LocalDateTime fechaImportacion;
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	public String getOrigen() {
+		return origen;
+	}
+
+	public void setOrigen(String origen) {
+		this.origen = origen;
+	}
+
+	public LocalDateTime getFechaImportacion() {
+		return fechaImportacion;
+	}
+
+	public void setFechaImportacion(LocalDateTime fechaImportacion) {
+		this.fechaImportacion = fechaImportacion;
+	}
+}
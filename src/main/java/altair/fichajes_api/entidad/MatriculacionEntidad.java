@@ -1,5 +1,6 @@
 package altair.fichajes_api.entidad;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,15 +17,19 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "matriculacion")
+@Table(name = "matriculacion", uniqueConstraints = @UniqueConstraint(name = "uk_matriculacion_uid_anio",
+        columnNames = { "uid_llave", "anio_escolar" }))
 public class MatriculacionEntidad {
 	
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(name = "id_matriculacion")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "matriculacion_seq")
+    @SequenceGenerator(name = "matriculacion_seq", sequenceName = "matriculacion_seq", allocationSize = 50)
+    @Column(name = "id_matriculacion", columnDefinition = "bigint default nextval('matriculacion_seq')")
     private Long idMatriculacion;
 
 
@@ -52,6 +57,10 @@ public class MatriculacionEntidad {
     @Column(name = "uid_llave", length = 100)
     private String uidLlave;
 
+    /** Día desde el que la matrícula tiene asistencias. */
+    @Column(name = "fecha_alta", nullable = false, updatable = false)
+    private LocalDate fechaAlta = LocalDate.now();
+
     @OneToMany(mappedBy = "matriculacion", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
     private List<AsistenciaEntidad> asistencias = new ArrayList<>();
@@ -105,6 +114,14 @@ public class MatriculacionEntidad {
         this.uidLlave = uidLlave;
     }
 
+    public LocalDate getFechaAlta() {
+        return fechaAlta;
+    }
+
+    public void setFechaAlta(LocalDate fechaAlta) {
+        this.fechaAlta = fechaAlta;
+    }
+
     public List<AsistenciaEntidad> getAsistencias() {
         return asistencias;
     }
@@ -0,0 +1,67 @@
+package altair.fichajes_api.entidad;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Número de asistencias de cada estado por día, curso y grupo. Es una tabla
+ * derivada de la de asistencias: se actualiza al cambiar una asistencia y se
+ * puede reconstruir en cualquier momento a partir de ella.
+ */
+@Entity
+@Table(name = "resumen_asistencia", uniqueConstraints = @UniqueConstraint(name = "uk_resumen_asistencia",
+        columnNames = { "fecha", "curso_id", "grupo_id", "estado" }), indexes = {
+                @Index(name = "idx_resumen_asistencia_grupo_fecha", columnList = "grupo_id, fecha") })
+public class ResumenAsistenciaEntidad {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "curso_id", nullable = false)
+    private Long cursoId;
+
+    @Column(name = "grupo_id", nullable = false)
+    private Long grupoId;
+
+    @Column(name = "estado", nullable = false)
+    private EstadoAsistencia estado;
+
+    @Column(name = "cantidad", nullable = false)
+    private long cantidad;
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public Long getCursoId() {
+        return cursoId;
+    }
+
+    public Long getGrupoId() {
+        return grupoId;
+    }
+
+    public EstadoAsistencia getEstado() {
+        return estado;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+}
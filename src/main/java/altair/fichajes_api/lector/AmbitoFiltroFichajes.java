@@ -0,0 +1,13 @@
+package altair.fichajes_api.lector;
+
+/**
+ * Ámbito en el que se filtran las lecturas repetidas de una misma tarjeta.
+ */
+public enum AmbitoFiltroFichajes {
+
+	/** Una tarjeta leída en cualquier lector bloquea la misma tarjeta en todos. */
+	GLOBAL,
+
+	/** Cada lector filtra sus propias lecturas de forma independiente. */
+	LECTOR
+}
@@ -0,0 +1,94 @@
+package altair.fichajes_api.lector;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+
+import altair.fichajes_api.logs.Logs;
+
+/**
+ * Espera a que se acerque una tarjeta a un lector NFC.
+ *
+ * En modo eventos se bloquea en {@link CardTerminal#waitForCardPresent(long)},
+ * de modo que la tarjeta se detecta en cuanto el driver la notifica y el hilo
+ * no se despierta mientras no hay tarjetas. Si el driver no bloquea (devuelve
+ * al instante sin tarjeta varias veces seguidas) o no soporta la espera, el
+ * detector pasa a consultar {@link CardTerminal#isCardPresent()} cada cierto
+ * intervalo.
+ */
+final class DetectorTarjeta {
+
+	/** Esperas seguidas que vuelven antes de tiempo para considerar que el driver no bloquea. */
+	private static final int MAX_ESPERAS_FALLIDAS = 3;
+
+	private final CardTerminal terminal;
+	private final long esperaMs;
+	private final long intervaloSondeoMs;
+	private boolean eventos;
+	private int esperasFallidas;
+
+	/**
+	 * @param terminal          Lector NFC
+	 * @param eventos           true para esperar eventos del driver, false para
+	 *                          sondear
+	 * @param esperaMs          Tiempo máximo de cada espera en modo eventos
+	 * @param intervaloSondeoMs Intervalo entre consultas en modo sondeo
+	 */
+	DetectorTarjeta(CardTerminal terminal, boolean eventos, long esperaMs, long intervaloSondeoMs) {
+		this.terminal = terminal;
+		this.eventos = eventos;
+		this.esperaMs = esperaMs;
+		this.intervaloSondeoMs = intervaloSondeoMs;
+	}
+
+	/**
+	 * Espera como máximo un intervalo a que haya una tarjeta en el lector.
+	 *
+	 * @return true si hay una tarjeta, false si no ha llegado ninguna
+	 * @throws CardException        Si el lector falla o se desconecta
+	 * @throws InterruptedException Si se interrumpe el hilo
+	 */
+	boolean esperarTarjeta() throws CardException, InterruptedException {
+		if (eventos) {
+			long inicio = System.nanoTime();
+			try {
+				if (terminal.waitForCardPresent(esperaMs)) {
+					esperasFallidas = 0;
+					return true;
+				}
+			} catch (UnsupportedOperationException | IllegalStateException e) {
+				pasarASondeo("espera no soportada: " + e.getMessage());
+				return false;
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if ((System.nanoTime() - inicio) / 1_000_000 < esperaMs / 2) {
+				if (++esperasFallidas >= MAX_ESPERAS_FALLIDAS) {
+					pasarASondeo("la espera vuelve sin bloquear");
+				}
+			} else {
+				esperasFallidas = 0;
+			}
+			return false;
+		}
+
+		if (terminal.isCardPresent()) {
+			return true;
+		}
+		Thread.sleep(intervaloSondeoMs);
+		return false;
+	}
+
+	/**
+	 * @return true si el detector espera eventos del driver
+	 */
+	boolean usaEventos() {
+		return eventos;
+	}
+
+	private void pasarASondeo(String motivo) {
+		eventos = false;
+		Logs.ficheroLog("Lector NFC " + terminal.getName() + " pasa a sondeo cada " + intervaloSondeoMs + " ms ("
+				+ motivo + ")");
+	}
+}
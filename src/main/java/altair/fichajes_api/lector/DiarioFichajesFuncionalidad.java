@@ -0,0 +1,427 @@
+package altair.fichajes_api.lector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import altair.fichajes_api.logs.Logs;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Diario local de fichajes. Cada tarjeta detectada se anota en disco antes de
+ * procesarse, de forma que si la base de datos no está disponible el fichaje
+ * no se pierde y se aplica más tarde con su hora original.
+ *
+ * El diario son archivos de tamaño fijo proyectados en memoria (segmentos) con
+ * registros de {@value #TAMANIO_REGISTRO} bytes que solo se añaden al final.
+ * Cada registro lleva un CRC y su byte de estado se escribe el último, así que
+ * un registro a medio escribir por una caída se detecta al arrancar. Un
+ * segmento se borra cuando ya no tiene fichajes pendientes.
+ *
+ * Formato del registro:
+ * <pre>
+ * 0  estado (0 libre, 1 pendiente, 2 aplicado)
+ * 1  longitud de la UID
+ * 2  longitud del nombre del lector
+ * 4  CRC32 de los bytes 8-63
+ * 8  instante del fichaje en milisegundos
+ * 16 UID en ASCII (máx. 20)
+ * 36 nombre del lector en UTF-8 (máx. 28)
+ * </pre>
+ */
+@Service
+public class DiarioFichajesFuncionalidad {
+
+	static final int TAMANIO_REGISTRO = 64;
+
+	private static final byte LIBRE = 0;
+	private static final byte PENDIENTE = 1;
+	private static final byte APLICADO = 2;
+
+	private static final int POS_ESTADO = 0;
+	private static final int POS_LONGITUD_UID = 1;
+	private static final int POS_LONGITUD_LECTOR = 2;
+	private static final int POS_CRC = 4;
+	private static final int POS_INSTANTE = 8;
+	private static final int POS_UID = 16;
+	private static final int POS_LECTOR = 36;
+	private static final int MAX_UID = POS_LECTOR - POS_UID;
+	private static final int MAX_LECTOR = TAMANIO_REGISTRO - POS_LECTOR;
+
+	private static final String PREFIJO = "fichajes-";
+	private static final String EXTENSION = ".diario";
+
+	@Autowired
+	private MeterRegistry registro;
+
+	@Value("${fichajes.lector.diario.ruta:/home/altair/Desktop/Ficheros/Ficheros-API/diario}")
+	private String ruta;
+
+	@Value("${fichajes.lector.diario.registros-por-segmento:65536}")
+	private int registrosPorSegmento;
+
+	/**
+	 * Si es true cada anotación se fuerza a disco; si no, sobrevive a una caída
+	 * del proceso pero no a un corte de luz.
+	 */
+	@Value("${fichajes.lector.diario.forzar-disco:false}")
+	private boolean forzarDisco;
+
+	// Fichajes que no se pudieron aplicar al momento, por número de secuencia
+	private final ConcurrentSkipListMap<Long, Anotacion> aplazadas = new ConcurrentSkipListMap<>();
+
+	// Protege el segmento actual y los contadores de pendientes. Es un cerrojo y
+	// no synchronized para no fijar el hilo virtual del fichaje mientras escribe en disco
+	private final ReentrantLock cerrojo = new ReentrantLock();
+
+	private Segmento actual;
+	private volatile boolean activo;
+
+	/**
+	 * Fichaje anotado en el diario.
+	 */
+	public static final class Anotacion {
+
+		private final Segmento segmento;
+		private final int indice;
+		private final String uid;
+		private final String lector;
+		private final long instante;
+
+		private Anotacion(Segmento segmento, int indice, String uid, String lector, long instante) {
+			this.segmento = segmento;
+			this.indice = indice;
+			this.uid = uid;
+			this.lector = lector;
+			this.instante = instante;
+		}
+
+		/**
+		 * @return Número de orden del fichaje en el diario
+		 */
+		public long getSecuencia() {
+			return (segmento.numero << 32) | indice;
+		}
+
+		public String getUid() {
+			return uid;
+		}
+
+		public String getLector() {
+			return lector;
+		}
+
+		/**
+		 * @return Instante del fichaje en milisegundos desde la época
+		 */
+		public long getInstante() {
+			return instante;
+		}
+	}
+
+	/**
+	 * Archivo del diario proyectado en memoria.
+	 */
+	private static final class Segmento {
+
+		private final long numero;
+		private final int capacidad;
+		private final Path archivo;
+		private final FileChannel canal;
+		private final MappedByteBuffer mapa;
+		private int siguiente;
+		private int pendientes;
+
+		Segmento(long numero, int capacidad, Path archivo) throws IOException {
+			this.numero = numero;
+			this.capacidad = capacidad;
+			this.archivo = archivo;
+			this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacidad * TAMANIO_REGISTRO);
+		}
+
+		boolean lleno() {
+			return siguiente >= capacidad;
+		}
+
+		void cerrar() {
+			try {
+				canal.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Abre el diario y recupera los fichajes que quedaron pendientes. Si no se
+	 * puede abrir, los fichajes se procesan sin diario.
+	 */
+	@PostConstruct
+	public void abrir() {
+		Gauge.builder("fichajes.lector.diario.pendientes", aplazadas, Map::size)
+				.description("Fichajes del diario pendientes de aplicar").register(registro);
+		try {
+			Path carpeta = Paths.get(ruta);
+			Files.createDirectories(carpeta);
+
+			List<Path> archivos;
+			try (Stream<Path> s = Files.list(carpeta)) {
+				archivos = s.filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+						&& p.getFileName().toString().endsWith(EXTENSION)).sorted().toList();
+			}
+
+			Segmento ultimo = null;
+			for (Path archivo : archivos) {
+				Segmento segmento = recuperar(archivo);
+				if (ultimo != null && ultimo.pendientes == 0) {
+					borrar(ultimo);
+				}
+				ultimo = segmento;
+			}
+			actual = ultimo == null || ultimo.lleno() ? nuevoSegmento(ultimo == null ? 0 : ultimo.numero + 1) : ultimo;
+			if (ultimo != null && ultimo != actual && ultimo.pendientes == 0) {
+				borrar(ultimo);
+			}
+
+			activo = true;
+			if (!aplazadas.isEmpty()) {
+				Logs.ficheroLog("Diario de fichajes: " + aplazadas.size() + " fichajes pendientes de aplicar");
+			}
+		} catch (IOException | RuntimeException e) {
+			Logs.ficheroLog("No se pudo abrir el diario de fichajes en " + ruta + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Anota un fichaje en el diario.
+	 *
+	 * @param uid      UID de la tarjeta en hexadecimal
+	 * @param lector   Nombre del lector
+	 * @param instante Instante del fichaje en milisegundos desde la época
+	 * @return Anotación o null si el diario no está disponible
+	 */
+	public Anotacion anotar(String uid, String lector, long instante) {
+		cerrojo.lock();
+		try {
+			if (!activo) {
+				return null;
+			}
+			byte[] bytesUid = uid.getBytes(StandardCharsets.US_ASCII);
+			if (bytesUid.length > MAX_UID) {
+				Logs.ficheroLog("UID demasiado larga para el diario de fichajes: " + uid);
+				return null;
+			}
+			try {
+				if (actual.lleno()) {
+					Segmento anterior = actual;
+					actual = nuevoSegmento(anterior.numero + 1);
+					if (anterior.pendientes == 0) {
+						borrar(anterior);
+					}
+				}
+			} catch (IOException e) {
+				Logs.ficheroLog("No se pudo crear un segmento del diario de fichajes: " + e.getMessage());
+				return null;
+			}
+
+			byte[] bytesLector = truncar(lector.getBytes(StandardCharsets.UTF_8), MAX_LECTOR);
+			int indice = actual.siguiente++;
+			ByteBuffer r = actual.mapa.slice(indice * TAMANIO_REGISTRO, TAMANIO_REGISTRO);
+
+			r.put(POS_LONGITUD_UID, (byte) bytesUid.length);
+			r.put(POS_LONGITUD_LECTOR, (byte) bytesLector.length);
+			r.putLong(POS_INSTANTE, instante);
+			r.put(POS_UID, bytesUid);
+			r.put(POS_LECTOR, bytesLector);
+			r.putInt(POS_CRC, crc(r));
+			// El estado se escribe el último: un registro pendiente siempre está completo
+			r.put(POS_ESTADO, PENDIENTE);
+			if (forzarDisco) {
+				actual.mapa.force(indice * TAMANIO_REGISTRO, TAMANIO_REGISTRO);
+			}
+
+			actual.pendientes++;
+			return new Anotacion(actual, indice, uid, new String(bytesLector, StandardCharsets.UTF_8), instante);
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Marca un fichaje como aplicado en la base de datos. Si su segmento ya no
+	 * tiene fichajes pendientes y no es el que se está escribiendo, se borra.
+	 *
+	 * @param anotacion Fichaje anotado; si es null no se hace nada
+	 */
+	public void marcarAplicada(Anotacion anotacion) {
+		cerrojo.lock();
+		try {
+			if (anotacion == null) {
+				return;
+			}
+			aplazadas.remove(anotacion.getSecuencia());
+			Segmento segmento = anotacion.segmento;
+			segmento.mapa.put(anotacion.indice * TAMANIO_REGISTRO + POS_ESTADO, APLICADO);
+			if (forzarDisco) {
+				segmento.mapa.force(anotacion.indice * TAMANIO_REGISTRO, TAMANIO_REGISTRO);
+			}
+			segmento.pendientes--;
+			if (segmento.pendientes == 0 && segmento != actual) {
+				borrar(segmento);
+			}
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Deja un fichaje pendiente para que lo aplique el reproductor del diario.
+	 *
+	 * @param anotacion Fichaje anotado; si es null no se hace nada
+	 */
+	public void aplazar(Anotacion anotacion) {
+		if (anotacion != null) {
+			aplazadas.put(anotacion.getSecuencia(), anotacion);
+		}
+	}
+
+	/**
+	 * Indica si hay fichajes aplazados anteriores a uno dado, que deben aplicarse
+	 * antes para respetar el orden de entrada y salida.
+	 *
+	 * @param anotacion Fichaje anotado; si es null se devuelve false
+	 * @return true si hay fichajes aplazados más antiguos
+	 */
+	public boolean hayAplazadasAnteriores(Anotacion anotacion) {
+		if (anotacion == null || aplazadas.isEmpty()) {
+			return false;
+		}
+		return aplazadas.firstKey() < anotacion.getSecuencia();
+	}
+
+	/**
+	 * @return Fichajes aplazados en el orden en que se anotaron
+	 */
+	public List<Anotacion> aplazadas() {
+		return new ArrayList<>(aplazadas.values());
+	}
+
+	public int getPendientes() {
+		return aplazadas.size();
+	}
+
+	/**
+	 * Cierra los segmentos abiertos al detener la aplicación.
+	 */
+	@PreDestroy
+	public void cerrar() {
+		cerrojo.lock();
+		try {
+			activo = false;
+			if (actual != null) {
+				actual.mapa.force();
+				actual.cerrar();
+			}
+			for (Anotacion a : aplazadas.values()) {
+				a.segmento.cerrar();
+			}
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Lee un segmento existente: los registros pendientes válidos pasan a
+	 * aplazados y los dañados se descartan.
+	 */
+	private Segmento recuperar(Path archivo) throws IOException {
+		String nombre = archivo.getFileName().toString();
+		long numero = Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+		int capacidad = (int) (Files.size(archivo) / TAMANIO_REGISTRO);
+		if (capacidad == 0) {
+			capacidad = registrosPorSegmento;
+		}
+		Segmento segmento = new Segmento(numero, capacidad, archivo);
+
+		for (int i = 0; i < capacidad; i++) {
+			ByteBuffer r = segmento.mapa.slice(i * TAMANIO_REGISTRO, TAMANIO_REGISTRO);
+			byte estado = r.get(POS_ESTADO);
+			if (estado == LIBRE) {
+				continue;
+			}
+			segmento.siguiente = i + 1;
+			if (estado != PENDIENTE) {
+				continue;
+			}
+			int longitudUid = r.get(POS_LONGITUD_UID);
+			int longitudLector = r.get(POS_LONGITUD_LECTOR);
+			if (r.getInt(POS_CRC) != crc(r) || longitudUid <= 0 || longitudUid > MAX_UID || longitudLector < 0
+					|| longitudLector > MAX_LECTOR) {
+				Logs.ficheroLog("Registro dañado en el diario de fichajes " + nombre + ", posición " + i);
+				r.put(POS_ESTADO, APLICADO);
+				continue;
+			}
+			byte[] uid = new byte[longitudUid];
+			byte[] lector = new byte[longitudLector];
+			r.get(POS_UID, uid);
+			r.get(POS_LECTOR, lector);
+			segmento.pendientes++;
+			Anotacion a = new Anotacion(segmento, i, new String(uid, StandardCharsets.US_ASCII),
+					new String(lector, StandardCharsets.UTF_8), r.getLong(POS_INSTANTE));
+			aplazadas.put(a.getSecuencia(), a);
+		}
+		return segmento;
+	}
+
+	private Segmento nuevoSegmento(long numero) throws IOException {
+		Path archivo = Paths.get(ruta, String.format("%s%012d%s", PREFIJO, numero, EXTENSION));
+		return new Segmento(numero, registrosPorSegmento, archivo);
+	}
+
+	private void borrar(Segmento segmento) {
+		segmento.cerrar();
+		try {
+			Files.deleteIfExists(segmento.archivo);
+		} catch (IOException e) {
+			Logs.ficheroLog("No se pudo borrar el segmento del diario " + segmento.archivo + ": " + e.getMessage());
+		}
+	}
+
+	private static int crc(ByteBuffer registro) {
+		CRC32 crc = new CRC32();
+		crc.update(registro.slice(POS_INSTANTE, TAMANIO_REGISTRO - POS_INSTANTE));
+		crc.update(registro.get(POS_LONGITUD_UID));
+		crc.update(registro.get(POS_LONGITUD_LECTOR));
+		return (int) crc.getValue();
+	}
+
+	private static byte[] truncar(byte[] bytes, int maximo) {
+		if (bytes.length <= maximo) {
+			return bytes;
+		}
+		byte[] truncado = new byte[maximo];
+		System.arraycopy(bytes, 0, truncado, 0, maximo);
+		return truncado;
+	}
+}
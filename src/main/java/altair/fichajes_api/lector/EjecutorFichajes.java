@@ -0,0 +1,99 @@
+package altair.fichajes_api.lector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.TaskExecutor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Ejecutor del procesamiento asíncrono de los fichajes con tarjeta
+ * ({@link LectorTarjetaFuncionalidad#procesarUid}).
+ *
+ * Cada fichaje se ejecuta en un hilo virtual o, si los hilos virtuales están
+ * desactivados, en un grupo fijo de hilos de plataforma. En ambos casos como
+ * mucho hay {@code concurrencia} fichajes a la vez, para que los fichajes no
+ * ocupen todas las conexiones a la base de datos; el resto esperan su turno
+ * sin bloquear al hilo del lector que los envía.
+ *
+ * Métricas, con la etiqueta "hilos" (virtuales o plataforma):
+ * <ul>
+ * <li>fichajes.lector.ejecutor.activos: fichajes en proceso.</li>
+ * <li>fichajes.lector.ejecutor.en-espera: fichajes esperando turno.</li>
+ * </ul>
+ */
+public class EjecutorFichajes implements TaskExecutor {
+
+	private final ExecutorService hilos;
+	private final Semaphore turnos;
+	private final AtomicInteger activos = new AtomicInteger();
+	private final AtomicInteger enEspera = new AtomicInteger();
+
+	/**
+	 * @param virtuales    true para un hilo virtual por fichaje, false para un
+	 *                     grupo fijo de hilos de plataforma
+	 * @param concurrencia Fichajes procesados a la vez como máximo
+	 * @param registro     Registro de métricas
+	 */
+	public EjecutorFichajes(boolean virtuales, int concurrencia, MeterRegistry registro) {
+		if (concurrencia < 1) {
+			throw new IllegalArgumentException("La concurrencia del ejecutor de fichajes debe ser al menos 1");
+		}
+		this.hilos = virtuales
+				? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fichaje-", 0).factory())
+				: Executors.newFixedThreadPool(concurrencia, Thread.ofPlatform().name("fichaje-", 0).factory());
+		this.turnos = new Semaphore(concurrencia);
+
+		String etiqueta = virtuales ? "virtuales" : "plataforma";
+		Gauge.builder("fichajes.lector.ejecutor.activos", activos, AtomicInteger::get).tag("hilos", etiqueta)
+				.description("Fichajes en proceso").register(registro);
+		Gauge.builder("fichajes.lector.ejecutor.en-espera", enEspera, AtomicInteger::get).tag("hilos", etiqueta)
+				.description("Fichajes esperando turno para procesarse").register(registro);
+	}
+
+	@Override
+	public void execute(Runnable tarea) {
+		enEspera.incrementAndGet();
+		hilos.execute(() -> {
+			// Con hilos virtuales la espera del turno aparca el hilo sin ocupar uno de plataforma
+			turnos.acquireUninterruptibly();
+			enEspera.decrementAndGet();
+			activos.incrementAndGet();
+			try {
+				tarea.run();
+			} finally {
+				activos.decrementAndGet();
+				turnos.release();
+			}
+		});
+	}
+
+	public int getActivos() {
+		return activos.get();
+	}
+
+	public int getEnEspera() {
+		return enEspera.get();
+	}
+
+	/**
+	 * Deja de aceptar fichajes y espera a que terminen los pendientes.
+	 *
+	 * @param esperaMs Tiempo máximo de espera en milisegundos
+	 * @return true si terminaron todos
+	 */
+	public boolean cerrar(long esperaMs) {
+		hilos.shutdown();
+		try {
+			return hilos.awaitTermination(esperaMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
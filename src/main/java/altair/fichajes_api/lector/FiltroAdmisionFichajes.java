@@ -0,0 +1,126 @@
+package altair.fichajes_api.lector;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Filtro de admisión de fichajes. Descarta la lectura de una tarjeta si la
+ * misma tarjeta ya se aceptó hace menos de la ventana configurada, aunque
+ * entre medias se hayan leído otras tarjetas.
+ *
+ * Las tarjetas aceptadas se guardan en un mapa y en una rueda temporal de
+ * casillas de {@code resolucion} milisegundos; al avanzar el tiempo se vacían
+ * las casillas caducadas y se borran del mapa sus tarjetas, de modo que la
+ * limpieza cuesta lo mismo que las tarjetas que caducan.
+ */
+@Service
+public class FiltroAdmisionFichajes {
+
+	@Autowired
+	private MeterRegistry registro;
+
+	@Value("${fichajes.lector.filtro.ventana-ms:2000}")
+	private long ventanaMs;
+
+	@Value("${fichajes.lector.filtro.resolucion-ms:250}")
+	private long resolucionMs;
+
+	@Value("${fichajes.lector.filtro.ambito:GLOBAL}")
+	private AmbitoFiltroFichajes ambito;
+
+	// Último instante aceptado de cada tarjeta (o lector y tarjeta)
+	private final Map<String, Long> aceptadas = new HashMap<>();
+	private final AtomicLong suprimidas = new AtomicLong();
+
+	private ArrayDeque<String>[] rueda;
+	private long ultimaCasilla = Long.MIN_VALUE;
+
+	/**
+	 * Crea la rueda temporal y registra las métricas del filtro.
+	 */
+	@PostConstruct
+	@SuppressWarnings("unchecked")
+	public void iniciar() {
+		int casillas = (int) ((ventanaMs + resolucionMs - 1) / resolucionMs) + 1;
+		rueda = new ArrayDeque[casillas];
+		for (int i = 0; i < casillas; i++) {
+			rueda[i] = new ArrayDeque<>();
+		}
+		FunctionCounter.builder("fichajes.lector.filtro.suprimidas", suprimidas, AtomicLong::get)
+				.description("Lecturas descartadas por repetir tarjeta dentro de la ventana").register(registro);
+		Gauge.builder("fichajes.lector.filtro.tarjetas", this, FiltroAdmisionFichajes::getTarjetasRecientes)
+				.description("Tarjetas aceptadas dentro de la ventana").register(registro);
+	}
+
+	/**
+	 * Decide si se procesa la lectura de una tarjeta.
+	 *
+	 * @param lector  Nombre del lector
+	 * @param uid     UID de la tarjeta
+	 * @param ahoraMs Instante de la lectura en milisegundos
+	 * @return true si se acepta, false si se descarta por repetida
+	 */
+	public synchronized boolean admitir(String lector, String uid, long ahoraMs) {
+		limpiar(ahoraMs);
+
+		String clave = ambito == AmbitoFiltroFichajes.LECTOR ? lector + '\u0000' + uid : uid;
+		Long anterior = aceptadas.get(clave);
+		if (anterior != null && ahoraMs - anterior < ventanaMs) {
+			suprimidas.incrementAndGet();
+			return false;
+		}
+
+		aceptadas.put(clave, ahoraMs);
+		rueda[(int) Math.floorMod(ahoraMs / resolucionMs, (long) rueda.length)].add(clave);
+		return true;
+	}
+
+	public long getSuprimidas() {
+		return suprimidas.get();
+	}
+
+	public synchronized int getTarjetasRecientes() {
+		return aceptadas.size();
+	}
+
+	/**
+	 * Vacía las casillas de la rueda que han salido de la ventana desde la última
+	 * lectura y borra sus tarjetas si no se han vuelto a aceptar después.
+	 */
+	private void limpiar(long ahoraMs) {
+		long casillaActual = ahoraMs / resolucionMs;
+		if (ultimaCasilla == Long.MIN_VALUE || casillaActual - ultimaCasilla >= rueda.length) {
+			// Primera lectura o ha pasado más de una vuelta: todo ha caducado
+			if (ultimaCasilla != Long.MIN_VALUE) {
+				aceptadas.clear();
+				for (ArrayDeque<String> casilla : rueda) {
+					casilla.clear();
+				}
+			}
+			ultimaCasilla = casillaActual;
+			return;
+		}
+		for (long c = ultimaCasilla + 1; c <= casillaActual; c++) {
+			ArrayDeque<String> casilla = rueda[(int) Math.floorMod(c, (long) rueda.length)];
+			String clave;
+			while ((clave = casilla.poll()) != null) {
+				Long instante = aceptadas.get(clave);
+				if (instante != null && ahoraMs - instante >= ventanaMs) {
+					aceptadas.remove(clave);
+				}
+			}
+		}
+		ultimaCasilla = Math.max(ultimaCasilla, casillaActual);
+	}
+}
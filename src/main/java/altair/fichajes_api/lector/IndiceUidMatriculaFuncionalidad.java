@@ -0,0 +1,228 @@
+package altair.fichajes_api.lector;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.repositorios.MatriculacionInterfaz;
+import altair.fichajes_api.utilidades.Utilidades;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Índice en memoria de las tarjetas NFC del año escolar actual. Relaciona cada
+ * UID con su matrícula, el nombre del alumno, el curso y el grupo, de forma que
+ * un fichaje se resuelve sin consultar la base de datos.
+ *
+ * El índice es una instantánea inmutable que se reconstruye bajo demanda la
+ * primera vez que se consulta después de invalidarse o de cambiar el año
+ * escolar. Las escrituras sobre matrículas, alumnos, cursos o grupos deben
+ * llamar a {@link #invalidar()}.
+ */
+@Service
+public class IndiceUidMatriculaFuncionalidad {
+
+	@Autowired
+	private MatriculacionInterfaz matriculacionInterfaz;
+
+	@Autowired
+	private MeterRegistry registro;
+
+	private final AtomicLong version = new AtomicLong();
+	private final AtomicLong aciertos = new AtomicLong();
+	private final AtomicLong fallos = new AtomicLong();
+	private Timer tiempoReconstruccion;
+
+	private volatile Indice indice;
+
+	// Una sola reconstrucción a la vez; las demás consultas esperan a su resultado
+	private final ReentrantLock reconstruccion = new ReentrantLock();
+
+	/**
+	 * Registra las métricas de aciertos, fallos, tamaño y tiempo de
+	 * reconstrucción del índice.
+	 */
+	@PostConstruct
+	public void registrarMetricas() {
+		FunctionCounter.builder("fichajes.indice.uid.consultas", aciertos, AtomicLong::get)
+				.tag("resultado", "acierto").description("Consultas de UID resueltas por el índice")
+				.register(registro);
+		FunctionCounter.builder("fichajes.indice.uid.consultas", fallos, AtomicLong::get)
+				.tag("resultado", "fallo").description("Consultas de UID sin matrícula en el índice")
+				.register(registro);
+		Gauge.builder("fichajes.indice.uid.tamanio", this, i -> i.indice == null ? 0 : i.indice.entradas.size())
+				.description("Tarjetas cargadas en el índice").register(registro);
+		tiempoReconstruccion = Timer.builder("fichajes.indice.uid.reconstruccion")
+				.description("Tiempo de reconstrucción del índice de UID").register(registro);
+	}
+
+	/**
+	 * Datos de una matrícula necesarios para resolver un fichaje.
+	 */
+	public static final class MatriculaIndexada {
+
+		private final Long idMatriculacion;
+		private final String nombreAlumno;
+		private final String curso;
+		private final String grupo;
+
+		MatriculaIndexada(Long idMatriculacion, String nombreAlumno, String curso, String grupo) {
+			this.idMatriculacion = idMatriculacion;
+			this.nombreAlumno = nombreAlumno;
+			this.curso = curso;
+			this.grupo = grupo;
+		}
+
+		public Long getIdMatriculacion() {
+			return idMatriculacion;
+		}
+
+		public String getNombreAlumno() {
+			return nombreAlumno;
+		}
+
+		public String getCurso() {
+			return curso;
+		}
+
+		public String getGrupo() {
+			return grupo;
+		}
+	}
+
+	/**
+	 * Instantánea del índice para un año escolar y una versión concretos.
+	 */
+	private static final class Indice {
+
+		private final String anioEscolar;
+		private final long version;
+		private final Map<String, MatriculaIndexada> entradas;
+
+		Indice(String anioEscolar, long version, Map<String, MatriculaIndexada> entradas) {
+			this.anioEscolar = anioEscolar;
+			this.version = version;
+			this.entradas = entradas;
+		}
+	}
+
+	/**
+	 * Busca la matrícula del año escolar actual asociada a una UID.
+	 *
+	 * @param uid UID de la tarjeta NFC
+	 * @return Matrícula indexada o null si la tarjeta no pertenece a ningún alumno
+	 */
+	public MatriculaIndexada buscar(String uid) {
+		MatriculaIndexada matricula = obtenerIndice().entradas.get(uid);
+		if (matricula == null) {
+			fallos.incrementAndGet();
+		} else {
+			aciertos.incrementAndGet();
+		}
+		return matricula;
+	}
+
+	/**
+	 * Devuelve el año escolar de las matrículas indexadas.
+	 *
+	 * @return Año escolar en formato "AAAA-AAAA"
+	 */
+	public String anioEscolarIndexado() {
+		return obtenerIndice().anioEscolar;
+	}
+
+	/**
+	 * Marca el índice como desactualizado. Si hay una transacción activa, la
+	 * invalidación se aplica al confirmarse para no recargar datos sin guardar.
+	 */
+	public void invalidar() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					version.incrementAndGet();
+				}
+			});
+		} else {
+			version.incrementAndGet();
+		}
+	}
+
+	public long getAciertos() {
+		return aciertos.get();
+	}
+
+	public long getFallos() {
+		return fallos.get();
+	}
+
+	/**
+	 * Devuelve el tiempo medio de reconstrucción del índice en milisegundos.
+	 *
+	 * @return Tiempo medio de reconstrucción
+	 */
+	public double getTiempoMedioReconstruccionMs() {
+		return tiempoReconstruccion.mean(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Devuelve el índice vigente, reconstruyéndolo si está invalidado o si ha
+	 * cambiado el año escolar.
+	 */
+	private Indice obtenerIndice() {
+		Indice actual = indice;
+		String anioActual = Utilidades.obtenerAnioEscolarActual();
+		if (actual != null && actual.version == version.get() && actual.anioEscolar.equals(anioActual)) {
+			return actual;
+		}
+		reconstruccion.lock();
+		try {
+			actual = indice;
+			if (actual != null && actual.version == version.get() && actual.anioEscolar.equals(anioActual)) {
+				return actual;
+			}
+			actual = tiempoReconstruccion.record(() -> reconstruir(anioActual));
+			indice = actual;
+			return actual;
+		} finally {
+			reconstruccion.unlock();
+		}
+	}
+
+	/**
+	 * Carga en una sola consulta todas las matrículas con tarjeta del año escolar.
+	 */
+	private Indice reconstruir(String anioEscolar) {
+		long versionLeida = version.get();
+		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findConAlumnoCursoGrupoByAnioEscolar(anioEscolar);
+
+		Map<String, MatriculaIndexada> entradas = new HashMap<>();
+		for (MatriculacionEntidad m : matriculas) {
+			if (m.getUidLlave() == null || m.getUidLlave().isBlank()) {
+				continue;
+			}
+			MatriculaIndexada anterior = entradas.putIfAbsent(m.getUidLlave(),
+					new MatriculaIndexada(m.getIdMatriculacion(),
+							m.getAlumno().getNombreAlumno() + " " + m.getAlumno().getApellidoAlumno(),
+							m.getCurso().getNombreCurso(), m.getGrupo().getNombreGrupo()));
+			if (anterior != null) {
+				Logs.ficheroLog("UID duplicada en el año escolar " + anioEscolar + ": " + m.getUidLlave());
+			}
+		}
+
+		return new Indice(anioEscolar, versionLeida, Map.copyOf(entradas));
+	}
+}
@@ -0,0 +1,201 @@
+package altair.fichajes_api.lector;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import altair.fichajes_api.dtos.EventoLectorDto;
+import altair.fichajes_api.logs.Logs;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Servicio encargado de enviar por Server-Sent Events los eventos del lector
+ * NFC a los clientes suscritos (por ejemplo, la pantalla del quiosco).
+ *
+ * Cada suscriptor tiene su propia cola acotada y un hilo virtual que le envía
+ * los eventos, de modo que un cliente lento no retrasa al resto ni al lector:
+ * si su cola se llena se descarta el evento más antiguo.
+ */
+@Service
+public class LectorEventoEmisor {
+
+	@Autowired
+	private MeterRegistry registro;
+
+	@Value("${fichajes.lector.sse.max-suscriptores:50}")
+	private int maxSuscriptores;
+
+	@Value("${fichajes.lector.sse.capacidad-cola:32}")
+	private int capacidadCola;
+
+	private final CopyOnWriteArrayList<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+	private final AtomicLong secuencia = new AtomicLong();
+	private final AtomicLong publicados = new AtomicLong();
+	private final AtomicLong descartados = new AtomicLong();
+
+	/**
+	 * Registra las métricas de suscriptores y eventos.
+	 */
+	@PostConstruct
+	public void registrarMetricas() {
+		Gauge.builder("fichajes.lector.sse.suscriptores", suscriptores, CopyOnWriteArrayList::size)
+				.description("Clientes suscritos a los eventos del lector").register(registro);
+		FunctionCounter.builder("fichajes.lector.sse.publicados", publicados, AtomicLong::get)
+				.description("Eventos del lector publicados").register(registro);
+		FunctionCounter.builder("fichajes.lector.sse.descartados", descartados, AtomicLong::get)
+				.description("Eventos descartados por clientes lentos").register(registro);
+	}
+
+	/**
+	 * Crea una nueva suscripción a los eventos del lector.
+	 *
+	 * @return Emisor SSE asociado al cliente
+	 * @throws IllegalStateException si se ha alcanzado el máximo de suscriptores
+	 */
+	public SseEmitter suscribir() {
+		if (suscriptores.size() >= maxSuscriptores) {
+			throw new IllegalStateException("Se ha alcanzado el máximo de suscriptores: " + maxSuscriptores);
+		}
+
+		SseEmitter emisor = new SseEmitter(0L);
+		Suscriptor suscriptor = new Suscriptor(emisor, capacidadCola);
+
+		emisor.onCompletion(() -> eliminar(suscriptor));
+		emisor.onTimeout(() -> eliminar(suscriptor));
+		emisor.onError(e -> eliminar(suscriptor));
+
+		suscriptores.add(suscriptor);
+		suscriptor.hilo = Thread.ofVirtual().name("sse-lector-" + secuencia.incrementAndGet())
+				.start(suscriptor::enviarPendientes);
+		return emisor;
+	}
+
+	/**
+	 * Publica un evento de tarjeta detectada a todos los suscriptores. No
+	 * bloquea: el envío lo hace el hilo de cada suscriptor.
+	 *
+	 * @param evento Evento a enviar
+	 */
+	public void publicar(EventoLectorDto evento) {
+		if (suscriptores.isEmpty()) {
+			return;
+		}
+		Mensaje mensaje = new Mensaje(String.valueOf(secuencia.incrementAndGet()), evento);
+		for (Suscriptor s : suscriptores) {
+			s.encolar(mensaje);
+		}
+		publicados.incrementAndGet();
+	}
+
+	/**
+	 * Envía periódicamente un comentario a cada suscriptor para mantener la
+	 * conexión abierta y detectar clientes desconectados.
+	 */
+	@Scheduled(fixedRateString = "${fichajes.lector.sse.latido-ms:15000}")
+	public void enviarLatido() {
+		for (Suscriptor s : suscriptores) {
+			s.encolar(Mensaje.LATIDO);
+		}
+	}
+
+	/**
+	 * Cierra todas las suscripciones al detener la aplicación, antes del apagado
+	 * ordenado del servidor, para que los streams abiertos no lo retrasen.
+	 */
+	@EventListener(ContextClosedEvent.class)
+	public void cerrarSuscripciones() {
+		for (Suscriptor s : suscriptores) {
+			eliminar(s);
+		}
+	}
+
+	public int getSuscriptores() {
+		return suscriptores.size();
+	}
+
+	private void eliminar(Suscriptor suscriptor) {
+		if (suscriptores.remove(suscriptor)) {
+			suscriptor.detener();
+		}
+	}
+
+	/**
+	 * Evento pendiente de enviar, o el latido si no tiene evento. Cada suscriptor
+	 * construye su propio SseEventBuilder al enviarlo, ya que el builder cambia
+	 * al construir el mensaje y no se puede compartir entre hilos.
+	 */
+	private record Mensaje(String id, EventoLectorDto evento) {
+
+		static final Mensaje LATIDO = new Mensaje(null, null);
+
+		SseEmitter.SseEventBuilder construir() {
+			if (evento == null) {
+				return SseEmitter.event().comment("latido");
+			}
+			return SseEmitter.event().id(id).name("tarjeta").data(evento, MediaType.APPLICATION_JSON);
+		}
+	}
+
+	/**
+	 * Cliente suscrito con su cola de eventos pendientes.
+	 */
+	private final class Suscriptor {
+
+		private final SseEmitter emisor;
+		private final BlockingQueue<Mensaje> pendientes;
+		private volatile boolean activo = true;
+		private volatile Thread hilo;
+
+		Suscriptor(SseEmitter emisor, int capacidad) {
+			this.emisor = emisor;
+			this.pendientes = new ArrayBlockingQueue<>(capacidad);
+		}
+
+		void encolar(Mensaje mensaje) {
+			while (activo && !pendientes.offer(mensaje)) {
+				if (pendientes.poll() != null) {
+					descartados.incrementAndGet();
+				}
+			}
+		}
+
+		void enviarPendientes() {
+			try {
+				while (activo) {
+					emisor.send(pendientes.take().construir());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IOException | IllegalStateException e) {
+				Logs.ficheroLog("Suscriptor SSE del lector desconectado: " + e.getMessage());
+				eliminar(this);
+			}
+		}
+
+		void detener() {
+			activo = false;
+			Thread h = hilo;
+			if (h != null) {
+				h.interrupt();
+			}
+			try {
+				emisor.complete();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+}
@@ -1,15 +1,9 @@
 package altair.fichajes_api.lector;
 
-import java.util.Optional;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import altair.fichajes_api.dtos.EventoLectorDto;
-import altair.fichajes_api.entidad.MatriculacionEntidad;
-import altair.fichajes_api.repositorios.MatriculacionInterfaz;
-import altair.fichajes_api.servicios.AsistenciaServicio;
-import altair.fichajes_api.utilidades.Utilidades;
 
 @Service
 /**
@@ -23,23 +17,34 @@ public class LectorEventoServicio {
     private LectorNfcFuncionalidad lectorNfcFuncionalidad;
 
     @Autowired
-    private MatriculacionInterfaz matriculacionInterfaz;
+    private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
 
  
     /**
      * Procesa el evento del lector NFC en el modo indicado. Consulta la última
-     * UID detectada y verifica si está asociada a una matriculación válida en
-     * el curso escolar actual.
+     * UID detectada y verifica en el índice en memoria si está asociada a una
+     * matriculación válida en el curso escolar actual.
      *
      * @param modo Modo de funcionamiento del lector
      * @return DTO con la información del evento y del alumno si existe registro
      */
     public EventoLectorDto procesarEvento(String modo) {
 
+        // SOLO CONSULTA (no consume)
+        return construirEvento(lectorNfcFuncionalidad.obtenerUltimaUid());
+    }
+
+    /**
+     * Construye el evento del lector para una UID, consultando en el índice en
+     * memoria si está asociada a una matriculación del curso escolar actual.
+     *
+     * @param uid UID leída o null si no se ha leído ninguna
+     * @return DTO con la información del evento y del alumno si existe registro
+     */
+    public EventoLectorDto construirEvento(String uid) {
+
         EventoLectorDto dto = new EventoLectorDto();
 
-        // SOLO CONSULTA (no consume)
-        String uid = lectorNfcFuncionalidad.obtenerUltimaUid();
         if (uid == null) {
             dto.setHayUid(false);
             return dto;
@@ -48,24 +53,17 @@ public class LectorEventoServicio {
         dto.setHayUid(true);
         dto.setUid(uid);
 
-        String anioActual = Utilidades.obtenerAnioEscolarActual();
+        IndiceUidMatriculaFuncionalidad.MatriculaIndexada m = indiceUidMatricula.buscar(uid);
 
-        Optional<MatriculacionEntidad> matriculaOpt =
-                matriculacionInterfaz.findConAlumnoCursoGrupoByUidLlaveAndAnioEscolar(uid, anioActual);
-
-        if (matriculaOpt.isEmpty()) {
+        if (m == null) {
             dto.setRegistrado(false);
             return dto;
         }
 
-        MatriculacionEntidad m = matriculaOpt.get();
-
         dto.setRegistrado(true);
-        dto.setAlumno(m.getAlumno().getNombreAlumno() + " " + m.getAlumno().getApellidoAlumno());
-        dto.setCurso(m.getCurso().getNombreCurso());
-        dto.setGrupo(m.getGrupo().getNombreGrupo());
-
-       
+        dto.setAlumno(m.getNombreAlumno());
+        dto.setCurso(m.getCurso());
+        dto.setGrupo(m.getGrupo());
 
         return dto;
     }
@@ -0,0 +1,156 @@
+package altair.fichajes_api.lector;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métricas del recorrido de un fichaje con tarjeta, desde que el lector detecta
+ * la tarjeta hasta que la asistencia queda guardada. Salvo el número de
+ * lectores conectados, llevan la etiqueta "lector" con el nombre del terminal
+ * PC/SC.
+ *
+ * <ul>
+ * <li>fichajes.lector.conectados: lectores con escucha activa.</li>
+ * <li>fichajes.lector.esperas: esperas de tarjeta terminadas (etiqueta
+ * "resultado": tarjeta o vacia); en reposo mide cuántas veces se despierta el
+ * hilo del lector.</li>
+ * <li>fichajes.lector.detecciones: tarjetas detectadas.</li>
+ * <li>fichajes.lector.lectura.uid: tiempo de lectura de la UID.</li>
+ * <li>fichajes.lector.duplicados: decisión del filtro de lecturas repetidas
+ * (etiqueta "decision": aceptada o descartada).</li>
+ * <li>fichajes.lector.despacho: espera entre la detección y el inicio del
+ * procesamiento asíncrono.</li>
+ * <li>fichajes.lector.busqueda: búsqueda de la matrícula por UID.</li>
+ * <li>fichajes.lector.registro: registro de la asistencia en base de datos,
+ * incluido el commit.</li>
+ * <li>fichajes.lector.fichaje: tiempo total desde la detección hasta el
+ * commit, con etiqueta "resultado" (entrada, salida, completa, desconocida o
+ * error).</li>
+ * </ul>
+ *
+ * Los temporizadores publican los percentiles 50 y 99.
+ */
+@Service
+public class LectorMetricas {
+
+	private static final double[] PERCENTILES = { 0.5, 0.99 };
+
+	@Autowired
+	private MeterRegistry registro;
+
+	/**
+	 * Publica el número de lectores conectados con escucha activa.
+	 *
+	 * @param escuchas Escuchas activas por nombre de lector
+	 */
+	public void registrarLectoresConectados(Map<String, ?> escuchas) {
+		Gauge.builder("fichajes.lector.conectados", escuchas, Map::size)
+				.description("Lectores NFC conectados con escucha activa").register(registro);
+	}
+
+	/**
+	 * Cuenta una espera de tarjeta terminada en el lector.
+	 *
+	 * @param lector     Nombre del lector
+	 * @param hayTarjeta true si la espera terminó con una tarjeta en el lector
+	 */
+	public void esperaTerminada(String lector, boolean hayTarjeta) {
+		Counter.builder("fichajes.lector.esperas").description("Esperas de tarjeta terminadas en el lector")
+				.tag("lector", lector).tag("resultado", hayTarjeta ? "tarjeta" : "vacia").register(registro)
+				.increment();
+	}
+
+	/**
+	 * Cuenta una tarjeta detectada en el lector.
+	 *
+	 * @param lector Nombre del lector
+	 */
+	public void tarjetaDetectada(String lector) {
+		Counter.builder("fichajes.lector.detecciones").description("Tarjetas detectadas por el lector")
+				.tag("lector", lector).register(registro).increment();
+	}
+
+	/**
+	 * Registra el tiempo de lectura de la UID de una tarjeta.
+	 *
+	 * @param lector Nombre del lector
+	 * @param nanos  Duración en nanosegundos
+	 */
+	public void uidLeida(String lector, long nanos) {
+		temporizador("fichajes.lector.lectura.uid", "Tiempo de lectura de la UID", lector).record(nanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Cuenta la decisión del filtro de lecturas repetidas.
+	 *
+	 * @param lector   Nombre del lector
+	 * @param aceptada true si la lectura se procesa, false si se descarta por
+	 *                 repetida
+	 */
+	public void decisionDuplicado(String lector, boolean aceptada) {
+		Counter.builder("fichajes.lector.duplicados").description("Decisiones del filtro de lecturas repetidas")
+				.tag("lector", lector).tag("decision", aceptada ? "aceptada" : "descartada").register(registro)
+				.increment();
+	}
+
+	/**
+	 * Registra la espera entre la detección de la tarjeta y el inicio del
+	 * procesamiento asíncrono.
+	 *
+	 * @param lector         Nombre del lector
+	 * @param detectadaNanos Instante de detección según {@link System#nanoTime()}
+	 */
+	public void despachado(String lector, long detectadaNanos) {
+		temporizador("fichajes.lector.despacho", "Espera hasta el procesamiento asíncrono del fichaje", lector)
+				.record(System.nanoTime() - detectadaNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Registra el tiempo de búsqueda de la matrícula por UID.
+	 *
+	 * @param lector Nombre del lector
+	 * @param nanos  Duración en nanosegundos
+	 */
+	public void matriculaBuscada(String lector, long nanos) {
+		temporizador("fichajes.lector.busqueda", "Tiempo de búsqueda de la matrícula por UID", lector)
+				.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Registra el tiempo de guardado de la asistencia, incluido el commit.
+	 *
+	 * @param lector Nombre del lector
+	 * @param nanos  Duración en nanosegundos
+	 */
+	public void asistenciaRegistrada(String lector, long nanos) {
+		temporizador("fichajes.lector.registro", "Tiempo de registro de la asistencia", lector).record(nanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Registra el resultado de un fichaje y su tiempo total desde la detección.
+	 *
+	 * @param lector         Nombre del lector
+	 * @param resultado      Resultado del fichaje
+	 * @param detectadaNanos Instante de detección según {@link System#nanoTime()}
+	 */
+	public void fichajeTerminado(String lector, ResultadoFichaje resultado, long detectadaNanos) {
+		Timer.builder("fichajes.lector.fichaje").description("Tiempo desde la detección de la tarjeta hasta el commit")
+				.tag("lector", lector).tag("resultado", resultado.etiqueta()).publishPercentiles(PERCENTILES)
+				.register(registro).record(System.nanoTime() - detectadaNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private Timer temporizador(String nombre, String descripcion, String lector) {
+		return Timer.builder(nombre).description(descripcion).tag("lector", lector).publishPercentiles(PERCENTILES)
+				.register(registro);
+	}
+}
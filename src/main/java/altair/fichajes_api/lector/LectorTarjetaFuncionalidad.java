@@ -1,6 +1,11 @@
 package altair.fichajes_api.lector;
 
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.smartcardio.Card;
 import javax.smartcardio.CardChannel;
@@ -11,18 +16,21 @@ import javax.smartcardio.ResponseAPDU;
 import javax.smartcardio.TerminalFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import altair.fichajes_api.logs.Logs;
 import altair.fichajes_api.servicios.AsistenciaServicio;
+import altair.fichajes_api.utilidades.Utilidades;
 import jakarta.annotation.PostConstruct;
 
 @Service
 /**
  * Servicio encargado de gestionar la lectura de tarjetas NFC mediante PC/SC.
- * Detecta tarjetas, lee su UID y lanza los procesos asociados evitando
- * lecturas duplicadas consecutivas.
+ * Detecta tarjetas en todos los lectores conectados, lee su UID y lanza los
+ * procesos asociados evitando lecturas repetidas de la misma tarjeta.
  */
 public class LectorTarjetaFuncionalidad {
 
@@ -32,8 +40,44 @@ public class LectorTarjetaFuncionalidad {
     @Autowired
     private LectorNfcFuncionalidad lectorNfcFuncionalidad;
 
-    private String ultimaUid = null;
-    private long ultimaDeteccion = 0;
+    @Autowired
+    private LectorEventoServicio lectorEventoServicio;
+
+    @Autowired
+    private LectorEventoEmisor lectorEventoEmisor;
+
+    @Autowired
+    private TarjetaMatriculaFuncionalidad tarjetaMatriculaFuncionalidad;
+
+    @Autowired
+    private LectorMetricas lectorMetricas;
+
+    @Autowired
+    private DiarioFichajesFuncionalidad diarioFichajes;
+
+    @Autowired
+    private FiltroAdmisionFichajes filtroAdmision;
+
+    // Proxy de este servicio, para que la llamada a procesarUid sea asíncrona
+    @Autowired
+    @Lazy
+    private LectorTarjetaFuncionalidad proxy;
+
+    /**
+     * Si es true se espera a que el driver notifique la tarjeta; si es false se
+     * consulta el lector cada intervalo de sondeo.
+     */
+    @Value("${fichajes.lector.deteccion.eventos:true}")
+    private boolean deteccionPorEventos;
+
+    @Value("${fichajes.lector.deteccion.espera-ms:1000}")
+    private long esperaTarjetaMs;
+
+    @Value("${fichajes.lector.deteccion.intervalo-sondeo-ms:100}")
+    private long intervaloSondeoMs;
+
+    // Escucha activa de cada lector conectado, por nombre del terminal
+    private final Map<String, EscuchaTerminal> escuchas = new ConcurrentHashMap<>();
 
     @PostConstruct
     /**
@@ -41,22 +85,96 @@ public class LectorTarjetaFuncionalidad {
      * Configura el callback para procesar las UID detectadas.
      */
     public void iniciarEscucha() {
-        iniciarEscucha(uid -> procesarUid(uid));
+        lectorMetricas.registrarLectoresConectados(escuchas);
+        iniciarEscucha(lectura -> proxy.procesarUid(lectura));
     }
 
     @Async
     /**
-     * Procesa de forma asíncrona la UID leída por el lector NFC.
-     * Registra la UID y ejecuta el fichaje asociado al alumno.
+     * Procesa de forma asíncrona, en el {@link EjecutorFichajes}, la UID leída
+     * por el lector NFC. Registra la UID, la notifica a los suscriptores de eventos del lector y
+     * ejecuta el fichaje asociado al alumno con la hora de la lectura, midiendo
+     * cada etapa en {@link LectorMetricas}.
+     *
+     * Si no se puede guardar (por ejemplo, porque la base de datos no está
+     * disponible), o hay fichajes anteriores pendientes en el diario, el
+     * fichaje se deja en el diario para que lo aplique
+     * {@link ReproductorDiarioFuncionalidad} en orden.
      *
-     * @param uid Identificador único leído de la tarjeta NFC
+     * @param lectura Tarjeta leída y anotada en el diario
      */
-    public void procesarUid(String uid) {
+    public void procesarUid(LecturaTarjeta lectura) {
+        String uid = lectura.getUid();
+        String lector = lectura.getLector();
+        DiarioFichajesFuncionalidad.Anotacion anotacion = lectura.getAnotacion();
+
+        lectorMetricas.despachado(lector, lectura.getDetectadaNanos());
         lectorNfcFuncionalidad.nuevoUid(uid);
         try {
-            asistenciaServicio.ficharPorUidTarjeta(uid);
+            lectorEventoEmisor.publicar(lectorEventoServicio.construirEvento(uid));
+        } catch (Exception e) {
+            Logs.ficheroLog("No se pudo publicar el evento del lector: " + e.getMessage());
+        }
+
+        ResultadoFichaje resultado;
+        if (diarioFichajes.hayAplazadasAnteriores(anotacion)) {
+            diarioFichajes.aplazar(anotacion);
+            resultado = ResultadoFichaje.PENDIENTE;
+        } else {
+            resultado = fichar(lectura);
+            if (resultado == ResultadoFichaje.PENDIENTE) {
+                diarioFichajes.aplazar(anotacion);
+            } else {
+                diarioFichajes.marcarAplicada(anotacion);
+            }
+        }
+        lectorMetricas.fichajeTerminado(lector, resultado, lectura.getDetectadaNanos());
+    }
+
+    /**
+     * Busca la matrícula de la tarjeta y registra la asistencia.
+     *
+     * @return Resultado del fichaje; PENDIENTE si no se pudo guardar (por
+     *         ejemplo, porque la base de datos no está disponible) y el fichaje
+     *         está en el diario
+     */
+    private ResultadoFichaje fichar(LecturaTarjeta lectura) {
+        String lector = lectura.getLector();
+        LocalDateTime instante = lectura.getInstante();
+        try {
+            long inicio = System.nanoTime();
+            Long idMatriculacion;
+            try {
+                idMatriculacion = tarjetaMatriculaFuncionalidad.obtenerMatriculaPorUidYAnio(lectura.getUid(),
+                        Utilidades.obtenerAnioEscolar(instante.toLocalDate())).getIdMatriculacion();
+            } catch (RuntimeException e) {
+                if (ReproductorDiarioFuncionalidad.esErrorTransitorio(e)) {
+                    throw e;
+                }
+                Logs.ficheroLog("No se pudo fichar: " + e.getMessage());
+                return ResultadoFichaje.DESCONOCIDA;
+            } finally {
+                lectorMetricas.matriculaBuscada(lector, System.nanoTime() - inicio);
+            }
+
+            inicio = System.nanoTime();
+            ResultadoFichaje resultado = asistenciaServicio.ficharPorMatriculacion(idMatriculacion, instante);
+            lectorMetricas.asistenciaRegistrada(lector, System.nanoTime() - inicio);
+            if (resultado == ResultadoFichaje.COMPLETA) {
+                Logs.ficheroLog("No se pudo fichar: La asistencia ya está completa");
+            } else if (resultado == ResultadoFichaje.SIN_LISTA) {
+                Logs.ficheroLog("No se pudo fichar: El alumno no tiene asistencia el " + instante.toLocalDate());
+            }
+            return resultado;
         } catch (Exception e) {
+            if (lectura.getAnotacion() != null) {
+                Logs.ficheroLog((ReproductorDiarioFuncionalidad.esErrorTransitorio(e) ? "Base de datos no disponible"
+                        : "❌ No se pudo fichar (" + e.getMessage() + ")") + ", fichaje guardado en el diario: "
+                        + lectura.getUid());
+                return ResultadoFichaje.PENDIENTE;
+            }
             Logs.ficheroLog("No se pudo fichar: " + e.getMessage());
+            return ResultadoFichaje.ERROR;
         }
     }
 
@@ -64,7 +182,7 @@ public class LectorTarjetaFuncionalidad {
      * Interfaz callback utilizada para notificar la detección de una tarjeta NFC.
      */
     public interface LectorCallback {
-        void tarjetaDetectada(String uid);
+        void tarjetaDetectada(LecturaTarjeta lectura);
     }
 
     public void iniciarEscucha(LectorCallback callback) {
@@ -88,9 +206,10 @@ public class LectorTarjetaFuncionalidad {
     
     
     /**
-     * Ejecuta el bucle principal de lectura del lector NFC.
-     * Gestiona la conexión al lector, la detección de tarjetas y
-     * el control de errores y reconexiones.
+     * Ejecuta el bucle principal de búsqueda de lectores NFC.
+     * Cada segundo consulta los terminales PC/SC conectados, arranca una escucha
+     * independiente para cada lector nuevo y detiene la de los lectores que ya
+     * no aparecen.
      *
      * @param callback Acción a ejecutar cuando se detecta una UID
      */
@@ -102,46 +221,99 @@ public class LectorTarjetaFuncionalidad {
                 TerminalFactory factory = TerminalFactory.getDefault();
                 List<CardTerminal> terminals = factory.terminals().list();
 
-                if (terminals.isEmpty()) {
-                    Logs.ficheroLog("BUSCANDO LECTOR...");
-                    Thread.sleep(1000);
-                    continue;
+                Set<String> conectados = new HashSet<>();
+                for (CardTerminal terminal : terminals) {
+                    conectados.add(terminal.getName());
+                    escuchas.computeIfAbsent(terminal.getName(), nombre -> new EscuchaTerminal(terminal, callback));
+                }
+                for (EscuchaTerminal escucha : escuchas.values()) {
+                    if (!conectados.contains(escucha.nombre)) {
+                        Logs.ficheroLog("Lector NFC retirado: " + escucha.nombre);
+                        escucha.detener();
+                    }
                 }
 
-                CardTerminal terminal = terminals.get(0);
-                Logs.ficheroLog("Lector NFC conectado: " + terminal.getName());
-
-                // Bucle interno para leer mientras exista lector
-                while (true) {
+                if (escuchas.isEmpty()) {
+                    Logs.ficheroLog("BUSCANDO LECTOR...");
+                }
 
-                    try {
-                        if (terminal.isCardPresent()) {
+            } catch (Exception e) {
+                Logs.ficheroLog("Error general lector NFC: " + e.getMessage());
+            }
 
-                            String uid = leerUidTarjeta(terminal);
+            try { Thread.sleep(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
 
-                            long ahora = System.currentTimeMillis();
-                            if (uid != null && (!uid.equals(ultimaUid) || ahora - ultimaDeteccion > 2000)) {
-                                ultimaUid = uid;
-                                ultimaDeteccion = ahora;
-                                callback.tarjetaDetectada(uid);
-                            }
+    /**
+     * Escucha de un lector NFC concreto. Cada lector tiene su propio hilo, de
+     * modo que varios lectores pueden fichar a la vez sin interferir entre sí.
+     * Las lecturas repetidas se descartan con {@link FiltroAdmisionFichajes}.
+     */
+    private final class EscuchaTerminal {
+
+        private final CardTerminal terminal;
+        private final String nombre;
+        private final LectorCallback callback;
+        private final Thread hilo;
+        private volatile boolean activa = true;
+
+        EscuchaTerminal(CardTerminal terminal, LectorCallback callback) {
+            this.terminal = terminal;
+            this.nombre = terminal.getName();
+            this.callback = callback;
+            this.hilo = new Thread(this::ejecutar, "hilo-lector-nfc-" + nombre);
+            this.hilo.setDaemon(true);
+            this.hilo.start();
+        }
 
-                            terminal.waitForCardAbsent(1000);
+        /**
+         * Bucle de lectura del lector. Termina si el lector falla o se retira; el
+         * bucle principal lo vuelve a arrancar si sigue conectado.
+         */
+        private void ejecutar() {
+            Logs.ficheroLog("Lector NFC conectado: " + nombre);
+            DetectorTarjeta detector = new DetectorTarjeta(terminal, deteccionPorEventos, esperaTarjetaMs,
+                    intervaloSondeoMs);
+            try {
+                while (activa) {
+                    boolean hayTarjeta = detector.esperarTarjeta();
+                    lectorMetricas.esperaTerminada(nombre, hayTarjeta);
+                    if (hayTarjeta) {
+
+                        long detectada = System.nanoTime();
+                        lectorMetricas.tarjetaDetectada(nombre);
+                        String uid = leerUidTarjeta(terminal);
+                        lectorMetricas.uidLeida(nombre, System.nanoTime() - detectada);
+
+                        long ahora = System.currentTimeMillis();
+                        if (uid != null && filtroAdmision.admitir(nombre, uid, ahora)) {
+                            lectorMetricas.decisionDuplicado(nombre, true);
+                            // Se anota en el diario antes de procesarla para no perderla
+                            callback.tarjetaDetectada(new LecturaTarjeta(uid, nombre, detectada, ahora,
+                                    diarioFichajes.anotar(uid, nombre, ahora)));
+                        } else {
+                            lectorMetricas.decisionDuplicado(nombre, false);
                         }
 
-                        Thread.sleep(100);
-
-                    } catch (CardException e) {
-                        Logs.ficheroLog("Lector desconectado o fallo: " + e.getMessage());
-                        break; // vuelve a buscar lector
+                        terminal.waitForCardAbsent(1000);
                     }
                 }
-
+            } catch (CardException e) {
+                Logs.ficheroLog("Lector desconectado o fallo: " + nombre + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
-                Logs.ficheroLog("Error general lector NFC: " + e.getMessage());
+                Logs.ficheroLog("Error en lector NFC " + nombre + ": " + e.getMessage());
+            } finally {
+                escuchas.remove(nombre, this);
             }
+        }
 
-            try { Thread.sleep(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        void detener() {
+            activa = false;
+            escuchas.remove(nombre, this);
+            hilo.interrupt();
         }
     }
 
@@ -168,12 +340,7 @@ public class LectorTarjetaFuncionalidad {
                 throw new RuntimeException("UID vacío");
             }
 
-            StringBuilder sb = new StringBuilder();
-            for (byte b : uidBytes) {
-                sb.append(String.format("%02X", b));
-            }
-
-            return sb.toString();
+            return uidAHexadecimal(uidBytes);
 
         } finally {
             if (card != null) {
@@ -185,6 +352,20 @@ public class LectorTarjetaFuncionalidad {
         }
     }
 
+    /**
+     * Convierte los bytes de una UID a texto hexadecimal en mayúsculas.
+     *
+     * @param uidBytes Bytes de la UID devueltos por la tarjeta
+     * @return UID en formato hexadecimal
+     */
+    static String uidAHexadecimal(byte[] uidBytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : uidBytes) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
     /**
      * Lee la UID de una tarjeta NFC utilizando el primer lector disponible.
      *
@@ -0,0 +1,58 @@
+package altair.fichajes_api.lector;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Tarjeta leída por un lector NFC y aceptada por el filtro de lecturas
+ * repetidas, pendiente de procesar.
+ */
+public class LecturaTarjeta {
+
+	private final String uid;
+	private final String lector;
+	private final long detectadaNanos;
+	private final long instante;
+	private final DiarioFichajesFuncionalidad.Anotacion anotacion;
+
+	/**
+	 * @param uid            UID de la tarjeta en hexadecimal
+	 * @param lector         Nombre del lector que la detectó
+	 * @param detectadaNanos Instante de detección según {@link System#nanoTime()}
+	 * @param instante       Hora del fichaje en milisegundos desde la época
+	 * @param anotacion      Anotación en el diario de fichajes o null si no se
+	 *                       pudo anotar
+	 */
+	public LecturaTarjeta(String uid, String lector, long detectadaNanos, long instante,
+			DiarioFichajesFuncionalidad.Anotacion anotacion) {
+		this.uid = uid;
+		this.lector = lector;
+		this.detectadaNanos = detectadaNanos;
+		this.instante = instante;
+		this.anotacion = anotacion;
+	}
+
+	public String getUid() {
+		return uid;
+	}
+
+	public String getLector() {
+		return lector;
+	}
+
+	public long getDetectadaNanos() {
+		return detectadaNanos;
+	}
+
+	/**
+	 * @return Hora del fichaje, que es la que se guarda en la asistencia
+	 */
+	public LocalDateTime getInstante() {
+		return LocalDateTime.ofInstant(Instant.ofEpochMilli(instante), ZoneId.systemDefault());
+	}
+
+	public DiarioFichajesFuncionalidad.Anotacion getAnotacion() {
+		return anotacion;
+	}
+}
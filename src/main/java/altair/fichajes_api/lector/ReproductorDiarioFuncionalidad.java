@@ -0,0 +1,123 @@
+package altair.fichajes_api.lector;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.servicios.AsistenciaServicio;
+import altair.fichajes_api.utilidades.Utilidades;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Aplica periódicamente, en el orden en que se anotaron, los fichajes del
+ * diario que no se pudieron guardar porque la base de datos no estaba
+ * disponible o por otro error. Cada fichaje se guarda con su hora original y la operación es
+ * idempotente, así que repetir un fichaje ya aplicado no cambia la asistencia.
+ */
+@Service
+public class ReproductorDiarioFuncionalidad {
+
+	@Autowired
+	private DiarioFichajesFuncionalidad diario;
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private TarjetaMatriculaFuncionalidad tarjetaMatriculaFuncionalidad;
+
+	@Autowired
+	private MeterRegistry registro;
+
+	// Evita dos reproducciones a la vez
+	private final ReentrantLock cerrojo = new ReentrantLock();
+
+	/**
+	 * Aplica los fichajes aplazados hasta terminar o hasta el primer error. Solo
+	 * salen del diario sin aplicarse los fichajes de tarjetas desconocidas y los
+	 * de días sin asistencia del alumno; si falta la lista de un día con
+	 * asistencias (porque la base de datos no respondía al prepararla), se crea
+	 * al aplicar el fichaje. Cualquier otro error deja el fichaje y los
+	 * siguientes en el diario para el próximo intento.
+	 *
+	 * @return Número de fichajes que salen del diario
+	 */
+	@Scheduled(fixedDelayString = "${fichajes.lector.diario.reintento-ms:5000}",
+			initialDelayString = "${fichajes.lector.diario.reintento-ms:5000}")
+	public int reproducir() {
+		cerrojo.lock();
+		try {
+			List<DiarioFichajesFuncionalidad.Anotacion> aplazadas = diario.aplazadas();
+			int aplicadas = 0;
+
+			for (DiarioFichajesFuncionalidad.Anotacion a : aplazadas) {
+				LocalDateTime instante = LocalDateTime.ofInstant(Instant.ofEpochMilli(a.getInstante()),
+						ZoneId.systemDefault());
+				ResultadoFichaje resultado;
+				try {
+					resultado = aplicar(a.getUid(), instante);
+					Logs.ficheroLog("Fichaje del diario " + (resultado == ResultadoFichaje.DESCONOCIDA
+							|| resultado == ResultadoFichaje.SIN_LISTA ? "descartado: " : "aplicado: ") + a.getUid() + " "
+							+ instante + " -> " + resultado);
+				} catch (RuntimeException e) {
+					Logs.ficheroLog((esErrorTransitorio(e) ? "Base de datos no disponible" : "❌ Error al aplicar el diario")
+							+ ", quedan " + (aplazadas.size() - aplicadas) + " fichajes en el diario: " + e.getMessage());
+					break;
+				}
+				diario.marcarAplicada(a);
+				aplicadas++;
+				Counter.builder("fichajes.lector.diario.reproducidos").description("Fichajes aplicados desde el diario")
+						.tag("lector", a.getLector()).tag("resultado", resultado.etiqueta()).register(registro)
+						.increment();
+			}
+			return aplicadas;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Aplica un fichaje del diario con su hora original.
+	 *
+	 * @return Resultado del fichaje; DESCONOCIDA si la tarjeta no es de ningún
+	 *         alumno del año escolar del fichaje
+	 */
+	private ResultadoFichaje aplicar(String uid, LocalDateTime instante) {
+		Long idMatriculacion;
+		try {
+			idMatriculacion = tarjetaMatriculaFuncionalidad
+					.obtenerMatriculaPorUidYAnio(uid, Utilidades.obtenerAnioEscolar(instante.toLocalDate()))
+					.getIdMatriculacion();
+		} catch (RuntimeException e) {
+			if (esErrorTransitorio(e)) {
+				throw e;
+			}
+			return ResultadoFichaje.DESCONOCIDA;
+		}
+		return asistenciaServicio.ficharPorMatriculacion(idMatriculacion, instante);
+	}
+
+	/**
+	 * Indica si un error se debe a que la base de datos no está disponible, en
+	 * cuyo caso el fichaje debe quedarse en el diario para reintentarlo.
+	 *
+	 * @param e Error producido al fichar
+	 * @return true si el error es de conexión o transitorio
+	 */
+	public static boolean esErrorTransitorio(Throwable e) {
+		return e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException
+				|| e instanceof RecoverableDataAccessException || e instanceof CannotCreateTransactionException;
+	}
+}
@@ -0,0 +1,41 @@
+package altair.fichajes_api.lector;
+
+/**
+ * Resultado de procesar un fichaje con tarjeta NFC.
+ */
+public enum ResultadoFichaje {
+
+	/** Se registró la hora de entrada. */
+	ENTRADA,
+
+	/** Se registró la hora de salida. */
+	SALIDA,
+
+	/** La asistencia del día ya tenía entrada y salida; no se modificó. */
+	COMPLETA,
+
+	/** La tarjeta no pertenece a ningún alumno del año escolar actual. */
+	DESCONOCIDA,
+
+	/**
+	 * El alumno no tiene asistencia el día del fichaje (fin de semana,
+	 * vacaciones o antes de su alta); no se registró nada.
+	 */
+	SIN_LISTA,
+
+	/**
+	 * No se pudo guardar (por ejemplo, porque la base de datos no estaba
+	 * disponible) y el fichaje queda en el diario para aplicarse más tarde.
+	 */
+	PENDIENTE,
+
+	/** No se pudo registrar el fichaje, que no estaba en el diario, por un error. */
+	ERROR;
+
+	/**
+	 * @return Valor de la etiqueta "resultado" en las métricas.
+	 */
+	public String etiqueta() {
+		return name().toLowerCase();
+	}
+}
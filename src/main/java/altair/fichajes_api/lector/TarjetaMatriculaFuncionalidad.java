@@ -17,8 +17,13 @@ public class TarjetaMatriculaFuncionalidad {
     @Autowired
     private MatriculacionInterfaz matriculacionInterfaz;
 
+    @Autowired
+    private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
+
     /**
      * Obtiene la matrícula asociada a una tarjeta NFC y un año escolar.
+     * Para el año escolar actual la UID se resuelve en el índice en memoria y se
+     * devuelve una referencia a la matrícula sin consultar la base de datos.
      *
      * @param uidTarjeta UID de la tarjeta NFC.
      * @param anioEscolarActual Año escolar en formato "AAAA-AAAA".
@@ -26,6 +31,15 @@ public class TarjetaMatriculaFuncionalidad {
      * @throws RuntimeException si no existe matrícula asociada.
      */
     public MatriculacionEntidad obtenerMatriculaPorUidYAnio(String uidTarjeta, String anioEscolarActual) {
+        if (anioEscolarActual.equals(indiceUidMatricula.anioEscolarIndexado())) {
+            IndiceUidMatriculaFuncionalidad.MatriculaIndexada matricula = indiceUidMatricula.buscar(uidTarjeta);
+            if (matricula == null) {
+                throw new RuntimeException(
+                    "La tarjeta no pertenece a ningún alumno del año escolar activo: " + anioEscolarActual);
+            }
+            return matriculacionInterfaz.getReferenceById(matricula.getIdMatriculacion());
+        }
+
         return matriculacionInterfaz.findByUidLlaveAndAnioEscolar(uidTarjeta, anioEscolarActual)
             .orElseThrow(() -> new RuntimeException(
                 "La tarjeta no pertenece a ningún alumno del año escolar activo: " + anioEscolarActual));
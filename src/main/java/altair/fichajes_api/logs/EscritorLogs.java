@@ -0,0 +1,234 @@
+package altair.fichajes_api.logs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import altair.fichajes_api.utilidades.Utilidades;
+
+/**
+ * Escritor asíncrono de logs. Los hilos que registran mensajes solo los añaden
+ * a una cola acotada sin bloqueos; un único hilo los escribe por lotes en el
+ * archivo del día, que se mantiene abierto y se cambia al cambiar la fecha.
+ */
+final class EscritorLogs {
+
+   private static final DateTimeFormatter FORMATEADOR_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+   private static final int TAMANIO_LOTE = 512;
+   private static final long ESPERA_COLA_LLENA_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+   /**
+    * Mensaje pendiente de escribir con el instante en que se registró.
+    */
+   private static final class Entrada {
+       private final long instante;
+       private final String mensaje;
+
+       Entrada(long instante, String mensaje) {
+           this.instante = instante;
+           this.mensaje = mensaje;
+       }
+   }
+
+   private final String rutaBase;
+   private final ConcurrentLinkedQueue<Entrada> cola = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger profundidad = new AtomicInteger();
+   private final AtomicLong descartados = new AtomicLong();
+   private final AtomicLong escritos = new AtomicLong();
+   private final Thread hilo;
+
+   private volatile int capacidad;
+   private volatile PoliticaColaLlena politica;
+   private volatile boolean activo = true;
+   private volatile boolean esperando = false;
+
+   // Solo los usa el hilo escritor
+   private LocalDate fechaArchivo;
+   private BufferedWriter escritor;
+
+   EscritorLogs(String rutaBase, int capacidad, PoliticaColaLlena politica) {
+       this.rutaBase = rutaBase;
+       this.capacidad = capacidad;
+       this.politica = politica;
+       this.hilo = new Thread(this::ejecutar, "hilo-escritor-logs");
+       this.hilo.setDaemon(true);
+       this.hilo.start();
+   }
+
+   /**
+    * Añade un mensaje a la cola. Si está llena se aplica la política configurada.
+    *
+    * @param mensaje Texto a registrar
+    * @return true si el mensaje quedó en la cola, false si se descartó
+    */
+   boolean encolar(String mensaje) {
+       Entrada entrada = new Entrada(System.currentTimeMillis(), mensaje);
+
+       while (true) {
+           int actual = profundidad.get();
+           if (actual < capacidad) {
+               if (profundidad.compareAndSet(actual, actual + 1)) {
+                   cola.offer(entrada);
+                   if (esperando) {
+                       LockSupport.unpark(hilo);
+                   }
+                   return true;
+               }
+               continue;
+           }
+
+           switch (politica) {
+           case DESCARTAR_ANTIGUO:
+               if (cola.poll() != null) {
+                   profundidad.decrementAndGet();
+                   descartados.incrementAndGet();
+               }
+               break;
+           case BLOQUEAR:
+               if (!activo) {
+                   descartados.incrementAndGet();
+                   return false;
+               }
+               LockSupport.unpark(hilo);
+               LockSupport.parkNanos(ESPERA_COLA_LLENA_NANOS);
+               break;
+           default:
+               descartados.incrementAndGet();
+               return false;
+           }
+       }
+   }
+
+   void configurar(int capacidad, PoliticaColaLlena politica) {
+       this.capacidad = capacidad;
+       this.politica = politica;
+   }
+
+   int getProfundidad() {
+       return profundidad.get();
+   }
+
+   int getCapacidad() {
+       return capacidad;
+   }
+
+   long getDescartados() {
+       return descartados.get();
+   }
+
+   long getEscritos() {
+       return escritos.get();
+   }
+
+   /**
+    * Detiene el hilo escritor después de vaciar la cola y cierra el archivo.
+    *
+    * @param esperaMs Tiempo máximo de espera en milisegundos
+    */
+   void detener(long esperaMs) {
+       activo = false;
+       LockSupport.unpark(hilo);
+       try {
+           hilo.join(esperaMs);
+       } catch (InterruptedException e) {
+           Thread.currentThread().interrupt();
+       }
+   }
+
+   /**
+    * Bucle del hilo escritor: escribe lotes mientras haya mensajes y, con la
+    * cola vacía, duerme hasta que un productor o {@link #detener} lo despiertan.
+    * Los productores despiertan al hilo si ven {@link #esperando} después de
+    * encolar, y el hilo vuelve a mirar la cola después de marcarlo, así que
+    * ningún mensaje se queda sin escribir mientras duerme.
+    */
+   private void ejecutar() {
+       while (activo || !cola.isEmpty()) {
+           if (escribirLote() == 0) {
+               esperando = true;
+               if (activo && cola.isEmpty()) {
+                   LockSupport.park(this);
+               }
+               esperando = false;
+           }
+       }
+       cerrarArchivo();
+   }
+
+   /**
+    * Escribe hasta {@link #TAMANIO_LOTE} mensajes y vuelca el búfer una sola vez
+    * (y al cambiar de archivo). Los mensajes cuentan como escritos al volcarse;
+    * si falla la escritura, todos los del lote que aún no se habían volcado
+    * cuentan como descartados.
+    *
+    * @return Número de mensajes sacados de la cola
+    */
+   private int escribirLote() {
+       int sacados = 0;
+       int volcados = 0;
+       try {
+           Entrada entrada;
+           while (sacados < TAMANIO_LOTE && (entrada = cola.poll()) != null) {
+               profundidad.decrementAndGet();
+               sacados++;
+
+               LocalDateTime fechaHora = LocalDateTime.ofInstant(Instant.ofEpochMilli(entrada.instante),
+                       ZoneId.systemDefault());
+               if (escritor == null || !fechaHora.toLocalDate().equals(fechaArchivo)) {
+                   if (escritor != null) {
+                       escritor.flush();
+                       volcados = sacados - 1;
+                   }
+                   abrirArchivo(fechaHora.toLocalDate());
+               }
+               escritor.write("[" + fechaHora.format(FORMATEADOR_FECHA) + "] " + entrada.mensaje + "\n");
+           }
+           if (sacados > 0) {
+               escritor.flush();
+               volcados = sacados;
+           }
+       } catch (IOException e) {
+           descartados.addAndGet(sacados - volcados);
+           cerrarArchivo();
+       }
+       escritos.addAndGet(volcados);
+       return sacados;
+   }
+
+   /**
+    * Abre el archivo de log de una fecha, creando su carpeta si no existe.
+    */
+   private void abrirArchivo(LocalDate fecha) throws IOException {
+       cerrarArchivo();
+       Path carpeta = Paths.get(rutaBase, Utilidades.nombreCarpetaFecha(fecha));
+       Files.createDirectories(carpeta);
+       escritor = Files.newBufferedWriter(carpeta.resolve(Utilidades.nombreArchivoLog(fecha)),
+               StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+       fechaArchivo = fecha;
+   }
+
+   private void cerrarArchivo() {
+       if (escritor != null) {
+           try {
+               escritor.close();
+           } catch (IOException ignored) {
+           }
+           escritor = null;
+           fechaArchivo = null;
+       }
+   }
+}
@@ -1,48 +1,78 @@
 package altair.fichajes_api.logs;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
-import altair.fichajes_api.utilidades.Utilidades;
-
 /**
 * Clase que se encarga de escribir registros (logs) en archivos.
+*
+* Los mensajes no se escriben en el hilo que los registra: se añaden a una cola
+* acotada y un hilo escritor los vuelca por lotes en el archivo del día, dentro
+* de una carpeta con la fecha bajo {@link #RUTA_BASE_LOGS}.
 */
 public class Logs {
 
-   private static final DateTimeFormatter FORMATEADOR_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
    private static final String RUTA_BASE_LOGS = "/home/altair/Desktop/Ficheros/Ficheros-API/";
 
+   private static final int CAPACIDAD_POR_DEFECTO = 10_000;
+
+   private static final EscritorLogs ESCRITOR = new EscritorLogs(RUTA_BASE_LOGS, CAPACIDAD_POR_DEFECTO,
+           PoliticaColaLlena.DESCARTAR_NUEVO);
+
+   static {
+       Runtime.getRuntime().addShutdownHook(new Thread(() -> ESCRITOR.detener(5000), "hilo-cierre-logs"));
+   }
+
    /**
-    * Método que se encarga de escribir un mensaje en un archivo log.
-    * Crea la carpeta y el archivo si no existen, y añade el mensaje con fecha y hora.
+    * Método que se encarga de registrar un mensaje en el archivo log.
+    * El mensaje se encola con su fecha y hora y se escribe de forma asíncrona.
     *
     * @param mensaje Texto que se desea registrar.
     */
    public static void ficheroLog(String mensaje) {
-       try {
-           String marcaDeTiempo = LocalDateTime.now().format(FORMATEADOR_FECHA);
-           String entradaLog = "[" + marcaDeTiempo + "] " + mensaje;
+       ESCRITOR.encolar(mensaje);
+   }
+
+   /**
+    * Cambia la capacidad de la cola de mensajes y la política a aplicar cuando
+    * está llena.
+    *
+    * @param capacidad Número máximo de mensajes pendientes de escribir.
+    * @param politica  Qué hacer con un mensaje nuevo si la cola está llena.
+    */
+   public static void configurar(int capacidad, PoliticaColaLlena politica) {
+       ESCRITOR.configurar(capacidad, politica);
+   }
+
+   /**
+    * @return Número de mensajes pendientes de escribir.
+    */
+   public static int profundidadCola() {
+       return ESCRITOR.getProfundidad();
+   }
 
-           String nombreCarpeta = Utilidades.nombreCarpetaFecha();
-           String nombreArchivo = Utilidades.nombreArchivoLog();
+   /**
+    * @return Capacidad máxima de la cola de mensajes.
+    */
+   public static int capacidadCola() {
+       return ESCRITOR.getCapacidad();
+   }
 
-           String rutaCarpeta = RUTA_BASE_LOGS + nombreCarpeta;
-           File carpeta = new File(rutaCarpeta);
-           if (!carpeta.exists()) {
-               carpeta.mkdirs();
-           }
+   /**
+    * @return Número de mensajes descartados por cola llena o error de escritura.
+    */
+   public static long mensajesDescartados() {
+       return ESCRITOR.getDescartados();
+   }
 
-           String rutaArchivo = rutaCarpeta + File.separator + nombreArchivo;
-           FileWriter escritor = new FileWriter(rutaArchivo, true);
-           escritor.write(entradaLog + "\n");
-           escritor.close();
+   /**
+    * @return Número de mensajes escritos en archivo.
+    */
+   public static long mensajesEscritos() {
+       return ESCRITOR.getEscritos();
+   }
 
-       } catch (Exception e) {
- 
-       }
+   /**
+    * Vacía la cola de mensajes pendientes y cierra el archivo de log.
+    */
+   public static void detener() {
+       ESCRITOR.detener(5000);
    }
-}
\ No newline at end of file
+}
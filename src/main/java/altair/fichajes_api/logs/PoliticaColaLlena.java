@@ -0,0 +1,17 @@
+package altair.fichajes_api.logs;
+
+/**
+ * Indica qué hacer con un mensaje de log cuando la cola de escritura está
+ * llena.
+ */
+public enum PoliticaColaLlena {
+
+	/** Se descarta el mensaje nuevo y el hilo que lo escribe sigue sin esperar. */
+	DESCARTAR_NUEVO,
+
+	/** Se descarta el mensaje más antiguo de la cola para dejar sitio al nuevo. */
+	DESCARTAR_ANTIGUO,
+
+	/** El hilo que escribe espera hasta que haya sitio en la cola. */
+	BLOQUEAR
+}
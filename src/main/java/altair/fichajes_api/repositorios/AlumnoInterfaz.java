@@ -45,4 +45,24 @@ public interface AlumnoInterfaz extends JpaRepository<AlumnoEntidad, Long> {
            "LEFT JOIN FETCH m.curso " +
            "LEFT JOIN FETCH m.grupo")
     List<AlumnoEntidad> findAllConMatriculaciones();
+
+    /**
+     * Obtiene una página de alumnos con sus matriculaciones, cursos y grupos
+     * cuyo ID es mayor que el indicado, ordenados por ID.
+     *
+     * El límite se aplica en la subconsulta de IDs: si se aplicara sobre el
+     * JOIN FETCH de la colección, Hibernate tendría que paginar en memoria.
+     *
+     * @param id ID del último alumno de la página anterior
+     * @param limite Número máximo de alumnos
+     * @return Lista de alumnos con sus matriculaciones completas
+     */
+    @Query("SELECT DISTINCT a FROM AlumnoEntidad a " +
+           "LEFT JOIN FETCH a.matriculaciones m " +
+           "LEFT JOIN FETCH m.curso " +
+           "LEFT JOIN FETCH m.grupo " +
+           "WHERE a.idAlumno IN (SELECT p.idAlumno FROM AlumnoEntidad p WHERE p.idAlumno > :id " +
+           "ORDER BY p.idAlumno LIMIT :limite) " +
+           "ORDER BY a.idAlumno")
+    List<AlumnoEntidad> findPaginaConMatriculaciones(@Param("id") Long id, @Param("limite") int limite);
 }
@@ -1,12 +1,26 @@
 package altair.fichajes_api.repositorios;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import altair.fichajes_api.dtos.AsistenciaDto;
 import altair.fichajes_api.entidad.AsistenciaEntidad;
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
 
 /**
  * Repositorio encargado de gestionar operaciones CRUD sobre la entidad AsistenciaEntidad.
@@ -63,13 +77,17 @@ public interface AsistenciaInterfaz extends JpaRepository<AsistenciaEntidad, Lon
 	 * @return Lista de AsistenciaEntidad
 	 */
 	List<AsistenciaEntidad> findByMatriculacion_Alumno_IdAlumnoAndEstadoAndFechaBetween(
-	        Long alumnoId, String estado, LocalDate desde, LocalDate hasta);
+	        Long alumnoId, EstadoAsistencia estado, LocalDate desde, LocalDate hasta);
 
 	/**
-	 * Obtiene todas las asistencias que tienen hora de entrada registrada pero sin hora de salida.
-	 * @return Lista de AsistenciaEntidad
+	 * Obtiene las fechas anteriores a una dada con asistencias que tienen hora de
+	 * entrada pero no de salida, es decir, días que quedaron sin cerrar.
+	 * @param fecha Fecha límite (excluida)
+	 * @return Fechas sin cerrar en orden
 	 */
-	List<AsistenciaEntidad> findByHoraEntradaIsNotNullAndHoraSalidaIsNull();
+	@Query("SELECT DISTINCT a.fecha FROM AsistenciaEntidad a "
+			+ "WHERE a.horaEntrada IS NOT NULL AND a.horaSalida IS NULL AND a.fecha < :fecha ORDER BY a.fecha")
+	List<LocalDate> findFechasSinCerrarAntesDe(@Param("fecha") LocalDate fecha);
 
 	/**
 	 * Obtiene todas las asistencias de una fecha específica que tienen hora de entrada registrada pero sin hora de salida.
@@ -78,6 +96,287 @@ public interface AsistenciaInterfaz extends JpaRepository<AsistenciaEntidad, Lon
 	 */
 	List<AsistenciaEntidad> findByFechaAndHoraEntradaIsNotNullAndHoraSalidaIsNull(LocalDate fecha);
 
+	/**
+	 * Obtiene los IDs de las matrículas que ya tienen asistencia en una fecha.
+	 * @param fecha Fecha de búsqueda
+	 * @return Conjunto de IDs de matrícula
+	 */
+	@Query("SELECT a.matriculacion.idMatriculacion FROM AsistenciaEntidad a WHERE a.fecha = :fecha")
+	Set<Long> findMatriculacionIdsConAsistenciaEnFecha(@Param("fecha") LocalDate fecha);
+
+	/**
+	 * Inserta en una sola sentencia una asistencia con el estado indicado para
+	 * cada matrícula del año escolar que todavía no tenga registro en la fecha.
+	 * Las matrículas que ya tienen asistencia ese día se omiten. Es una consulta
+	 * nativa para que los ids los ponga el valor por defecto de la columna
+	 * (la secuencia) sin que Hibernate tenga que repartirlos.
+	 * @param fecha Fecha de las asistencias a crear
+	 * @param anioEscolar Año escolar de las matrículas en formato "AAAA-AAAA"
+	 * @param estado Código del estado inicial de las asistencias creadas
+	 * @param fechaModificacion Fecha de modificación a registrar
+	 * @return Número de asistencias insertadas
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "INSERT INTO asistencia (matriculacion_id, fecha, estado, fecha_modificacion) " +
+	       "SELECT m.id_matriculacion, :fecha, :estado, :fechaModificacion FROM matriculacion m " +
+	       "WHERE m.anio_escolar = :anioEscolar " +
+	       "AND NOT EXISTS (SELECT 1 FROM asistencia a " +
+	       "WHERE a.matriculacion_id = m.id_matriculacion AND a.fecha = :fecha)", nativeQuery = true)
+	int insertarAsistenciasPendientes(@Param("fecha") LocalDate fecha,
+	        @Param("anioEscolar") String anioEscolar,
+	        @Param("estado") short estado,
+	        @Param("fechaModificacion") LocalDateTime fechaModificacion);
+
+	/**
+	 * Inserta la asistencia de una matrícula en una fecha con el estado indicado
+	 * si todavía no existe. Si otra transacción la inserta a la vez, la
+	 * restricción única hace que solo se guarde una.
+	 * @param matriculacionId ID de la matrícula
+	 * @param fecha Fecha de la asistencia
+	 * @param estado Código del estado inicial
+	 * @param fechaModificacion Fecha de modificación a registrar
+	 * @return 1 si se ha insertado, 0 si ya existía
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "INSERT INTO asistencia (matriculacion_id, fecha, estado, fecha_modificacion) " +
+	       "VALUES (:matriculacionId, :fecha, :estado, :fechaModificacion) " +
+	       "ON CONFLICT (matriculacion_id, fecha) DO NOTHING", nativeQuery = true)
+	int insertarSiNoExiste(@Param("matriculacionId") Long matriculacionId,
+	        @Param("fecha") LocalDate fecha,
+	        @Param("estado") short estado,
+	        @Param("fechaModificacion") LocalDateTime fechaModificacion);
+
+	/**
+	 * Cierra en una sola sentencia las asistencias de una fecha que tienen hora de
+	 * entrada pero no de salida, marcándolas con el estado indicado.
+	 * @param fecha Fecha de las asistencias a cerrar
+	 * @param horaCierre Hora de salida a asignar
+	 * @param estado Estado de las asistencias cerradas (SIN SALIDA)
+	 * @param fechaModificacion Fecha de modificación a registrar
+	 * @return Número de asistencias cerradas
+	 */
+	@Modifying
+	@Transactional
+	@Query("UPDATE AsistenciaEntidad a SET a.horaSalida = :horaCierre, a.estado = :estado, " +
+	       "a.fechaModificacion = :fechaModificacion " +
+	       "WHERE a.fecha = :fecha AND a.horaEntrada IS NOT NULL AND a.horaSalida IS NULL")
+	int cerrarAsistenciasSinSalida(@Param("fecha") LocalDate fecha,
+	        @Param("horaCierre") LocalDateTime horaCierre,
+	        @Param("estado") EstadoAsistencia estado,
+	        @Param("fechaModificacion") LocalDateTime fechaModificacion);
+
+	/**
+	 * Cuenta las asistencias de una fecha agrupadas por estado.
+	 * @param fecha Fecha de búsqueda
+	 * @return Lista de pares [estado, cantidad]
+	 */
+	@Query("SELECT a.estado, COUNT(a) FROM AsistenciaEntidad a WHERE a.fecha = :fecha GROUP BY a.estado")
+	List<Object[]> contarPorEstadoEnFecha(@Param("fecha") LocalDate fecha);
+
+	/**
+	 * Cuenta las asistencias de un alumno dentro de un rango de fechas agrupadas
+	 * por estado.
+	 * @param alumnoId ID del alumno
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Lista de pares [estado, cantidad]
+	 */
+	@Query("SELECT a.estado, COUNT(a) FROM AsistenciaEntidad a " +
+	       "WHERE a.matriculacion.alumno.idAlumno = :alumnoId AND a.fecha BETWEEN :desde AND :hasta " +
+	       "GROUP BY a.estado")
+	List<Object[]> contarPorEstadoDeAlumnoEnRango(@Param("alumnoId") Long alumnoId,
+	        @Param("desde") LocalDate desde,
+	        @Param("hasta") LocalDate hasta);
+
+	/**
+	 * Cuenta en una sola consulta las asistencias de varios alumnos dentro de un
+	 * rango de fechas agrupadas por alumno y estado.
+	 * @param alumnoIds IDs de los alumnos
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Lista de ternas [alumnoId, estado, cantidad]
+	 */
+	@Query("SELECT m.alumno.idAlumno, a.estado, COUNT(a) FROM AsistenciaEntidad a JOIN a.matriculacion m " +
+	       "WHERE m.alumno.idAlumno IN :alumnoIds AND a.fecha BETWEEN :desde AND :hasta " +
+	       "GROUP BY m.alumno.idAlumno, a.estado")
+	List<Object[]> contarPorAlumnoYEstadoEnRango(@Param("alumnoIds") List<Long> alumnoIds,
+	        @Param("desde") LocalDate desde,
+	        @Param("hasta") LocalDate hasta);
+
+	/**
+	 * Cuenta en una sola consulta las asistencias de los alumnos matriculados en
+	 * un grupo dentro de un rango de fechas agrupadas por alumno y estado. Solo
+	 * aparecen los alumnos con alguna asistencia en el rango.
+	 * @param grupoId ID del grupo
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Lista de ternas [alumnoId, estado, cantidad] ordenada por alumno
+	 */
+	@Query("SELECT m.alumno.idAlumno, a.estado, COUNT(a) FROM AsistenciaEntidad a JOIN a.matriculacion m " +
+	       "WHERE m.grupo.idGrupo = :grupoId AND a.fecha BETWEEN :desde AND :hasta " +
+	       "GROUP BY m.alumno.idAlumno, a.estado ORDER BY m.alumno.idAlumno")
+	List<Object[]> contarPorAlumnoYEstadoDeGrupoEnRango(@Param("grupoId") Long grupoId,
+	        @Param("desde") LocalDate desde,
+	        @Param("hasta") LocalDate hasta);
+
+	/**
+	 * Obtiene en una sola consulta las matrículas de un curso y grupo en un año
+	 * escolar, con su alumno, curso y grupo, junto con su asistencia en la fecha
+	 * indicada. Si una matrícula no tiene asistencia ese día, el segundo elemento
+	 * de la fila es null.
+	 * @param curso Nombre del curso
+	 * @param grupo Nombre del grupo
+	 * @param fecha Fecha de la asistencia
+	 * @param anioEscolar Año escolar en formato "AAAA-AAAA"
+	 * @return Lista de pares [MatriculacionEntidad, AsistenciaEntidad o null] ordenada por matrícula
+	 */
+	@Query("SELECT m, a FROM MatriculacionEntidad m " +
+	       "JOIN FETCH m.alumno " +
+	       "JOIN FETCH m.curso c " +
+	       "JOIN FETCH m.grupo g " +
+	       "LEFT JOIN AsistenciaEntidad a ON a.matriculacion = m AND a.fecha = :fecha " +
+	       "WHERE c.nombreCurso = :curso AND g.nombreGrupo = :grupo AND m.anioEscolar = :anioEscolar " +
+	       "ORDER BY m.idMatriculacion")
+	List<Object[]> findMatriculasConAsistenciaEnFecha(@Param("curso") String curso,
+	        @Param("grupo") String grupo,
+	        @Param("fecha") LocalDate fecha,
+	        @Param("anioEscolar") String anioEscolar);
+
+	/**
+	 * Obtiene las matrículas de un año escolar, con su alumno, curso y grupo,
+	 * junto con su asistencia guardada en una fecha, ordenadas por matrícula. Se
+	 * usa con las faltas derivadas: con conLista a true aparecen también las
+	 * matrículas dadas de alta ese día o antes sin asistencia guardada (el
+	 * segundo elemento de la fila es null); con false, solo las que la tienen.
+	 * Los filtros de curso y grupo a null no se aplican.
+	 * @param fecha Fecha de la asistencia
+	 * @param anioEscolar Año escolar de la fecha en formato "AAAA-AAAA"
+	 * @param curso Nombre del curso o null
+	 * @param grupo Nombre del grupo o null
+	 * @param id ID de la última matrícula de la página anterior (0 para empezar)
+	 * @param conLista Si el día tiene asistencia para todas las matrículas
+	 * @param limite Número máximo de filas
+	 * @return Lista de pares [MatriculacionEntidad, AsistenciaEntidad o null]
+	 */
+	@Query("SELECT m, a FROM MatriculacionEntidad m " +
+	       "JOIN FETCH m.alumno " +
+	       "JOIN FETCH m.curso c " +
+	       "JOIN FETCH m.grupo g " +
+	       "LEFT JOIN AsistenciaEntidad a ON a.matriculacion = m AND a.fecha = :fecha " +
+	       "WHERE m.anioEscolar = :anioEscolar AND m.idMatriculacion > :id " +
+	       "AND (CAST(:curso AS String) IS NULL OR c.nombreCurso = :curso) " +
+	       "AND (CAST(:grupo AS String) IS NULL OR g.nombreGrupo = :grupo) " +
+	       "AND (a.idAsistencia IS NOT NULL OR (:conLista = true AND m.fechaAlta <= :fecha)) " +
+	       "ORDER BY m.idMatriculacion")
+	List<Object[]> findMatriculasConAsistenciaEnDia(@Param("fecha") LocalDate fecha,
+	        @Param("anioEscolar") String anioEscolar,
+	        @Param("curso") String curso,
+	        @Param("grupo") String grupo,
+	        @Param("id") Long id,
+	        @Param("conLista") boolean conLista,
+	        Limit limite);
+
+	/**
+	 * Cuenta las asistencias guardadas de cada matrícula en unas fechas concretas.
+	 * @param matriculacionIds IDs de las matrículas
+	 * @param fechas Fechas a contar
+	 * @return Lista de pares [matriculacionId, cantidad], sin las matrículas a cero
+	 */
+	@Query("SELECT a.matriculacion.idMatriculacion, COUNT(a) FROM AsistenciaEntidad a " +
+	       "WHERE a.matriculacion.idMatriculacion IN :matriculacionIds AND a.fecha IN :fechas " +
+	       "GROUP BY a.matriculacion.idMatriculacion")
+	List<Object[]> contarPorMatriculacionEnFechas(@Param("matriculacionIds") List<Long> matriculacionIds,
+	        @Param("fechas") List<LocalDate> fechas);
+
+	/**
+	 * Obtiene una página de asistencias, con su matrícula, alumno, curso y grupo,
+	 * que van después de la posición (fecha, id) indicada, ordenadas por fecha e
+	 * id.
+	 * @param fecha Fecha de la última asistencia de la página anterior
+	 * @param id ID de la última asistencia de la página anterior
+	 * @param limite Número máximo de asistencias
+	 * @return Lista de AsistenciaEntidad
+	 */
+	@Query("SELECT a FROM AsistenciaEntidad a " +
+	       "JOIN FETCH a.matriculacion m JOIN FETCH m.alumno JOIN FETCH m.curso JOIN FETCH m.grupo " +
+	       "WHERE (a.fecha, a.idAsistencia) > (:fecha, :id) " +
+	       "ORDER BY a.fecha, a.idAsistencia")
+	List<AsistenciaEntidad> findPaginaDespuesDe(@Param("fecha") LocalDate fecha, @Param("id") Long id,
+	        Limit limite);
+
+	/**
+	 * Obtiene una página de las asistencias de una fecha, con su matrícula,
+	 * alumno, curso y grupo, cuyo ID es mayor que el indicado, ordenadas por ID.
+	 * @param fecha Fecha de búsqueda
+	 * @param id ID de la última asistencia de la página anterior
+	 * @param limite Número máximo de asistencias
+	 * @return Lista de AsistenciaEntidad
+	 */
+	@Query("SELECT a FROM AsistenciaEntidad a " +
+	       "JOIN FETCH a.matriculacion m JOIN FETCH m.alumno JOIN FETCH m.curso JOIN FETCH m.grupo " +
+	       "WHERE a.fecha = :fecha AND a.idAsistencia > :id " +
+	       "ORDER BY a.idAsistencia")
+	List<AsistenciaEntidad> findPaginaPorFecha(@Param("fecha") LocalDate fecha, @Param("id") Long id,
+	        Limit limite);
+
+	/**
+	 * Obtiene una página de las asistencias de un alumno dentro de un rango de
+	 * fechas que van después de la posición (fecha, id) indicada, ordenadas por
+	 * fecha e id.
+	 * @param alumnoId ID del alumno
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @param fecha Fecha de la última asistencia de la página anterior
+	 * @param id ID de la última asistencia de la página anterior
+	 * @param limite Número máximo de asistencias
+	 * @return Lista de AsistenciaEntidad
+	 */
+	@Query("SELECT a FROM AsistenciaEntidad a " +
+	       "JOIN FETCH a.matriculacion m JOIN FETCH m.alumno al JOIN FETCH m.curso JOIN FETCH m.grupo " +
+	       "WHERE al.idAlumno = :alumnoId AND a.fecha BETWEEN :desde AND :hasta " +
+	       "AND (a.fecha, a.idAsistencia) > (:fecha, :id) " +
+	       "ORDER BY a.fecha, a.idAsistencia")
+	List<AsistenciaEntidad> findPaginaPorAlumnoYRango(@Param("alumnoId") Long alumnoId,
+	        @Param("desde") LocalDate desde,
+	        @Param("hasta") LocalDate hasta,
+	        @Param("fecha") LocalDate fecha,
+	        @Param("id") Long id,
+	        Limit limite);
+
+	/**
+	 * Recorre las asistencias como DTO, con los datos del alumno, curso y grupo ya
+	 * resueltos en la misma consulta, ordenadas por fecha e id. Los filtros de
+	 * curso y grupo a null no se aplican.
+	 *
+	 * Devuelve un stream de solo avance: las filas se leen del cursor de la base
+	 * de datos por bloques de {@value #TAMANIO_BLOQUE_EXPORTACION} y no se guardan
+	 * en el contexto de persistencia, así que la memoria no crece con el número de
+	 * filas. Debe consumirse dentro de una transacción y cerrarse al terminar.
+	 * @param desde Fecha inicial del rango (incluida)
+	 * @param hasta Fecha final del rango (incluida)
+	 * @param curso Nombre del curso o null
+	 * @param grupo Nombre del grupo o null
+	 * @return Stream de AsistenciaDto
+	 */
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + TAMANIO_BLOQUE_EXPORTACION),
+	        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+	        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false") })
+	@Query("SELECT new altair.fichajes_api.dtos.AsistenciaDto(a.idAsistencia, m.idMatriculacion, al.idAlumno, " +
+	       "CONCAT(al.nombreAlumno, ' ', al.apellidoAlumno), c.nombreCurso, g.nombreGrupo, m.anioEscolar, " +
+	       "a.fecha, a.horaEntrada, a.horaSalida, a.estado, a.justificarModificacion, a.fechaModificacion) " +
+	       "FROM AsistenciaEntidad a JOIN a.matriculacion m JOIN m.alumno al JOIN m.curso c JOIN m.grupo g " +
+	       "WHERE a.fecha BETWEEN :desde AND :hasta " +
+	       "AND (CAST(:curso AS String) IS NULL OR c.nombreCurso = :curso) " +
+	       "AND (CAST(:grupo AS String) IS NULL OR g.nombreGrupo = :grupo) " +
+	       "ORDER BY a.fecha, a.idAsistencia")
+	Stream<AsistenciaDto> recorrerParaExportar(@Param("desde") LocalDate desde,
+	        @Param("hasta") LocalDate hasta,
+	        @Param("curso") String curso,
+	        @Param("grupo") String grupo);
 
+	/** Filas que se piden a la base de datos en cada viaje al exportar. */
+	int TAMANIO_BLOQUE_EXPORTACION = 1000;
 
 }
@@ -1,7 +1,9 @@
 package altair.fichajes_api.repositorios;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import altair.fichajes_api.entidad.FestivoEntidad;
@@ -18,4 +20,13 @@ public interface FestivoInterfaz extends JpaRepository<FestivoEntidad, Long> {
      */
     boolean existsByFecha(LocalDate fecha);
 
+    /**
+     * Obtiene los festivos entre dos fechas.
+     * @param desde Fecha inicial (incluida)
+     * @param hasta Fecha final (incluida)
+     * @param orden Orden de los festivos
+     * @return Festivos del rango
+     */
+    List<FestivoEntidad> findByFechaBetween(LocalDate desde, LocalDate hasta, Sort orden);
+
 }
@@ -0,0 +1,13 @@
+package altair.fichajes_api.repositorios;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import altair.fichajes_api.entidad.ImportacionFestivosEntidad;
+
+/**
+ * Repositorio encargado de guardar el último calendario de festivos importado
+ * ({@link ImportacionFestivosEntidad}).
+ */
+public interface ImportacionFestivosInterfaz extends JpaRepository<ImportacionFestivosEntidad, Integer> {
+
+}
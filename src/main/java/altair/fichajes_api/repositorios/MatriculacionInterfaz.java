@@ -1,8 +1,11 @@
 package altair.fichajes_api.repositorios;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -29,6 +32,14 @@ public interface MatriculacionInterfaz extends JpaRepository<MatriculacionEntida
 
 	
 
+	/**
+	 * Obtiene todas las matriculaciones de un año escolar.
+	 *
+	 * @param anioEscolar Año escolar en formato "AAAA-AAAA".
+	 * @return Lista de matriculaciones del año escolar.
+	 */
+	List<MatriculacionEntidad> findByAnioEscolar(String anioEscolar);
+
 	/**
 	 * Busca todas las matriculaciones de un alumno por su ID.
 	 *
@@ -86,5 +97,87 @@ public interface MatriculacionInterfaz extends JpaRepository<MatriculacionEntida
 		        @Param("anio") String anio
 		);
 
+	/**
+	 * Obtiene todas las matrículas de un año escolar junto con su alumno, curso y
+	 * grupo en una sola consulta.
+	 *
+	 * @param anio Año escolar en formato "AAAA-AAAA".
+	 * @return Lista de matrículas completas del año escolar.
+	 */
+	@Query("SELECT m FROM MatriculacionEntidad m " +
+		       "JOIN FETCH m.alumno " +
+		       "JOIN FETCH m.curso " +
+		       "JOIN FETCH m.grupo " +
+		       "WHERE m.anioEscolar = :anio")
+	List<MatriculacionEntidad> findConAlumnoCursoGrupoByAnioEscolar(@Param("anio") String anio);
+
+	/**
+	 * Obtiene una página de matrículas, con su alumno, curso y grupo, cuyo ID es
+	 * mayor que el indicado, ordenadas por ID.
+	 *
+	 * @param id     ID de la última matrícula de la página anterior.
+	 * @param limite Número máximo de matrículas.
+	 * @return Lista de matrículas completas.
+	 */
+	@Query("SELECT m FROM MatriculacionEntidad m " +
+		       "JOIN FETCH m.alumno " +
+		       "JOIN FETCH m.curso " +
+		       "JOIN FETCH m.grupo " +
+		       "WHERE m.idMatriculacion > :id " +
+		       "ORDER BY m.idMatriculacion")
+	List<MatriculacionEntidad> findPaginaDespuesDe(@Param("id") Long id, Limit limite);
+
+	/**
+	 * Obtiene los UID de tarjeta asignados en un año escolar.
+	 *
+	 * @param anio Año escolar en formato "AAAA-AAAA".
+	 * @return Lista de UID.
+	 */
+	@Query("SELECT m.uidLlave FROM MatriculacionEntidad m WHERE m.anioEscolar = :anio AND m.uidLlave IS NOT NULL")
+	List<String> findUidsByAnioEscolar(@Param("anio") String anio);
+
+	/**
+	 * Obtiene las matrículas de varios alumnos en unos años escolares.
+	 *
+	 * @param alumnoIds IDs de los alumnos.
+	 * @param anios     Años escolares en formato "AAAA-AAAA".
+	 * @return Lista de matrículas.
+	 */
+	List<MatriculacionEntidad> findByAlumno_IdAlumnoInAndAnioEscolarIn(Collection<Long> alumnoIds,
+			Collection<String> anios);
+
+	/**
+	 * Obtiene las matrículas de un grupo en unos años escolares.
+	 *
+	 * @param grupoId ID del grupo.
+	 * @param anios   Años escolares en formato "AAAA-AAAA".
+	 * @return Lista de matrículas.
+	 */
+	List<MatriculacionEntidad> findByGrupo_IdGrupoAndAnioEscolarIn(Long grupoId, Collection<String> anios);
+
+	/**
+	 * Cuenta las matrículas de un año escolar dadas de alta en una fecha o antes.
+	 *
+	 * @param anioEscolar Año escolar en formato "AAAA-AAAA".
+	 * @param fecha       Fecha de referencia.
+	 * @return Número de matrículas.
+	 */
+	long countByAnioEscolarAndFechaAltaLessThanEqual(String anioEscolar, LocalDate fecha);
+
+	/**
+	 * Devuelve la fecha de alta más antigua de las matrículas.
+	 *
+	 * @return Fecha de alta más antigua o null si no hay matrículas.
+	 */
+	@Query("SELECT MIN(m.fechaAlta) FROM MatriculacionEntidad m")
+	LocalDate findPrimeraFechaAlta();
+
+	/**
+	 * Devuelve los años escolares con alguna matrícula.
+	 *
+	 * @return Años escolares en formato "AAAA-AAAA".
+	 */
+	@Query("SELECT DISTINCT m.anioEscolar FROM MatriculacionEntidad m")
+	List<String> findAniosEscolares();
 
 }
@@ -0,0 +1,151 @@
+package altair.fichajes_api.repositorios;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import altair.fichajes_api.entidad.ResumenAsistenciaEntidad;
+
+/**
+ * Repositorio encargado de gestionar el resumen diario de asistencias por
+ * curso, grupo y estado ({@link ResumenAsistenciaEntidad}).
+ *
+ * Las actualizaciones usan INSERT ... ON CONFLICT de PostgreSQL para sumar a la
+ * fila existente o crearla en una sola sentencia. En las consultas nativas el
+ * estado es el código de {@link altair.fichajes_api.entidad.EstadoAsistencia}.
+ */
+public interface ResumenAsistenciaInterfaz extends JpaRepository<ResumenAsistenciaEntidad, Long> {
+
+	/**
+	 * Suma una cantidad (que puede ser negativa) al contador de un día, curso,
+	 * grupo y estado, creándolo si no existe.
+	 * @param fecha Fecha de las asistencias
+	 * @param cursoId ID del curso
+	 * @param grupoId ID del grupo
+	 * @param estado Código del estado de las asistencias
+	 * @param cantidad Cantidad a sumar
+	 * @return Número de filas afectadas
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO resumen_asistencia (fecha, curso_id, grupo_id, estado, cantidad) " +
+	       "VALUES (:fecha, :cursoId, :grupoId, :estado, :cantidad) " +
+	       "ON CONFLICT (fecha, curso_id, grupo_id, estado) " +
+	       "DO UPDATE SET cantidad = resumen_asistencia.cantidad + EXCLUDED.cantidad", nativeQuery = true)
+	int sumar(@Param("fecha") LocalDate fecha,
+	        @Param("cursoId") Long cursoId,
+	        @Param("grupoId") Long grupoId,
+	        @Param("estado") short estado,
+	        @Param("cantidad") long cantidad);
+
+	/**
+	 * Suma una cantidad (que puede ser negativa) al contador del día, curso,
+	 * grupo y estado de una asistencia, sin cargar su matrícula.
+	 * @param asistenciaId ID de la asistencia
+	 * @param estado Código del estado a contar
+	 * @param cantidad Cantidad a sumar
+	 * @return Número de filas afectadas
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO resumen_asistencia (fecha, curso_id, grupo_id, estado, cantidad) " +
+	       "SELECT a.fecha, m.curso_id, m.grupo_id, :estado, :cantidad " +
+	       "FROM asistencia a JOIN matriculacion m ON m.id_matriculacion = a.matriculacion_id " +
+	       "WHERE a.id_asistencia = :asistenciaId " +
+	       "ON CONFLICT (fecha, curso_id, grupo_id, estado) " +
+	       "DO UPDATE SET cantidad = resumen_asistencia.cantidad + EXCLUDED.cantidad", nativeQuery = true)
+	int sumarAsistencia(@Param("asistenciaId") Long asistenciaId,
+	        @Param("estado") short estado,
+	        @Param("cantidad") long cantidad);
+
+	/**
+	 * Suma (signo 1) o resta (signo -1) al resumen todas las asistencias de unas
+	 * matrículas, con su curso y grupo actuales. Se usa antes de borrar una
+	 * matrícula o de cambiarla de grupo, y después del cambio.
+	 * @param matriculacionIds IDs de las matrículas
+	 * @param signo 1 para sumar, -1 para restar
+	 * @return Número de filas del resumen afectadas
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO resumen_asistencia (fecha, curso_id, grupo_id, estado, cantidad) " +
+	       "SELECT a.fecha, m.curso_id, m.grupo_id, a.estado, :signo * COUNT(*) " +
+	       "FROM asistencia a JOIN matriculacion m ON m.id_matriculacion = a.matriculacion_id " +
+	       "WHERE m.id_matriculacion IN (:matriculacionIds) AND a.estado IS NOT NULL " +
+	       "GROUP BY a.fecha, m.curso_id, m.grupo_id, a.estado " +
+	       "ON CONFLICT (fecha, curso_id, grupo_id, estado) " +
+	       "DO UPDATE SET cantidad = resumen_asistencia.cantidad + EXCLUDED.cantidad", nativeQuery = true)
+	int sumarMatriculaciones(@Param("matriculacionIds") List<Long> matriculacionIds, @Param("signo") long signo);
+
+	/**
+	 * Recalcula a partir de las asistencias los contadores de un rango de fechas.
+	 * Los contadores existentes se sobrescriben; los que ya no tienen asistencias
+	 * se borran con {@link #borrarSinAsistencias}.
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Número de contadores escritos
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO resumen_asistencia (fecha, curso_id, grupo_id, estado, cantidad) " +
+	       "SELECT a.fecha, m.curso_id, m.grupo_id, a.estado, COUNT(*) " +
+	       "FROM asistencia a JOIN matriculacion m ON m.id_matriculacion = a.matriculacion_id " +
+	       "WHERE a.fecha BETWEEN :desde AND :hasta AND a.estado IS NOT NULL " +
+	       "GROUP BY a.fecha, m.curso_id, m.grupo_id, a.estado " +
+	       "ON CONFLICT (fecha, curso_id, grupo_id, estado) " +
+	       "DO UPDATE SET cantidad = EXCLUDED.cantidad", nativeQuery = true)
+	int recalcular(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+	/**
+	 * Borra los contadores de un rango de fechas que ya no corresponden a ninguna
+	 * asistencia.
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Número de contadores borrados
+	 */
+	@Modifying
+	@Query(value = "DELETE FROM resumen_asistencia r WHERE r.fecha BETWEEN :desde AND :hasta " +
+	       "AND NOT EXISTS (SELECT 1 FROM asistencia a JOIN matriculacion m " +
+	       "ON m.id_matriculacion = a.matriculacion_id WHERE a.fecha = r.fecha AND m.curso_id = r.curso_id " +
+	       "AND m.grupo_id = r.grupo_id AND a.estado = r.estado)", nativeQuery = true)
+	int borrarSinAsistencias(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+	/**
+	 * Borra los contadores de un grupo.
+	 * @param grupoId ID del grupo
+	 * @return Número de contadores borrados
+	 */
+	@Modifying
+	@Query("DELETE FROM ResumenAsistenciaEntidad r WHERE r.grupoId = :grupoId")
+	int borrarPorGrupo(@Param("grupoId") Long grupoId);
+
+	/**
+	 * Borra los contadores de un curso.
+	 * @param cursoId ID del curso
+	 * @return Número de contadores borrados
+	 */
+	@Modifying
+	@Query("DELETE FROM ResumenAsistenciaEntidad r WHERE r.cursoId = :cursoId")
+	int borrarPorCurso(@Param("cursoId") Long cursoId);
+
+	/**
+	 * Obtiene los contadores de un grupo en un rango de fechas.
+	 * @param grupoId ID del grupo
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Lista de contadores ordenada por fecha y estado
+	 */
+	@Query("SELECT r FROM ResumenAsistenciaEntidad r " +
+	       "WHERE r.grupoId = :grupoId AND r.fecha BETWEEN :desde AND :hasta AND r.cantidad <> 0 " +
+	       "ORDER BY r.fecha, r.estado")
+	List<ResumenAsistenciaEntidad> findByGrupoEnRango(@Param("grupoId") Long grupoId,
+	        @Param("desde") LocalDate desde,
+	        @Param("hasta") LocalDate hasta);
+
+	/**
+	 * Devuelve la primera y la última fecha con asistencias.
+	 * @return Lista con un par [fecha mínima, fecha máxima], con nulls si no hay asistencias
+	 */
+	@Query("SELECT MIN(a.fecha), MAX(a.fecha) FROM AsistenciaEntidad a")
+	List<Object[]> rangoFechasAsistencias();
+}
@@ -10,14 +10,18 @@ import org.springframework.stereotype.Service;
 
 import altair.fichajes_api.dtos.AlumnoConMatriculacionDto;
 import altair.fichajes_api.dtos.AlumnoDto;
+import altair.fichajes_api.dtos.PaginaDto;
 import altair.fichajes_api.entidad.AlumnoEntidad;
 import altair.fichajes_api.entidad.CursoEntidad;
 import altair.fichajes_api.entidad.GrupoEntidad;
 import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.lector.IndiceUidMatriculaFuncionalidad;
 import altair.fichajes_api.repositorios.AlumnoInterfaz;
 import altair.fichajes_api.repositorios.CursoInterfaz;
 import altair.fichajes_api.repositorios.GrupoInterfaz;
 import altair.fichajes_api.repositorios.MatriculacionInterfaz;
+import altair.fichajes_api.utilidades.CursorPaginacion;
+import jakarta.transaction.Transactional;
 
 /**
  * Servicio encargado de la lógica de negocio relacionada con alumnos y sus matriculaciones.
@@ -39,6 +43,12 @@ public class AlumnoServicio {
     @Autowired
     private MatriculacionInterfaz matriculacionInterfaz;
 
+    @Autowired
+    private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
+
+    @Autowired
+    private ResumenAsistenciaServicio resumenAsistencia;
+
     /**
      * Mapea una entidad {@link AlumnoEntidad} a su DTO {@link AlumnoDto}.
      * @param alumno Entidad de alumno
@@ -60,10 +70,15 @@ public class AlumnoServicio {
     }
 
     /**
-     * Guarda un alumno y su matriculación asociada.
+     * Guarda un alumno y su matriculación asociada en una sola transacción, de
+     * modo que si la matriculación falla tampoco se guarda el alumno. Una UID
+     * vacía se guarda como sin tarjeta.
      * @param dto DTO con los datos del alumno y matriculación
      * @return DTO con la información combinada del alumno y la matriculación
+     * @throws org.springframework.dao.DataIntegrityViolationException si la
+     *         tarjeta ya está asignada a otra matrícula de ese año escolar
      */
+    @Transactional
     public AlumnoConMatriculacionDto guardarAlumnoConMatriculacion(AlumnoConMatriculacionDto dto) {
 
         AlumnoEntidad alumno = new AlumnoEntidad();
@@ -74,7 +89,7 @@ public class AlumnoServicio {
         MatriculacionEntidad matriculacion = new MatriculacionEntidad();
         matriculacion.setAlumno(alumno);
         matriculacion.setAnioEscolar(dto.getAnioEscolar());
-        matriculacion.setUidLlave(dto.getUidLlave());
+        matriculacion.setUidLlave(MatriculacionServicio.normalizarUid(dto.getUidLlave()));
 
         CursoEntidad curso = cursoInterfaz.findById(dto.getCursoId())
                 .orElseThrow(() -> new RuntimeException("Curso no encontrado con ID: " + dto.getCursoId()));
@@ -89,7 +104,8 @@ public class AlumnoServicio {
         matriculacion.setCurso(curso);
         matriculacion.setGrupo(grupo);
 
-        matriculacion = matriculacionInterfaz.save(matriculacion);
+        matriculacion = matriculacionInterfaz.saveAndFlush(matriculacion);
+        indiceUidMatricula.invalidar();
 
         AlumnoConMatriculacionDto respuesta = new AlumnoConMatriculacionDto();
         respuesta.setIdAlumno(alumno.getIdAlumno());
@@ -118,6 +134,19 @@ public class AlumnoServicio {
     }
 
 
+    /**
+     * Obtiene una página de alumnos ordenados por ID.
+     * @param cursor Cursor de la página anterior, o null para la primera
+     * @param limite Número máximo de alumnos de la página
+     * @return Página de DTOs de alumnos
+     */
+    public PaginaDto<AlumnoDto> obtenerPaginaAlumnos(String cursor, int limite) {
+        CursorPaginacion posicion = CursorPaginacion.leer(cursor);
+        List<AlumnoEntidad> alumnos = alumnoInterfaz.findPaginaConMatriculaciones(posicion.getId(), limite + 1);
+        return CursorPaginacion.pagina(alumnos.stream().map(this::mapearAAlumnoDTO).toList(), limite,
+                dto -> CursorPaginacion.crear(dto.getIdAlumno()));
+    }
+
     /**
      * Obtiene un alumno por su ID.
      * @param id ID del alumno
@@ -176,6 +205,7 @@ public class AlumnoServicio {
             alumno.setNombreAlumno(dto.getNombreAlumno());
             alumno.setApellidoAlumno(dto.getApellidoAlumno());
             alumnoInterfaz.save(alumno);
+            indiceUidMatricula.invalidar();
             return true;
         }
         return false;
@@ -186,10 +216,14 @@ public class AlumnoServicio {
      * @param id ID del alumno
      * @return true si se eliminó correctamente, false si no existe
      */
+    @Transactional
     public boolean borrarAlumno(Long id) {
         Optional<AlumnoEntidad> alumnoOpt = alumnoInterfaz.findById(id);
         if (alumnoOpt.isPresent()) {
+            resumenAsistencia.descontarMatriculaciones(alumnoOpt.get().getMatriculaciones().stream()
+                    .map(MatriculacionEntidad::getIdMatriculacion).toList());
             alumnoInterfaz.delete(alumnoOpt.get());
+            indiceUidMatricula.invalidar();
             return true;
         }
         return false;
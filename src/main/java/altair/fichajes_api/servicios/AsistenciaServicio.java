@@ -1,38 +1,44 @@
 package altair.fichajes_api.servicios;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.dtos.PaginaDto;
+import altair.fichajes_api.dtos.ResultadoCierreDto;
+import altair.fichajes_api.dtos.ResultadoGeneracionDto;
 import altair.fichajes_api.entidad.AsistenciaEntidad;
-import altair.fichajes_api.entidad.CursoEntidad;
-import altair.fichajes_api.entidad.GrupoEntidad;
+import altair.fichajes_api.entidad.EstadoAsistencia;
 import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.lector.ResultadoFichaje;
 import altair.fichajes_api.lector.TarjetaMatriculaFuncionalidad;
+import altair.fichajes_api.logs.Logs;
 import altair.fichajes_api.repositorios.AsistenciaInterfaz;
-import altair.fichajes_api.repositorios.CursoInterfaz;
-import altair.fichajes_api.repositorios.FestivoInterfaz;
-import altair.fichajes_api.repositorios.GrupoInterfaz;
 import altair.fichajes_api.repositorios.MatriculacionInterfaz;
+import altair.fichajes_api.utilidades.CursorPaginacion;
 import altair.fichajes_api.utilidades.Utilidades;
-import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 
 /**
@@ -43,27 +49,50 @@ import jakarta.transaction.Transactional;
  * fecha,
  * 
  * y cerrar asistencias del día con generación de faltas.
+ *
+ * Con fichajes.asistencia.faltas-derivadas=true solo se guardan las
+ * asistencias con algún fichaje o corrección. Las faltas y los festivos de los
+ * alumnos que no han fichado se calculan al leer: cada matrícula tiene una
+ * asistencia en cada día lectivo o festivo de su año escolar desde su fecha de
+ * alta hasta hoy, y las que no están guardadas se devuelven con estado FALTA o
+ * FESTIVO, sin id ni fecha de modificación. Las consultas devuelven las mismas
+ * asistencias que guardándolas todas, ordenadas por fecha y matrícula.
  */
 @Service
 public class AsistenciaServicio {
 
+	/** Estados de asistencia en orden; los conteos se indexan por su ordinal. */
+	private static final EstadoAsistencia[] ESTADOS = EstadoAsistencia.values();
+
+	/** Hora a la que se cierra el día; es la salida que reciben las asistencias SIN SALIDA. */
+	private static final LocalTime HORA_CIERRE = LocalTime.of(23, 0);
+
 	@Autowired
 	private AsistenciaInterfaz asistenciaInterfaz;
 	@Autowired
 	private MatriculacionInterfaz matriculacionInterfaz;
 	@Autowired
-	CursoInterfaz cursoInterfaz;
+	private CalendarioEscolarServicio calendarioEscolar;
 	@Autowired
-	GrupoInterfaz grupoInterfaz;
+	private TarjetaMatriculaFuncionalidad tarjetaMatriculaFuncionalidad;
 	@Autowired
-	private FestivoInterfaz festivoInterfaz;
+	private ResumenAsistenciaServicio resumenAsistencia;
 	@Autowired
-	private TarjetaMatriculaFuncionalidad tarjetaMatriculaFuncionalidad;
+	private EntityManager entityManager;
 
-	private Set<LocalDate> vacaciones = new HashSet<>();
-	private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+	/**
+	 * Indica si el cierre del día se hace con sentencias masivas o, para bases de
+	 * datos que no las soportan, asistencia a asistencia.
+	 */
+	@Value("${fichajes.asistencia.cierre-masivo:true}")
+	private boolean cierreMasivo;
 
-	
+	/**
+	 * Indica si las faltas y los festivos se calculan al leer en lugar de
+	 * guardarse.
+	 */
+	@Value("${fichajes.asistencia.faltas-derivadas:false}")
+	private boolean faltasDerivadas;
 
 	/**
 	 * Obtiene la asistencia de un curso y grupo en una fecha concreta. Si la
@@ -75,42 +104,9 @@ public class AsistenciaServicio {
 	 * @param fecha Fecha a consultar
 	 * @return DTO de la asistencia o null si no existe registro en fechas pasadas
 	 */
+	@Transactional
 	public List<AsistenciaDto> obtenerAsistenciaPorCursoYGrupoEnFecha(String curso, String grupo, LocalDate fecha) {
-	
-		  String anioEscolarActual = Utilidades.obtenerAnioEscolarActual();
-
-		CursoEntidad cursoEntidad = cursoInterfaz.findByNombreCurso(curso);
-		GrupoEntidad grupoEntidad = grupoInterfaz.findByNombreGrupo(grupo);
-
-		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findByCursoAndGrupoAndAnioEscolar(cursoEntidad,
-				grupoEntidad, anioEscolarActual);
-
-		List<AsistenciaDto> resultado = new ArrayList<>();
-
-		for (MatriculacionEntidad m : matriculas) {
-
-			Optional<AsistenciaEntidad> asistenciaOpt = asistenciaInterfaz
-					.findByMatriculacion_IdMatriculacionAndFecha(m.getIdMatriculacion(), fecha);
-
-			if (asistenciaOpt.isPresent()) {
-				resultado.add(mapearADto(asistenciaOpt.get()));
-				continue;
-			}
-
-			if (!fecha.equals(LocalDate.now())) {
-				continue;
-			}
-
-			AsistenciaEntidad nueva = new AsistenciaEntidad();
-			nueva.setMatriculacion(m);
-			nueva.setFecha(fecha);
-			nueva.setEstado("FALTA");
-			nueva.setFechaModificacion(LocalDateTime.now());
-
-			resultado.add(mapearADto(asistenciaInterfaz.save(nueva)));
-		}
-
-		return resultado;
+		return obtenerAsistenciasDeGrupo(curso, grupo, fecha);
 	}
 
 	/**
@@ -118,68 +114,139 @@ public class AsistenciaServicio {
 	 * tiene registro: - SOLO si la fecha es HOY se crea una falta automática. - Si
 	 * la fecha es pasada, simplemente no aparece.
 	 */
+	@Transactional
 	public List<AsistenciaDto> obtenerAsistenciasPorCursoGrupoYFecha(String curso, String grupo, LocalDate fecha) {
+		return obtenerAsistenciasDeGrupo(curso, grupo, fecha);
+	}
 
-		CursoEntidad cursoEntidad = cursoInterfaz.findByNombreCurso(curso);
-		GrupoEntidad grupoEntidad = grupoInterfaz.findByNombreGrupo(grupo);
-
-		if (cursoEntidad == null || grupoEntidad == null) {
-			return List.of();
-		}
-
-		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findByCursoAndGrupo(cursoEntidad, grupoEntidad);
+	/**
+	 * Carga con una sola consulta las matrículas del grupo en el año escolar de la
+	 * fecha junto con su asistencia de ese día. Solo si la fecha es HOY se crean
+	 * las faltas de los alumnos que aún no tienen registro; con las faltas
+	 * derivadas no se crean, se devuelven sin guardar.
+	 *
+	 * @param curso Nombre del curso
+	 * @param grupo Nombre del grupo
+	 * @param fecha Fecha a consultar
+	 * @return Lista de DTOs de asistencia ordenada por matrícula
+	 */
+	private List<AsistenciaDto> obtenerAsistenciasDeGrupo(String curso, String grupo, LocalDate fecha) {
+		List<Object[]> filas = asistenciaInterfaz.findMatriculasConAsistenciaEnFecha(curso, grupo, fecha,
+				Utilidades.obtenerAnioEscolar(fecha));
 
-		List<AsistenciaDto> resultado = new ArrayList<>();
+		boolean esHoy = fecha.equals(LocalDate.now());
+		List<AsistenciaEntidad> asistencias = new ArrayList<>(filas.size());
+		List<AsistenciaEntidad> nuevas = new ArrayList<>();
 
-		for (MatriculacionEntidad m : matriculas) {
+		for (Object[] fila : filas) {
+			MatriculacionEntidad m = (MatriculacionEntidad) fila[0];
+			AsistenciaEntidad asistencia = (AsistenciaEntidad) fila[1];
 
-			Optional<AsistenciaEntidad> asistenciaOpt = asistenciaInterfaz
-					.findByMatriculacion_IdMatriculacionAndFecha(m.getIdMatriculacion(), fecha);
+			if (asistencia != null) {
+				asistencias.add(asistencia);
+				continue;
+			}
 
-			if (asistenciaOpt.isPresent()) {
-				resultado.add(mapearADto(asistenciaOpt.get()));
+			if (faltasDerivadas) {
+				AsistenciaEntidad derivada = asistenciaDerivada(m, fecha);
+				if (derivada != null) {
+					asistencias.add(derivada);
+				}
 				continue;
 			}
 
-			if (!fecha.equals(LocalDate.now())) {
+			if (!esHoy) {
 				continue;
 			}
 
 			AsistenciaEntidad nueva = new AsistenciaEntidad();
 			nueva.setMatriculacion(m);
 			nueva.setFecha(fecha);
-			nueva.setEstado("FALTA");
+			nueva.setEstado(EstadoAsistencia.FALTA);
 			nueva.setFechaModificacion(LocalDateTime.now());
+			asistencias.add(nueva);
+			nuevas.add(nueva);
+		}
 
-			resultado.add(mapearADto(asistenciaInterfaz.save(nueva)));
+		if (!nuevas.isEmpty()) {
+			asistenciaInterfaz.saveAll(nuevas);
+			resumenAsistencia.registrarAltas(nuevas);
 		}
 
-		return resultado;
+		return asistencias.stream().map(this::mapearADto).toList();
 	}
 
 	/**
 	 * 
 	 * Cierra todas las asistencias de un día determinado, asignando hora de salida
-	 * y estado "SIN SALIDA"
-	 * 
-	 * a las asistencias que no tengan salida, y genera faltas.
+	 * y estado "SIN SALIDA" a las asistencias que no tengan salida, y genera
+	 * faltas. Todo se ejecuta en una única transacción: en modo masivo con una
+	 * sentencia de actualización y otra de inserción; si la base de datos no lo
+	 * soporta, asistencia a asistencia. Con las faltas derivadas no se insertan
+	 * faltas, pero el conteo final las incluye.
 	 * 
 	 * @param fecha Fecha a cerrar
+	 * @return Resultado con las filas modificadas y el conteo final por estado
 	 */
-	public void cerrarAsistenciasDelDia(LocalDate fecha) {
-		List<AsistenciaEntidad> asistencias = asistenciaInterfaz.findByFecha(fecha);
-		LocalDateTime horaCierre = LocalDateTime.of(fecha, LocalTime.of(23, 0));
+	@Transactional
+	public ResultadoCierreDto cerrarAsistenciasDelDia(LocalDate fecha) {
+		long inicio = System.nanoTime();
+		LocalDateTime horaCierre = fecha.atTime(HORA_CIERRE);
+
+		ResultadoCierreDto resultado = new ResultadoCierreDto();
+		resultado.setFecha(fecha);
+
+		if (cierreMasivo) {
+			resultado.setModo("MASIVO");
+			resultado.setSinSalidaMarcadas(
+					asistenciaInterfaz.cerrarAsistenciasSinSalida(fecha, horaCierre, EstadoAsistencia.SIN_SALIDA,
+							LocalDateTime.now()));
+		} else {
+			resultado.setModo("INDIVIDUAL");
+			resultado.setSinSalidaMarcadas(cerrarAsistenciasIndividualmente(fecha, horaCierre));
+		}
+		resultado.setFaltasInsertadas(insertarFaltasPendientes(fecha));
+		resumenAsistencia.recalcularDia(fecha);
+
+		Map<String, Long> conteo = new HashMap<>();
+		long guardadas = 0;
+		for (Object[] fila : asistenciaInterfaz.contarPorEstadoEnFecha(fecha)) {
+			guardadas += (Long) fila[1];
+			if (fila[0] != null) {
+				conteo.put(((EstadoAsistencia) fila[0]).getNombre(), (Long) fila[1]);
+			}
+		}
+		if (faltasDerivadas && tieneLista(fecha)) {
+			long derivadas = matriculacionInterfaz.countByAnioEscolarAndFechaAltaLessThanEqual(
+					Utilidades.obtenerAnioEscolar(fecha), fecha) - guardadas;
+			if (derivadas > 0) {
+				conteo.merge(calendarioEscolar.estadoSinFichaje(fecha).getNombre(), derivadas, Long::sum);
+			}
+		}
+		resultado.setConteoEstados(conteo);
+		resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
 
-		// Marcar sin salida
-		asistencias.stream().filter(a -> a.getHoraEntrada() != null && a.getHoraSalida() == null).forEach(a -> {
+		Logs.ficheroLog("Cierre del día " + fecha + ": " + resultado);
+		return resultado;
+	}
+
+	/**
+	 * Cierra una a una las asistencias del día con entrada y sin salida. Solo se
+	 * usa cuando el cierre masivo está desactivado.
+	 * 
+	 * @param fecha      Fecha a cerrar
+	 * @param horaCierre Hora de salida a asignar
+	 * @return Número de asistencias cerradas
+	 */
+	private int cerrarAsistenciasIndividualmente(LocalDate fecha, LocalDateTime horaCierre) {
+		List<AsistenciaEntidad> abiertas = asistenciaInterfaz.findByFechaAndHoraEntradaIsNotNullAndHoraSalidaIsNull(fecha);
+		for (AsistenciaEntidad a : abiertas) {
 			a.setHoraSalida(horaCierre);
-			a.setEstado("SIN SALIDA");
+			a.setEstado(EstadoAsistencia.SIN_SALIDA);
 			a.setFechaModificacion(LocalDateTime.now());
 			asistenciaInterfaz.save(a);
-		});
-
-		// Crear faltas
-		generarFaltas(fecha);
+		}
+		return abiertas.size();
 	}
 
 	/**
@@ -189,6 +256,10 @@ public class AsistenciaServicio {
 	 * @return Lista de DTOs de asistencia
 	 */
 	public List<AsistenciaDto> obtenerTodasAsistencias() {
+		if (faltasDerivadas) {
+			return completarConDerivadas(matriculacionInterfaz.findAll(), asistenciaInterfaz.findAll(), LocalDate.MIN,
+					LocalDate.MAX).stream().map(this::mapearADto).toList();
+		}
 		return asistenciaInterfaz.findAll().stream().map(this::mapearADto).toList();
 	}
 
@@ -205,8 +276,68 @@ public class AsistenciaServicio {
 	 * @return Lista de DTOs de asistencia
 	 */
 	public List<AsistenciaDto> obtenerPorRango(Long alumnoId, LocalDate desde, LocalDate hasta) {
-		return asistenciaInterfaz.findByMatriculacion_Alumno_IdAlumnoAndFechaBetween(alumnoId, desde, hasta).stream()
-				.map(this::mapearADto).toList();
+		return asistenciasDeAlumno(alumnoId, desde, hasta).stream().map(this::mapearADto).toList();
+	}
+
+	/**
+	 * Obtiene las asistencias de un alumno en un rango de fechas, con las
+	 * derivadas si las faltas son derivadas.
+	 */
+	private List<AsistenciaEntidad> asistenciasDeAlumno(Long alumnoId, LocalDate desde, LocalDate hasta) {
+		List<AsistenciaEntidad> guardadas = asistenciaInterfaz
+				.findByMatriculacion_Alumno_IdAlumnoAndFechaBetween(alumnoId, desde, hasta);
+		if (!faltasDerivadas) {
+			return guardadas;
+		}
+		return completarConDerivadas(matriculacionInterfaz.findByAlumno_IdAlumno(alumnoId), guardadas, desde, hasta);
+	}
+
+	/**
+	 * Obtiene una página de todas las asistencias, ordenadas por fecha e id (por
+	 * fecha y matrícula con las faltas derivadas).
+	 * 
+	 * @param cursor Cursor de la página anterior, o null para la primera
+	 * @param limite Número máximo de asistencias de la página
+	 * @return Página de DTOs de asistencia
+	 */
+	public PaginaDto<AsistenciaDto> obtenerPaginaAsistencias(String cursor, int limite) {
+		CursorPaginacion posicion = CursorPaginacion.leer(cursor);
+		if (faltasDerivadas) {
+			return paginaDerivada(posicion, limite);
+		}
+		List<AsistenciaEntidad> filas = asistenciaInterfaz.findPaginaDespuesDe(posicion.getFecha(),
+				posicion.getId(), Limit.of(limite + 1));
+		return CursorPaginacion.pagina(filas.stream().map(this::mapearADto).toList(), limite,
+				dto -> CursorPaginacion.crear(dto.getFecha(), dto.getIdAsistencia()));
+	}
+
+	/**
+	 * Obtiene una página de las asistencias de un alumno dentro de un rango de
+	 * fechas, ordenadas por fecha e id (por fecha y matrícula con las faltas
+	 * derivadas).
+	 * 
+	 * @param alumnoId ID del alumno
+	 * @param desde    Fecha de inicio
+	 * @param hasta    Fecha de fin
+	 * @param cursor   Cursor de la página anterior, o null para la primera
+	 * @param limite   Número máximo de asistencias de la página
+	 * @return Página de DTOs de asistencia
+	 */
+	public PaginaDto<AsistenciaDto> obtenerPaginaPorRango(Long alumnoId, LocalDate desde, LocalDate hasta,
+			String cursor, int limite) {
+		CursorPaginacion posicion = CursorPaginacion.leer(cursor);
+		if (faltasDerivadas) {
+			List<AsistenciaDto> filas = asistenciasDeAlumno(alumnoId, desde, hasta).stream()
+					.filter(a -> a.getFecha().isAfter(posicion.getFecha()) || (a.getFecha().equals(posicion.getFecha())
+							&& a.getMatriculacion().getIdMatriculacion() > posicion.getId()))
+					.limit(limite + 1L).map(this::mapearADto).toList();
+			return CursorPaginacion.pagina(filas, limite,
+					dto -> CursorPaginacion.crear(dto.getFecha(), dto.getMatriculacionId()));
+		}
+		List<AsistenciaEntidad> filas = asistenciaInterfaz.findPaginaPorAlumnoYRango(alumnoId, desde, hasta,
+				posicion.getFecha(), posicion.getId(), Limit.of(limite + 1));
+		return CursorPaginacion.pagina(filas.stream().map(this::mapearADto).toList(), limite,
+				dto -> CursorPaginacion.crear(dto.getFecha(), dto.getIdAsistencia()));
 	}
 
 	/**
@@ -220,6 +351,7 @@ public class AsistenciaServicio {
 	 * @param anioEscolar Año escolar en formato "AAAA/AAAA"
 	 * 
 	 * @return Lista de DTOs de asistencia
+	 * @throws IllegalArgumentException si el estado no existe
 	 */
 	public List<AsistenciaDto> obtenerPorAlumnoEstadoYAnio(Long alumnoId, String estado, String anioEscolar) {
 		String[] partes = anioEscolar.split("/");
@@ -229,8 +361,14 @@ public class AsistenciaServicio {
 		LocalDate desde = LocalDate.of(anioInicio, 9, 1);
 		LocalDate hasta = LocalDate.of(anioFin, 6, 30);
 
+		EstadoAsistencia buscado = EstadoAsistencia.desdeNombre(estado);
+		if (faltasDerivadas) {
+			return asistenciasDeAlumno(alumnoId, desde, hasta).stream().filter(a -> a.getEstado() == buscado)
+					.map(this::mapearADto).toList();
+		}
+
 		List<AsistenciaEntidad> lista = asistenciaInterfaz
-				.findByMatriculacion_Alumno_IdAlumnoAndEstadoAndFechaBetween(alumnoId, estado, desde, hasta);
+				.findByMatriculacion_Alumno_IdAlumnoAndEstadoAndFechaBetween(alumnoId, buscado, desde, hasta);
 
 		return lista.stream().map(this::mapearADto).toList();
 	}
@@ -242,12 +380,38 @@ public class AsistenciaServicio {
 	 * @return Lista de DTOs de asistencia
 	 */
 	public List<AsistenciaDto> obtenerPorFecha(LocalDate fecha) {
+		if (faltasDerivadas) {
+			return asistenciasDelDia(fecha, null, null, 0L, Limit.unlimited());
+		}
 		return asistenciaInterfaz.findByFecha(fecha).stream().map(this::mapearADto).collect(Collectors.toList());
 	}
 
+	/**
+	 * Obtiene una página de las asistencias de una fecha, ordenadas por id (por
+	 * matrícula con las faltas derivadas).
+	 * 
+	 * @param fecha  Fecha a consultar
+	 * @param cursor Cursor de la página anterior, o null para la primera
+	 * @param limite Número máximo de asistencias de la página
+	 * @return Página de DTOs de asistencia
+	 */
+	public PaginaDto<AsistenciaDto> obtenerPaginaPorFecha(LocalDate fecha, String cursor, int limite) {
+		CursorPaginacion posicion = CursorPaginacion.leer(cursor);
+		if (faltasDerivadas) {
+			return CursorPaginacion.pagina(
+					asistenciasDelDia(fecha, null, null, posicion.getId(), Limit.of(limite + 1)), limite,
+					dto -> CursorPaginacion.crear(dto.getMatriculacionId()));
+		}
+		List<AsistenciaEntidad> filas = asistenciaInterfaz.findPaginaPorFecha(fecha, posicion.getId(),
+				Limit.of(limite + 1));
+		return CursorPaginacion.pagina(filas.stream().map(this::mapearADto).toList(), limite,
+				dto -> CursorPaginacion.crear(dto.getIdAsistencia()));
+	}
+
 	/**
 	 * Obtiene el conteo de asistencias por estado de un alumno en un rango de
-	 * fechas.
+	 * fechas. El recuento lo hace la base de datos, que solo devuelve una fila
+	 * por estado.
 	 * 
 	 * @param alumnoId ID del alumno
 	 * @param desde    Fecha de inicio
@@ -255,22 +419,405 @@ public class AsistenciaServicio {
 	 * @return Mapa con clave = estado y valor = cantidad de asistencias
 	 */
 	public Map<String, Integer> obtenerConteoEstados(Long alumnoId, LocalDate desde, LocalDate hasta) {
-		List<AsistenciaEntidad> asistencias = asistenciaInterfaz
-				.findByMatriculacion_Alumno_IdAlumnoAndFechaBetween(alumnoId, desde, hasta);
+		if (faltasDerivadas) {
+			return obtenerConteoEstadosDeAlumnos(List.of(alumnoId), desde, hasta).get(alumnoId);
+		}
+		int[] conteo = new int[ESTADOS.length];
+		for (Object[] fila : asistenciaInterfaz.contarPorEstadoDeAlumnoEnRango(alumnoId, desde, hasta)) {
+			if (fila[0] != null) {
+				conteo[((EstadoAsistencia) fila[0]).ordinal()] += ((Long) fila[1]).intValue();
+			}
+		}
+		return conteoPorNombre(conteo);
+	}
+
+	/**
+	 * Obtiene con una sola consulta el conteo de asistencias por estado de
+	 * varios alumnos en un rango de fechas. Todos los alumnos pedidos aparecen
+	 * en el resultado, aunque no tengan asistencias.
+	 * 
+	 * @param alumnoIds IDs de los alumnos
+	 * @param desde     Fecha de inicio
+	 * @param hasta     Fecha de fin
+	 * @return Mapa con clave = ID del alumno y valor = conteo por estado
+	 */
+	public Map<Long, Map<String, Integer>> obtenerConteoEstadosDeAlumnos(List<Long> alumnoIds, LocalDate desde,
+			LocalDate hasta) {
+		Map<Long, int[]> conteos = new LinkedHashMap<>();
+		for (Long alumnoId : alumnoIds) {
+			conteos.put(alumnoId, new int[ESTADOS.length]);
+		}
+		if (!conteos.isEmpty()) {
+			acumularConteos(conteos,
+					asistenciaInterfaz.contarPorAlumnoYEstadoEnRango(List.copyOf(conteos.keySet()), desde, hasta));
+			if (faltasDerivadas) {
+				acumularDerivadas(conteos, matriculacionInterfaz.findByAlumno_IdAlumnoInAndAnioEscolarIn(
+						conteos.keySet(), Utilidades.obtenerAniosEscolares(desde, hasta)), desde, hasta);
+			}
+		}
+		return conteosPorNombre(conteos);
+	}
+
+	/**
+	 * Obtiene con una sola consulta el conteo de asistencias por estado de los
+	 * alumnos de un grupo en un rango de fechas.
+	 * 
+	 * @param grupoId ID del grupo
+	 * @param desde   Fecha de inicio
+	 * @param hasta   Fecha de fin
+	 * @return Mapa con clave = ID del alumno y valor = conteo por estado, solo
+	 *         para los alumnos con asistencias en el rango
+	 */
+	public Map<Long, Map<String, Integer>> obtenerConteoEstadosDeGrupo(Long grupoId, LocalDate desde,
+			LocalDate hasta) {
+		Map<Long, int[]> conteos = new LinkedHashMap<>();
+		acumularConteos(conteos, asistenciaInterfaz.contarPorAlumnoYEstadoDeGrupoEnRango(grupoId, desde, hasta));
+		if (faltasDerivadas) {
+			conteos = new TreeMap<>(conteos);
+			acumularDerivadas(conteos, matriculacionInterfaz.findByGrupo_IdGrupoAndAnioEscolarIn(grupoId,
+					Utilidades.obtenerAniosEscolares(desde, hasta)), desde, hasta);
+		}
+		return conteosPorNombre(conteos);
+	}
+
+	/**
+	 * Añade a los conteos por alumno, indexados por el ordinal del estado, las
+	 * filas [alumnoId, estado, cantidad] devueltas por la base de datos.
+	 */
+	void acumularConteos(Map<Long, int[]> conteos, List<Object[]> filas) {
+		for (Object[] fila : filas) {
+			int[] conteo = conteos.computeIfAbsent((Long) fila[0], id -> new int[ESTADOS.length]);
+			if (fila[1] != null) {
+				conteo[((EstadoAsistencia) fila[1]).ordinal()] += ((Long) fila[2]).intValue();
+			}
+		}
+	}
+
+	/**
+	 * Añade a los conteos por alumno las faltas y festivos derivados de unas
+	 * matrículas en un rango de fechas: los días con asistencia de cada matrícula
+	 * menos los que ya tiene guardados, que se cuentan en la base de datos con
+	 * una consulta por estado. Los alumnos sin ninguno no se añaden.
+	 */
+	private void acumularDerivadas(Map<Long, int[]> conteos, List<MatriculacionEntidad> matriculas, LocalDate desde,
+			LocalDate hasta) {
+		Map<Long, int[]> dias = new HashMap<>();
+		Map<EstadoAsistencia, Set<LocalDate>> fechas = new EnumMap<>(EstadoAsistencia.class);
+		for (MatriculacionEntidad m : matriculas) {
+			int[] diasMatricula = new int[ESTADOS.length];
+			recorrerDiasConAsistencia(m, desde, hasta, (fecha, estado) -> {
+				diasMatricula[estado.ordinal()]++;
+				fechas.computeIfAbsent(estado, e -> new TreeSet<>()).add(fecha);
+			});
+			dias.put(m.getIdMatriculacion(), diasMatricula);
+		}
+		if (dias.isEmpty()) {
+			return;
+		}
+
+		List<Long> ids = List.copyOf(dias.keySet());
+		fechas.forEach((estado, diasEstado) -> {
+			for (Object[] fila : asistenciaInterfaz.contarPorMatriculacionEnFechas(ids, List.copyOf(diasEstado))) {
+				dias.get((Long) fila[0])[estado.ordinal()] -= ((Long) fila[1]).intValue();
+			}
+		});
+
+		for (MatriculacionEntidad m : matriculas) {
+			int[] diasMatricula = dias.get(m.getIdMatriculacion());
+			for (EstadoAsistencia estado : fechas.keySet()) {
+				if (diasMatricula[estado.ordinal()] > 0) {
+					conteos.computeIfAbsent(m.getAlumno().getIdAlumno(),
+							id -> new int[ESTADOS.length])[estado.ordinal()] += diasMatricula[estado.ordinal()];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Convierte un conteo indexado por el ordinal del estado en un mapa por
+	 * nombre de estado, en el orden de {@link EstadoAsistencia}.
+	 * 
+	 * @param conteo Cantidad de asistencias de cada estado
+	 * @return Mapa con clave = nombre del estado y valor = cantidad, con todos
+	 *         los estados aunque estén a cero
+	 */
+	private static Map<String, Integer> conteoPorNombre(int[] conteo) {
+		Map<String, Integer> mapa = new LinkedHashMap<>();
+		for (EstadoAsistencia estado : ESTADOS) {
+			mapa.put(estado.getNombre(), conteo[estado.ordinal()]);
+		}
+		return mapa;
+	}
+
+	/**
+	 * Convierte los conteos por alumno indexados por ordinal en mapas por nombre
+	 * de estado, manteniendo el orden de los alumnos.
+	 */
+	static Map<Long, Map<String, Integer>> conteosPorNombre(Map<Long, int[]> conteos) {
+		Map<Long, Map<String, Integer>> resultado = new LinkedHashMap<>();
+		conteos.forEach((alumnoId, conteo) -> resultado.put(alumnoId, conteoPorNombre(conteo)));
+		return resultado;
+	}
+
+	/**
+	 * Recorre las asistencias que se exportan, ordenadas por fecha e id (por
+	 * fecha y matrícula con las faltas derivadas). Con las faltas derivadas se
+	 * lee un día cada vez y se vacía el contexto de persistencia entre días, así
+	 * que la memoria usada es la de un día. Debe consumirse dentro de una
+	 * transacción y cerrarse al terminar.
+	 *
+	 * @param desde Fecha inicial del rango (incluida)
+	 * @param hasta Fecha final del rango (incluida)
+	 * @param curso Nombre del curso o null
+	 * @param grupo Nombre del grupo o null
+	 * @return Stream de DTOs de asistencia
+	 */
+	public Stream<AsistenciaDto> recorrerParaExportar(LocalDate desde, LocalDate hasta, String curso, String grupo) {
+		if (!faltasDerivadas) {
+			return asistenciaInterfaz.recorrerParaExportar(desde, hasta, curso, grupo);
+		}
+		LocalDate primera = matriculacionInterfaz.findPrimeraFechaAlta();
+		if (primera == null) {
+			return Stream.empty();
+		}
+		LocalDate inicio = posterior(desde, primera);
+		LocalDate fin = anterior(hasta, LocalDate.now());
+		if (fin.isBefore(inicio)) {
+			return Stream.empty();
+		}
+		Set<String> anios = new HashSet<>(matriculacionInterfaz.findAniosEscolares());
+		return inicio.datesUntil(fin.plusDays(1))
+				.filter(fecha -> anios.contains(Utilidades.obtenerAnioEscolar(fecha))).flatMap(fecha -> {
+					List<AsistenciaDto> dia = asistenciasDelDia(fecha, curso, grupo, 0L, Limit.unlimited());
+					entityManager.clear();
+					String anioEscolar = Utilidades.obtenerAnioEscolar(fecha);
+					dia.forEach(dto -> dto.setAnioEscolar(anioEscolar));
+					return dia.stream();
+				});
+	}
+
+	/**
+	 * Obtiene el ID de la asistencia guardada de una matrícula en una fecha, para
+	 * corregirla. Con las faltas derivadas, si la asistencia aún no está guardada
+	 * se guarda ahora con su estado sin fichajes.
+	 *
+	 * @param idMatriculacion ID de la matrícula
+	 * @param fecha           Fecha de la asistencia
+	 * @return ID de la asistencia
+	 * @throws RuntimeException si la matrícula no tiene asistencia ese día
+	 */
+	@Transactional
+	public Long obtenerIdAsistenciaGuardada(Long idMatriculacion, LocalDate fecha) {
+		return obtenerAsistenciaGuardada(idMatriculacion, fecha).getIdAsistencia();
+	}
+
+	/**
+	 * Devuelve la asistencia guardada de una matrícula en una fecha. Con las
+	 * faltas derivadas, si la matrícula tiene asistencia ese día pero no está
+	 * guardada, se inserta con el estado que tenía sin fichajes (FALTA o FESTIVO)
+	 * y se suma al resumen, de modo que el cambio posterior de estado se registra
+	 * como cualquier otro.
+	 *
+	 * @param idMatriculacion ID de la matrícula
+	 * @param fecha           Fecha de la asistencia
+	 * @return Asistencia guardada
+	 * @throws RuntimeException si la matrícula no tiene asistencia ese día
+	 */
+	private AsistenciaEntidad obtenerAsistenciaGuardada(Long idMatriculacion, LocalDate fecha) {
+		AsistenciaEntidad asistencia = buscarAsistenciaGuardada(idMatriculacion, fecha);
+		if (asistencia == null) {
+			throw new RuntimeException("No existe asistencia creada para " + fecha);
+		}
+		return asistencia;
+	}
+
+	/**
+	 * Busca la asistencia guardada de una matrícula en una fecha. Si falta en un
+	 * día con lista, se crean antes las asistencias del día que falten, porque
+	 * la preparación del día pudo fallar (por ejemplo, si la base de datos no
+	 * respondía a esa hora). Con las faltas derivadas, la asistencia que falta
+	 * se guarda con su estado sin fichajes.
+	 *
+	 * @param idMatriculacion ID de la matrícula
+	 * @param fecha           Fecha de la asistencia
+	 * @return Asistencia guardada, o null si la matrícula no tiene asistencia ese
+	 *         día (fin de semana, vacaciones o antes de su alta)
+	 */
+	private AsistenciaEntidad buscarAsistenciaGuardada(Long idMatriculacion, LocalDate fecha) {
+		Optional<AsistenciaEntidad> guardada = asistenciaInterfaz
+				.findByMatriculacion_IdMatriculacionAndFecha(idMatriculacion, fecha);
+		if (guardada.isPresent()) {
+			return guardada.get();
+		}
 
-		Map<String, Integer> conteo = new HashMap<>();
-		conteo.put("PRESENTE", 0);
-		conteo.put("COMPLETA", 0);
-		conteo.put("SIN SALIDA", 0);
-		conteo.put("FALTA", 0);
-		conteo.put("FESTIVO", 0);
+		if (!faltasDerivadas) {
+			if (calendarioEscolar.estadoSinFichaje(fecha) == null) {
+				return null;
+			}
+			crearAsistenciasDelDia(fecha);
+			return asistenciaInterfaz.findByMatriculacion_IdMatriculacionAndFecha(idMatriculacion, fecha).orElse(null);
+		}
 
-		for (AsistenciaEntidad a : asistencias) {
-			String estado = a.getEstado();
-			conteo.put(estado, conteo.getOrDefault(estado, 0) + 1);
+		AsistenciaEntidad derivada = matriculacionInterfaz.findById(idMatriculacion)
+				.map(m -> asistenciaDerivada(m, fecha)).orElse(null);
+		if (derivada == null) {
+			return null;
 		}
 
-		return conteo;
+		boolean insertada = asistenciaInterfaz.insertarSiNoExiste(idMatriculacion, fecha,
+				derivada.getEstado().getCodigo(), LocalDateTime.now()) > 0;
+		AsistenciaEntidad asistencia = asistenciaInterfaz
+				.findByMatriculacion_IdMatriculacionAndFecha(idMatriculacion, fecha).orElseThrow();
+		if (insertada) {
+			resumenAsistencia.registrarCambio(asistencia, null);
+		}
+		return asistencia;
+	}
+
+	/**
+	 * Obtiene las asistencias de un día, guardadas y derivadas, de las matrículas
+	 * con ID mayor que el indicado, ordenadas por matrícula. Solo se usa con las
+	 * faltas derivadas.
+	 *
+	 * @param fecha  Fecha de las asistencias
+	 * @param curso  Nombre del curso o null
+	 * @param grupo  Nombre del grupo o null
+	 * @param id     ID de la última matrícula ya leída (0 para empezar)
+	 * @param limite Número máximo de asistencias
+	 * @return Lista de DTOs de asistencia
+	 */
+	private List<AsistenciaDto> asistenciasDelDia(LocalDate fecha, String curso, String grupo, long id,
+			Limit limite) {
+		EstadoAsistencia estado = tieneLista(fecha) ? calendarioEscolar.estadoSinFichaje(fecha) : null;
+		List<AsistenciaDto> asistencias = new ArrayList<>();
+		for (Object[] fila : asistenciaInterfaz.findMatriculasConAsistenciaEnDia(fecha,
+				Utilidades.obtenerAnioEscolar(fecha), curso, grupo, id, estado != null, limite)) {
+			AsistenciaEntidad asistencia = (AsistenciaEntidad) fila[1];
+			asistencias.add(mapearADto(
+					asistencia != null ? asistencia : derivada((MatriculacionEntidad) fila[0], fecha, estado)));
+		}
+		return asistencias;
+	}
+
+	/**
+	 * Construye una página de todas las asistencias con las faltas derivadas,
+	 * leyendo día a día desde la posición del cursor hasta llenarla. Los años
+	 * escolares sin matrículas, que no tienen asistencias, se saltan enteros.
+	 */
+	private PaginaDto<AsistenciaDto> paginaDerivada(CursorPaginacion posicion, int limite) {
+		List<AsistenciaDto> filas = new ArrayList<>();
+		LocalDate primera = matriculacionInterfaz.findPrimeraFechaAlta();
+		if (primera != null) {
+			Set<String> anios = new HashSet<>(matriculacionInterfaz.findAniosEscolares());
+			LocalDate fecha = posterior(posicion.getFecha(), primera);
+			long id = fecha.equals(posicion.getFecha()) ? posicion.getId() : 0;
+			LocalDate hoy = LocalDate.now();
+			while (filas.size() <= limite && !fecha.isAfter(hoy)) {
+				String anioEscolar = Utilidades.obtenerAnioEscolar(fecha);
+				if (!anios.contains(anioEscolar)) {
+					fecha = Utilidades.inicioAnioEscolar(anioEscolar).plusYears(1);
+					id = 0;
+					continue;
+				}
+				filas.addAll(asistenciasDelDia(fecha, null, null, id, Limit.of(limite + 1 - filas.size())));
+				fecha = fecha.plusDays(1);
+				id = 0;
+			}
+		}
+		return CursorPaginacion.pagina(filas, limite,
+				dto -> CursorPaginacion.crear(dto.getFecha(), dto.getMatriculacionId()));
+	}
+
+	/**
+	 * Añade a las asistencias guardadas las derivadas de unas matrículas en un
+	 * rango de fechas y las ordena por fecha y matrícula.
+	 *
+	 * @param matriculas Matrículas de las que derivar asistencias
+	 * @param guardadas  Asistencias guardadas en el rango
+	 * @param desde      Fecha inicial del rango
+	 * @param hasta      Fecha final del rango
+	 * @return Asistencias guardadas y derivadas
+	 */
+	private List<AsistenciaEntidad> completarConDerivadas(List<MatriculacionEntidad> matriculas,
+			List<AsistenciaEntidad> guardadas, LocalDate desde, LocalDate hasta) {
+		Map<Long, Set<LocalDate>> conAsistencia = new HashMap<>();
+		for (AsistenciaEntidad a : guardadas) {
+			conAsistencia.computeIfAbsent(a.getMatriculacion().getIdMatriculacion(), id -> new HashSet<>())
+					.add(a.getFecha());
+		}
+
+		List<AsistenciaEntidad> asistencias = new ArrayList<>(guardadas);
+		for (MatriculacionEntidad m : matriculas) {
+			Set<LocalDate> fechas = conAsistencia.getOrDefault(m.getIdMatriculacion(), Set.of());
+			recorrerDiasConAsistencia(m, desde, hasta, (fecha, estado) -> {
+				if (!fechas.contains(fecha)) {
+					asistencias.add(derivada(m, fecha, estado));
+				}
+			});
+		}
+		asistencias.sort(Comparator.comparing(AsistenciaEntidad::getFecha)
+				.thenComparing(a -> a.getMatriculacion().getIdMatriculacion()));
+		return asistencias;
+	}
+
+	/**
+	 * Recorre los días de un rango en los que una matrícula tiene asistencia: los
+	 * lectivos y festivos de su año escolar desde su fecha de alta hasta hoy.
+	 *
+	 * @param matricula Matrícula
+	 * @param desde     Fecha inicial del rango
+	 * @param hasta     Fecha final del rango
+	 * @param accion    Acción con cada día y el estado de la asistencia sin fichajes
+	 */
+	private void recorrerDiasConAsistencia(MatriculacionEntidad matricula, LocalDate desde, LocalDate hasta,
+			BiConsumer<LocalDate, EstadoAsistencia> accion) {
+		LocalDate inicioAnio = Utilidades.inicioAnioEscolar(matricula.getAnioEscolar());
+		LocalDate inicio = posterior(posterior(desde, inicioAnio), matricula.getFechaAlta());
+		LocalDate fin = anterior(anterior(hasta, inicioAnio.plusYears(1).minusDays(1)), LocalDate.now());
+		for (LocalDate fecha = inicio; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+			EstadoAsistencia estado = calendarioEscolar.estadoSinFichaje(fecha);
+			if (estado != null) {
+				accion.accept(fecha, estado);
+			}
+		}
+	}
+
+	/**
+	 * Devuelve la asistencia sin guardar que corresponde a una matrícula en una
+	 * fecha, o null si ese día no tiene asistencia: fin de semana, vacaciones,
+	 * fecha futura, anterior a su alta o de otro año escolar.
+	 */
+	private AsistenciaEntidad asistenciaDerivada(MatriculacionEntidad matricula, LocalDate fecha) {
+		if (!tieneLista(fecha) || fecha.isBefore(matricula.getFechaAlta())
+				|| !Utilidades.obtenerAnioEscolar(fecha).equals(matricula.getAnioEscolar())) {
+			return null;
+		}
+		return derivada(matricula, fecha, calendarioEscolar.estadoSinFichaje(fecha));
+	}
+
+	/**
+	 * Indica si en una fecha las matrículas tienen asistencia: es día lectivo o
+	 * festivo y no es posterior a hoy.
+	 */
+	private boolean tieneLista(LocalDate fecha) {
+		return calendarioEscolar.estadoSinFichaje(fecha) != null && !fecha.isAfter(LocalDate.now());
+	}
+
+	private static AsistenciaEntidad derivada(MatriculacionEntidad matricula, LocalDate fecha,
+			EstadoAsistencia estado) {
+		AsistenciaEntidad asistencia = new AsistenciaEntidad();
+		asistencia.setMatriculacion(matricula);
+		asistencia.setFecha(fecha);
+		asistencia.setEstado(estado);
+		return asistencia;
+	}
+
+	private static LocalDate posterior(LocalDate a, LocalDate b) {
+		return a.isAfter(b) ? a : b;
+	}
+
+	private static LocalDate anterior(LocalDate a, LocalDate b) {
+		return a.isBefore(b) ? a : b;
 	}
 
 	/**
@@ -279,7 +826,7 @@ public class AsistenciaServicio {
 	 * @param entidad Entidad de asistencia
 	 * @return DTO de asistencia
 	 */
-	private AsistenciaDto mapearADto(AsistenciaEntidad entidad) {
+	AsistenciaDto mapearADto(AsistenciaEntidad entidad) {
 		AsistenciaDto dto = new AsistenciaDto();
 		dto.setIdAsistencia(entidad.getIdAsistencia());
 		dto.setMatriculacionId(entidad.getMatriculacion().getIdMatriculacion());
@@ -294,7 +841,7 @@ public class AsistenciaServicio {
 		dto.setHoraEntrada(entidad.getHoraEntrada());
 		dto.setHoraSalida(entidad.getHoraSalida());
 		dto.setJustificarModificacion(entidad.getJustificar_modificacion());
-		dto.setEstado(entidad.getEstado());
+		dto.setEstado(EstadoAsistencia.nombreDe(entidad.getEstado()));
 		return dto;
 	}
 
@@ -307,6 +854,7 @@ public class AsistenciaServicio {
 	 * @return true si la asistencia fue modificada correctamente, false si no se
 	 *         encontró
 	 */
+	@Transactional
 	public boolean modificarAsistencia(Long idAsistencia, AsistenciaDto asistenciaDto) {
 		boolean esModificado = false;
 		try {
@@ -314,6 +862,7 @@ public class AsistenciaServicio {
 			if (asistencia == null)
 				return false;
 
+			EstadoAsistencia estadoAnterior = asistencia.getEstado();
 			asistencia.setHoraEntrada(asistenciaDto.getHoraEntrada());
 			asistencia.setHoraSalida(asistenciaDto.getHoraSalida());
 			asistencia.setEstado(calcularEstado(asistencia.getHoraEntrada(), asistencia.getHoraSalida()));
@@ -321,6 +870,7 @@ public class AsistenciaServicio {
 			asistencia.setFechaModificacion(LocalDateTime.now());
 
 			asistenciaInterfaz.save(asistencia);
+			resumenAsistencia.registrarCambio(asistencia, estadoAnterior);
 			esModificado = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -329,41 +879,74 @@ public class AsistenciaServicio {
 	}
 
 	/**
-	 * Verifica si una fecha es un día festivo.
+	 * Genera faltas para los alumnos matriculados en el año escolar de una fecha,
+	 * solo en los días lectivos (no en fines de semana, vacaciones ni festivos).
+	 * Las faltas que faltan se insertan con una única sentencia, salvo que el
+	 * cierre masivo esté desactivado, y se recalcula el resumen del día. Con las
+	 * faltas derivadas no se inserta nada.
 	 * 
-	 * @param fecha Fecha a verificar
-	 * @return true si es festivo, false si no
+	 * @param fecha Fecha para generar faltas
+	 * @return Número de faltas insertadas
 	 */
-	private boolean esDiaFestivo(LocalDate fecha) {
-		return festivoInterfaz.existsByFecha(fecha);
+	@Transactional
+	public int generarFaltas(LocalDate fecha) {
+		int insertadas = insertarFaltasPendientes(fecha);
+		if (insertadas > 0) {
+			resumenAsistencia.recalcularDia(fecha);
+		}
+		return insertadas;
 	}
 
 	/**
-	 * Genera faltas para todos los alumnos en una fecha específica, excluyendo
-	 * fines de semana y días festivos.
+	 * Inserta las faltas que faltan en una fecha si es día lectivo y las faltas no
+	 * son derivadas, sin actualizar el resumen de asistencias.
 	 * 
 	 * @param fecha Fecha para generar faltas
+	 * @return Número de faltas insertadas
 	 */
-	public void generarFaltas(LocalDate fecha) {
-		DayOfWeek dia = fecha.getDayOfWeek();
-		if (dia == DayOfWeek.SATURDAY || dia == DayOfWeek.SUNDAY)
-			return;
-		if (esDiaFestivo(fecha))
-			return;
+	private int insertarFaltasPendientes(LocalDate fecha) {
+		if (faltasDerivadas || calendarioEscolar.tipoDia(fecha) != TipoDia.LECTIVO)
+			return 0;
+		return cierreMasivo ? insertarFaltas(fecha) : generarFaltasIndividualmente(fecha);
+	}
+
+	/**
+	 * Inserta con una única sentencia las faltas que faltan en una fecha.
+	 * 
+	 * @param fecha Fecha para generar faltas
+	 * @return Número de faltas insertadas
+	 */
+	private int insertarFaltas(LocalDate fecha) {
+		return asistenciaInterfaz.insertarAsistenciasPendientes(fecha, Utilidades.obtenerAnioEscolar(fecha),
+				EstadoAsistencia.FALTA.getCodigo(), LocalDateTime.now());
+	}
 
-		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findAll();
+	/**
+	 * Genera las faltas de una fecha matrícula a matrícula. Solo se usa cuando el
+	 * cierre masivo está desactivado. Las matrículas con asistencia se leen con
+	 * una sola consulta y las faltas se guardan juntas, para que Hibernate las
+	 * inserte en lotes de JDBC.
+	 * 
+	 * @param fecha Fecha para generar faltas
+	 * @return Número de faltas insertadas
+	 */
+	private int generarFaltasIndividualmente(LocalDate fecha) {
+		Set<Long> conAsistencia = asistenciaInterfaz.findMatriculacionIdsConAsistenciaEnFecha(fecha);
+		List<AsistenciaEntidad> faltas = new ArrayList<>();
+		List<MatriculacionEntidad> matriculas = matriculacionInterfaz
+				.findByAnioEscolar(Utilidades.obtenerAnioEscolar(fecha));
 		for (MatriculacionEntidad matricula : matriculas) {
-			boolean asistenciaExiste = asistenciaInterfaz
-					.findByMatriculacion_IdMatriculacionAndFecha(matricula.getIdMatriculacion(), fecha).isPresent();
-			if (!asistenciaExiste) {
+			if (!conAsistencia.contains(matricula.getIdMatriculacion())) {
 				AsistenciaEntidad falta = new AsistenciaEntidad();
 				falta.setMatriculacion(matricula);
 				falta.setFecha(fecha);
-				falta.setEstado("FALTA");
+				falta.setEstado(EstadoAsistencia.FALTA);
 				falta.setFechaModificacion(LocalDateTime.now());
-				asistenciaInterfaz.save(falta);
+				faltas.add(falta);
 			}
 		}
+		asistenciaInterfaz.saveAll(faltas);
+		return faltas.size();
 	}
 
 	/**
@@ -371,180 +954,171 @@ public class AsistenciaServicio {
 	 * 
 	 * @param horaEntrada Hora de entrada
 	 * @param horaSalida  Hora de salida
-	 * @return Estado calculado: "FALTA", "PRESENTE", "SIN SALIDA" o "COMPLETA"
+	 * @return Estado calculado: FALTA, PRESENTE, SIN_SALIDA o COMPLETA
 	 */
-	private String calcularEstado(LocalDateTime horaEntrada, LocalDateTime horaSalida) {
+	EstadoAsistencia calcularEstado(LocalDateTime horaEntrada, LocalDateTime horaSalida) {
 		if (horaEntrada == null)
-			return "FALTA";
+			return EstadoAsistencia.FALTA;
 		else if (horaEntrada != null && horaSalida == null) {
 			LocalDateTime ahora = LocalDateTime.now();
-			LocalDateTime cierre = horaEntrada.toLocalDate().atTime(23, 0);
-			return ahora.isBefore(cierre) ? "PRESENTE" : "SIN SALIDA";
+			LocalDateTime cierre = horaEntrada.toLocalDate().atTime(HORA_CIERRE);
+			return ahora.isBefore(cierre) ? EstadoAsistencia.PRESENTE : EstadoAsistencia.SIN_SALIDA;
 		} else {
-			return "COMPLETA";
+			return EstadoAsistencia.COMPLETA;
 		}
 	}
 
-	/**
-	 * Inicializa el sistema al arrancar, cargando vacaciones y creando asistencias
-	 * del día.
-	 */
-	@PostConstruct
-	public void inicializarSistema() {
-		vacaciones = new HashSet<>(cargarVacaciones("src/main/resources/vacaciones.txt"));
-
-		LocalDate hoy = LocalDate.now();
-		crearAsistenciasDelDia(hoy);
-
-		List<AsistenciaEntidad> pendientes = asistenciaInterfaz.findByHoraEntradaIsNotNullAndHoraSalidaIsNull();
-		for (AsistenciaEntidad a : pendientes) {
-			LocalDate fechaAsistencia = a.getFecha();
-			LocalDateTime horaCierre = LocalDateTime.of(fechaAsistencia, LocalTime.of(23, 0));
-			if (fechaAsistencia.isBefore(hoy)
-					|| (fechaAsistencia.isEqual(hoy) && LocalDateTime.now().isAfter(horaCierre))) {
-				a.setHoraSalida(horaCierre);
-				a.setEstado("SIN SALIDA");
-				a.setFechaModificacion(LocalDateTime.now());
-				asistenciaInterfaz.save(a);
-			}
-		}
-	}
-
-	/**
-	 * Carga vacaciones desde un archivo de texto.
-	 * 
-	 * @param rutaArchivo Ruta del archivo de vacaciones
-	 * @return Lista de fechas de vacaciones
-	 */
-	public List<LocalDate> cargarVacaciones(String rutaArchivo) {
-		List<LocalDate> vacaciones = new ArrayList<>();
-		try {
-			String contenido = Files.readString(Paths.get(rutaArchivo));
-			String[] fechas = contenido.split(";");
-			for (String fechaStr : fechas) {
-				LocalDate fecha = LocalDate.parse(fechaStr.trim(), FORMATO_FECHA);
-				vacaciones.add(fecha);
-			}
-		} catch (IOException e) {
-			System.out.println("Error al leer el archivo: " + e.getMessage());
-		} catch (Exception e) {
-			System.out.println("Error al parsear fechas: " + e.getMessage());
-		}
-		return vacaciones;
-	}
-
-	/**
-	 * Verifica si una fecha está dentro del periodo de vacaciones cargado.
-	 * 
-	 * @param fecha Fecha a verificar
-	 * @return true si es vacaciones
-	 */
-	private boolean esVacaciones(LocalDate fecha) {
-		return vacaciones.contains(fecha);
-	}
-
 	/**
 	 * Crea las asistencias del día, evitando fines de semana y vacaciones, y
-	 * asignando estado "FESTIVO" o "FALTA" según corresponda.
+	 * asignando estado "FESTIVO" o "FALTA" según corresponda. Solo se tienen en
+	 * cuenta las matrículas del año escolar de la fecha, y todas las asistencias
+	 * que faltan se insertan con una única sentencia. Con las faltas derivadas no
+	 * se inserta nada: las asistencias del día se calculan al leer.
 	 * 
 	 * @param fecha Fecha para crear asistencias
+	 * @return Resultado con las filas insertadas y la duración de la generación
 	 */
-	private void crearAsistenciasDelDia(LocalDate fecha) {
-		DayOfWeek dia = fecha.getDayOfWeek();
-		if (dia == DayOfWeek.SATURDAY || dia == DayOfWeek.SUNDAY)
-			return;
-		if (esVacaciones(fecha))
-			return;
+	@Transactional
+	public ResultadoGeneracionDto crearAsistenciasDelDia(LocalDate fecha) {
+		long inicio = System.nanoTime();
 
-		boolean esFestivo = esDiaFestivo(fecha);
-		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findAll();
+		ResultadoGeneracionDto resultado = new ResultadoGeneracionDto();
+		resultado.setFecha(fecha);
 
-		for (MatriculacionEntidad m : matriculas) {
-			String anioEscolar = m.getAnioEscolar();
-			if (anioEscolar == null || !anioEscolar.contains("-"))
-				continue;
+		TipoDia tipo = calendarioEscolar.tipoDia(fecha);
+		if (tipo == TipoDia.FIN_DE_SEMANA || tipo == TipoDia.VACACIONES) {
+			resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+			return resultado;
+		}
 
-			String[] partes = anioEscolar.split("-");
-			int anioInicio = Integer.parseInt(partes[0].trim());
-			int anioFin = Integer.parseInt(partes[1].trim());
+		String anioEscolar = Utilidades.obtenerAnioEscolar(fecha);
+		EstadoAsistencia estado = tipo == TipoDia.FESTIVO ? EstadoAsistencia.FESTIVO : EstadoAsistencia.FALTA;
 
-			LocalDate inicioCurso = LocalDate.of(anioInicio, 9, 1);
-			LocalDate finCurso = LocalDate.of(anioFin, 6, 30);
-			if (fecha.isBefore(inicioCurso) || fecha.isAfter(finCurso))
-				continue;
+		int insertadas = faltasDerivadas ? 0
+				: asistenciaInterfaz.insertarAsistenciasPendientes(fecha, anioEscolar, estado.getCodigo(),
+						LocalDateTime.now());
+		if (insertadas > 0) {
+			resumenAsistencia.recalcularDia(fecha);
+		}
 
-			boolean existe = asistenciaInterfaz
-					.findByMatriculacion_IdMatriculacionAndFecha(m.getIdMatriculacion(), fecha).isPresent();
-			if (existe)
-				continue;
+		resultado.setAnioEscolar(anioEscolar);
+		resultado.setEstado(estado.getNombre());
+		resultado.setFilasInsertadas(insertadas);
+		resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
 
-			AsistenciaEntidad nueva = new AsistenciaEntidad();
-			nueva.setMatriculacion(m);
-			nueva.setFecha(fecha);
-			nueva.setFechaModificacion(LocalDateTime.now());
-			nueva.setEstado(esFestivo ? "FESTIVO" : "FALTA");
-
-			asistenciaInterfaz.save(nueva);
-		}
+		Logs.ficheroLog("Asistencias del día " + fecha + " generadas: " + insertadas + " filas " + estado
+				+ " en " + resultado.getDuracionMs() + " ms");
+		return resultado;
 	}
-	
-	
 
 	/**
 	 * Realiza el fichaje de asistencia utilizando la UID de una tarjeta NFC.
 	 * Solo se considera la matrícula correspondiente al año escolar actual.
 	 *
 	 * @param uidTarjeta UID de la tarjeta NFC a fichar.
+	 * @return Resultado del fichaje
 	 */
 	@Transactional
-	public void ficharPorUidTarjeta(String uidTarjeta) {
-		  String anioEscolarActual = Utilidades.obtenerAnioEscolarActual();
+	public ResultadoFichaje ficharPorUidTarjeta(String uidTarjeta) {
+		return ficharPorUidTarjeta(uidTarjeta, LocalDateTime.now());
+	}
 
-		// Obtener matrícula solo del año escolar actual
+	/**
+	 * Realiza el fichaje de una tarjeta NFC con la hora en que se pasó por el
+	 * lector, que puede ser anterior a la actual si el fichaje se aplica desde el
+	 * diario de fichajes. Se considera la matrícula del año escolar de esa hora.
+	 *
+	 * @param uidTarjeta UID de la tarjeta NFC a fichar.
+	 * @param instante   Hora del fichaje.
+	 * @return Resultado del fichaje
+	 */
+	@Transactional
+	public ResultadoFichaje ficharPorUidTarjeta(String uidTarjeta, LocalDateTime instante) {
+		String anioEscolar = Utilidades.obtenerAnioEscolar(instante.toLocalDate());
+
+		// Obtener matrícula solo del año escolar del fichaje
 		MatriculacionEntidad matricula = tarjetaMatriculaFuncionalidad.obtenerMatriculaPorUidYAnio(uidTarjeta,
-				anioEscolarActual);
+				anioEscolar);
 
-		ficharPorMatriculacion(matricula.getIdMatriculacion());
+		return ficharPorMatriculacion(matricula.getIdMatriculacion(), instante);
 	}
 	
 	
 	/**
 	 * Registra el fichaje de asistencia para una matrícula en el día actual.
 	 * Marca hora de entrada si aún no existe, o hora de salida si la entrada ya está registrada.
+	 * Si la asistencia ya tiene entrada y salida no se modifica.
 	 *
 	 * @param idMatriculacion ID de la matrícula a fichar.
+	 * @return ENTRADA, SALIDA o COMPLETA si la asistencia ya estaba completa
 	 */
 
 	@Transactional
-	public void ficharPorMatriculacion(Long idMatriculacion) {
+	public ResultadoFichaje ficharPorMatriculacion(Long idMatriculacion) {
+		return ficharPorMatriculacion(idMatriculacion, LocalDateTime.now());
+	}
 
-		LocalDate hoy = LocalDate.now();
+	/**
+	 * Registra el fichaje de asistencia para una matrícula con la hora indicada,
+	 * en la asistencia del día de esa hora. Es idempotente: si la entrada o la
+	 * salida ya tienen exactamente esa hora, el fichaje ya se aplicó y no se
+	 * modifica nada.
+	 *
+	 * Un fichaje del diario puede aplicarse después del cierre de su día. Una
+	 * salida sustituye entonces a la salida provisional de las 23:00 de una
+	 * asistencia SIN SALIDA, y una entrada en una FALTA deja la asistencia
+	 * cerrada como SIN SALIDA, igual que la habría dejado el cierre. Si las
+	 * asistencias de ese día aún no se habían creado, se crean ahora.
+	 *
+	 * @param idMatriculacion ID de la matrícula a fichar.
+	 * @param instante        Hora del fichaje.
+	 * @return ENTRADA, SALIDA, COMPLETA si la asistencia ya estaba completa o
+	 *         SIN_LISTA si la matrícula no tiene asistencia ese día
+	 */
+	@Transactional
+	public ResultadoFichaje ficharPorMatriculacion(Long idMatriculacion, LocalDateTime instante) {
 
-		AsistenciaEntidad asistencia = asistenciaInterfaz
-				.findByMatriculacion_IdMatriculacionAndFecha(idMatriculacion, hoy)
-				.orElseThrow(() -> new RuntimeException("No existe asistencia creada para hoy"));
+		AsistenciaEntidad asistencia = buscarAsistenciaGuardada(idMatriculacion, instante.toLocalDate());
+		if (asistencia == null)
+			return ResultadoFichaje.SIN_LISTA;
+		LocalDateTime horaCierre = instante.toLocalDate().atTime(HORA_CIERRE);
 
-		LocalDateTime ahora = LocalDateTime.now();
+		// Fichaje ya aplicado (por ejemplo, al repetir el diario tras una caída)
+		if (instante.equals(asistencia.getHoraEntrada()))
+			return ResultadoFichaje.ENTRADA;
+		if (instante.equals(asistencia.getHoraSalida()))
+			return ResultadoFichaje.SALIDA;
 
 		// Si no hay hora de entrada, fichamos PRESENTE
+		EstadoAsistencia estadoAnterior = asistencia.getEstado();
+
 		if (asistencia.getHoraEntrada() == null) {
-			asistencia.setHoraEntrada(ahora);
-			asistencia.setEstado("PRESENTE");
-			asistencia.setFechaModificacion(ahora);
+			asistencia.setHoraEntrada(instante);
+			asistencia.setEstado(EstadoAsistencia.PRESENTE);
+			// El día ya está cerrado: la asistencia no puede quedar abierta
+			if (!LocalDateTime.now().isBefore(horaCierre)) {
+				asistencia.setHoraSalida(horaCierre);
+				asistencia.setEstado(EstadoAsistencia.SIN_SALIDA);
+			}
+			asistencia.setFechaModificacion(LocalDateTime.now());
 			asistenciaInterfaz.save(asistencia);
-			return;
+			resumenAsistencia.registrarCambio(asistencia, estadoAnterior);
+			return ResultadoFichaje.ENTRADA;
 		}
 
-		// Si ya hay hora de entrada pero no de salida, fichamos COMPLETA
-		if (asistencia.getHoraSalida() == null) {
-			asistencia.setHoraSalida(ahora);
-			asistencia.setEstado("COMPLETA");
-			asistencia.setFechaModificacion(ahora);
+		// Si ya hay hora de entrada pero no de salida (o solo la provisional del
+		// cierre), fichamos COMPLETA
+		if (asistencia.getHoraSalida() == null || (asistencia.getEstado() == EstadoAsistencia.SIN_SALIDA
+				&& asistencia.getHoraSalida().equals(horaCierre) && instante.isAfter(asistencia.getHoraEntrada()))) {
+			asistencia.setHoraSalida(instante);
+			asistencia.setEstado(EstadoAsistencia.COMPLETA);
+			asistencia.setFechaModificacion(LocalDateTime.now());
 			asistenciaInterfaz.save(asistencia);
-			return;
+			resumenAsistencia.registrarCambio(asistencia, estadoAnterior);
+			return ResultadoFichaje.SALIDA;
 		}
 
-		throw new RuntimeException("La asistencia ya está completa");
+		return ResultadoFichaje.COMPLETA;
 	}
 
 
@@ -0,0 +1,174 @@
+package altair.fichajes_api.servicios;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import altair.fichajes_api.entidad.FestivoEntidad;
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.repositorios.FestivoInterfaz;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Servicio que responde si un día es lectivo, fin de semana, festivo o de
+ * vacaciones sin consultar la base de datos.
+ *
+ * Los festivos (de la tabla de festivos) y las vacaciones (del archivo de
+ * vacaciones) se guardan en mapas de bits por año natural, con un bit por día
+ * del año, de modo que cada consulta cuesta lo mismo sea cual sea el número de
+ * festivos. Al recargar se construye un mapa nuevo y se sustituye de una vez,
+ * así que las consultas nunca ven un calendario a medio cargar.
+ */
+@Service
+public class CalendarioEscolarServicio {
+
+	private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+	@Autowired
+	private FestivoInterfaz festivoInterfaz;
+
+	@Value("${fichajes.calendario.archivo-vacaciones:src/main/resources/vacaciones.txt}")
+	private String archivoVacaciones;
+
+	private volatile Map<Integer, long[]> festivos = Map.of();
+	private volatile Map<Integer, long[]> vacaciones = Map.of();
+
+	/**
+	 * Carga los festivos y las vacaciones al arrancar.
+	 */
+	@PostConstruct
+	public void cargar() {
+		recargarFestivos();
+		recargarVacaciones();
+	}
+
+	/**
+	 * Devuelve el tipo de un día. Un fin de semana se considera fin de semana
+	 * aunque sea festivo o de vacaciones, y un día de vacaciones se considera de
+	 * vacaciones aunque sea festivo.
+	 *
+	 * @param fecha Fecha a consultar
+	 * @return Tipo del día
+	 */
+	public TipoDia tipoDia(LocalDate fecha) {
+		DayOfWeek dia = fecha.getDayOfWeek();
+		if (dia == DayOfWeek.SATURDAY || dia == DayOfWeek.SUNDAY)
+			return TipoDia.FIN_DE_SEMANA;
+		if (esVacaciones(fecha))
+			return TipoDia.VACACIONES;
+		if (esFestivo(fecha))
+			return TipoDia.FESTIVO;
+		return TipoDia.LECTIVO;
+	}
+
+	/**
+	 * Devuelve el estado de la asistencia de un alumno que no ha fichado en una
+	 * fecha: FALTA en los días lectivos y FESTIVO en los festivos. Los fines de
+	 * semana y las vacaciones no tienen asistencias.
+	 *
+	 * @param fecha Fecha a consultar
+	 * @return FALTA, FESTIVO o null si el día no tiene asistencias
+	 */
+	public EstadoAsistencia estadoSinFichaje(LocalDate fecha) {
+		return switch (tipoDia(fecha)) {
+		case LECTIVO -> EstadoAsistencia.FALTA;
+		case FESTIVO -> EstadoAsistencia.FESTIVO;
+		default -> null;
+		};
+	}
+
+	/**
+	 * Verifica si una fecha es festivo.
+	 *
+	 * @param fecha Fecha a verificar
+	 * @return true si es festivo
+	 */
+	public boolean esFestivo(LocalDate fecha) {
+		return contiene(festivos, fecha);
+	}
+
+	/**
+	 * Verifica si una fecha es de vacaciones o está fuera del periodo lectivo de
+	 * su año escolar (del 1 de septiembre al 30 de junio).
+	 *
+	 * @param fecha Fecha a verificar
+	 * @return true si es vacaciones
+	 */
+	public boolean esVacaciones(LocalDate fecha) {
+		int mes = fecha.getMonthValue();
+		return mes == 7 || mes == 8 || contiene(vacaciones, fecha);
+	}
+
+	/**
+	 * Vuelve a leer los festivos de la base de datos.
+	 */
+	public void recargarFestivos() {
+		List<LocalDate> fechas = festivoInterfaz.findAll().stream().map(FestivoEntidad::getFecha)
+				.collect(Collectors.toList());
+		festivos = construir(fechas);
+	}
+
+	/**
+	 * Vuelve a leer el archivo de vacaciones. Si no se puede leer se mantienen
+	 * las vacaciones cargadas.
+	 */
+	public void recargarVacaciones() {
+		try {
+			String contenido = Files.readString(Paths.get(archivoVacaciones));
+			List<LocalDate> fechas = new ArrayList<>();
+			for (String fechaStr : contenido.split(";")) {
+				if (!fechaStr.isBlank()) {
+					fechas.add(LocalDate.parse(fechaStr.trim(), FORMATO_FECHA));
+				}
+			}
+			vacaciones = construir(fechas);
+		} catch (IOException e) {
+			Logs.ficheroLog("Error al leer el archivo de vacaciones: " + e.getMessage());
+		} catch (Exception e) {
+			Logs.ficheroLog("Error al parsear las fechas de vacaciones: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return Ruta del archivo de vacaciones
+	 */
+	public String getArchivoVacaciones() {
+		return archivoVacaciones;
+	}
+
+	/**
+	 * Construye los mapas de bits por año natural de una lista de fechas.
+	 */
+	private static Map<Integer, long[]> construir(Collection<LocalDate> fechas) {
+		Map<Integer, long[]> bits = new HashMap<>();
+		for (LocalDate fecha : fechas) {
+			// 366 días caben en 6 palabras de 64 bits
+			long[] anio = bits.computeIfAbsent(fecha.getYear(), a -> new long[6]);
+			int dia = fecha.getDayOfYear() - 1;
+			anio[dia >>> 6] |= 1L << dia;
+		}
+		return Map.copyOf(bits);
+	}
+
+	private static boolean contiene(Map<Integer, long[]> bits, LocalDate fecha) {
+		long[] anio = bits.get(fecha.getYear());
+		if (anio == null)
+			return false;
+		int dia = fecha.getDayOfYear() - 1;
+		return (anio[dia >>> 6] & (1L << dia)) != 0;
+	}
+}
@@ -9,7 +9,9 @@ import org.springframework.stereotype.Service;
 
 import altair.fichajes_api.dtos.CursoDto;
 import altair.fichajes_api.entidad.CursoEntidad;
+import altair.fichajes_api.lector.IndiceUidMatriculaFuncionalidad;
 import altair.fichajes_api.repositorios.CursoInterfaz;
+import jakarta.transaction.Transactional;
 
 /**
  * Servicio encargado de la lógica de negocio relacionada con los cursos.
@@ -22,6 +24,12 @@ public class CursoServicio {
     @Autowired
     private CursoInterfaz cursoInterfaz;
 
+    @Autowired
+    private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
+
+    @Autowired
+    private ResumenAsistenciaServicio resumenAsistencia;
+
     /**
      * Mapea una entidad {@link CursoEntidad} a su DTO {@link CursoDto}.
      * @param curso Entidad de curso
@@ -95,6 +103,7 @@ public class CursoServicio {
             curso.setNombreCurso(dto.getNombreCurso());
 
             cursoInterfaz.save(curso);
+            indiceUidMatricula.invalidar();
             return true;
         }
 
@@ -107,10 +116,13 @@ public class CursoServicio {
      * @param id ID del curso
      * @return true si se eliminó correctamente, false si no existe
      */
+    @Transactional
     public boolean borrarCurso(Long id) {
         Optional<CursoEntidad> cursoOpt = cursoInterfaz.findById(id);
         if (cursoOpt.isPresent()) {
+            resumenAsistencia.borrarCurso(id);
             cursoInterfaz.delete(cursoOpt.get());
+            indiceUidMatricula.invalidar();
             return true;
         }
         return false;
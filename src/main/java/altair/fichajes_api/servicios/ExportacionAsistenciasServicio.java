@@ -0,0 +1,142 @@
+package altair.fichajes_api.servicios;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import altair.fichajes_api.dtos.AsistenciaDto;
+import jakarta.transaction.Transactional;
+
+/**
+ * Servicio encargado de exportar asistencias en NDJSON o CSV.
+ *
+ * Las filas se leen de un cursor de la base de datos (día a día con las faltas
+ * derivadas) y se escriben en la salida una a una, sin reunirlas en una lista,
+ * de modo que la memoria usada es la misma exporte cien filas o varios
+ * millones.
+ */
+@Service
+public class ExportacionAsistenciasServicio {
+
+	private static final String CABECERA_CSV = "id_asistencia,matriculacion_id,alumno_id,alumno,curso,grupo,"
+			+ "anio_escolar,fecha,hora_entrada,hora_salida,estado,justificar_modificacion,fecha_modificacion";
+
+	/** Límites usados cuando no se indica una de las fechas del rango. */
+	private static final LocalDate PRIMERA_FECHA = LocalDate.of(1900, 1, 1);
+	private static final LocalDate ULTIMA_FECHA = LocalDate.of(9999, 12, 31);
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Escribe en la salida las asistencias que cumplen los filtros, ordenadas por
+	 * fecha e id (por fecha y matrícula con las faltas derivadas). La salida no
+	 * se cierra.
+	 *
+	 * @param desde   Fecha inicial (incluida) o null
+	 * @param hasta   Fecha final (incluida) o null
+	 * @param curso   Nombre del curso o null
+	 * @param grupo   Nombre del grupo o null
+	 * @param formato Formato de salida
+	 * @param salida  Flujo en el que escribir
+	 * @return Número de asistencias escritas
+	 * @throws IOException Si falla la escritura (por ejemplo, el cliente cierra la
+	 *                     conexión)
+	 */
+	@Transactional
+	public long exportar(LocalDate desde, LocalDate hasta, String curso, String grupo, FormatoExportacion formato,
+			OutputStream salida) throws IOException {
+		Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+		ObjectWriter json = objectMapper.writerFor(AsistenciaDto.class);
+		long filas = 0;
+
+		if (formato == FormatoExportacion.CSV) {
+			escritor.write(CABECERA_CSV);
+			escritor.write('\n');
+		}
+
+		try (Stream<AsistenciaDto> asistencias = asistenciaServicio.recorrerParaExportar(
+				desde != null ? desde : PRIMERA_FECHA, hasta != null ? hasta : ULTIMA_FECHA, vacioANull(curso),
+				vacioANull(grupo))) {
+			Iterator<AsistenciaDto> it = asistencias.iterator();
+			while (it.hasNext()) {
+				AsistenciaDto dto = it.next();
+				if (formato == FormatoExportacion.CSV) {
+					escribirCsv(escritor, dto);
+				} else {
+					escritor.write(json.writeValueAsString(dto));
+				}
+				escritor.write('\n');
+				filas++;
+			}
+		}
+
+		escritor.flush();
+		return filas;
+	}
+
+	private void escribirCsv(Writer escritor, AsistenciaDto dto) throws IOException {
+		escritor.write(valorCsv(dto.getIdAsistencia()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getMatriculacionId()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getAlumnoId()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getNombreCompletoAlumno()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getNombreCurso()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getNombreGrupo()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getAnioEscolar()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getFecha()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getHoraEntrada()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getHoraSalida()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getEstado()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getJustificarModificacion()));
+		escritor.write(',');
+		escritor.write(valorCsv(dto.getFechaModificacion()));
+	}
+
+	/**
+	 * Convierte un valor a un campo CSV, entrecomillándolo si contiene comas,
+	 * comillas o saltos de línea. Los valores null se dejan vacíos.
+	 *
+	 * @param valor Valor a convertir
+	 * @return Campo CSV
+	 */
+	static String valorCsv(Object valor) {
+		if (valor == null) {
+			return "";
+		}
+		String texto = valor.toString();
+		if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0
+				&& texto.indexOf('\r') < 0) {
+			return texto;
+		}
+		return '"' + texto.replace("\"", "\"\"") + '"';
+	}
+
+	private static String vacioANull(String texto) {
+		return texto == null || texto.isBlank() ? null : texto;
+	}
+}
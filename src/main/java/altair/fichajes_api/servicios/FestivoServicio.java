@@ -1,39 +1,103 @@
 package altair.fichajes_api.servicios;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import altair.fichajes_api.dtos.FestivoDto;
+import altair.fichajes_api.dtos.ResultadoImportacionFestivosDto;
 import altair.fichajes_api.entidad.FestivoEntidad;
+import altair.fichajes_api.entidad.ImportacionFestivosEntidad;
+import altair.fichajes_api.logs.Logs;
 import altair.fichajes_api.repositorios.FestivoInterfaz;
+import altair.fichajes_api.repositorios.ImportacionFestivosInterfaz;
 import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
 
 /**
  * Servicio encargado de la gestión de festivos. Proporciona métodos para
  * importar festivos desde archivo, obtenerlos, guardarlos, eliminarlos y
  * mantenerlos actualizados.
+ *
+ * El archivo de festivos es la fuente del calendario: al arrancar, cada día y
+ * cada vez que cambia se sincroniza la tabla con él. La sincronización solo
+ * toca los años que aparecen en el calendario (los festivos de otros años se
+ * conservan), aplica solo la diferencia, en una transacción y con borrados e
+ * inserciones en lotes, y se salta por completo si el contenido tiene el mismo
+ * hash que el último importado. Ese hash se guarda en la base de datos para
+ * que también valga tras reiniciar.
  */
 @Service
 public class FestivoServicio {
 
-	private static final String RUTA_ARCHIVO = "src/main/resources/festivos.txt";
-	private static final String FORMATO_FECHA = "dd-MM-yyyy";
+	static final String ORIGEN_ARCHIVO = "archivo";
+	static final String ORIGEN_SUBIDA = "subida";
+
+	/** Día y mes con uno o dos dígitos: 01-11-2025 o 1-11-2025. */
+	private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("d-M-uuuu")
+			.withResolverStyle(ResolverStyle.STRICT);
+	private static final Pattern SEPARADORES = Pattern.compile("[;,\\s]+");
+	private static final String RANGO = "..";
 
 	@Autowired
 	private FestivoInterfaz festivoInterfaz;
 
+	@Autowired
+	private ImportacionFestivosInterfaz importacionFestivosInterfaz;
+
+	@Autowired
+	private CalendarioEscolarServicio calendarioEscolar;
+
+	@Autowired
+	private TransactionTemplate transaccion;
+
+	@Value("${fichajes.calendario.archivo-festivos:src/main/resources/festivos.txt}")
+	private String archivoFestivos;
+
+	/**
+	 * Hash del último calendario importado, leído de la base de datos la primera
+	 * vez que se necesita. Se olvida (también en la base de datos) al guardar o
+	 * eliminar festivos a mano, para que la siguiente importación vuelva a
+	 * aplicar el archivo.
+	 */
+	private volatile String hashImportado;
+
+	/**
+	 * Fechas de un calendario leído y valores que no son fechas válidas.
+	 */
+	record Calendario(SortedSet<LocalDate> fechas, List<String> noValidas) {
+	}
+
 	/**
 	 * Método ejecutado al iniciar la aplicación para importar los festivos.
 	 */
@@ -43,56 +107,275 @@ public class FestivoServicio {
 	}
 
 	/**
-	 * Importa festivos desde un archivo de texto, limpiando previamente la tabla.
+	 * Sincroniza la tabla de festivos con el archivo de festivos.
+	 *
+	 * @return Resultado de la importación o null si no se puede leer el archivo
 	 */
-	public void importarFestivosDesdeArchivo() {
-		try (BufferedReader br = new BufferedReader(new FileReader(RUTA_ARCHIVO))) {
-			// 1️⃣ Leer todas las fechas del archivo
-			Set<LocalDate> fechasArchivo = new HashSet<>();
-			String line;
-			while ((line = br.readLine()) != null) {
-				String[] campos = line.split(";");
-				for (String fechaStr : campos) {
-					try {
-						LocalDate fecha = LocalDate.parse(fechaStr.trim(), DateTimeFormatter.ofPattern(FORMATO_FECHA));
-						fechasArchivo.add(fecha);
-					} catch (DateTimeParseException e) {
-						System.out.println("Error al parsear la fecha: " + fechaStr);
-					}
-				}
+	public ResultadoImportacionFestivosDto importarFestivosDesdeArchivo() {
+		try {
+			return importar(Files.readAllBytes(Paths.get(archivoFestivos)), ORIGEN_ARCHIVO);
+		} catch (IOException e) {
+			Logs.ficheroLog("❌ Error al leer el archivo de festivos: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Importa un calendario de festivos subido a la API. Solo cambia los años que
+	 * aparecen en el calendario: los festivos de los demás años se conservan, en
+	 * la tabla y en el archivo de festivos. El calendario sustituye a esos años
+	 * en el archivo, para que las sincronizaciones siguientes (diaria, al
+	 * arrancar o al cambiar el archivo) lo mantengan.
+	 *
+	 * @param contenido Contenido del calendario, con el formato del archivo de
+	 *                  festivos
+	 * @return Resultado de la importación
+	 * @throws IllegalArgumentException si alguna fecha no es válida; en ese caso
+	 *                                  no se cambia nada
+	 * @throws IOException              si no se puede escribir el archivo de
+	 *                                  festivos
+	 */
+	public synchronized ResultadoImportacionFestivosDto importarCalendario(byte[] contenido) throws IOException {
+		Calendario calendario = leer(contenido);
+		if (!calendario.noValidas().isEmpty()) {
+			throw new IllegalArgumentException("Fechas no válidas en el calendario: " + calendario.noValidas());
+		}
+
+		// Se escribe en un temporal y se mueve, para que la vigilancia del archivo
+		// nunca lea un calendario a medio escribir
+		Path archivo = Paths.get(archivoFestivos);
+		Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+		Files.write(temporal, conservarOtrosAnios(contenido, anios(calendario.fechas()), archivo));
+		Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		return importar(contenido, ORIGEN_SUBIDA);
+	}
+
+	/**
+	 * Sincroniza la tabla de festivos con un calendario en los años que aparecen
+	 * en él: borra los festivos de esos años que ya no están (y las fechas
+	 * repetidas) e inserta los nuevos, todo en una transacción. Los festivos de
+	 * otros años no se tocan. Los valores que no son fechas válidas se ignoran y
+	 * se devuelven en el resultado.
+	 *
+	 * @param contenido Contenido del calendario
+	 * @param origen    Origen del calendario, para el resultado y el log
+	 * @return Resultado de la importación
+	 */
+	synchronized ResultadoImportacionFestivosDto importar(byte[] contenido, String origen) {
+		long inicio = System.nanoTime();
+		String hash = calcularHash(contenido);
+
+		ResultadoImportacionFestivosDto resultado = new ResultadoImportacionFestivosDto();
+		resultado.setOrigen(origen);
+		resultado.setHash(hash);
+		resultado.setInsertadas(List.of());
+		resultado.setEliminadas(List.of());
+		resultado.setFechasNoValidas(List.of());
+		resultado.setAnios(List.of());
+
+		if (hash.equals(hashImportado())) {
+			resultado.setSinCambios(true);
+			Logs.ficheroLog("Calendario de festivos sin cambios (" + origen + "), no se importa");
+			return resultado;
+		}
+
+		Calendario calendario = leer(contenido);
+		for (String valor : calendario.noValidas()) {
+			Logs.ficheroLog("⚠️ Fecha de festivo no válida: " + valor);
+		}
+		SortedSet<Integer> anios = anios(calendario.fechas());
+		resultado.setFechasLeidas(calendario.fechas().size());
+		resultado.setAnios(List.copyOf(anios));
+		resultado.setFechasNoValidas(calendario.noValidas());
+
+		transaccion.executeWithoutResult(estado -> {
+			aplicar(calendario.fechas(), anios, resultado);
+			guardarHash(hash, origen);
+		});
+
+		boolean cambios = !resultado.getInsertadas().isEmpty() || !resultado.getEliminadas().isEmpty()
+				|| resultado.getDuplicadasEliminadas() > 0;
+		resultado.setSinCambios(!cambios);
+		if (cambios) {
+			calendarioEscolar.recargarFestivos();
+		}
+		hashImportado = hash;
+		resultado.setDuracionMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+
+		Logs.ficheroLog("✅ Festivos sincronizados (" + origen + ", años " + anios + "): "
+				+ resultado.getInsertadas().size()
+				+ " insertados, " + resultado.getEliminadas().size() + " eliminados, "
+				+ resultado.getDuplicadasEliminadas() + " repetidos eliminados, " + calendario.noValidas().size()
+				+ " fechas no válidas, en " + resultado.getDuracionMs() + " ms");
+		return resultado;
+	}
+
+	/**
+	 * Aplica la diferencia entre la tabla y las fechas del calendario, en los
+	 * años indicados, con un borrado y una inserción en lotes.
+	 */
+	private void aplicar(Set<LocalDate> fechas, SortedSet<Integer> anios, ResultadoImportacionFestivosDto resultado) {
+		if (anios.isEmpty()) {
+			return;
+		}
+		List<Long> idsEliminar = new ArrayList<>();
+		SortedSet<LocalDate> eliminadas = new TreeSet<>();
+		Set<LocalDate> enBD = new HashSet<>();
+		int duplicadas = 0;
+
+		for (FestivoEntidad festivo : festivoInterfaz.findByFechaBetween(LocalDate.of(anios.first(), 1, 1),
+				LocalDate.of(anios.last(), 12, 31), Sort.by("fecha", "id"))) {
+			LocalDate fecha = festivo.getFecha();
+			if (!anios.contains(fecha.getYear())) {
+				continue;
+			}
+			if (!fechas.contains(fecha)) {
+				idsEliminar.add(festivo.getId());
+				eliminadas.add(fecha);
+			} else if (!enBD.add(fecha)) {
+				idsEliminar.add(festivo.getId());
+				duplicadas++;
 			}
+		}
+
+		List<FestivoEntidad> nuevos = fechas.stream().filter(fecha -> !enBD.contains(fecha))
+				.map(FestivoServicio::nuevoFestivo).toList();
+
+		if (!idsEliminar.isEmpty()) {
+			festivoInterfaz.deleteAllByIdInBatch(idsEliminar);
+		}
+		festivoInterfaz.saveAll(nuevos);
 
-			// 2️⃣ Obtener todas las fechas existentes en la BD
-			List<FestivoEntidad> festivosBD = festivoInterfaz.findAll();
-			Set<LocalDate> fechasBD = festivosBD.stream().map(FestivoEntidad::getFecha).collect(Collectors.toSet());
+		resultado.setInsertadas(nuevos.stream().map(FestivoEntidad::getFecha).toList());
+		resultado.setEliminadas(List.copyOf(eliminadas));
+		resultado.setDuplicadasEliminadas(duplicadas);
+	}
+
+	/**
+	 * Lee las fechas de un calendario. Las fechas van en formato dd-MM-yyyy
+	 * separadas por punto y coma, comas, espacios o saltos de línea, de modo que
+	 * un archivo puede tener un año por línea. También admite rangos
+	 * (22-12-2025..07-01-2026) y comentarios desde # hasta el final de la línea.
+	 *
+	 * @param contenido Contenido del calendario en UTF-8
+	 * @return Fechas del calendario y valores no válidos
+	 */
+	static Calendario leer(byte[] contenido) {
+		SortedSet<LocalDate> fechas = new TreeSet<>();
+		List<String> noValidas = new ArrayList<>();
 
-			// 3️⃣ Eliminar de la BD las fechas que ya no están en el archivo
-			for (FestivoEntidad festivo : festivosBD) {
-				if (!fechasArchivo.contains(festivo.getFecha())) {
-					festivoInterfaz.delete(festivo);
+		for (String linea : new String(contenido, StandardCharsets.UTF_8).split("\\R")) {
+			int comentario = linea.indexOf('#');
+			if (comentario >= 0) {
+				linea = linea.substring(0, comentario);
+			}
+			for (String valor : SEPARADORES.split(linea.strip())) {
+				if (valor.isEmpty()) {
+					continue;
+				}
+				try {
+					int rango = valor.indexOf(RANGO);
+					if (rango < 0) {
+						fechas.add(LocalDate.parse(valor, FORMATO_FECHA));
+					} else {
+						LocalDate desde = LocalDate.parse(valor.substring(0, rango), FORMATO_FECHA);
+						LocalDate hasta = LocalDate.parse(valor.substring(rango + RANGO.length()), FORMATO_FECHA);
+						if (hasta.isBefore(desde)) {
+							throw new DateTimeException("Rango invertido");
+						}
+						desde.datesUntil(hasta.plusDays(1)).forEach(fechas::add);
+					}
+				} catch (DateTimeException e) {
+					noValidas.add(valor);
 				}
 			}
+		}
+		return new Calendario(fechas, noValidas);
+	}
 
-			// 4️⃣ Insertar en la BD las fechas nuevas que están en el archivo
-			for (LocalDate fecha : fechasArchivo) {
-				if (!fechasBD.contains(fecha)) {
-					FestivoEntidad festivo = new FestivoEntidad();
-					festivo.setFecha(fecha);
-					festivoInterfaz.save(festivo);
-				}
+	/**
+	 * Añade al calendario subido las fechas del archivo de festivos de los años
+	 * que el calendario no incluye, con una línea por año.
+	 *
+	 * @param contenido Calendario subido
+	 * @param anios     Años del calendario subido
+	 * @param archivo   Archivo de festivos actual
+	 * @return Contenido del nuevo archivo de festivos
+	 */
+	private static byte[] conservarOtrosAnios(byte[] contenido, Set<Integer> anios, Path archivo)
+			throws IOException {
+		if (!Files.exists(archivo)) {
+			return contenido;
+		}
+		Map<Integer, List<String>> conservadas = new TreeMap<>();
+		for (LocalDate fecha : leer(Files.readAllBytes(archivo)).fechas()) {
+			if (!anios.contains(fecha.getYear())) {
+				conservadas.computeIfAbsent(fecha.getYear(), anio -> new ArrayList<>()).add(FORMATO_FECHA.format(fecha));
 			}
+		}
+		if (conservadas.isEmpty()) {
+			return contenido;
+		}
 
-			System.out.println("Festivos sincronizados correctamente. Total en BD: " + festivoInterfaz.count());
+		StringBuilder texto = new StringBuilder(new String(contenido, StandardCharsets.UTF_8));
+		if (!texto.isEmpty() && texto.charAt(texto.length() - 1) != '\n') {
+			texto.append('\n');
+		}
+		conservadas.forEach((anio, fechas) -> texto.append("# ").append(anio)
+				.append(", conservado del calendario anterior\n").append(String.join(";", fechas)).append('\n'));
+		return texto.toString().getBytes(StandardCharsets.UTF_8);
+	}
 
-		} catch (IOException e) {
-			System.out.println("Error al leer el archivo de festivos: " + e.getMessage());
+	private static SortedSet<Integer> anios(Set<LocalDate> fechas) {
+		return fechas.stream().map(LocalDate::getYear).collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	/**
+	 * @return Hash del último calendario importado o null si no se conoce
+	 */
+	private String hashImportado() {
+		if (hashImportado == null) {
+			hashImportado = importacionFestivosInterfaz.findById(ImportacionFestivosEntidad.ID)
+					.map(ImportacionFestivosEntidad::getHash).orElse(null);
+		}
+		return hashImportado;
+	}
+
+	private void guardarHash(String hash, String origen) {
+		ImportacionFestivosEntidad importacion = new ImportacionFestivosEntidad();
+		importacion.setHash(hash);
+		importacion.setOrigen(origen);
+		importacion.setFechaImportacion(LocalDateTime.now());
+		importacionFestivosInterfaz.save(importacion);
+	}
+
+	/**
+	 * Olvida el último calendario importado tras un cambio a mano en los
+	 * festivos.
+	 */
+	private void olvidarHash() {
+		hashImportado = null;
+		importacionFestivosInterfaz.deleteAll();
+	}
+
+	private static String calcularHash(byte[] contenido) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
 		}
+	}
 
+	private static FestivoEntidad nuevoFestivo(LocalDate fecha) {
+		FestivoEntidad festivo = new FestivoEntidad();
+		festivo.setFecha(fecha);
+		return festivo;
 	}
 
 	/**
 	 * Obtiene todos los festivos existentes.
-	 * 
+	 *
 	 * @return Lista de DTOs de festivos
 	 */
 	public List<FestivoDto> obtenerTodosFestivos() {
@@ -101,7 +384,7 @@ public class FestivoServicio {
 
 	/**
 	 * Guarda un festivo en la base de datos.
-	 * 
+	 *
 	 * @param dto DTO del festivo a guardar
 	 * @return DTO del festivo guardado
 	 */
@@ -109,12 +392,14 @@ public class FestivoServicio {
 		FestivoEntidad entidad = new FestivoEntidad();
 		entidad.setFecha(dto.getFecha());
 		entidad = festivoInterfaz.save(entidad);
+		olvidarHash();
+		calendarioEscolar.recargarFestivos();
 		return convertirA_dto(entidad);
 	}
 
 	/**
 	 * Elimina un festivo por su ID.
-	 * 
+	 *
 	 * @param id ID del festivo a eliminar
 	 * @return true si se eliminó, false si no existía
 	 */
@@ -122,6 +407,8 @@ public class FestivoServicio {
 		Optional<FestivoEntidad> festivo = festivoInterfaz.findById(id);
 		if (festivo.isPresent()) {
 			festivoInterfaz.delete(festivo.get());
+			olvidarHash();
+			calendarioEscolar.recargarFestivos();
 			return true;
 		}
 		return false;
@@ -129,7 +416,7 @@ public class FestivoServicio {
 
 	/**
 	 * Convierte una entidad de festivo a su DTO correspondiente.
-	 * 
+	 *
 	 * @param entidad Entidad de festivo
 	 * @return DTO de festivo
 	 */
@@ -142,23 +429,34 @@ public class FestivoServicio {
 
 	/**
 	 * Método para actualizar los festivos diarios, re-importando desde archivo.
+	 * Se ejecuta cada día a la hora indicada en la propiedad
+	 * fichajes.calendario.actualizacion-cron.
 	 */
+	@Scheduled(cron = "${fichajes.calendario.actualizacion-cron:0 0 5 * * *}")
 	public void actualizarFestivosDiarios() {
 		importarFestivosDesdeArchivo();
 	}
 
 	/**
-	 * Guarda una lista de festivos en la base de datos, evitando duplicados.
-	 * 
+	 * Guarda una lista de festivos en la base de datos, evitando duplicados. Las
+	 * fechas existentes se leen con una sola consulta y los nuevos se insertan en
+	 * lotes.
+	 *
 	 * @param festivos Lista de entidades de festivo
 	 */
+	@Transactional
 	public void guardarFestivos(List<FestivoEntidad> festivos) {
-		for (FestivoEntidad festivo : festivos) {
-			LocalDate fecha = festivo.getFecha();
-			if (!festivoInterfaz.existsByFecha(fecha)) {
-				festivoInterfaz.save(festivo);
-			} else {
-			}
-		}
+		Set<LocalDate> existentes = festivoInterfaz.findAll().stream().map(FestivoEntidad::getFecha)
+				.collect(Collectors.toSet());
+		festivoInterfaz.saveAll(festivos.stream().filter(festivo -> existentes.add(festivo.getFecha())).toList());
+		olvidarHash();
+		calendarioEscolar.recargarFestivos();
+	}
+
+	/**
+	 * @return Ruta del archivo de festivos
+	 */
+	public String getArchivoFestivos() {
+		return archivoFestivos;
 	}
 }
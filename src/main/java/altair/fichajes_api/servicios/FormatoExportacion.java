@@ -0,0 +1,26 @@
+package altair.fichajes_api.servicios;
+
+/**
+ * Formato de salida de la exportación de asistencias.
+ */
+public enum FormatoExportacion {
+
+	/** Un objeto JSON por línea (application/x-ndjson). */
+	NDJSON("application/x-ndjson"),
+
+	/** Valores separados por comas con cabecera (text/csv). */
+	CSV("text/csv");
+
+	private final String tipoContenido;
+
+	FormatoExportacion(String tipoContenido) {
+		this.tipoContenido = tipoContenido;
+	}
+
+	/**
+	 * @return Tipo MIME de la respuesta
+	 */
+	public String tipoContenido() {
+		return tipoContenido;
+	}
+}
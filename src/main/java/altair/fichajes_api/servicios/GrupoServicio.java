@@ -10,8 +10,10 @@ import org.springframework.stereotype.Service;
 import altair.fichajes_api.dtos.GrupoDto;
 import altair.fichajes_api.entidad.CursoEntidad;
 import altair.fichajes_api.entidad.GrupoEntidad;
+import altair.fichajes_api.lector.IndiceUidMatriculaFuncionalidad;
 import altair.fichajes_api.repositorios.CursoInterfaz;
 import altair.fichajes_api.repositorios.GrupoInterfaz;
+import jakarta.transaction.Transactional;
 
 /**
  * Servicio encargado de la gestión de grupos.
@@ -26,6 +28,12 @@ public class GrupoServicio {
     @Autowired
     private CursoInterfaz cursoInterfaz;
 
+    @Autowired
+    private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
+
+    @Autowired
+    private ResumenAsistenciaServicio resumenAsistencia;
+
     /**
      * Convierte una entidad de grupo a su DTO correspondiente.
      * @param grupo Entidad de grupo
@@ -131,6 +139,7 @@ public class GrupoServicio {
             }
 
             grupoInterfaz.save(grupo);
+            indiceUidMatricula.invalidar();
             return true;
         }
 
@@ -143,10 +152,13 @@ public class GrupoServicio {
      * @param id ID del grupo a eliminar
      * @return true si se eliminó, false si no existía
      */
+    @Transactional
     public boolean borrarGrupo(Long id) {
         Optional<GrupoEntidad> grupoOpt = grupoInterfaz.findById(id);
         if (grupoOpt.isPresent()) {
+            resumenAsistencia.borrarGrupo(id);
             grupoInterfaz.delete(grupoOpt.get());
+            indiceUidMatricula.invalidar();
             return true;
         }
         return false;
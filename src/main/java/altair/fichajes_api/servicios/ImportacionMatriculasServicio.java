@@ -0,0 +1,354 @@
+package altair.fichajes_api.servicios;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import altair.fichajes_api.dtos.ResultadoImportacionMatriculasDto;
+import altair.fichajes_api.entidad.AlumnoEntidad;
+import altair.fichajes_api.entidad.CursoEntidad;
+import altair.fichajes_api.entidad.GrupoEntidad;
+import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.lector.IndiceUidMatriculaFuncionalidad;
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.repositorios.AlumnoInterfaz;
+import altair.fichajes_api.repositorios.CursoInterfaz;
+import altair.fichajes_api.repositorios.GrupoInterfaz;
+import altair.fichajes_api.repositorios.MatriculacionInterfaz;
+
+/**
+ * Servicio encargado de dar de alta alumnos con su matrícula desde un CSV, para
+ * el inicio de curso.
+ *
+ * El CSV se lee línea a línea, sin cargarlo entero en memoria. Los cursos y
+ * grupos se buscan por nombre en mapas construidos una vez por importación, y
+ * los UID ya asignados se leen una vez por año escolar. Las filas válidas se
+ * guardan en lotes de fichajes.importacion.tamano-lote, cada uno en su
+ * transacción y con inserciones en lotes de JDBC; un error en una fila no
+ * deshace los lotes ya guardados.
+ */
+@Service
+public class ImportacionMatriculasServicio {
+
+	/** Columnas del CSV, en cualquier orden; el UID es opcional. */
+	static final List<String> COLUMNAS = List.of("nombre", "apellido", "curso", "grupo", "anio_escolar", "uid");
+
+	private static final int NOMBRE = 0;
+	private static final int APELLIDO = 1;
+	private static final int CURSO = 2;
+	private static final int GRUPO = 3;
+	private static final int ANIO_ESCOLAR = 4;
+	private static final int UID = 5;
+
+	private static final Pattern FORMATO_ANIO_ESCOLAR = Pattern.compile("(\\d{4})-(\\d{4})");
+	private static final int LONGITUD_MAXIMA = 100;
+
+	@Autowired
+	private AlumnoInterfaz alumnoInterfaz;
+
+	@Autowired
+	private CursoInterfaz cursoInterfaz;
+
+	@Autowired
+	private GrupoInterfaz grupoInterfaz;
+
+	@Autowired
+	private MatriculacionInterfaz matriculacionInterfaz;
+
+	@Autowired
+	private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
+
+	@Autowired
+	private TransactionTemplate transaccion;
+
+	@Value("${fichajes.importacion.tamano-lote:500}")
+	private int tamanoLote;
+
+	/**
+	 * Fila válida del CSV pendiente de guardar.
+	 */
+	private record Fila(int linea, String nombre, String apellido, CursoEntidad curso, GrupoEntidad grupo,
+			String anioEscolar, String uid) {
+	}
+
+	/**
+	 * Importa un CSV de alumnos y matrículas. La primera línea es la cabecera con
+	 * los nombres de las columnas (nombre, apellido, curso, grupo, anio_escolar y
+	 * opcionalmente uid), separadas por comas o por punto y coma. Cada fila crea
+	 * un alumno nuevo y su matrícula.
+	 *
+	 * @param csv Contenido del CSV en UTF-8
+	 * @return Resultado con las matrículas creadas y el motivo de cada fila
+	 *         rechazada
+	 * @throws IllegalArgumentException si el CSV está vacío o faltan columnas en la
+	 *                                  cabecera
+	 * @throws IOException              si falla la lectura
+	 */
+	public ResultadoImportacionMatriculasDto importar(InputStream csv) throws IOException {
+		long inicio = System.nanoTime();
+		BufferedReader lector = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+
+		String cabecera = lector.readLine();
+		if (cabecera == null) {
+			throw new IllegalArgumentException("El CSV está vacío");
+		}
+		// Marca de orden de bytes que añaden algunas hojas de cálculo
+		cabecera = cabecera.replace("\uFEFF", "");
+		char separador = cabecera.indexOf(';') >= 0 ? ';' : ',';
+		int[] posiciones = leerCabecera(campos(cabecera, separador));
+
+		// Cursos por nombre y grupos por curso y nombre, leídos una sola vez
+		Map<String, CursoEntidad> cursos = new HashMap<>();
+		for (CursoEntidad curso : cursoInterfaz.findAll()) {
+			cursos.putIfAbsent(clave(curso.getNombreCurso()), curso);
+		}
+		Map<String, GrupoEntidad> grupos = new HashMap<>();
+		for (GrupoEntidad grupo : grupoInterfaz.findAll()) {
+			if (grupo.getCurso() != null) {
+				grupos.putIfAbsent(claveGrupo(grupo.getCurso(), grupo.getNombreGrupo()), grupo);
+			}
+		}
+		Map<String, Set<String>> uidsPorAnio = new HashMap<>();
+
+		Map<Integer, String> errores = new TreeMap<>();
+		List<Fila> lote = new ArrayList<>(tamanoLote);
+		int linea = 1;
+		int filas = 0;
+		int creadas = 0;
+		int lotes = 0;
+
+		String texto;
+		while ((texto = lector.readLine()) != null) {
+			linea++;
+			if (texto.isBlank()) {
+				continue;
+			}
+			filas++;
+			try {
+				lote.add(validar(linea, campos(texto, separador), posiciones, cursos, grupos, uidsPorAnio));
+			} catch (IllegalArgumentException e) {
+				errores.put(linea, e.getMessage());
+			}
+			if (lote.size() >= tamanoLote) {
+				creadas += guardarLote(lote, errores);
+				lotes++;
+				lote.clear();
+			}
+		}
+		if (!lote.isEmpty()) {
+			creadas += guardarLote(lote, errores);
+			lotes++;
+		}
+
+		if (creadas > 0) {
+			indiceUidMatricula.invalidar();
+		}
+
+		ResultadoImportacionMatriculasDto resultado = new ResultadoImportacionMatriculasDto();
+		resultado.setFilasLeidas(filas);
+		resultado.setMatriculasCreadas(creadas);
+		resultado.setLotes(lotes);
+		resultado.setErrores(errores);
+		resultado.setDuracionMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+
+		Logs.ficheroLog("✅ Importación de matrículas: " + creadas + " creadas de " + filas + " filas en " + lotes
+				+ " lotes, " + errores.size() + " filas rechazadas, en " + resultado.getDuracionMs() + " ms");
+		return resultado;
+	}
+
+	/**
+	 * Devuelve la posición de cada columna en la cabecera, o -1 si no está.
+	 *
+	 * @throws IllegalArgumentException si falta una columna obligatoria
+	 */
+	private static int[] leerCabecera(List<String> cabecera) {
+		List<String> nombres = cabecera.stream().map(ImportacionMatriculasServicio::clave).toList();
+		int[] posiciones = new int[COLUMNAS.size()];
+		List<String> faltan = new ArrayList<>();
+		for (int i = 0; i < COLUMNAS.size(); i++) {
+			posiciones[i] = nombres.indexOf(COLUMNAS.get(i));
+			if (posiciones[i] < 0 && i != UID) {
+				faltan.add(COLUMNAS.get(i));
+			}
+		}
+		if (!faltan.isEmpty()) {
+			throw new IllegalArgumentException("Faltan columnas en la cabecera del CSV: " + faltan);
+		}
+		return posiciones;
+	}
+
+	/**
+	 * Valida una fila y resuelve su curso y grupo. El UID de una fila válida queda
+	 * reservado, de modo que otra fila del mismo año con el mismo UID se rechaza.
+	 *
+	 * @throws IllegalArgumentException con el motivo si la fila no es válida
+	 */
+	private Fila validar(int linea, List<String> campos, int[] posiciones, Map<String, CursoEntidad> cursos,
+			Map<String, GrupoEntidad> grupos, Map<String, Set<String>> uidsPorAnio) {
+		String nombre = obligatorio(campos, posiciones, NOMBRE);
+		String apellido = obligatorio(campos, posiciones, APELLIDO);
+		String nombreCurso = obligatorio(campos, posiciones, CURSO);
+		String nombreGrupo = obligatorio(campos, posiciones, GRUPO);
+		String anioEscolar = obligatorio(campos, posiciones, ANIO_ESCOLAR);
+		String uid = campo(campos, posiciones[UID]);
+
+		CursoEntidad curso = cursos.get(clave(nombreCurso));
+		if (curso == null) {
+			throw new IllegalArgumentException("Curso no encontrado: " + nombreCurso);
+		}
+		GrupoEntidad grupo = grupos.get(claveGrupo(curso, nombreGrupo));
+		if (grupo == null) {
+			throw new IllegalArgumentException("El grupo " + nombreGrupo + " no existe en el curso " + nombreCurso);
+		}
+
+		Matcher anio = FORMATO_ANIO_ESCOLAR.matcher(anioEscolar);
+		if (!anio.matches() || Integer.parseInt(anio.group(2)) != Integer.parseInt(anio.group(1)) + 1) {
+			throw new IllegalArgumentException("Año escolar no válido (AAAA-AAAA): " + anioEscolar);
+		}
+
+		if (uid.isEmpty()) {
+			uid = null;
+		} else if (uid.length() > LONGITUD_MAXIMA) {
+			throw new IllegalArgumentException("UID de tarjeta demasiado largo: " + uid);
+		} else if (!uidsPorAnio
+				.computeIfAbsent(anioEscolar, a -> new HashSet<>(matriculacionInterfaz.findUidsByAnioEscolar(a)))
+				.add(uid)) {
+			throw new IllegalArgumentException("La tarjeta " + uid + " ya está asignada en el año " + anioEscolar);
+		}
+
+		return new Fila(linea, nombre, apellido, curso, grupo, anioEscolar, uid);
+	}
+
+	/**
+	 * Guarda un lote en una transacción. Si la base de datos rechaza el lote (por
+	 * ejemplo, por una tarjeta asignada mientras se importaba) se deshace solo ese
+	 * lote y se guardan sus filas una a una para saber cuáles fallan.
+	 *
+	 * @return Número de matrículas guardadas
+	 */
+	private int guardarLote(List<Fila> lote, Map<Integer, String> errores) {
+		try {
+			transaccion.executeWithoutResult(estado -> guardar(lote));
+			return lote.size();
+		} catch (RuntimeException e) {
+			Logs.ficheroLog("⚠️ Lote de matrículas rechazado, se guarda fila a fila: " + motivo(e));
+		}
+
+		int guardadas = 0;
+		for (Fila fila : lote) {
+			try {
+				transaccion.executeWithoutResult(estado -> guardar(List.of(fila)));
+				guardadas++;
+			} catch (RuntimeException e) {
+				errores.put(fila.linea(), motivo(e));
+			}
+		}
+		return guardadas;
+	}
+
+	private void guardar(List<Fila> filas) {
+		List<AlumnoEntidad> alumnos = new ArrayList<>(filas.size());
+		List<MatriculacionEntidad> matriculas = new ArrayList<>(filas.size());
+		for (Fila fila : filas) {
+			AlumnoEntidad alumno = new AlumnoEntidad();
+			alumno.setNombreAlumno(fila.nombre());
+			alumno.setApellidoAlumno(fila.apellido());
+			alumnos.add(alumno);
+
+			MatriculacionEntidad matricula = new MatriculacionEntidad();
+			matricula.setAlumno(alumno);
+			matricula.setCurso(fila.curso());
+			matricula.setGrupo(fila.grupo());
+			matricula.setAnioEscolar(fila.anioEscolar());
+			matricula.setUidLlave(fila.uid());
+			matriculas.add(matricula);
+		}
+		alumnoInterfaz.saveAll(alumnos);
+		matriculacionInterfaz.saveAll(matriculas);
+		// Los errores de la base de datos salen aquí y no al confirmar
+		matriculacionInterfaz.flush();
+	}
+
+	private static String obligatorio(List<String> campos, int[] posiciones, int columna) {
+		String valor = campo(campos, posiciones[columna]);
+		if (valor.isEmpty()) {
+			throw new IllegalArgumentException("Falta el campo " + COLUMNAS.get(columna));
+		}
+		if (valor.length() > LONGITUD_MAXIMA) {
+			throw new IllegalArgumentException("El campo " + COLUMNAS.get(columna) + " es demasiado largo");
+		}
+		return valor;
+	}
+
+	private static String campo(List<String> campos, int posicion) {
+		return posicion >= 0 && posicion < campos.size() ? campos.get(posicion).strip() : "";
+	}
+
+	/**
+	 * Separa los campos de una línea CSV. Un campo entre comillas puede contener
+	 * el separador, y dos comillas seguidas dentro de él son una comilla (como los
+	 * escribe la exportación de asistencias).
+	 *
+	 * @param linea     Línea del CSV
+	 * @param separador Separador de campos
+	 * @return Campos de la línea
+	 */
+	static List<String> campos(String linea, char separador) {
+		List<String> campos = new ArrayList<>();
+		StringBuilder campo = new StringBuilder();
+		boolean entreComillas = false;
+		for (int i = 0; i < linea.length(); i++) {
+			char c = linea.charAt(i);
+			if (entreComillas) {
+				if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+					campo.append('"');
+					i++;
+				} else if (c == '"') {
+					entreComillas = false;
+				} else {
+					campo.append(c);
+				}
+			} else if (c == '"') {
+				entreComillas = true;
+			} else if (c == separador) {
+				campos.add(campo.toString());
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		campos.add(campo.toString());
+		return campos;
+	}
+
+	private static String clave(String nombre) {
+		return nombre.strip().toLowerCase(Locale.ROOT);
+	}
+
+	private static String claveGrupo(CursoEntidad curso, String nombreGrupo) {
+		return curso.getIdCurso() + "/" + clave(nombreGrupo);
+	}
+
+	private static String motivo(RuntimeException e) {
+		return NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+	}
+}
@@ -4,17 +4,22 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import altair.fichajes_api.dtos.AlumnoConMatriculacionDto;
 import altair.fichajes_api.dtos.MatriculacionDto;
+import altair.fichajes_api.dtos.PaginaDto;
 import altair.fichajes_api.entidad.CursoEntidad;
 import altair.fichajes_api.entidad.GrupoEntidad;
 import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.lector.IndiceUidMatriculaFuncionalidad;
 import altair.fichajes_api.repositorios.AlumnoInterfaz;
 import altair.fichajes_api.repositorios.CursoInterfaz;
 import altair.fichajes_api.repositorios.GrupoInterfaz;
 import altair.fichajes_api.repositorios.MatriculacionInterfaz;
+import altair.fichajes_api.utilidades.CursorPaginacion;
+import jakarta.transaction.Transactional;
 
 /**
  * Servicio encargado de la gestión de matriculaciones. Proporciona métodos para
@@ -35,6 +40,12 @@ public class MatriculacionServicio {
 
 	@Autowired
 	private GrupoInterfaz grupoInterfaz;
+
+	@Autowired
+	private IndiceUidMatriculaFuncionalidad indiceUidMatricula;
+
+	@Autowired
+	private ResumenAsistenciaServicio resumenAsistencia;
 	
 	/**
 	 * Convierte una entidad MatriculacionEntidad a su correspondiente DTO AlumnoConMatriculacionDto.
@@ -71,9 +82,11 @@ public class MatriculacionServicio {
 		grupoInterfaz.findById(dto.getGrupoId()).ifPresent(matricula::setGrupo);
 
 		matricula.setAnioEscolar(dto.getAnioEscolar());
-		matricula.setUidLlave(dto.getUidLlave());
+		matricula.setUidLlave(normalizarUid(dto.getUidLlave()));
 
-		return matriculacionInterfaz.save(matricula);
+		MatriculacionEntidad guardada = matriculacionInterfaz.save(matricula);
+		indiceUidMatricula.invalidar();
+		return guardada;
 	}
 
 	/**
@@ -83,6 +96,7 @@ public class MatriculacionServicio {
 	 * @param dto DTO con los nuevos datos
 	 * @return true si se modificó correctamente, false si no existe
 	 */
+	@Transactional
 	public boolean modificarMatriculacion(Long id, MatriculacionDto dto) {
 	    Optional<MatriculacionEntidad> matriculaOpt = matriculacionInterfaz.findById(id);
 	    if (matriculaOpt.isPresent()) {
@@ -96,12 +110,23 @@ public class MatriculacionServicio {
 	            return false; 
 	        }
 
+	        // Las asistencias pasan al resumen del nuevo curso y grupo
+	        boolean cambiaGrupo = !curso.getIdCurso().equals(matricula.getCurso().getIdCurso())
+	                || !grupo.getIdGrupo().equals(matricula.getGrupo().getIdGrupo());
+	        if (cambiaGrupo) {
+	            resumenAsistencia.descontarMatriculaciones(List.of(id));
+	        }
+
 	        matricula.setCurso(curso);
 	        matricula.setGrupo(grupo);
 	        matricula.setAnioEscolar(dto.getAnioEscolar());
-	        matricula.setUidLlave(dto.getUidLlave());
+	        matricula.setUidLlave(normalizarUid(dto.getUidLlave()));
 
-	        matriculacionInterfaz.save(matricula);
+	        matriculacionInterfaz.saveAndFlush(matricula);
+	        if (cambiaGrupo) {
+	            resumenAsistencia.sumarMatriculaciones(List.of(id));
+	        }
+	        indiceUidMatricula.invalidar();
 	        return true;
 	    }
 	    return false;
@@ -127,6 +152,33 @@ public class MatriculacionServicio {
 		}).toList();
 	}
 
+	/**
+	 * Obtiene una página de matriculaciones ordenadas por ID.
+	 * 
+	 * @param cursor Cursor de la página anterior, o null para la primera
+	 * @param limite Número máximo de matriculaciones de la página
+	 * @return Página de DTOs de matriculaciones
+	 */
+	public PaginaDto<MatriculacionDto> obtenerPaginaDto(String cursor, int limite) {
+		CursorPaginacion posicion = CursorPaginacion.leer(cursor);
+		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findPaginaDespuesDe(posicion.getId(),
+				Limit.of(limite + 1));
+
+		List<MatriculacionDto> dtos = matriculas.stream().map(m -> {
+			MatriculacionDto dto = new MatriculacionDto();
+			dto.setIdMatriculacion(m.getIdMatriculacion());
+			dto.setAlumnoId(m.getAlumno().getIdAlumno());
+			dto.setCursoId(m.getCurso().getIdCurso());
+			dto.setNombreCurso(m.getCurso().getNombreCurso());
+			dto.setGrupoId(m.getGrupo().getIdGrupo());
+			dto.setNombreGrupo(m.getGrupo().getNombreGrupo());
+			dto.setAnioEscolar(m.getAnioEscolar());
+			dto.setUidLlave(m.getUidLlave());
+			return dto;
+		}).toList();
+		return CursorPaginacion.pagina(dtos, limite, dto -> CursorPaginacion.crear(dto.getIdMatriculacion()));
+	}
+
 	/**
 	 * Obtiene todas las matriculaciones de un alumno específico.
 	 *
@@ -167,11 +219,25 @@ public class MatriculacionServicio {
 	 * @param id ID de la matriculación a eliminar
 	 * @return true si se eliminó, false si no existía
 	 */
+	@Transactional
 	public boolean eliminarMatriculacion(Long id) {
 		if (matriculacionInterfaz.existsById(id)) {
+			resumenAsistencia.descontarMatriculaciones(List.of(id));
 			matriculacionInterfaz.deleteById(id);
+			indiceUidMatricula.invalidar();
 			return true;
 		}
 		return false;
 	}
+
+	/**
+	 * Una matrícula sin tarjeta guarda el UID a null, ya que el UID es único por
+	 * año escolar y varias matrículas sin tarjeta no deben chocar.
+	 *
+	 * @param uid UID recibido
+	 * @return UID sin espacios, o null si está vacío
+	 */
+	static String normalizarUid(String uid) {
+		return uid == null || uid.isBlank() ? null : uid.trim();
+	}
 }
@@ -0,0 +1,44 @@
+package altair.fichajes_api.servicios;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Periodo que abarca una consulta del resumen de asistencias.
+ */
+public enum PeriodoResumen {
+
+	/** Solo el día indicado. */
+	DIA,
+
+	/** Semana de lunes a domingo que contiene el día indicado. */
+	SEMANA,
+
+	/** Mes natural que contiene el día indicado. */
+	MES;
+
+	/**
+	 * @param fecha Día de referencia
+	 * @return Primer día del periodo que contiene la fecha
+	 */
+	public LocalDate inicio(LocalDate fecha) {
+		return switch (this) {
+		case DIA -> fecha;
+		case SEMANA -> fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+		case MES -> fecha.withDayOfMonth(1);
+		};
+	}
+
+	/**
+	 * @param fecha Día de referencia
+	 * @return Último día del periodo que contiene la fecha
+	 */
+	public LocalDate fin(LocalDate fecha) {
+		return switch (this) {
+		case DIA -> fecha;
+		case SEMANA -> fecha.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+		case MES -> fecha.with(TemporalAdjusters.lastDayOfMonth());
+		};
+	}
+}
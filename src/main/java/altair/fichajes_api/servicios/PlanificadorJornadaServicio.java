@@ -0,0 +1,279 @@
+package altair.fichajes_api.servicios;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import altair.fichajes_api.dtos.ResultadoCierreDto;
+import altair.fichajes_api.dtos.ResultadoGeneracionDto;
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.repositorios.AsistenciaInterfaz;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Tareas programadas de la jornada escolar:
+ * <ul>
+ * <li>Cierre: a las 23:00 marca SIN SALIDA las asistencias abiertas, genera
+ * las faltas que falten y crea las asistencias del siguiente día con lista
+ * (lectivo o festivo), fuera del horario de fichajes
+ * (fichajes.jornada.cierre-cron).</li>
+ * <li>Preparación: crea de madrugada las asistencias del día que aún no
+ * existan, por ejemplo las de las matrículas dadas de alta después del cierre
+ * (fichajes.jornada.preparacion-cron).</li>
+ * <li>Puesta al día: al arrancar, en segundo plano y con el puerto HTTP ya
+ * abierto, cierra los días anteriores que quedaron abiertos mientras la
+ * aplicación estaba parada y crea las asistencias de hoy.</li>
+ * </ul>
+ *
+ * Si la creación de las asistencias de un día falla (por ejemplo, porque la
+ * base de datos no responde), se reintenta en el planificador esperando cada
+ * vez el doble, desde fichajes.jornada.reintento-inicial-ms hasta
+ * fichajes.jornada.reintento-maximo-ms, hasta que funcione o pase el día.
+ *
+ * Cada ejecución registra su duración en fichajes.jornada.duracion (etiquetas
+ * "tarea" y "resultado": ok o error) y las filas afectadas en
+ * fichajes.jornada.filas (etiquetas "tarea" y "tipo": creadas, sin-salida o
+ * faltas).
+ */
+@Service
+public class PlanificadorJornadaServicio {
+
+	static final String PREPARACION = "preparacion";
+	static final String CIERRE = "cierre";
+	static final String PUESTA_AL_DIA = "puesta-al-dia";
+
+	private static final LocalTime HORA_CIERRE = LocalTime.of(23, 0);
+
+	/** Días que se buscan hacia delante para encontrar el siguiente día con lista. */
+	private static final int DIAS_BUSQUEDA = 31;
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private AsistenciaInterfaz asistenciaInterfaz;
+
+	@Autowired
+	private CalendarioEscolarServicio calendarioEscolar;
+
+	@Autowired
+	private TaskScheduler planificador;
+
+	@Autowired
+	private MeterRegistry registro;
+
+	@Value("${fichajes.jornada.reintento-inicial-ms:60000}")
+	private long reintentoInicialMs;
+
+	@Value("${fichajes.jornada.reintento-maximo-ms:900000}")
+	private long reintentoMaximoMs;
+
+	/**
+	 * Lanza la puesta al día en el planificador de tareas cuando la aplicación
+	 * ya está arrancada, para no retrasar el arranque. Si falla, se reintenta
+	 * crear las asistencias de hoy.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void ponerAlDiaEnSegundoPlano() {
+		planificador.schedule(() -> {
+			LocalDateTime ahora = LocalDateTime.now();
+			if (ponerAlDia(ahora) < 0) {
+				reintentarPreparacion(ahora.toLocalDate(), reintentoInicialMs);
+			}
+		}, Instant.now());
+	}
+
+	/**
+	 * Crea las asistencias del día que aún no existan. Se ejecuta cada día a la
+	 * hora indicada en fichajes.jornada.preparacion-cron.
+	 */
+	@Scheduled(cron = "${fichajes.jornada.preparacion-cron:0 5 0 * * *}")
+	public void prepararDia() {
+		prepararConReintentos(LocalDate.now(), reintentoInicialMs);
+	}
+
+	/**
+	 * Cierra la jornada del día y prepara el siguiente día con lista. Se ejecuta
+	 * cada día a la hora indicada en fichajes.jornada.cierre-cron.
+	 */
+	@Scheduled(cron = "${fichajes.jornada.cierre-cron:0 0 23 * * *}")
+	public void cerrarDia() {
+		cerrarYPrepararSiguiente(LocalDate.now());
+	}
+
+	/**
+	 * Cierra la jornada de una fecha y crea las asistencias del siguiente día con
+	 * lista, de modo que ya existen cuando llega el primer fichaje de ese día.
+	 *
+	 * @param fecha Fecha a cerrar
+	 * @return Día preparado, o null si no hay ninguno con lista en
+	 *         {@value #DIAS_BUSQUEDA} días
+	 */
+	LocalDate cerrarYPrepararSiguiente(LocalDate fecha) {
+		cerrar(fecha);
+		LocalDate siguiente = siguienteDiaConLista(fecha);
+		if (siguiente != null) {
+			prepararConReintentos(siguiente, reintentoInicialMs);
+		}
+		return siguiente;
+	}
+
+	/**
+	 * Busca el siguiente día posterior a una fecha que tiene lista de
+	 * asistencias, es decir, que es lectivo o festivo.
+	 *
+	 * @param fecha Fecha de partida (no incluida)
+	 * @return Siguiente día con lista, o null si no hay ninguno en
+	 *         {@value #DIAS_BUSQUEDA} días
+	 */
+	LocalDate siguienteDiaConLista(LocalDate fecha) {
+		for (int i = 1; i <= DIAS_BUSQUEDA; i++) {
+			LocalDate dia = fecha.plusDays(i);
+			if (calendarioEscolar.estadoSinFichaje(dia) != null) {
+				return dia;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Crea las asistencias de una fecha y, si falla, programa un reintento.
+	 *
+	 * @param fecha    Fecha a preparar
+	 * @param esperaMs Espera hasta el reintento si falla
+	 */
+	void prepararConReintentos(LocalDate fecha, long esperaMs) {
+		if (preparar(fecha) == null) {
+			reintentarPreparacion(fecha, esperaMs);
+		}
+	}
+
+	/**
+	 * Programa un nuevo intento de crear las asistencias de una fecha, con el
+	 * doble de espera para el siguiente. No se reintenta una vez pasado el día,
+	 * porque la puesta al día y el cierre ya no lo necesitan.
+	 *
+	 * @param fecha    Fecha a preparar
+	 * @param esperaMs Espera hasta el reintento
+	 */
+	private void reintentarPreparacion(LocalDate fecha, long esperaMs) {
+		if (LocalDate.now().isAfter(fecha)) {
+			return;
+		}
+		long siguienteEspera = Math.min(esperaMs * 2, reintentoMaximoMs);
+		Logs.ficheroLog("⚠️ Se reintentará crear las asistencias del " + fecha + " en " + esperaMs / 1000 + " s");
+		planificador.schedule(() -> prepararConReintentos(fecha, siguienteEspera), Instant.now().plusMillis(esperaMs));
+	}
+
+	/**
+	 * Crea las asistencias de una fecha si es día lectivo.
+	 *
+	 * @param fecha Fecha a preparar
+	 * @return Resultado de la generación o null si ha fallado
+	 */
+	ResultadoGeneracionDto preparar(LocalDate fecha) {
+		ResultadoGeneracionDto resultado = ejecutar(PREPARACION, () -> asistenciaServicio.crearAsistenciasDelDia(fecha));
+		if (resultado != null) {
+			contarFilas(PREPARACION, "creadas", resultado.getFilasInsertadas());
+		}
+		return resultado;
+	}
+
+	/**
+	 * Cierra la jornada de una fecha.
+	 *
+	 * @param fecha Fecha a cerrar
+	 * @return Resultado del cierre o null si ha fallado
+	 */
+	ResultadoCierreDto cerrar(LocalDate fecha) {
+		ResultadoCierreDto resultado = ejecutar(CIERRE, () -> asistenciaServicio.cerrarAsistenciasDelDia(fecha));
+		if (resultado != null) {
+			contarFilas(CIERRE, "sin-salida", resultado.getSinSalidaMarcadas());
+			contarFilas(CIERRE, "faltas", resultado.getFaltasInsertadas());
+		}
+		return resultado;
+	}
+
+	/**
+	 * Cierra los días anteriores que quedaron con asistencias abiertas y crea las
+	 * asistencias de hoy. Si ya ha pasado la hora de cierre, cierra también hoy y
+	 * prepara el siguiente día con lista, como habría hecho el cierre.
+	 *
+	 * @param ahora Momento de referencia
+	 * @return Número de días cerrados, o -1 si ha fallado
+	 */
+	int ponerAlDia(LocalDateTime ahora) {
+		LocalDate hoy = ahora.toLocalDate();
+		Integer cerrados = ejecutar(PUESTA_AL_DIA, () -> {
+			List<LocalDate> sinCerrar = asistenciaInterfaz.findFechasSinCerrarAntesDe(hoy);
+			for (LocalDate fecha : sinCerrar) {
+				ResultadoCierreDto cierre = asistenciaServicio.cerrarAsistenciasDelDia(fecha);
+				contarFilas(PUESTA_AL_DIA, "sin-salida", cierre.getSinSalidaMarcadas());
+				contarFilas(PUESTA_AL_DIA, "faltas", cierre.getFaltasInsertadas());
+			}
+
+			ResultadoGeneracionDto generacion = asistenciaServicio.crearAsistenciasDelDia(hoy);
+			contarFilas(PUESTA_AL_DIA, "creadas", generacion.getFilasInsertadas());
+
+			int dias = sinCerrar.size();
+			if (!ahora.toLocalTime().isBefore(HORA_CIERRE)) {
+				ResultadoCierreDto cierre = asistenciaServicio.cerrarAsistenciasDelDia(hoy);
+				contarFilas(PUESTA_AL_DIA, "sin-salida", cierre.getSinSalidaMarcadas());
+				contarFilas(PUESTA_AL_DIA, "faltas", cierre.getFaltasInsertadas());
+				dias++;
+
+				LocalDate siguiente = siguienteDiaConLista(hoy);
+				if (siguiente != null) {
+					ResultadoGeneracionDto manana = asistenciaServicio.crearAsistenciasDelDia(siguiente);
+					contarFilas(PUESTA_AL_DIA, "creadas", manana.getFilasInsertadas());
+				}
+			}
+			Logs.ficheroLog("Jornada puesta al día: " + dias + " días cerrados, " + generacion.getFilasInsertadas()
+					+ " asistencias de hoy creadas");
+			return dias;
+		});
+		return cerrados != null ? cerrados : -1;
+	}
+
+	/**
+	 * Ejecuta una tarea midiendo su duración. Los errores se registran y no se
+	 * propagan, para que el planificador siga lanzando las siguientes
+	 * ejecuciones.
+	 *
+	 * @return Resultado de la tarea o null si ha fallado
+	 */
+	private <T> T ejecutar(String tarea, Supplier<T> trabajo) {
+		long inicio = System.nanoTime();
+		String estado = "ok";
+		try {
+			return trabajo.get();
+		} catch (Exception e) {
+			estado = "error";
+			Logs.ficheroLog("❌ Error en la tarea de jornada " + tarea + ": " + e.getMessage());
+			return null;
+		} finally {
+			Timer.builder("fichajes.jornada.duracion").description("Duración de las tareas programadas de la jornada")
+					.tag("tarea", tarea).tag("resultado", estado).register(registro)
+					.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void contarFilas(String tarea, String tipo, int filas) {
+		Counter.builder("fichajes.jornada.filas").description("Filas de asistencia afectadas por las tareas de la jornada")
+				.tag("tarea", tarea).tag("tipo", tipo).register(registro).increment(filas);
+	}
+}
@@ -0,0 +1,255 @@
+package altair.fichajes_api.servicios;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import altair.fichajes_api.dtos.ResumenAsistenciaDto;
+import altair.fichajes_api.entidad.AsistenciaEntidad;
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import altair.fichajes_api.entidad.MatriculacionEntidad;
+import altair.fichajes_api.entidad.ResumenAsistenciaEntidad;
+import altair.fichajes_api.logs.Logs;
+import altair.fichajes_api.repositorios.MatriculacionInterfaz;
+import altair.fichajes_api.repositorios.ResumenAsistenciaInterfaz;
+import altair.fichajes_api.utilidades.Utilidades;
+import jakarta.transaction.Transactional;
+
+/**
+ * Servicio encargado del resumen diario de asistencias por curso, grupo y
+ * estado.
+ *
+ * Cada cambio de estado de una asistencia ajusta los contadores en la misma
+ * transacción que el cambio, y las operaciones masivas (generación y cierre del
+ * día) recalculan solo los contadores de su fecha. Así las consultas de
+ * paneles leen unas pocas filas del resumen en lugar de las asistencias.
+ *
+ * Con las faltas derivadas el resumen solo cuenta las asistencias guardadas, y
+ * al consultarlo se añaden las faltas y festivos de cada día: las matrículas
+ * del grupo con asistencia ese día menos las ya contadas.
+ */
+@Service
+public class ResumenAsistenciaServicio {
+
+	@Autowired
+	private ResumenAsistenciaInterfaz resumenInterfaz;
+	@Autowired
+	private MatriculacionInterfaz matriculacionInterfaz;
+	@Autowired
+	private CalendarioEscolarServicio calendarioEscolar;
+
+	@Value("${fichajes.asistencia.faltas-derivadas:false}")
+	private boolean faltasDerivadas;
+
+	/**
+	 * Ajusta el resumen tras cambiar el estado de una asistencia ya guardada.
+	 *
+	 * @param asistencia     Asistencia modificada
+	 * @param estadoAnterior Estado antes del cambio, o null si la asistencia es
+	 *                       nueva
+	 */
+	@Transactional
+	public void registrarCambio(AsistenciaEntidad asistencia, EstadoAsistencia estadoAnterior) {
+		EstadoAsistencia estadoNuevo = asistencia.getEstado();
+		if (estadoAnterior == estadoNuevo) {
+			return;
+		}
+		if (estadoAnterior != null) {
+			resumenInterfaz.sumarAsistencia(asistencia.getIdAsistencia(), estadoAnterior.getCodigo(), -1);
+		}
+		if (estadoNuevo != null) {
+			resumenInterfaz.sumarAsistencia(asistencia.getIdAsistencia(), estadoNuevo.getCodigo(), 1);
+		}
+	}
+
+	/**
+	 * Suma al resumen asistencias nuevas ya guardadas, con una sentencia por
+	 * cada día, curso, grupo y estado distinto.
+	 *
+	 * @param asistencias Asistencias nuevas con su matrícula cargada
+	 */
+	@Transactional
+	public void registrarAltas(List<AsistenciaEntidad> asistencias) {
+		Map<List<Object>, Long> cantidades = new HashMap<>();
+		for (AsistenciaEntidad a : asistencias) {
+			MatriculacionEntidad m = a.getMatriculacion();
+			cantidades.merge(List.of(a.getFecha(), m.getCurso().getIdCurso(), m.getGrupo().getIdGrupo(),
+					a.getEstado()), 1L, Long::sum);
+		}
+		cantidades.forEach((clave, cantidad) -> resumenInterfaz.sumar((LocalDate) clave.get(0),
+				(Long) clave.get(1), (Long) clave.get(2), ((EstadoAsistencia) clave.get(3)).getCodigo(), cantidad));
+	}
+
+	/**
+	 * Recalcula a partir de las asistencias los contadores de un día. Se usa tras
+	 * las operaciones que cambian muchas asistencias de una fecha a la vez.
+	 *
+	 * @param fecha Fecha a recalcular
+	 */
+	@Transactional
+	public void recalcularDia(LocalDate fecha) {
+		resumenInterfaz.recalcular(fecha, fecha);
+		resumenInterfaz.borrarSinAsistencias(fecha, fecha);
+	}
+
+	/**
+	 * Resta del resumen todas las asistencias de unas matrículas, antes de
+	 * borrarlas o de cambiarlas de curso o grupo.
+	 *
+	 * @param matriculacionIds IDs de las matrículas
+	 */
+	@Transactional
+	public void descontarMatriculaciones(List<Long> matriculacionIds) {
+		if (!matriculacionIds.isEmpty()) {
+			resumenInterfaz.sumarMatriculaciones(matriculacionIds, -1);
+		}
+	}
+
+	/**
+	 * Suma al resumen todas las asistencias de unas matrículas, después de
+	 * cambiarlas de curso o grupo.
+	 *
+	 * @param matriculacionIds IDs de las matrículas
+	 */
+	@Transactional
+	public void sumarMatriculaciones(List<Long> matriculacionIds) {
+		if (!matriculacionIds.isEmpty()) {
+			resumenInterfaz.sumarMatriculaciones(matriculacionIds, 1);
+		}
+	}
+
+	/**
+	 * Borra los contadores de un grupo que se va a eliminar.
+	 *
+	 * @param grupoId ID del grupo
+	 */
+	@Transactional
+	public void borrarGrupo(Long grupoId) {
+		resumenInterfaz.borrarPorGrupo(grupoId);
+	}
+
+	/**
+	 * Borra los contadores de un curso que se va a eliminar.
+	 *
+	 * @param cursoId ID del curso
+	 */
+	@Transactional
+	public void borrarCurso(Long cursoId) {
+		resumenInterfaz.borrarPorCurso(cursoId);
+	}
+
+	/**
+	 * Reconstruye el resumen de un rango de fechas a partir de las asistencias,
+	 * corrigiendo cualquier desviación.
+	 *
+	 * @param desde Fecha inicial del rango
+	 * @param hasta Fecha final del rango
+	 * @return Número de contadores escritos
+	 */
+	@Transactional
+	public int reconstruir(LocalDate desde, LocalDate hasta) {
+		long inicio = System.nanoTime();
+		int escritos = resumenInterfaz.recalcular(desde, hasta);
+		int borrados = resumenInterfaz.borrarSinAsistencias(desde, hasta);
+		Logs.ficheroLog("Resumen de asistencias reconstruido de " + desde + " a " + hasta + ": " + escritos
+				+ " contadores escritos, " + borrados + " borrados en " + (System.nanoTime() - inicio) / 1_000_000
+				+ " ms");
+		return escritos;
+	}
+
+	/**
+	 * Rellena el resumen con todo el histórico de asistencias si está vacío, por
+	 * ejemplo la primera vez que arranca una versión con resumen.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rellenarSiVacio() {
+		try {
+			if (resumenInterfaz.count() > 0) {
+				return;
+			}
+			Object[] rango = resumenInterfaz.rangoFechasAsistencias().get(0);
+			if (rango[0] != null) {
+				reconstruir((LocalDate) rango[0], (LocalDate) rango[1]);
+			}
+		} catch (Exception e) {
+			Logs.ficheroLog("Error al rellenar el resumen de asistencias: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Obtiene el resumen de un grupo en el día, la semana o el mes de una fecha,
+	 * leyendo solo la tabla de resumen.
+	 *
+	 * @param grupoId ID del grupo
+	 * @param periodo Periodo a consultar
+	 * @param fecha   Día de referencia
+	 * @return Resumen con los totales del periodo y el detalle por día
+	 */
+	public ResumenAsistenciaDto obtenerResumenGrupo(Long grupoId, PeriodoResumen periodo, LocalDate fecha) {
+		LocalDate desde = periodo.inicio(fecha);
+		LocalDate hasta = periodo.fin(fecha);
+
+		Map<String, Long> totales = new TreeMap<>();
+		Map<LocalDate, Map<String, Long>> dias = new TreeMap<>();
+		for (ResumenAsistenciaEntidad r : resumenInterfaz.findByGrupoEnRango(grupoId, desde, hasta)) {
+			String estado = r.getEstado().getNombre();
+			totales.merge(estado, r.getCantidad(), Long::sum);
+			dias.computeIfAbsent(r.getFecha(), f -> new TreeMap<>()).merge(estado, r.getCantidad(), Long::sum);
+		}
+		if (faltasDerivadas) {
+			sumarDerivadas(grupoId, desde, hasta, totales, dias);
+		}
+
+		ResumenAsistenciaDto dto = new ResumenAsistenciaDto();
+		dto.setGrupoId(grupoId);
+		dto.setPeriodo(periodo.name());
+		dto.setDesde(desde);
+		dto.setHasta(hasta);
+		dto.setTotales(totales);
+		dto.setDias(dias);
+		return dto;
+	}
+
+	/**
+	 * Añade a los totales y al detalle por día las faltas y festivos derivados de
+	 * un grupo: en cada día lectivo o festivo hasta hoy, las matrículas del grupo
+	 * dadas de alta ese día o antes menos las asistencias ya contadas.
+	 */
+	private void sumarDerivadas(Long grupoId, LocalDate desde, LocalDate hasta, Map<String, Long> totales,
+			Map<LocalDate, Map<String, Long>> dias) {
+		LocalDate hoy = LocalDate.now();
+		LocalDate fin = hasta.isBefore(hoy) ? hasta : hoy;
+		List<MatriculacionEntidad> matriculas = matriculacionInterfaz.findByGrupo_IdGrupoAndAnioEscolarIn(grupoId,
+				Utilidades.obtenerAniosEscolares(desde, fin));
+		if (matriculas.isEmpty()) {
+			return;
+		}
+
+		for (LocalDate fecha = desde; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+			EstadoAsistencia estado = calendarioEscolar.estadoSinFichaje(fecha);
+			if (estado == null) {
+				continue;
+			}
+			String anioEscolar = Utilidades.obtenerAnioEscolar(fecha);
+			LocalDate dia = fecha;
+			long derivadas = matriculas.stream()
+					.filter(m -> m.getAnioEscolar().equals(anioEscolar) && !m.getFechaAlta().isAfter(dia)).count();
+			Map<String, Long> contadas = dias.get(fecha);
+			if (contadas != null) {
+				derivadas -= contadas.values().stream().mapToLong(Long::longValue).sum();
+			}
+			if (derivadas > 0) {
+				totales.merge(estado.getNombre(), derivadas, Long::sum);
+				dias.computeIfAbsent(fecha, f -> new TreeMap<>()).merge(estado.getNombre(), derivadas, Long::sum);
+			}
+		}
+	}
+}
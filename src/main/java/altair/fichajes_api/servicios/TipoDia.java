@@ -0,0 +1,19 @@
+package altair.fichajes_api.servicios;
+
+/**
+ * Tipo de un día en el calendario escolar.
+ */
+public enum TipoDia {
+
+	/** Día con clase. */
+	LECTIVO,
+
+	/** Sábado o domingo. */
+	FIN_DE_SEMANA,
+
+	/** Día festivo registrado en la tabla de festivos. */
+	FESTIVO,
+
+	/** Día de vacaciones o fuera del periodo lectivo (julio y agosto). */
+	VACACIONES
+}
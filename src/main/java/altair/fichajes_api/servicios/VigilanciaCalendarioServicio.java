@@ -0,0 +1,121 @@
+package altair.fichajes_api.servicios;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import altair.fichajes_api.logs.Logs;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Servicio que vigila los archivos de festivos y vacaciones y recarga el
+ * calendario escolar cuando cambian, sin reiniciar la aplicación.
+ */
+@Service
+public class VigilanciaCalendarioServicio {
+
+	/** Espera tras un cambio para agrupar los eventos de un mismo guardado. */
+	private static final long ESPERA_AGRUPAR_MS = 300;
+
+	@Autowired
+	private FestivoServicio festivoServicio;
+
+	@Autowired
+	private CalendarioEscolarServicio calendarioEscolar;
+
+	private WatchService vigilante;
+	private Path archivoFestivos;
+	private Path archivoVacaciones;
+
+	/**
+	 * Registra las carpetas de los archivos y arranca el hilo de vigilancia.
+	 */
+	@PostConstruct
+	public void iniciar() {
+		archivoFestivos = Paths.get(festivoServicio.getArchivoFestivos()).toAbsolutePath().normalize();
+		archivoVacaciones = Paths.get(calendarioEscolar.getArchivoVacaciones()).toAbsolutePath().normalize();
+		try {
+			vigilante = FileSystems.getDefault().newWatchService();
+			Set<Path> carpetas = new HashSet<>();
+			carpetas.add(archivoFestivos.getParent());
+			carpetas.add(archivoVacaciones.getParent());
+			for (Path carpeta : carpetas) {
+				carpeta.register(vigilante, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+			}
+		} catch (IOException e) {
+			Logs.ficheroLog("No se pueden vigilar los archivos del calendario: " + e.getMessage());
+			return;
+		}
+
+		Thread hilo = new Thread(this::vigilar, "hilo-vigilancia-calendario");
+		hilo.setDaemon(true);
+		hilo.start();
+	}
+
+	/**
+	 * Detiene la vigilancia al cerrar la aplicación.
+	 */
+	@PreDestroy
+	public void detener() {
+		if (vigilante != null) {
+			try {
+				vigilante.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private void vigilar() {
+		try {
+			while (true) {
+				WatchKey clave = vigilante.take();
+				boolean festivos = false;
+				boolean vacaciones = false;
+
+				// Un editor suele generar varios eventos al guardar: se agrupan
+				do {
+					Path carpeta = (Path) clave.watchable();
+					for (WatchEvent<?> evento : clave.pollEvents()) {
+						if (evento.context() instanceof Path nombre) {
+							Path archivo = carpeta.resolve(nombre).toAbsolutePath().normalize();
+							festivos |= archivo.equals(archivoFestivos);
+							vacaciones |= archivo.equals(archivoVacaciones);
+						}
+					}
+					clave.reset();
+				} while ((clave = vigilante.poll(ESPERA_AGRUPAR_MS, TimeUnit.MILLISECONDS)) != null);
+
+				try {
+					if (festivos) {
+						Logs.ficheroLog("Archivo de festivos modificado, se vuelve a importar");
+						festivoServicio.importarFestivosDesdeArchivo();
+					}
+					if (vacaciones) {
+						Logs.ficheroLog("Archivo de vacaciones modificado, se vuelve a cargar");
+						calendarioEscolar.recargarVacaciones();
+					}
+				} catch (RuntimeException e) {
+					Logs.ficheroLog("Error recargando el calendario: " + e.getMessage());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// Aplicación detenida
+		}
+	}
+}
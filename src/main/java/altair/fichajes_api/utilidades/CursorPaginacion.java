@@ -0,0 +1,124 @@
+package altair.fichajes_api.utilidades;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import altair.fichajes_api.dtos.PaginaDto;
+
+/**
+ * Cursor de paginación por clave (keyset).
+ *
+ * En lugar de saltar N filas con OFFSET, cada página pide las filas que van
+ * después de la última fila devuelta, según el orden de la consulta: por id, o
+ * por fecha e id en las asistencias. Así la página N cuesta lo mismo que la
+ * primera. El cursor se envía al cliente como un texto opaco en base64.
+ */
+public final class CursorPaginacion {
+
+	public static final int LIMITE_POR_DEFECTO = 100;
+	public static final int LIMITE_MAXIMO = 1000;
+
+	/** Fecha anterior a cualquier asistencia, usada por el cursor de la primera página. */
+	private static final LocalDate PRIMERA_FECHA = LocalDate.of(1900, 1, 1);
+
+	private final LocalDate fecha;
+	private final long id;
+
+	private CursorPaginacion(LocalDate fecha, long id) {
+		this.fecha = fecha;
+		this.id = id;
+	}
+
+	/**
+	 * Lee un cursor recibido del cliente.
+	 *
+	 * @param token Cursor devuelto en la página anterior, o null para la primera
+	 * @return Cursor leído
+	 * @throws IllegalArgumentException Si el cursor no es válido
+	 */
+	public static CursorPaginacion leer(String token) {
+		if (token == null || token.isBlank()) {
+			return new CursorPaginacion(PRIMERA_FECHA, 0);
+		}
+		try {
+			String texto = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+			int separador = texto.indexOf('|');
+			if (separador < 0) {
+				return new CursorPaginacion(PRIMERA_FECHA, Long.parseLong(texto));
+			}
+			return new CursorPaginacion(LocalDate.parse(texto.substring(0, separador)),
+					Long.parseLong(texto.substring(separador + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new IllegalArgumentException("Cursor de paginación no válido: " + token);
+		}
+	}
+
+	/**
+	 * @param id Id de la última fila devuelta
+	 * @return Cursor para continuar después de esa fila
+	 */
+	public static String crear(Long id) {
+		return codificar(String.valueOf(id));
+	}
+
+	/**
+	 * @param fecha Fecha de la última fila devuelta
+	 * @param id    Id de la última fila devuelta
+	 * @return Cursor para continuar después de esa fila
+	 */
+	public static String crear(LocalDate fecha, Long id) {
+		return codificar(fecha + "|" + id);
+	}
+
+	/**
+	 * Ajusta el tamaño de página pedido por el cliente.
+	 *
+	 * @param limite Tamaño pedido, o null para el valor por defecto
+	 * @return Tamaño entre 1 y {@link #LIMITE_MAXIMO}
+	 */
+	public static int limitar(Integer limite) {
+		if (limite == null) {
+			return LIMITE_POR_DEFECTO;
+		}
+		return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+	}
+
+	/**
+	 * Construye una página a partir de las filas leídas. La consulta debe pedir
+	 * una fila más que el límite: si llega, hay página siguiente y su cursor se
+	 * calcula con la última fila de esta página.
+	 *
+	 * @param filas        Filas leídas (como máximo limite + 1)
+	 * @param limite       Tamaño de página
+	 * @param cursorDeFila Función que crea el cursor de una fila
+	 * @return Página con como máximo limite elementos
+	 */
+	public static <T> PaginaDto<T> pagina(List<T> filas, int limite, Function<T, String> cursorDeFila) {
+		PaginaDto<T> pagina = new PaginaDto<>();
+		pagina.setLimite(limite);
+		if (filas.size() > limite) {
+			List<T> elementos = filas.subList(0, limite);
+			pagina.setElementos(elementos);
+			pagina.setSiguienteCursor(cursorDeFila.apply(elementos.get(limite - 1)));
+		} else {
+			pagina.setElementos(filas);
+		}
+		return pagina;
+	}
+
+	public LocalDate getFecha() {
+		return fecha;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	private static String codificar(String texto) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -2,22 +2,34 @@ package altair.fichajes_api.utilidades;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Clase con metodos que usaremos varias veces en la aplicación
  */
 public class Utilidades {
 
+	private static final DateTimeFormatter FORMATO_CARPETA = DateTimeFormatter.ofPattern("ddMMyyyy");
+
 	/**
 	 * Método que devuelve el nombre del archivo de log basado en la fecha actual.
 	 * 
 	 * @return el nombre del archivo de log
 	 */
 	public static final String nombreArchivoLog() {
+		return nombreArchivoLog(LocalDate.now());
+	}
+
+	/**
+	 * Método que devuelve el nombre del archivo de log de una fecha.
+	 * 
+	 * @param fecha Fecha del archivo de log
+	 * @return el nombre del archivo de log
+	 */
+	public static final String nombreArchivoLog(LocalDate fecha) {
 		try {
-			LocalDate fechaActual = LocalDate.now();
-			String fechaStr = fechaActual.format(DateTimeFormatter.ofPattern("ddMMyyyy"));
-			return "log-" + fechaStr + ".txt";
+			return "log-" + fecha.format(FORMATO_CARPETA) + ".txt";
 		} catch (Exception e) {
 			return "log-error.txt";
 		}
@@ -29,9 +41,18 @@ public class Utilidades {
 	 * @return el nombre de la carpeta basada en la fecha
 	 */
 	public static final String nombreCarpetaFecha() {
+		return nombreCarpetaFecha(LocalDate.now());
+	}
+
+	/**
+	 * Método que devuelve el nombre de la carpeta de una fecha.
+	 * 
+	 * @param fecha Fecha de la carpeta
+	 * @return el nombre de la carpeta basada en la fecha
+	 */
+	public static final String nombreCarpetaFecha(LocalDate fecha) {
 		try {
-			LocalDate fechaActual = LocalDate.now();
-			return fechaActual.format(DateTimeFormatter.ofPattern("ddMMyyyy"));
+			return fecha.format(FORMATO_CARPETA);
 		} catch (Exception e) {
 			return "errorFecha";
 		}
@@ -45,18 +66,61 @@ public class Utilidades {
 	 */
 
 	public static String obtenerAnioEscolarActual() {
-		LocalDate hoy = LocalDate.now();
+		return obtenerAnioEscolar(LocalDate.now());
+	}
+
+	/**
+	 * Obtiene el año escolar al que pertenece una fecha en formato "AAAA-AAAA".
+	 * Las fechas de septiembre a diciembre pertenecen al año escolar que empieza
+	 * ese año; el resto, al que empezó el año anterior.
+	 *
+	 * @param fecha Fecha a consultar.
+	 * @return String con el año escolar de la fecha.
+	 */
+	public static String obtenerAnioEscolar(LocalDate fecha) {
 		int inicio;
 		int fin;
 
-		if (hoy.getMonthValue() >= 9) {
-			inicio = hoy.getYear();
-			fin = hoy.getYear() + 1;
+		if (fecha.getMonthValue() >= 9) {
+			inicio = fecha.getYear();
+			fin = fecha.getYear() + 1;
 		} else {
-			inicio = hoy.getYear() - 1;
-			fin = hoy.getYear();
+			inicio = fecha.getYear() - 1;
+			fin = fecha.getYear();
 		}
 
 		return inicio + "-" + fin;
 	}
+
+	/**
+	 * Obtiene el primer día de un año escolar en formato "AAAA-AAAA", el 1 de
+	 * septiembre de su primer año. El año escolar llega hasta el día anterior al
+	 * inicio del siguiente.
+	 *
+	 * @param anioEscolar Año escolar.
+	 * @return Primer día del año escolar.
+	 */
+	public static LocalDate inicioAnioEscolar(String anioEscolar) {
+		return LocalDate.of(Integer.parseInt(anioEscolar.substring(0, 4)), 9, 1);
+	}
+
+	/**
+	 * Obtiene los años escolares a los que pertenecen las fechas de un rango.
+	 *
+	 * @param desde Fecha inicial (incluida).
+	 * @param hasta Fecha final (incluida).
+	 * @return Años escolares en formato "AAAA-AAAA" en orden, vacío si el rango
+	 *         está vacío.
+	 */
+	public static List<String> obtenerAniosEscolares(LocalDate desde, LocalDate hasta) {
+		List<String> anios = new ArrayList<>();
+		if (hasta.isBefore(desde)) {
+			return anios;
+		}
+		int ultimo = inicioAnioEscolar(obtenerAnioEscolar(hasta)).getYear();
+		for (int anio = inicioAnioEscolar(obtenerAnioEscolar(desde)).getYear(); anio <= ultimo; anio++) {
+			anios.add(anio + "-" + (anio + 1));
+		}
+		return anios;
+	}
 }
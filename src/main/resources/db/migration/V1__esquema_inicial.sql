@@ -0,0 +1,46 @@
+-- Esquema inicial, tal como lo creaba Hibernate con ddl-auto=update. Usa
+-- IF NOT EXISTS porque las bases de datos existentes ya lo tienen: en ellas
+-- Flyway parte de la version 0 y esta migracion solo crea lo que falte.
+
+CREATE TABLE IF NOT EXISTS alumno (
+	id_alumno BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	nombre_alumno VARCHAR(100) NOT NULL,
+	apellido_alumno VARCHAR(100) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS curso (
+	id_curso BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	nombre_curso VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS grupo (
+	id_grupo BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	nombre_grupo VARCHAR(50) NOT NULL,
+	curso_id BIGINT REFERENCES curso (id_curso)
+);
+
+CREATE TABLE IF NOT EXISTS matriculacion (
+	id_matriculacion BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	alumno_id BIGINT NOT NULL REFERENCES alumno (id_alumno),
+	curso_id BIGINT NOT NULL REFERENCES curso (id_curso),
+	grupo_id BIGINT NOT NULL REFERENCES grupo (id_grupo),
+	anio_escolar VARCHAR(255) NOT NULL,
+	uid_llave VARCHAR(100)
+);
+
+CREATE TABLE IF NOT EXISTS asistencia (
+	id_asistencia BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	matriculacion_id BIGINT NOT NULL REFERENCES matriculacion (id_matriculacion),
+	fecha DATE NOT NULL,
+	hora_entrada TIMESTAMP(6),
+	hora_salida TIMESTAMP(6),
+	estado VARCHAR(50),
+	justificar_modificacion VARCHAR(255),
+	fecha_modificacion TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS festivos (
+	id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	fecha DATE NOT NULL,
+	nombre VARCHAR(255) NOT NULL
+);
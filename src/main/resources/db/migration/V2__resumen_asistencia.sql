@@ -0,0 +1,14 @@
+-- Resumen diario de asistencias por curso, grupo y estado (ResumenAsistenciaEntidad).
+-- Las bases de datos que ya lo tienen (creado por Hibernate) no cambian.
+
+CREATE TABLE IF NOT EXISTS resumen_asistencia (
+	id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	fecha DATE NOT NULL,
+	curso_id BIGINT NOT NULL,
+	grupo_id BIGINT NOT NULL,
+	estado VARCHAR(50) NOT NULL,
+	cantidad BIGINT NOT NULL,
+	CONSTRAINT uk_resumen_asistencia UNIQUE (fecha, curso_id, grupo_id, estado)
+);
+
+CREATE INDEX IF NOT EXISTS idx_resumen_asistencia_grupo_fecha ON resumen_asistencia (grupo_id, fecha);
@@ -0,0 +1,21 @@
+-- Convierte el estado de las asistencias (y del resumen diario) de texto a su
+-- codigo smallint de EstadoAsistencia. No hace nada si las columnas ya son
+-- smallint, como en las bases de datos convertidas antes de usar migraciones
+-- versionadas. Los valores desconocidos quedan a NULL.
+DO $$
+DECLARE
+	tabla TEXT;
+BEGIN
+	FOREACH tabla IN ARRAY ARRAY['asistencia', 'resumen_asistencia'] LOOP
+		IF EXISTS (SELECT 1 FROM information_schema.columns
+				WHERE table_schema = current_schema() AND table_name = tabla
+				AND column_name = 'estado' AND data_type <> 'smallint') THEN
+			EXECUTE format('ALTER TABLE %I ALTER COLUMN estado TYPE smallint USING (CASE upper(trim(estado)) '
+					|| 'WHEN ''PRESENTE'' THEN 1 WHEN ''COMPLETA'' THEN 2 '
+					|| 'WHEN ''SIN SALIDA'' THEN 3 WHEN ''SIN_SALIDA'' THEN 3 '
+					|| 'WHEN ''FALTA'' THEN 4 WHEN ''FESTIVO'' THEN 5 END)::smallint', tabla);
+			RAISE NOTICE 'Columna %.estado convertida a smallint', tabla;
+		END IF;
+	END LOOP;
+END
+$$
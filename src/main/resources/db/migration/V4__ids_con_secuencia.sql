@@ -0,0 +1,28 @@
+-- Pasa los ids de asistencia y matriculacion de columnas identity a secuencias
+-- reservadas de 50 en 50 (las de @SequenceGenerator), conservando los ids
+-- existentes: cada secuencia continua por encima del mayor id de su tabla. La
+-- columna usa la secuencia como valor por defecto para las inserciones en SQL
+-- que no dan el id. No hace nada si la columna ya usa su secuencia.
+DO $$
+DECLARE
+	tabla TEXT;
+	columna TEXT;
+	secuencia TEXT;
+BEGIN
+	FOR tabla, columna IN SELECT * FROM (VALUES ('asistencia', 'id_asistencia'),
+			('matriculacion', 'id_matriculacion')) AS t LOOP
+		secuencia := tabla || '_seq';
+		IF EXISTS (SELECT 1 FROM information_schema.columns
+				WHERE table_schema = current_schema() AND table_name = tabla AND column_name = columna
+				AND column_default IS DISTINCT FROM format('nextval(%L::regclass)', secuencia)) THEN
+			EXECUTE format('ALTER TABLE %I ALTER COLUMN %I DROP IDENTITY IF EXISTS', tabla, columna);
+			EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', secuencia);
+			EXECUTE format('SELECT setval(%L, (SELECT COALESCE(MAX(%I), 0) + 50 FROM %I))', secuencia, columna,
+					tabla);
+			EXECUTE format('ALTER TABLE %I ALTER COLUMN %I SET DEFAULT nextval(%L)', tabla, columna, secuencia);
+			EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.%I', secuencia, tabla, columna);
+			RAISE NOTICE 'Columna %.% pasa a la secuencia %', tabla, columna, secuencia;
+		END IF;
+	END LOOP;
+END
+$$
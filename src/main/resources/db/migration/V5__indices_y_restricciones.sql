@@ -0,0 +1,57 @@
+-- Indices de las consultas frecuentes y restricciones de unicidad:
+--   * una asistencia por matricula y dia (cada fichaje y cada pase de lista
+--     buscan por matriculacion_id y fecha);
+--   * asistencias por fecha (findByFecha, cierre y generacion del dia);
+--   * una matricula por UID de tarjeta y anio escolar (cada fichaje);
+--   * festivos por fecha.
+-- Si ya existen duplicados la migracion falla enumerandolos y no cambia nada:
+-- que asistencia o que matricula es la buena lo tiene que decidir quien
+-- administra los datos. Una vez resueltos, la migracion se aplica al volver a
+-- arrancar. Los UID en blanco si se pasan a NULL, porque no son una tarjeta.
+
+DO $$
+DECLARE
+	maximo CONSTANT INTEGER := 50;
+	repetidas INTEGER;
+	listado TEXT;
+	errores TEXT[] := '{}';
+BEGIN
+	UPDATE matriculacion SET uid_llave = NULL WHERE trim(uid_llave) = '';
+
+	SELECT count(*), string_agg(descripcion, '; ') FILTER (WHERE orden <= maximo) INTO repetidas, listado
+		FROM (SELECT format('matricula %s el %s (asistencias %s)', matriculacion_id, fecha,
+					string_agg(id_asistencia::TEXT, ', ' ORDER BY id_asistencia)) AS descripcion,
+				row_number() OVER (ORDER BY fecha, matriculacion_id) AS orden
+			FROM asistencia GROUP BY matriculacion_id, fecha HAVING count(*) > 1) d;
+	IF repetidas > 0 THEN
+		errores := errores || format('%s asistencias repetidas para la misma matricula y dia: %s%s', repetidas,
+				listado, CASE WHEN repetidas > maximo THEN format(' y %s mas', repetidas - maximo) ELSE '' END);
+	END IF;
+
+	SELECT count(*), string_agg(descripcion, '; ') FILTER (WHERE orden <= maximo) INTO repetidas, listado
+		FROM (SELECT format('tarjeta %s en %s (matriculas %s)', uid_llave, anio_escolar,
+					string_agg(id_matriculacion::TEXT, ', ' ORDER BY id_matriculacion)) AS descripcion,
+				row_number() OVER (ORDER BY anio_escolar, uid_llave) AS orden
+			FROM matriculacion WHERE uid_llave IS NOT NULL GROUP BY uid_llave, anio_escolar HAVING count(*) > 1) d;
+	IF repetidas > 0 THEN
+		errores := errores || format('%s tarjetas asignadas a varias matriculas del mismo anio escolar: %s%s',
+				repetidas, listado, CASE WHEN repetidas > maximo THEN format(' y %s mas', repetidas - maximo)
+				ELSE '' END);
+	END IF;
+
+	IF cardinality(errores) > 0 THEN
+		RAISE EXCEPTION 'No se pueden crear las restricciones de unicidad. %', array_to_string(errores, '. ')
+			USING HINT = 'Borre las asistencias sobrantes y quite la tarjeta de las matriculas que no la usan; '
+					|| 'la migracion se aplicara al volver a arrancar.';
+	END IF;
+END
+$$;
+
+-- La restriccion unica sustituye al indice (matriculacion_id, fecha) creado por Hibernate
+DROP INDEX IF EXISTS idx_asistencia_matriculacion_fecha;
+ALTER TABLE asistencia ADD CONSTRAINT uk_asistencia_matriculacion_fecha UNIQUE (matriculacion_id, fecha);
+CREATE INDEX IF NOT EXISTS idx_asistencia_fecha ON asistencia (fecha);
+
+ALTER TABLE matriculacion ADD CONSTRAINT uk_matriculacion_uid_anio UNIQUE (uid_llave, anio_escolar);
+
+CREATE INDEX IF NOT EXISTS idx_festivos_fecha ON festivos (fecha);
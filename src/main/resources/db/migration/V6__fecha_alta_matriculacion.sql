@@ -0,0 +1,14 @@
+-- Fecha de alta de cada matricula: desde ese dia le corresponde una asistencia
+-- en cada dia lectivo o festivo de su anio escolar. Con las faltas derivadas
+-- (fichajes.asistencia.faltas-derivadas=true) las ausencias se calculan a
+-- partir de ella. En las matriculas existentes es el dia de su primera
+-- asistencia o, si no tienen ninguna, el dia de la migracion, de modo que las
+-- faltas derivadas coinciden con las asistencias ya guardadas.
+ALTER TABLE matriculacion ADD COLUMN IF NOT EXISTS fecha_alta DATE;
+
+UPDATE matriculacion m SET fecha_alta = COALESCE(
+		(SELECT MIN(a.fecha) FROM asistencia a WHERE a.matriculacion_id = m.id_matriculacion), CURRENT_DATE)
+	WHERE fecha_alta IS NULL;
+
+ALTER TABLE matriculacion ALTER COLUMN fecha_alta SET DEFAULT CURRENT_DATE;
+ALTER TABLE matriculacion ALTER COLUMN fecha_alta SET NOT NULL;
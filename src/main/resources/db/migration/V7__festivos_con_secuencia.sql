@@ -0,0 +1,18 @@
+-- Pasa el id de festivos de columna identity a una secuencia reservada de 50 en
+-- 50, como la V4 con asistencia y matriculacion, para que la importacion del
+-- calendario inserte los festivos nuevos en lotes. Conserva los ids existentes y
+-- no hace nada si la columna ya usa la secuencia.
+DO $$
+BEGIN
+	IF EXISTS (SELECT 1 FROM information_schema.columns
+			WHERE table_schema = current_schema() AND table_name = 'festivos' AND column_name = 'id'
+			AND column_default IS DISTINCT FROM 'nextval(''festivos_seq''::regclass)') THEN
+		ALTER TABLE festivos ALTER COLUMN id DROP IDENTITY IF EXISTS;
+		CREATE SEQUENCE IF NOT EXISTS festivos_seq INCREMENT BY 50;
+		PERFORM setval('festivos_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM festivos));
+		ALTER TABLE festivos ALTER COLUMN id SET DEFAULT nextval('festivos_seq');
+		ALTER SEQUENCE festivos_seq OWNED BY festivos.id;
+		RAISE NOTICE 'Columna festivos.id pasa a la secuencia festivos_seq';
+	END IF;
+END
+$$
@@ -0,0 +1,18 @@
+-- Pasa el id de alumno de columna identity a una secuencia reservada de 50 en 50,
+-- como la V4 con asistencia y matriculacion, para que la importacion de
+-- matriculas inserte los alumnos en lotes. Conserva los ids existentes y no hace
+-- nada si la columna ya usa la secuencia.
+DO $$
+BEGIN
+	IF EXISTS (SELECT 1 FROM information_schema.columns
+			WHERE table_schema = current_schema() AND table_name = 'alumno' AND column_name = 'id_alumno'
+			AND column_default IS DISTINCT FROM 'nextval(''alumno_seq''::regclass)') THEN
+		ALTER TABLE alumno ALTER COLUMN id_alumno DROP IDENTITY IF EXISTS;
+		CREATE SEQUENCE IF NOT EXISTS alumno_seq INCREMENT BY 50;
+		PERFORM setval('alumno_seq', (SELECT COALESCE(MAX(id_alumno), 0) + 50 FROM alumno));
+		ALTER TABLE alumno ALTER COLUMN id_alumno SET DEFAULT nextval('alumno_seq');
+		ALTER SEQUENCE alumno_seq OWNED BY alumno.id_alumno;
+		RAISE NOTICE 'Columna alumno.id_alumno pasa a la secuencia alumno_seq';
+	END IF;
+END
+$$
@@ -0,0 +1,9 @@
+-- Ultimo calendario de festivos importado: una sola fila con el hash de su
+-- contenido, para que al arrancar no se vuelva a aplicar un calendario que no
+-- ha cambiado. Se borra al guardar o eliminar festivos a mano.
+CREATE TABLE IF NOT EXISTS importacion_festivos (
+	id INTEGER PRIMARY KEY CHECK (id = 1),
+	hash VARCHAR(64) NOT NULL,
+	origen VARCHAR(20) NOT NULL,
+	fecha_importacion TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,140 @@
+package altair.fichajes_api.Configuraciones;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+
+/**
+ * Comprueba las migraciones del esquema: la base de datos de pruebas está al
+ * día, un esquema con migraciones pendientes se rechaza, los duplicados
+ * detienen la migración de las restricciones y las restricciones de unicidad
+ * se aplican.
+ */
+@SpringBootTest
+class EsquemaConfiguracionTests {
+
+	private static final String ESQUEMA_PRUEBA = "esquema_desactualizado";
+
+	@Autowired
+	private Flyway flyway;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void esquemaAlDia() {
+		assertEquals(0, flyway.info().pending().length);
+		assertDoesNotThrow(() -> EsquemaConfiguracion.comprobarEsquemaAlDia(flyway));
+	}
+
+	@Test
+	void esquemaDesactualizadoSeRechaza() {
+		Flyway antiguo = Flyway.configure().dataSource(dataSource).schemas(ESQUEMA_PRUEBA).target("4").load();
+		try {
+			antiguo.migrate();
+			Flyway actual = Flyway.configure().dataSource(dataSource).schemas(ESQUEMA_PRUEBA).load();
+
+			assertThrows(IllegalStateException.class, () -> EsquemaConfiguracion.comprobarEsquemaAlDia(actual));
+			actual.migrate();
+			assertDoesNotThrow(() -> EsquemaConfiguracion.comprobarEsquemaAlDia(actual));
+		} finally {
+			jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + ESQUEMA_PRUEBA + " CASCADE");
+		}
+	}
+
+	@Test
+	void duplicadosDetienenLaMigracion() {
+		Flyway antiguo = Flyway.configure().dataSource(dataSource).schemas(ESQUEMA_PRUEBA).target("4").load();
+		try {
+			antiguo.migrate();
+			String e = ESQUEMA_PRUEBA + ".";
+			Long idCurso = jdbcTemplate.queryForObject(
+					"INSERT INTO " + e + "curso (nombre_curso) VALUES ('TEST-CURSO') RETURNING id_curso", Long.class);
+			Long idGrupo = jdbcTemplate.queryForObject("INSERT INTO " + e + "grupo (nombre_grupo, curso_id) "
+					+ "VALUES ('TEST-GRUPO', ?) RETURNING id_grupo", Long.class, idCurso);
+			Long[] matriculas = new Long[3];
+			for (int i = 0; i < matriculas.length; i++) {
+				Long idAlumno = jdbcTemplate.queryForObject("INSERT INTO " + e + "alumno (nombre_alumno, "
+						+ "apellido_alumno) VALUES ('TEST', 'ALUMNO') RETURNING id_alumno", Long.class);
+				matriculas[i] = jdbcTemplate.queryForObject("INSERT INTO " + e + "matriculacion (alumno_id, curso_id, "
+						+ "grupo_id, anio_escolar, uid_llave) VALUES (?, ?, ?, '2099-2100', ?) RETURNING id_matriculacion",
+						Long.class, idAlumno, idCurso, idGrupo, i < 2 ? "TEST-UID" : " ");
+			}
+			for (int i = 0; i < 2; i++) {
+				jdbcTemplate.update("INSERT INTO " + e + "asistencia (matriculacion_id, fecha, estado) "
+						+ "VALUES (?, DATE '2099-10-06', 1)", matriculas[0]);
+			}
+			Flyway actual = Flyway.configure().dataSource(dataSource).schemas(ESQUEMA_PRUEBA).load();
+
+			FlywayException error = assertThrows(FlywayException.class, actual::migrate);
+			assertTrue(error.getMessage().contains("1 asistencias repetidas para la misma matricula y dia: matricula "
+					+ matriculas[0] + " el 2099-10-06"), error.getMessage());
+			assertTrue(error.getMessage().contains("1 tarjetas asignadas a varias matriculas del mismo anio escolar: "
+					+ "tarjeta TEST-UID en 2099-2100 (matriculas " + matriculas[0] + ", " + matriculas[1] + ")"),
+					error.getMessage());
+			assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM " + e + "asistencia", Integer.class));
+			assertEquals(2, jdbcTemplate.queryForObject(
+					"SELECT count(*) FROM " + e + "matriculacion WHERE uid_llave = 'TEST-UID'", Integer.class));
+
+			jdbcTemplate.update("DELETE FROM " + e + "asistencia WHERE id_asistencia = (SELECT max(id_asistencia) "
+					+ "FROM " + e + "asistencia)");
+			jdbcTemplate.update("UPDATE " + e + "matriculacion SET uid_llave = NULL WHERE id_matriculacion = ?",
+					matriculas[0]);
+			actual.migrate();
+			assertDoesNotThrow(() -> EsquemaConfiguracion.comprobarEsquemaAlDia(actual));
+			assertEquals(2, jdbcTemplate.queryForObject(
+					"SELECT count(*) FROM " + e + "matriculacion WHERE uid_llave IS NULL", Integer.class));
+		} finally {
+			jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + ESQUEMA_PRUEBA + " CASCADE");
+		}
+	}
+
+	@Test
+	@Transactional
+	void unaAsistenciaPorMatriculaYDia() {
+		Long idMatriculacion = crearMatriculacion();
+		jdbcTemplate.update("INSERT INTO asistencia (matriculacion_id, fecha) VALUES (?, DATE '2099-10-06')",
+				idMatriculacion);
+
+		assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update(
+				"INSERT INTO asistencia (matriculacion_id, fecha) VALUES (?, DATE '2099-10-06')", idMatriculacion));
+	}
+
+	@Test
+	@Transactional
+	void unaTarjetaPorAnioEscolar() {
+		Long idMatriculacion = crearMatriculacion();
+
+		assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update(
+				"INSERT INTO matriculacion (alumno_id, curso_id, grupo_id, anio_escolar, uid_llave) "
+						+ "SELECT alumno_id, curso_id, grupo_id, anio_escolar, uid_llave FROM matriculacion "
+						+ "WHERE id_matriculacion = ?",
+				idMatriculacion));
+	}
+
+	/**
+	 * Crea un alumno matriculado con tarjeta en el año escolar de pruebas.
+	 *
+	 * @return Id de la matrícula
+	 */
+	private Long crearMatriculacion() {
+		return GrupoPrueba.crear(jdbcTemplate).matricularConTarjeta("TEST-UID");
+	}
+}
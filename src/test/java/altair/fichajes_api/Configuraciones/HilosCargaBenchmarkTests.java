@@ -0,0 +1,171 @@
+package altair.fichajes_api.Configuraciones;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import altair.fichajes_api.logs.Logs;
+
+/**
+ * Prueba de carga de las peticiones HTTP con hilos de plataforma y con hilos
+ * virtuales. Lanza {@value #PETICIONES} peticiones a /api/cursos con
+ * {@value #CLIENTES} clientes a la vez, con el pool de conexiones de la
+ * configuración, y compara duración, latencias, hilos de plataforma de Tomcat,
+ * peticiones que esperaron conexión y errores (503 por exceso de carga). La
+ * comparación se escribe al final en el log de la aplicación.
+ *
+ * Se ejecuta con: mvn test -Dbenchmark=true -Dtest=HilosCargaBenchmarkTests
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+class HilosCargaBenchmarkTests {
+
+	private static final int PETICIONES = 2000;
+	private static final int CLIENTES = 200;
+
+	private static final Map<String, String> resultados = new LinkedHashMap<>();
+
+	@Nested
+	@Order(1)
+	@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+	class HilosVirtuales {
+
+		@LocalServerPort
+		private int puerto;
+
+		@Autowired
+		private DataSource dataSource;
+
+		@Value("${fichajes.http.max-peticiones}")
+		private int maxPeticiones;
+
+		@Test
+		void carga() throws Exception {
+			// El filtro de peticiones impide que todas las peticiones esperen conexión
+			assertTrue(medir("virtuales", puerto, dataSource) <= maxPeticiones);
+		}
+	}
+
+	@Nested
+	@Order(2)
+	@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+	class HilosPlataforma {
+
+		@LocalServerPort
+		private int puerto;
+
+		@Autowired
+		private DataSource dataSource;
+
+		@Test
+		void carga() throws Exception {
+			medir("plataforma", puerto, dataSource);
+		}
+	}
+
+	@AfterAll
+	static void mostrarComparacion() {
+		resultados.forEach((modelo, linea) -> Logs.ficheroLog("✅ Benchmark hilos " + modelo + ": " + linea));
+	}
+
+	/**
+	 * Lanza la carga contra el servidor de la prueba y guarda el resultado. Los
+	 * clientes son peticiones asíncronas sobre dos hilos de plataforma, para que
+	 * en los dos modelos compitan igual con el servidor por la CPU.
+	 *
+	 * @return Máximo de peticiones esperando una conexión del pool
+	 */
+	private static int medir(String modelo, int puerto, DataSource dataSource) throws Exception {
+		HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+		URI uri = URI.create("http://localhost:" + puerto + "/api/cursos");
+		long[] latencias = new long[PETICIONES];
+		AtomicInteger errores = new AtomicInteger();
+		AtomicInteger maxEsperandoConexion = new AtomicInteger();
+		AtomicInteger maxHilosTomcat = new AtomicInteger();
+		Semaphore clientes = new Semaphore(CLIENTES);
+
+		ExecutorService hilosCliente = Executors.newFixedThreadPool(2);
+		try (HttpClient http = HttpClient.newBuilder().executor(hilosCliente).build()) {
+			// Calentamiento: conexiones del pool y primeras compilaciones
+			for (int i = 0; i < 50; i++) {
+				http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+			}
+
+			Thread muestreo = Thread.ofPlatform().daemon().start(() -> {
+				while (!Thread.currentThread().isInterrupted()) {
+					maxEsperandoConexion.accumulateAndGet(pool.getHikariPoolMXBean().getThreadsAwaitingConnection(),
+							Math::max);
+					// Solo se listan los hilos de plataforma, no los virtuales
+					int hilosTomcat = (int) Thread.getAllStackTraces().keySet().stream()
+							.filter(h -> h.getName().startsWith("http-nio-")
+									&& h.getName().contains("-exec-"))
+							.count();
+					maxHilosTomcat.accumulateAndGet(hilosTomcat, Math::max);
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			});
+
+			long inicio = System.nanoTime();
+			for (int i = 0; i < PETICIONES; i++) {
+				clientes.acquire();
+				int n = i;
+				long t = System.nanoTime();
+				http.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+						.whenComplete((respuesta, error) -> {
+							if (error != null || respuesta.statusCode() != 200) {
+								errores.incrementAndGet();
+							}
+							latencias[n] = System.nanoTime() - t;
+							clientes.release();
+						});
+			}
+			clientes.acquire(CLIENTES);
+			long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+			muestreo.interrupt();
+
+			Arrays.sort(latencias);
+			resultados.put(modelo, "peticiones=" + PETICIONES + " clientes=" + CLIENTES + " duracionMs=" + duracionMs
+					+ " peticiones/s=" + PETICIONES * 1000L / Math.max(1, duracionMs) + " p50Ms="
+					+ latencias[PETICIONES / 2] / 1_000_000 + " p99Ms=" + latencias[PETICIONES * 99 / 100] / 1_000_000
+					+ " hilosPlataformaTomcat=" + maxHilosTomcat.get() + " maxEsperandoConexion="
+					+ maxEsperandoConexion.get() + " conexionesMax=" + pool.getMaximumPoolSize() + " errores="
+					+ errores.get());
+		} finally {
+			hilosCliente.shutdown();
+		}
+		return maxEsperandoConexion.get();
+	}
+}
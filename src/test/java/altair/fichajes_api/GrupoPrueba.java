@@ -0,0 +1,131 @@
+package altair.fichajes_api;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Datos de prueba comunes: un curso con un grupo y alumnos matriculados en él,
+ * insertados con JDBC dentro de la transacción del test, que los revierte al
+ * terminar. Lo que cambia entre pruebas (número de alumnos, año escolar, fecha
+ * de alta) se pasa como parámetro.
+ */
+public final class GrupoPrueba {
+
+	public static final String CURSO = "TEST-CURSO";
+	public static final String GRUPO = "TEST-GRUPO";
+	/** Año escolar ficticio, sin datos reales, usado por defecto. */
+	public static final String ANIO_ESCOLAR = "2099-2100";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Long idCurso;
+	private final Long idGrupo;
+
+	private GrupoPrueba(JdbcTemplate jdbcTemplate, Long idCurso, Long idGrupo) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.idCurso = idCurso;
+		this.idGrupo = idGrupo;
+	}
+
+	/**
+	 * Crea el curso {@value #CURSO} con el grupo {@value #GRUPO}.
+	 *
+	 * @param jdbcTemplate JdbcTemplate de la prueba
+	 * @return Grupo creado
+	 */
+	public static GrupoPrueba crear(JdbcTemplate jdbcTemplate) {
+		return crear(jdbcTemplate, CURSO, GRUPO);
+	}
+
+	/**
+	 * Crea un curso con un grupo.
+	 *
+	 * @param jdbcTemplate JdbcTemplate de la prueba
+	 * @param curso        Nombre del curso
+	 * @param grupo        Nombre del grupo
+	 * @return Grupo creado
+	 */
+	public static GrupoPrueba crear(JdbcTemplate jdbcTemplate, String curso, String grupo) {
+		Long idCurso = jdbcTemplate.queryForObject(
+				"INSERT INTO curso (nombre_curso) VALUES (?) RETURNING id_curso", Long.class, curso);
+		Long idGrupo = jdbcTemplate.queryForObject(
+				"INSERT INTO grupo (nombre_grupo, curso_id) VALUES (?, ?) RETURNING id_grupo", Long.class, grupo,
+				idCurso);
+		return new GrupoPrueba(jdbcTemplate, idCurso, idGrupo);
+	}
+
+	/**
+	 * Crea alumnos sin matricular, llamados TEST ALUMNO 1..N.
+	 *
+	 * @param total Número de alumnos
+	 * @return IDs de los alumnos en orden
+	 */
+	public List<Long> crearAlumnos(int total) {
+		return jdbcTemplate.queryForList("INSERT INTO alumno (nombre_alumno, apellido_alumno) "
+				+ "SELECT 'TEST', 'ALUMNO ' || g FROM generate_series(1, ?) g RETURNING id_alumno", Long.class, total)
+				.stream().sorted().toList();
+	}
+
+	/**
+	 * Crea alumnos y los matricula en el grupo en el año escolar
+	 * {@value #ANIO_ESCOLAR}.
+	 *
+	 * @param total Número de alumnos
+	 * @return IDs de las matrículas en orden
+	 */
+	public List<Long> matricularAlumnos(int total) {
+		return matricularAlumnos(total, ANIO_ESCOLAR);
+	}
+
+	/**
+	 * Crea alumnos y los matricula en el grupo con una sola sentencia.
+	 *
+	 * @param total       Número de alumnos
+	 * @param anioEscolar Año escolar de las matrículas
+	 * @return IDs de las matrículas en orden
+	 */
+	public List<Long> matricularAlumnos(int total, String anioEscolar) {
+		return jdbcTemplate.queryForList("WITH alumnos AS (INSERT INTO alumno (nombre_alumno, apellido_alumno) "
+				+ "SELECT 'TEST', 'ALUMNO ' || g FROM generate_series(1, ?) g RETURNING id_alumno) "
+				+ "INSERT INTO matriculacion (alumno_id, curso_id, grupo_id, anio_escolar) "
+				+ "SELECT id_alumno, ?, ?, ? FROM alumnos RETURNING id_matriculacion", Long.class, total, idCurso,
+				idGrupo, anioEscolar).stream().sorted().toList();
+	}
+
+	/**
+	 * Matricula un alumno en el grupo.
+	 *
+	 * @param idAlumno    ID del alumno
+	 * @param anioEscolar Año escolar de la matrícula
+	 * @param fechaAlta   Fecha de alta de la matrícula
+	 * @return ID de la matrícula
+	 */
+	public Long matricular(Long idAlumno, String anioEscolar, LocalDate fechaAlta) {
+		return jdbcTemplate.queryForObject("INSERT INTO matriculacion "
+				+ "(alumno_id, curso_id, grupo_id, anio_escolar, fecha_alta) VALUES (?, ?, ?, ?, ?) "
+				+ "RETURNING id_matriculacion", Long.class, idAlumno, idCurso, idGrupo, anioEscolar, fechaAlta);
+	}
+
+	/**
+	 * Crea un alumno y lo matricula en el grupo, con tarjeta, en el año escolar
+	 * {@value #ANIO_ESCOLAR}.
+	 *
+	 * @param uid UID de la tarjeta
+	 * @return ID de la matrícula
+	 */
+	public Long matricularConTarjeta(String uid) {
+		Long idAlumno = crearAlumnos(1).get(0);
+		return jdbcTemplate.queryForObject("INSERT INTO matriculacion "
+				+ "(alumno_id, curso_id, grupo_id, anio_escolar, uid_llave) VALUES (?, ?, ?, ?, ?) "
+				+ "RETURNING id_matriculacion", Long.class, idAlumno, idCurso, idGrupo, ANIO_ESCOLAR, uid);
+	}
+
+	public Long getIdCurso() {
+		return idCurso;
+	}
+
+	public Long getIdGrupo() {
+		return idGrupo;
+	}
+}
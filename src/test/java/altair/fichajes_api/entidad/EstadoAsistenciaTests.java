@@ -0,0 +1,86 @@
+package altair.fichajes_api.entidad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.dtos.ResultadoCierreDto;
+import altair.fichajes_api.servicios.AsistenciaServicio;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Comprueba que el estado de las asistencias se guarda como código numérico y
+ * se sigue mostrando por su nombre en DTOs y conteos.
+ */
+@SpringBootTest
+@Transactional
+class EstadoAsistenciaTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Long idAlumno;
+	private List<Long> matriculas;
+
+	@BeforeEach
+	void prepararGrupo() {
+		matriculas = GrupoPrueba.crear(jdbcTemplate).matricularAlumnos(2);
+		idAlumno = jdbcTemplate.queryForObject("SELECT alumno_id FROM matriculacion WHERE id_matriculacion = ?",
+				Long.class, matriculas.get(0));
+	}
+
+	@Test
+	void cierreGuardaCodigoYDevuelveNombres() {
+		asistenciaServicio.crearAsistenciasDelDia(FECHA);
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(0), FECHA.atTime(8, 0));
+		ResultadoCierreDto cierre = asistenciaServicio.cerrarAsistenciasDelDia(FECHA);
+		// El cierre masivo no pasa por las entidades ya cargadas en la transacción del test
+		entityManager.clear();
+
+		assertEquals(Map.of("SIN SALIDA", 1L, "FALTA", 1L), cierre.getConteoEstados());
+		assertEquals((short) 3, jdbcTemplate.queryForObject(
+				"SELECT estado FROM asistencia WHERE matriculacion_id = ? AND fecha = ?", Short.class,
+				matriculas.get(0), FECHA));
+
+		List<AsistenciaDto> asistencias = asistenciaServicio.obtenerPorAlumnoEstadoYAnio(idAlumno, "SIN SALIDA",
+				"2099/2100");
+		assertEquals(1, asistencias.size());
+		assertEquals("SIN SALIDA", asistencias.get(0).getEstado());
+
+		Map<String, Integer> conteo = asistenciaServicio.obtenerConteoEstados(idAlumno, FECHA, FECHA);
+		assertEquals(List.of("PRESENTE", "COMPLETA", "SIN SALIDA", "FALTA", "FESTIVO"), List.copyOf(conteo.keySet()));
+		assertEquals(1, conteo.get("SIN SALIDA"));
+		assertEquals(0, conteo.get("FALTA"));
+	}
+
+	@Test
+	void nombresYCodigosSeResuelven() {
+		assertEquals(EstadoAsistencia.SIN_SALIDA, EstadoAsistencia.desdeNombre("SIN SALIDA"));
+		assertEquals(EstadoAsistencia.SIN_SALIDA, EstadoAsistencia.desdeNombre("sin_salida"));
+		for (EstadoAsistencia estado : EstadoAsistencia.values()) {
+			assertEquals(estado, EstadoAsistencia.desdeCodigo(estado.getCodigo()));
+		}
+		assertThrows(IllegalArgumentException.class, () -> EstadoAsistencia.desdeNombre("AUSENTE"));
+		assertThrows(IllegalArgumentException.class, () -> EstadoAsistencia.desdeCodigo((short) 0));
+	}
+}
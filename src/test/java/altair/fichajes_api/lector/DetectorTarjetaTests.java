@@ -0,0 +1,135 @@
+package altair.fichajes_api.lector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardTerminal;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del detector de tarjetas con un lector simulado. En lugar de medir
+ * tiempos se comprueba qué llamadas hace el detector al lector, y con qué
+ * espera, en modo eventos y en modo sondeo.
+ */
+class DetectorTarjetaTests {
+
+	private static final long ESPERA_MS = 200;
+	private static final long INTERVALO_SONDEO_MS = 10;
+
+	/**
+	 * Lector simulado que anota las consultas recibidas. Si bloquea, cada espera
+	 * sin tarjeta dura el tiempo pedido, como la de un driver real.
+	 */
+	private static final class TerminalSimulado extends CardTerminal {
+
+		private final boolean bloquea;
+		private final List<Long> esperas = new ArrayList<>();
+		private int consultas;
+		private boolean tarjeta;
+
+		TerminalSimulado(boolean bloquea) {
+			this.bloquea = bloquea;
+		}
+
+		@Override
+		public String getName() {
+			return "Lector simulado";
+		}
+
+		@Override
+		public Card connect(String protocol) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isCardPresent() {
+			consultas++;
+			return tarjeta;
+		}
+
+		@Override
+		public boolean waitForCardPresent(long timeout) {
+			esperas.add(timeout);
+			if (tarjeta || !bloquea) {
+				return tarjeta;
+			}
+			long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			long ahora;
+			while ((ahora = System.nanoTime()) < limite) {
+				LockSupport.parkNanos(limite - ahora);
+			}
+			return false;
+		}
+
+		@Override
+		public boolean waitForCardAbsent(long timeout) {
+			return true;
+		}
+	}
+
+	@Test
+	void enModoEventosLaTarjetaLlegaConLaEsperaDelDriver() throws Exception {
+		TerminalSimulado terminal = new TerminalSimulado(true);
+		DetectorTarjeta detector = new DetectorTarjeta(terminal, true, ESPERA_MS, INTERVALO_SONDEO_MS);
+
+		terminal.tarjeta = true;
+
+		assertTrue(detector.esperarTarjeta());
+		assertEquals(List.of(ESPERA_MS), terminal.esperas);
+		assertEquals(0, terminal.consultas);
+		assertTrue(detector.usaEventos());
+	}
+
+	@Test
+	void enModoSondeoLaTarjetaSeDetectaEnLaSiguienteConsulta() throws Exception {
+		TerminalSimulado terminal = new TerminalSimulado(true);
+		DetectorTarjeta detector = new DetectorTarjeta(terminal, false, ESPERA_MS, INTERVALO_SONDEO_MS);
+
+		assertFalse(detector.esperarTarjeta());
+		terminal.tarjeta = true;
+
+		assertTrue(detector.esperarTarjeta());
+		assertEquals(2, terminal.consultas);
+		assertTrue(terminal.esperas.isEmpty());
+	}
+
+	@Test
+	void enReposoElModoEventosHaceUnaEsperaCompletaPorConsulta() throws Exception {
+		TerminalSimulado terminal = new TerminalSimulado(true);
+		DetectorTarjeta detector = new DetectorTarjeta(terminal, true, ESPERA_MS, INTERVALO_SONDEO_MS);
+
+		for (int i = 0; i < 3; i++) {
+			assertFalse(detector.esperarTarjeta());
+		}
+
+		// Cada consulta cubre la espera entera, nunca el intervalo de sondeo
+		assertEquals(Collections.nCopies(3, ESPERA_MS), terminal.esperas);
+		assertEquals(0, terminal.consultas);
+		assertTrue(detector.usaEventos());
+	}
+
+	@Test
+	void pasaASondeoSiElDriverNoBloquea() throws Exception {
+		TerminalSimulado terminal = new TerminalSimulado(false);
+		DetectorTarjeta detector = new DetectorTarjeta(terminal, true, ESPERA_MS, INTERVALO_SONDEO_MS);
+
+		for (int i = 0; i < 3; i++) {
+			assertFalse(detector.esperarTarjeta());
+		}
+		assertFalse(detector.usaEventos());
+
+		terminal.tarjeta = true;
+		assertTrue(detector.esperarTarjeta());
+		assertEquals(3, terminal.esperas.size());
+		assertEquals(1, terminal.consultas);
+	}
+}
@@ -0,0 +1,104 @@
+package altair.fichajes_api.lector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas del diario de fichajes: recuperación de pendientes tras reiniciar,
+ * detección de registros dañados y borrado de segmentos ya aplicados.
+ */
+class DiarioFichajesFuncionalidadTests {
+
+	@TempDir
+	Path carpeta;
+
+	private DiarioFichajesFuncionalidad abrirDiario(int registrosPorSegmento) {
+		DiarioFichajesFuncionalidad diario = new DiarioFichajesFuncionalidad();
+		ReflectionTestUtils.setField(diario, "registro", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(diario, "ruta", carpeta.toString());
+		ReflectionTestUtils.setField(diario, "registrosPorSegmento", registrosPorSegmento);
+		diario.abrir();
+		return diario;
+	}
+
+	private long segmentos() throws IOException {
+		try (Stream<Path> s = Files.list(carpeta)) {
+			return s.count();
+		}
+	}
+
+	@Test
+	void recuperaLosFichajesNoAplicadosEnOrden() {
+		DiarioFichajesFuncionalidad diario = abrirDiario(16);
+		DiarioFichajesFuncionalidad.Anotacion a = diario.anotar("04A1B2C3", "Lector 1", 1_000L);
+		DiarioFichajesFuncionalidad.Anotacion b = diario.anotar("04D4E5F6", "Lector 2", 2_000L);
+		DiarioFichajesFuncionalidad.Anotacion c = diario.anotar("0411223344556677", "Lector 1", 3_000L);
+		diario.marcarAplicada(b);
+		diario.aplazar(a);
+		assertTrue(diario.hayAplazadasAnteriores(c));
+		diario.cerrar();
+
+		DiarioFichajesFuncionalidad reabierto = abrirDiario(16);
+		List<DiarioFichajesFuncionalidad.Anotacion> pendientes = reabierto.aplazadas();
+		assertEquals(2, pendientes.size());
+		assertEquals("04A1B2C3", pendientes.get(0).getUid());
+		assertEquals(1_000L, pendientes.get(0).getInstante());
+		assertEquals("0411223344556677", pendientes.get(1).getUid());
+		assertEquals("Lector 1", pendientes.get(1).getLector());
+		assertEquals(3_000L, pendientes.get(1).getInstante());
+
+		// Las anotaciones nuevas van detrás de las recuperadas
+		DiarioFichajesFuncionalidad.Anotacion d = reabierto.anotar("04FFFFFF", "Lector 1", 4_000L);
+		assertTrue(reabierto.hayAplazadasAnteriores(d));
+		reabierto.cerrar();
+	}
+
+	@Test
+	void descartaRegistrosDaniados() throws IOException {
+		DiarioFichajesFuncionalidad diario = abrirDiario(16);
+		diario.anotar("04A1B2C3", "Lector 1", 1_000L);
+		diario.anotar("04D4E5F6", "Lector 1", 2_000L);
+		diario.cerrar();
+
+		// Se corrompe la UID del primer registro
+		Path archivo;
+		try (Stream<Path> s = Files.list(carpeta)) {
+			archivo = s.findFirst().orElseThrow();
+		}
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+			canal.write(java.nio.ByteBuffer.wrap(new byte[] { 'X' }), 16);
+		}
+
+		DiarioFichajesFuncionalidad reabierto = abrirDiario(16);
+		List<DiarioFichajesFuncionalidad.Anotacion> pendientes = reabierto.aplazadas();
+		assertEquals(1, pendientes.size());
+		assertEquals("04D4E5F6", pendientes.get(0).getUid());
+		reabierto.cerrar();
+	}
+
+	@Test
+	void borraLosSegmentosSinPendientes() throws IOException {
+		DiarioFichajesFuncionalidad diario = abrirDiario(2);
+		for (int i = 0; i < 5; i++) {
+			diario.marcarAplicada(diario.anotar("04A1B2C" + i, "Lector 1", i));
+		}
+		assertEquals(1, segmentos());
+		assertFalse(diario.hayAplazadasAnteriores(diario.anotar("04A1B2C9", "Lector 1", 9)));
+		diario.cerrar();
+	}
+}
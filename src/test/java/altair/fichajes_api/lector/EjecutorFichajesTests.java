@@ -0,0 +1,63 @@
+package altair.fichajes_api.lector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas del ejecutor de fichajes con hilos virtuales y de plataforma.
+ */
+class EjecutorFichajesTests {
+
+	@ParameterizedTest
+	@ValueSource(booleans = { true, false })
+	void limitaLosFichajesALaVezSinBloquearAlLector(boolean virtuales) throws InterruptedException {
+		SimpleMeterRegistry registro = new SimpleMeterRegistry();
+		EjecutorFichajes ejecutor = new EjecutorFichajes(virtuales, 2, registro);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch terminados = new CountDownLatch(6);
+		AtomicInteger aLaVez = new AtomicInteger();
+		AtomicInteger maximo = new AtomicInteger();
+		AtomicInteger virtualesVistos = new AtomicInteger();
+
+		for (int i = 0; i < 6; i++) {
+			// Si el envío esperase turno, el bucle no terminaría hasta liberar los fichajes
+			ejecutor.execute(() -> {
+				maximo.accumulateAndGet(aLaVez.incrementAndGet(), Math::max);
+				if (Thread.currentThread().isVirtual()) {
+					virtualesVistos.incrementAndGet();
+				}
+				try {
+					liberar.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				aLaVez.decrementAndGet();
+				terminados.countDown();
+			});
+		}
+
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while ((ejecutor.getActivos() < 2 || ejecutor.getEnEspera() < 4) && System.nanoTime() < limite) {
+			Thread.sleep(10);
+		}
+		String etiqueta = virtuales ? "virtuales" : "plataforma";
+		assertEquals(2, registro.get("fichajes.lector.ejecutor.activos").tag("hilos", etiqueta).gauge().value());
+		assertEquals(4, registro.get("fichajes.lector.ejecutor.en-espera").tag("hilos", etiqueta).gauge().value());
+
+		liberar.countDown();
+		assertTrue(terminados.await(5, TimeUnit.SECONDS));
+		assertTrue(ejecutor.cerrar(5000));
+		assertEquals(2, maximo.get());
+		assertEquals(virtuales ? 6 : 0, virtualesVistos.get());
+		assertEquals(0, ejecutor.getEnEspera());
+	}
+}
@@ -0,0 +1,65 @@
+package altair.fichajes_api.lector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pruebas del filtro de admisión de fichajes.
+ */
+class FiltroAdmisionFichajesTests {
+
+	private FiltroAdmisionFichajes crearFiltro(AmbitoFiltroFichajes ambito) {
+		FiltroAdmisionFichajes filtro = new FiltroAdmisionFichajes();
+		ReflectionTestUtils.setField(filtro, "registro", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(filtro, "ventanaMs", 2000L);
+		ReflectionTestUtils.setField(filtro, "resolucionMs", 250L);
+		ReflectionTestUtils.setField(filtro, "ambito", ambito);
+		filtro.iniciar();
+		return filtro;
+	}
+
+	@Test
+	void descartaLaTarjetaRepetidaAunqueSeLeanOtrasEntreMedias() {
+		FiltroAdmisionFichajes filtro = crearFiltro(AmbitoFiltroFichajes.GLOBAL);
+
+		assertTrue(filtro.admitir("L1", "A", 10_000));
+		assertTrue(filtro.admitir("L1", "B", 10_300));
+		assertFalse(filtro.admitir("L1", "A", 10_600));
+		assertTrue(filtro.admitir("L1", "A", 12_000));
+		assertEquals(1, filtro.getSuprimidas());
+	}
+
+	@Test
+	void elAmbitoDecideSiOtroLectorCompartaLaVentana() {
+		FiltroAdmisionFichajes global = crearFiltro(AmbitoFiltroFichajes.GLOBAL);
+		assertTrue(global.admitir("L1", "A", 10_000));
+		assertFalse(global.admitir("L2", "A", 10_500));
+
+		FiltroAdmisionFichajes porLector = crearFiltro(AmbitoFiltroFichajes.LECTOR);
+		assertTrue(porLector.admitir("L1", "A", 10_000));
+		assertTrue(porLector.admitir("L2", "A", 10_500));
+		assertFalse(porLector.admitir("L1", "A", 10_700));
+	}
+
+	@Test
+	void olvidaLasTarjetasCaducadas() {
+		FiltroAdmisionFichajes filtro = crearFiltro(AmbitoFiltroFichajes.GLOBAL);
+		for (int i = 0; i < 100; i++) {
+			filtro.admitir("L1", "T" + i, 10_000 + i * 10);
+		}
+		assertEquals(100, filtro.getTarjetasRecientes());
+
+		// Han caducado las 25 tarjetas de la primera casilla (10.000 - 10.240)
+		filtro.admitir("L1", "OTRA", 12_300);
+		assertEquals(76, filtro.getTarjetasRecientes());
+
+		filtro.admitir("L1", "ULTIMA", 60_000);
+		assertEquals(1, filtro.getTarjetasRecientes());
+	}
+}
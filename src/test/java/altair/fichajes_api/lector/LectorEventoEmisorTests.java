@@ -0,0 +1,73 @@
+package altair.fichajes_api.lector;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import altair.fichajes_api.dtos.EventoLectorDto;
+
+/**
+ * Comprueba que cada suscriptor a /api/lector/eventos recibe los eventos del
+ * lector bien formados aunque haya varios suscriptores a la vez.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class LectorEventoEmisorTests {
+
+	/** Un evento SSE completo: id, nombre, datos JSON y una sola línea en blanco. */
+	private static final Pattern EVENTO = Pattern.compile("id:\\d+\nevent:tarjeta\ndata:\\{[^\n]*\"uid\":\"UID-TEST\"[^\n]*\\}\n\n");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private LectorEventoEmisor lectorEventoEmisor;
+
+	@AfterEach
+	void cerrar() {
+		lectorEventoEmisor.cerrarSuscripciones();
+	}
+
+	@Test
+	void cadaSuscriptorRecibeUnEventoBienFormado() throws Exception {
+		List<MvcResult> suscripciones = List.of(suscribir(), suscribir());
+
+		EventoLectorDto evento = new EventoLectorDto();
+		evento.setHayUid(true);
+		evento.setUid("UID-TEST");
+		lectorEventoEmisor.publicar(evento);
+
+		for (MvcResult suscripcion : suscripciones) {
+			String recibido = esperarContenido(suscripcion);
+			assertTrue(EVENTO.matcher(recibido).matches(), "Evento mal formado: " + recibido);
+		}
+	}
+
+	private MvcResult suscribir() throws Exception {
+		return mockMvc.perform(get("/api/lector/eventos")).andExpect(request().asyncStarted()).andReturn();
+	}
+
+	/**
+	 * Espera a que el hilo del suscriptor escriba el evento y un poco más, por si
+	 * llegara algo de más.
+	 */
+	private static String esperarContenido(MvcResult suscripcion) throws Exception {
+		long limite = System.currentTimeMillis() + 10_000;
+		while (suscripcion.getResponse().getContentAsString().isEmpty() && System.currentTimeMillis() < limite) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(200);
+		return suscripcion.getResponse().getContentAsString();
+	}
+}
@@ -0,0 +1,66 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.ResultadoGeneracionDto;
+import altair.fichajes_api.logs.Logs;
+
+/**
+ * Benchmark de la generación masiva de asistencias del día. Crea N matrículas
+ * en un año escolar ficticio, genera el día y comprueba que una segunda
+ * ejecución no inserta nada. Todo se revierte al terminar cada tamaño. Las
+ * medidas se escriben en el log de la aplicación.
+ *
+ * Se ejecuta con: mvn test -Dbenchmark=true -Dtest=AsistenciaGeneracionBenchmarkTests
+ */
+@SpringBootTest
+@Transactional
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AsistenciaGeneracionBenchmarkTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1_000, 10_000, 50_000 })
+	void generarAsistenciasDelDia(int matriculas) {
+		crearMatriculas(matriculas);
+
+		ResultadoGeneracionDto primera = asistenciaServicio.crearAsistenciasDelDia(FECHA);
+		ResultadoGeneracionDto segunda = asistenciaServicio.crearAsistenciasDelDia(FECHA);
+
+		assertEquals(matriculas, primera.getFilasInsertadas());
+		assertEquals(0, segunda.getFilasInsertadas());
+
+		Logs.ficheroLog("✅ Benchmark generación de asistencias: matriculas=" + matriculas + " insertadas="
+				+ primera.getFilasInsertadas() + " duracionMs=" + primera.getDuracionMs() + " repeticionMs="
+				+ segunda.getDuracionMs());
+	}
+
+	/**
+	 * Crea un curso, un grupo y N alumnos matriculados en el año escolar de la
+	 * fecha del benchmark.
+	 */
+	private void crearMatriculas(int total) {
+		GrupoPrueba.crear(jdbcTemplate).matricularAlumnos(total);
+
+		// Estadísticas al día para que el planificador no trate las tablas como vacías
+		jdbcTemplate.execute("ANALYZE alumno, matriculacion, asistencia");
+	}
+}
@@ -0,0 +1,112 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Comprueba que la asistencia de un grupo en una fecha y los conteos de estados
+ * de sus alumnos se obtienen con una sola sentencia SQL, sin importar el número
+ * de alumnos.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class AsistenciaGrupoConsultasTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+	private static final int ALUMNOS = 30;
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics estadisticas;
+	private Long idGrupo;
+
+	@BeforeEach
+	void prepararGrupo() {
+		GrupoPrueba grupo = GrupoPrueba.crear(jdbcTemplate);
+		idGrupo = grupo.getIdGrupo();
+		List<Long> matriculas = grupo.matricularAlumnos(ALUMNOS);
+		// Todos los alumnos menos uno tienen asistencia ese día
+		jdbcTemplate.update("INSERT INTO asistencia (matriculacion_id, fecha, estado) "
+				+ "SELECT m.id_matriculacion, ?, ? FROM matriculacion m WHERE m.grupo_id = ? "
+				+ "AND m.id_matriculacion <> ?", FECHA, EstadoAsistencia.FALTA.getCodigo(), idGrupo,
+				matriculas.get(ALUMNOS - 1));
+
+		estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+	}
+
+	@Test
+	void asistenciaPorCursoYGrupoEnFechaUsaUnaSentencia() {
+		List<AsistenciaDto> lista = asistenciaServicio.obtenerAsistenciaPorCursoYGrupoEnFecha("TEST-CURSO",
+				"TEST-GRUPO", FECHA);
+
+		assertEquals(ALUMNOS - 1, lista.size());
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void asistenciasPorCursoGrupoYFechaUsaUnaSentencia() {
+		List<AsistenciaDto> lista = asistenciaServicio.obtenerAsistenciasPorCursoGrupoYFecha("TEST-CURSO",
+				"TEST-GRUPO", FECHA);
+
+		assertEquals(ALUMNOS - 1, lista.size());
+		assertEquals("TEST-CURSO", lista.get(0).getNombreCurso());
+		assertEquals("TEST-GRUPO", lista.get(0).getNombreGrupo());
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void conteoEstadosDeGrupoUsaUnaSentencia() {
+		Map<Long, Map<String, Integer>> conteos = asistenciaServicio.obtenerConteoEstadosDeGrupo(idGrupo, FECHA,
+				FECHA);
+
+		assertEquals(ALUMNOS - 1, conteos.size());
+		conteos.values().forEach(conteo -> {
+			assertEquals(1, conteo.get("FALTA"));
+			assertEquals(0, conteo.get("PRESENTE"));
+		});
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void conteoEstadosDeAlumnosIncluyeLosQueNoTienenAsistencias() {
+		List<Long> alumnoIds = jdbcTemplate.queryForList(
+				"SELECT alumno_id FROM matriculacion WHERE grupo_id = ? ORDER BY id_matriculacion", Long.class,
+				idGrupo);
+		estadisticas.clear();
+
+		Map<Long, Map<String, Integer>> conteos = asistenciaServicio.obtenerConteoEstadosDeAlumnos(alumnoIds, FECHA,
+				FECHA);
+
+		assertEquals(ALUMNOS, conteos.size());
+		assertEquals(1, conteos.get(alumnoIds.get(0)).get("FALTA"));
+		assertEquals(0, conteos.get(alumnoIds.get(ALUMNOS - 1)).get("FALTA"));
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+		assertEquals(asistenciaServicio.obtenerConteoEstados(alumnoIds.get(0), FECHA, FECHA),
+				conteos.get(alumnoIds.get(0)));
+	}
+}
@@ -0,0 +1,95 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.logs.Logs;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Benchmark de las idas y vueltas a la base de datos al generar las faltas de
+ * un día asistencia a asistencia (cierre masivo desactivado) para 10.000
+ * matrículas. Compara la misma generación sin lotes (como ocurría con ids
+ * IDENTITY, una sentencia por fila) y con los lotes de JDBC que permiten los
+ * ids de secuencia. Todo se revierte al terminar. Las medidas se escriben en
+ * el log de la aplicación.
+ *
+ * Se ejecuta con: mvn test -Dbenchmark=true -Dtest=AsistenciaLotesBenchmarkTests
+ */
+@SpringBootTest(properties = { "fichajes.asistencia.cierre-masivo=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true" })
+@Transactional
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AsistenciaLotesBenchmarkTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+	private static final int MATRICULAS = 10_000;
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void generarFaltasConYSinLotes() {
+		crearMatriculas(MATRICULAS);
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		Session sesion = entityManager.unwrap(Session.class);
+
+		sesion.setJdbcBatchSize(1);
+		long[] sinLotes = generar(FECHA, estadisticas);
+		sesion.setJdbcBatchSize(null);
+		long[] conLotes = generar(FECHA.plusDays(1), estadisticas);
+
+		Logs.ficheroLog("✅ Benchmark faltas por lotes: matriculas=" + MATRICULAS + " sinLotes: sentencias="
+				+ sinLotes[0] + " duracionMs=" + sinLotes[1] + " | conLotes: sentencias=" + conLotes[0]
+				+ " duracionMs=" + conLotes[1]);
+		assertTrue(conLotes[0] * 10 < sinLotes[0]);
+	}
+
+	/**
+	 * Genera las faltas de una fecha y vuelca la sesión.
+	 *
+	 * @return Sentencias preparadas y duración en milisegundos
+	 */
+	private long[] generar(LocalDate fecha, Statistics estadisticas) {
+		entityManager.clear();
+		estadisticas.clear();
+		long inicio = System.nanoTime();
+
+		assertEquals(MATRICULAS, asistenciaServicio.generarFaltas(fecha));
+		entityManager.flush();
+
+		return new long[] { estadisticas.getPrepareStatementCount(), (System.nanoTime() - inicio) / 1_000_000 };
+	}
+
+	/**
+	 * Crea un curso, un grupo y N alumnos matriculados en el año escolar de la
+	 * fecha del benchmark.
+	 */
+	private void crearMatriculas(int total) {
+		GrupoPrueba.crear(jdbcTemplate).matricularAlumnos(total);
+		jdbcTemplate.execute("ANALYZE alumno, matriculacion, asistencia");
+	}
+}
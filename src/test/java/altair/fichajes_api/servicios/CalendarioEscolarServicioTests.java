@@ -0,0 +1,84 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import altair.fichajes_api.entidad.FestivoEntidad;
+import altair.fichajes_api.repositorios.FestivoInterfaz;
+
+/**
+ * Pruebas del calendario escolar en memoria.
+ */
+class CalendarioEscolarServicioTests {
+
+	@TempDir
+	Path carpeta;
+
+	private CalendarioEscolarServicio calendario;
+	private FestivoInterfaz festivoInterfaz;
+	private Path archivoVacaciones;
+
+	private static FestivoEntidad festivo(LocalDate fecha) {
+		FestivoEntidad f = new FestivoEntidad();
+		f.setFecha(fecha);
+		return f;
+	}
+
+	@BeforeEach
+	void preparar() throws Exception {
+		festivoInterfaz = mock(FestivoInterfaz.class);
+		when(festivoInterfaz.findAll()).thenReturn(List.of(festivo(LocalDate.of(2025, 12, 8)),
+				festivo(LocalDate.of(2026, 1, 6)), festivo(LocalDate.of(2028, 12, 31))));
+		archivoVacaciones = carpeta.resolve("vacaciones.txt");
+		Files.writeString(archivoVacaciones, "22-12-2025;23-12-2025");
+
+		calendario = new CalendarioEscolarServicio();
+		ReflectionTestUtils.setField(calendario, "festivoInterfaz", festivoInterfaz);
+		ReflectionTestUtils.setField(calendario, "archivoVacaciones", archivoVacaciones.toString());
+		calendario.cargar();
+	}
+
+	@Test
+	void clasificaLosDias() {
+		assertEquals(TipoDia.LECTIVO, calendario.tipoDia(LocalDate.of(2025, 12, 9)));
+		assertEquals(TipoDia.FESTIVO, calendario.tipoDia(LocalDate.of(2025, 12, 8)));
+		assertEquals(TipoDia.FESTIVO, calendario.tipoDia(LocalDate.of(2026, 1, 6)));
+		assertEquals(TipoDia.VACACIONES, calendario.tipoDia(LocalDate.of(2025, 12, 22)));
+		assertEquals(TipoDia.VACACIONES, calendario.tipoDia(LocalDate.of(2026, 7, 15)));
+		assertEquals(TipoDia.FIN_DE_SEMANA, calendario.tipoDia(LocalDate.of(2025, 12, 13)));
+		// Último día de un año bisiesto (bit 365)
+		assertTrue(calendario.esFestivo(LocalDate.of(2028, 12, 31)));
+		assertFalse(calendario.esFestivo(LocalDate.of(2028, 12, 30)));
+	}
+
+	@Test
+	void recargaSinPerderLasConsultas() throws Exception {
+		Files.writeString(archivoVacaciones, "24-12-2025");
+		calendario.recargarVacaciones();
+		assertFalse(calendario.esVacaciones(LocalDate.of(2025, 12, 22)));
+		assertTrue(calendario.esVacaciones(LocalDate.of(2025, 12, 24)));
+
+		when(festivoInterfaz.findAll()).thenReturn(List.of(festivo(LocalDate.of(2025, 12, 9))));
+		calendario.recargarFestivos();
+		assertFalse(calendario.esFestivo(LocalDate.of(2025, 12, 8)));
+		assertTrue(calendario.esFestivo(LocalDate.of(2025, 12, 9)));
+
+		// Un archivo con errores no borra las vacaciones cargadas
+		Files.writeString(archivoVacaciones, "no-es-fecha");
+		calendario.recargarVacaciones();
+		assertTrue(calendario.esVacaciones(LocalDate.of(2025, 12, 24)));
+	}
+}
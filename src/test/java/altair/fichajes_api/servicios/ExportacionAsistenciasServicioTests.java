@@ -0,0 +1,90 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.entidad.EstadoAsistencia;
+
+/**
+ * Comprueba los filtros y el formato de la exportación de asistencias.
+ */
+@SpringBootTest
+@Transactional
+class ExportacionAsistenciasServicioTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+
+	@Autowired
+	private ExportacionAsistenciasServicio exportacionAsistenciasServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void prepararAsistencias() {
+		Long idCurso = jdbcTemplate.queryForObject(
+				"INSERT INTO curso (nombre_curso) VALUES ('TEST-CURSO') RETURNING id_curso", Long.class);
+		Long idGrupoA = jdbcTemplate.queryForObject(
+				"INSERT INTO grupo (nombre_grupo, curso_id) VALUES ('TEST-A', ?) RETURNING id_grupo", Long.class,
+				idCurso);
+		Long idGrupoB = jdbcTemplate.queryForObject(
+				"INSERT INTO grupo (nombre_grupo, curso_id) VALUES ('TEST-B', ?) RETURNING id_grupo", Long.class,
+				idCurso);
+		matricular("TEST", "PEREZ, ANA", idCurso, idGrupoA);
+		matricular("TEST", "LOPEZ", idCurso, idGrupoA);
+		matricular("TEST", "RUIZ", idCurso, idGrupoB);
+
+		// Dos días de asistencia para cada alumno
+		jdbcTemplate.update("INSERT INTO asistencia (matriculacion_id, fecha, estado) "
+				+ "SELECT m.id_matriculacion, d, ? FROM matriculacion m, (VALUES (?::date), (?::date)) f(d) "
+				+ "WHERE m.anio_escolar = '2099-2100'", EstadoAsistencia.FALTA.getCodigo(), FECHA,
+				FECHA.plusDays(1));
+	}
+
+	private void matricular(String nombre, String apellido, Long idCurso, Long idGrupo) {
+		Long idAlumno = jdbcTemplate.queryForObject(
+				"INSERT INTO alumno (nombre_alumno, apellido_alumno) VALUES (?, ?) RETURNING id_alumno", Long.class,
+				nombre, apellido);
+		jdbcTemplate.update("INSERT INTO matriculacion (alumno_id, curso_id, grupo_id, anio_escolar) "
+				+ "VALUES (?, ?, ?, '2099-2100')", idAlumno, idCurso, idGrupo);
+	}
+
+	@Test
+	void csvFiltraPorFechaCursoYGrupo() throws Exception {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+		long filas = exportacionAsistenciasServicio.exportar(FECHA, FECHA, "TEST-CURSO", "TEST-A",
+				FormatoExportacion.CSV, salida);
+
+		String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(2, filas);
+		assertEquals(3, lineas.length);
+		assertTrue(lineas[0].startsWith("id_asistencia,"));
+		assertTrue(lineas[1].contains(",\"TEST PEREZ, ANA\",TEST-CURSO,TEST-A,2099-2100,2099-10-06,"));
+	}
+
+	@Test
+	void ndjsonSinFiltrosDevuelveUnObjetoPorLinea() throws Exception {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+		long filas = exportacionAsistenciasServicio.exportar(FECHA, null, null, "",
+				FormatoExportacion.NDJSON, salida);
+
+		String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(6, filas);
+		assertEquals(6, lineas.length);
+		assertTrue(lineas[0].startsWith("{") && lineas[0].contains("\"fecha\":\"2099-10-06\""));
+		assertTrue(lineas[5].contains("\"fecha\":\"2099-10-07\""));
+	}
+}
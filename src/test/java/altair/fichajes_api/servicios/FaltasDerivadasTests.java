@@ -0,0 +1,260 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.dtos.PaginaDto;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Comprueba que con las faltas derivadas las consultas devuelven lo mismo que
+ * guardando una asistencia por alumno y día: se simula un año escolar completo
+ * (generación de las asistencias cada madrugada, fichajes, correcciones y
+ * cierre cada noche) en cada modo y se comparan todas las consultas, sin el id
+ * ni la fecha de modificación de las asistencias.
+ */
+@SpringBootTest
+@Transactional
+class FaltasDerivadasTests {
+
+	private static final LocalDate INICIO = LocalDate.of(2001, 10, 1);
+	private static final LocalDate FIN = LocalDate.of(2002, 8, 31);
+	private static final LocalDate FESTIVO = LocalDate.of(2001, 10, 3);
+	private static final LocalDate ALTA_TARDIA = LocalDate.of(2001, 10, 4);
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private ResumenAsistenciaServicio resumenAsistenciaServicio;
+
+	@Autowired
+	private ExportacionAsistenciasServicio exportacionAsistenciasServicio;
+
+	@Autowired
+	private CalendarioEscolarServicio calendarioEscolar;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private GrupoPrueba grupo;
+	private Long idGrupo;
+	private List<Long> alumnos;
+	private List<Long> matriculas;
+
+	@BeforeEach
+	void prepararGrupo() {
+		grupo = GrupoPrueba.crear(jdbcTemplate);
+		idGrupo = grupo.getIdGrupo();
+		alumnos = grupo.crearAlumnos(3);
+		matriculas = new ArrayList<>();
+		matricular(alumnos.get(0), INICIO);
+		matricular(alumnos.get(1), INICIO);
+
+		jdbcTemplate.update("INSERT INTO festivos (fecha, nombre) VALUES (?, 'TEST')", FESTIVO);
+		calendarioEscolar.recargarFestivos();
+	}
+
+	@AfterEach
+	void restaurar() {
+		usarFaltasDerivadas(false);
+		jdbcTemplate.update("DELETE FROM festivos WHERE nombre = 'TEST'");
+		calendarioEscolar.recargarFestivos();
+	}
+
+	@Test
+	void faltasDerivadasDevuelvenLoMismoQueGuardadas() throws Exception {
+		usarFaltasDerivadas(false);
+		simularAnio();
+		Map<String, Object> guardadas = consultar();
+		int filasGuardadas = contarFilas();
+
+		// Se repite el año desde cero con las faltas derivadas
+		entityManager.flush();
+		entityManager.clear();
+		jdbcTemplate.update("DELETE FROM asistencia WHERE matriculacion_id IN (SELECT id_matriculacion "
+				+ "FROM matriculacion WHERE grupo_id = ?)", idGrupo);
+		jdbcTemplate.update("DELETE FROM resumen_asistencia WHERE grupo_id = ?", idGrupo);
+
+		usarFaltasDerivadas(true);
+		simularAnio();
+		Map<String, Object> derivadas = consultar();
+		int filasDerivadas = contarFilas();
+
+		assertEquals(guardadas.keySet(), derivadas.keySet());
+		guardadas.forEach((consulta, resultado) -> assertEquals(resultado, derivadas.get(consulta), consulta));
+		// Solo se guardan los días con fichajes o correcciones
+		assertEquals(11, filasDerivadas);
+		assertTrue(filasGuardadas > 20 * filasDerivadas, filasGuardadas + " filas guardando todas");
+	}
+
+	/**
+	 * Simula el año escolar día a día como lo haría el planificador de la
+	 * jornada. El tercer alumno se matricula a mitad de la primera semana.
+	 */
+	private void simularAnio() {
+		for (LocalDate dia = INICIO; !dia.isAfter(FIN); dia = dia.plusDays(1)) {
+			if (dia.equals(ALTA_TARDIA) && matriculas.size() < 3) {
+				matricular(alumnos.get(2), ALTA_TARDIA);
+			}
+			asistenciaServicio.crearAsistenciasDelDia(dia);
+
+			boolean lectivo = calendarioEscolar.tipoDia(dia) == TipoDia.LECTIVO;
+			if (lectivo && dia.isBefore(INICIO.plusDays(9))) {
+				fichar(0, dia.atTime(8, 0));
+				if (!dia.equals(INICIO.plusDays(1))) {
+					fichar(0, dia.atTime(14, 0));
+				}
+			}
+			if (dia.equals(FESTIVO) || dia.equals(INICIO.plusDays(4))) {
+				fichar(1, dia.atTime(9, 0));
+			}
+			if (dia.equals(INICIO.plusDays(7))) {
+				fichar(2, dia.atTime(8, 10));
+				fichar(2, dia.atTime(13, 50));
+			}
+			if (dia.equals(INICIO.plusDays(8))) {
+				corregir(1, dia, dia.atTime(10, 0), dia.atTime(12, 0), "Cita médica");
+			}
+			if (dia.equals(ALTA_TARDIA)) {
+				corregir(2, dia, null, null, "Falta justificada");
+			}
+
+			asistenciaServicio.cerrarAsistenciasDelDia(dia);
+		}
+	}
+
+	/**
+	 * Lanza todas las consultas de asistencias sobre el grupo y devuelve sus
+	 * resultados normalizados.
+	 */
+	private Map<String, Object> consultar() throws Exception {
+		Map<String, Object> resultados = new LinkedHashMap<>();
+		for (LocalDate dia = INICIO; dia.isBefore(INICIO.plusDays(9)); dia = dia.plusDays(1)) {
+			LocalDate fecha = dia;
+			resultados.put("grupo " + fecha, normalizar(
+					asistenciaServicio.obtenerAsistenciasPorCursoGrupoYFecha("TEST-CURSO", "TEST-GRUPO", fecha)));
+			resultados.put("fecha " + fecha, ordenar(asistenciaServicio.obtenerPorFecha(fecha)));
+			resultados.put("pagina fecha " + fecha,
+					ordenar(leerPaginas(cursor -> asistenciaServicio.obtenerPaginaPorFecha(fecha, cursor, 2))));
+		}
+		LocalDate desde = LocalDate.of(2001, 9, 1);
+		for (Long alumno : alumnos) {
+			resultados.put("rango " + alumno, ordenar(asistenciaServicio.obtenerPorRango(alumno, desde, FIN)));
+			resultados.put("pagina rango " + alumno, ordenar(
+					leerPaginas(cursor -> asistenciaServicio.obtenerPaginaPorRango(alumno, desde, FIN, cursor, 7))));
+			resultados.put("faltas " + alumno,
+					ordenar(asistenciaServicio.obtenerPorAlumnoEstadoYAnio(alumno, "FALTA", "2001/2002")));
+			resultados.put("festivos " + alumno,
+					ordenar(asistenciaServicio.obtenerPorAlumnoEstadoYAnio(alumno, "FESTIVO", "2001/2002")));
+			resultados.put("conteo " + alumno, asistenciaServicio.obtenerConteoEstados(alumno, desde, FIN));
+		}
+		resultados.put("conteo alumnos", asistenciaServicio.obtenerConteoEstadosDeAlumnos(alumnos, desde, FIN));
+		resultados.put("conteo grupo", asistenciaServicio.obtenerConteoEstadosDeGrupo(idGrupo, desde, FIN));
+		resultados.put("conteo semana",
+				asistenciaServicio.obtenerConteoEstadosDeGrupo(idGrupo, INICIO, INICIO.plusDays(6)));
+		resultados.put("todas", ordenar(delGrupo(asistenciaServicio.obtenerTodasAsistencias())));
+		resultados.put("pagina todas",
+				ordenar(delGrupo(leerPaginas(cursor -> asistenciaServicio.obtenerPaginaAsistencias(cursor, 50)))));
+		for (PeriodoResumen periodo : PeriodoResumen.values()) {
+			resultados.put("resumen " + periodo,
+					resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo, periodo, INICIO.plusDays(1)).getDias());
+		}
+		resultados.put("resumen mayo",
+				resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo, PeriodoResumen.MES, LocalDate.of(2002, 5, 1))
+						.getTotales());
+
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		exportacionAsistenciasServicio.exportar(desde, FIN, "TEST-CURSO", "TEST-GRUPO", FormatoExportacion.CSV, csv);
+		List<String> lineas = new ArrayList<>();
+		for (String linea : csv.toString(StandardCharsets.UTF_8).split("\n")) {
+			// Sin id_asistencia ni fecha_modificacion
+			String[] campos = linea.split(",", -1);
+			lineas.add(String.join(",", Arrays.asList(campos).subList(1, campos.length - 1)));
+		}
+		resultados.put("exportacion", lineas.stream().sorted().toList());
+		return resultados;
+	}
+
+	private void matricular(Long alumno, LocalDate alta) {
+		matriculas.add(grupo.matricular(alumno, "2001-2002", alta));
+	}
+
+	private void fichar(int alumno, LocalDateTime instante) {
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(alumno), instante);
+	}
+
+	private void corregir(int alumno, LocalDate fecha, LocalDateTime entrada, LocalDateTime salida,
+			String justificacion) {
+		AsistenciaDto cambio = new AsistenciaDto();
+		cambio.setHoraEntrada(entrada);
+		cambio.setHoraSalida(salida);
+		cambio.setJustificarModificacion(justificacion);
+		Long idAsistencia = asistenciaServicio.obtenerIdAsistenciaGuardada(matriculas.get(alumno), fecha);
+		assertTrue(asistenciaServicio.modificarAsistencia(idAsistencia, cambio));
+	}
+
+	private int contarFilas() {
+		entityManager.flush();
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM asistencia a JOIN matriculacion m "
+				+ "ON m.id_matriculacion = a.matriculacion_id WHERE m.grupo_id = ?", Integer.class, idGrupo);
+	}
+
+	private void usarFaltasDerivadas(boolean derivadas) {
+		ReflectionTestUtils.setField(asistenciaServicio, "faltasDerivadas", derivadas);
+		ReflectionTestUtils.setField(resumenAsistenciaServicio, "faltasDerivadas", derivadas);
+	}
+
+	private List<AsistenciaDto> leerPaginas(Function<String, PaginaDto<AsistenciaDto>> pagina) {
+		List<AsistenciaDto> asistencias = new ArrayList<>();
+		String cursor = null;
+		do {
+			PaginaDto<AsistenciaDto> leida = pagina.apply(cursor);
+			asistencias.addAll(leida.getElementos());
+			cursor = leida.getSiguienteCursor();
+		} while (cursor != null);
+		return asistencias;
+	}
+
+	private List<AsistenciaDto> delGrupo(List<AsistenciaDto> asistencias) {
+		return asistencias.stream().filter(a -> matriculas.contains(a.getMatriculacionId())).toList();
+	}
+
+	private static List<String> ordenar(List<AsistenciaDto> asistencias) {
+		return normalizar(asistencias).stream().sorted().toList();
+	}
+
+	private static List<String> normalizar(List<AsistenciaDto> asistencias) {
+		return asistencias.stream()
+				.map(a -> a.getFecha() + " " + a.getMatriculacionId() + " " + a.getAlumnoId() + " "
+						+ a.getNombreCompletoAlumno() + " " + a.getNombreCurso() + " " + a.getNombreGrupo() + " "
+						+ a.getHoraEntrada() + " " + a.getHoraSalida() + " " + a.getEstado() + " "
+						+ a.getJustificarModificacion())
+				.toList();
+	}
+}
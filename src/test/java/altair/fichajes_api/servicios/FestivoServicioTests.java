@@ -0,0 +1,158 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.dtos.ResultadoImportacionFestivosDto;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Comprueba la importación del calendario de festivos: solo se aplica la
+ * diferencia con la tabla en los años del calendario, y un calendario ya
+ * importado (también antes de reiniciar) no vuelve a tocar los festivos.
+ */
+@SpringBootTest
+@Transactional
+class FestivoServicioTests {
+
+	private static final String CALENDARIO = """
+			# 2001-2002
+			12-10-2001;1-11-2001;6-12-2001
+			# 2002-2003: vacaciones de Navidad como rango
+			24-12-2002..26-12-2002
+			31-02-2002; no-es-fecha
+			""";
+
+	@TempDir
+	Path carpeta;
+
+	@Autowired
+	private FestivoServicio festivoServicio;
+
+	@Autowired
+	private CalendarioEscolarServicio calendarioEscolar;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private String archivoFestivos;
+
+	@BeforeEach
+	void prepararFestivos() {
+		archivoFestivos = festivoServicio.getArchivoFestivos();
+		ReflectionTestUtils.setField(festivoServicio, "hashImportado", null);
+		jdbcTemplate.update("DELETE FROM festivos");
+		jdbcTemplate.update("DELETE FROM importacion_festivos");
+		jdbcTemplate.update("INSERT INTO festivos (fecha, nombre) VALUES ('2001-10-12', 'Festivo'), "
+				+ "('2001-10-12', 'Festivo'), ('2001-11-01', 'Festivo'), ('2001-11-02', 'Festivo'), "
+				+ "('2000-10-12', 'Festivo')");
+	}
+
+	@AfterTransaction
+	void restaurar() {
+		ReflectionTestUtils.setField(festivoServicio, "hashImportado", null);
+		ReflectionTestUtils.setField(festivoServicio, "archivoFestivos", archivoFestivos);
+		calendarioEscolar.recargarFestivos();
+	}
+
+	@Test
+	void importaCalendarioDeVariosAniosAplicandoLaDiferencia() {
+		ResultadoImportacionFestivosDto resultado = festivoServicio.importar(bytes(CALENDARIO),
+				FestivoServicio.ORIGEN_ARCHIVO);
+
+		assertFalse(resultado.isSinCambios());
+		assertEquals(6, resultado.getFechasLeidas());
+		assertEquals(List.of(2001, 2002), resultado.getAnios());
+		assertEquals(List.of(LocalDate.of(2001, 12, 6), LocalDate.of(2002, 12, 24), LocalDate.of(2002, 12, 25),
+				LocalDate.of(2002, 12, 26)), resultado.getInsertadas());
+		assertEquals(List.of(LocalDate.of(2001, 11, 2)), resultado.getEliminadas());
+		assertEquals(1, resultado.getDuplicadasEliminadas());
+		assertEquals(List.of("31-02-2002", "no-es-fecha"), resultado.getFechasNoValidas());
+
+		// Los festivos de 2000 no están en el calendario, pero tampoco es uno de sus años
+		assertEquals(List.of(LocalDate.of(2000, 10, 12), LocalDate.of(2001, 10, 12), LocalDate.of(2001, 11, 1),
+				LocalDate.of(2001, 12, 6), LocalDate.of(2002, 12, 24), LocalDate.of(2002, 12, 25),
+				LocalDate.of(2002, 12, 26)), fechasEnBD());
+		assertTrue(calendarioEscolar.esFestivo(LocalDate.of(2002, 12, 25)));
+		assertFalse(calendarioEscolar.esFestivo(LocalDate.of(2001, 11, 2)));
+	}
+
+	@Test
+	void calendarioSinCambiosNoTocaLaBaseDeDatos() {
+		festivoServicio.importar(bytes(CALENDARIO), FestivoServicio.ORIGEN_ARCHIVO);
+		jdbcTemplate.update("INSERT INTO festivos (fecha, nombre) VALUES ('2002-05-01', 'Festivo')");
+
+		ResultadoImportacionFestivosDto resultado = festivoServicio.importar(bytes(CALENDARIO),
+				FestivoServicio.ORIGEN_ARCHIVO);
+
+		assertTrue(resultado.isSinCambios());
+		assertTrue(resultado.getInsertadas().isEmpty());
+		assertTrue(fechasEnBD().contains(LocalDate.of(2002, 5, 1)));
+
+		// El hash se guarda en la base de datos, así que tras reiniciar tampoco se aplica
+		ReflectionTestUtils.setField(festivoServicio, "hashImportado", null);
+		assertTrue(festivoServicio.importar(bytes(CALENDARIO), FestivoServicio.ORIGEN_ARCHIVO).isSinCambios());
+		assertTrue(fechasEnBD().contains(LocalDate.of(2002, 5, 1)));
+
+		// Tras un cambio a mano el archivo se vuelve a aplicar
+		festivoServicio.eliminarFestivo(jdbcTemplate.queryForObject(
+				"SELECT id FROM festivos WHERE fecha = '2001-10-12'", Long.class));
+		resultado = festivoServicio.importar(bytes(CALENDARIO), FestivoServicio.ORIGEN_ARCHIVO);
+		assertEquals(List.of(LocalDate.of(2001, 10, 12)), resultado.getInsertadas());
+		assertEquals(List.of(LocalDate.of(2002, 5, 1)), resultado.getEliminadas());
+	}
+
+	@Test
+	void calendarioSubidoSustituyeSusAniosEnElArchivo() throws Exception {
+		Path archivo = carpeta.resolve("festivos.txt");
+		Files.writeString(archivo, "12-10-2000;12-10-2001\n24-12-2002..25-12-2002");
+		ReflectionTestUtils.setField(festivoServicio, "archivoFestivos", archivo.toString());
+		jdbcTemplate.update("INSERT INTO festivos (fecha, nombre) VALUES ('2002-12-24', 'Festivo'), "
+				+ "('2002-12-25', 'Festivo')");
+
+		assertThrows(IllegalArgumentException.class, () -> festivoServicio.importarCalendario(bytes(CALENDARIO)));
+		assertEquals("12-10-2000;12-10-2001\n24-12-2002..25-12-2002", Files.readString(archivo));
+		assertEquals(7, fechasEnBD().size());
+
+		String valido = "12-10-2001\n1-11-2001;6-12-2001";
+		ResultadoImportacionFestivosDto resultado = festivoServicio.importarCalendario(bytes(valido));
+		assertEquals(FestivoServicio.ORIGEN_SUBIDA, resultado.getOrigen());
+		assertEquals(valido + "\n# 2000, conservado del calendario anterior\n12-10-2000"
+				+ "\n# 2002, conservado del calendario anterior\n24-12-2002;25-12-2002\n", Files.readString(archivo));
+		assertEquals(List.of(LocalDate.of(2000, 10, 12), LocalDate.of(2001, 10, 12), LocalDate.of(2001, 11, 1),
+				LocalDate.of(2001, 12, 6), LocalDate.of(2002, 12, 24), LocalDate.of(2002, 12, 25)), fechasEnBD());
+
+		// La sincronización del archivo que se acaba de escribir no hace nada
+		assertTrue(festivoServicio.importarFestivosDesdeArchivo().isSinCambios());
+	}
+
+	private List<LocalDate> fechasEnBD() {
+		entityManager.flush();
+		return jdbcTemplate.queryForList("SELECT fecha FROM festivos ORDER BY fecha", LocalDate.class);
+	}
+
+	private static byte[] bytes(String contenido) {
+		return contenido.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,126 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.dtos.ResultadoImportacionMatriculasDto;
+
+/**
+ * Comprueba la importación de matrículas desde CSV: las filas válidas se
+ * guardan en lotes y las demás se devuelven con su número de línea y motivo.
+ */
+@SpringBootTest
+@Transactional
+class ImportacionMatriculasServicioTests {
+
+	@Autowired
+	private ImportacionMatriculasServicio importacionMatriculasServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Object tamanoLote;
+
+	@BeforeEach
+	void prepararCursos() {
+		tamanoLote = ReflectionTestUtils.getField(importacionMatriculasServicio, "tamanoLote");
+		ReflectionTestUtils.setField(importacionMatriculasServicio, "tamanoLote", 2);
+
+		Long idCurso = crearCurso("TEST-CURSO");
+		Long idGrupo = crearGrupo("TEST-GRUPO", idCurso);
+		crearGrupo("TEST-GRUPO2", crearCurso("TEST-OTRO"));
+		Long idAlumno = jdbcTemplate.queryForObject("INSERT INTO alumno (nombre_alumno, apellido_alumno) "
+				+ "VALUES ('TEST', 'EXISTENTE') RETURNING id_alumno", Long.class);
+		jdbcTemplate.update("INSERT INTO matriculacion (alumno_id, curso_id, grupo_id, anio_escolar, uid_llave) "
+				+ "VALUES (?, ?, ?, '2098-2099', 'UID-EXISTENTE')", idAlumno, idCurso, idGrupo);
+	}
+
+	@AfterEach
+	void restaurar() {
+		ReflectionTestUtils.setField(importacionMatriculasServicio, "tamanoLote", tamanoLote);
+	}
+
+	@Test
+	void guardaLasFilasValidasYDevuelveLosErroresPorLinea() throws Exception {
+		String csv = """
+				\uFEFFapellido;nombre;curso;grupo;anio_escolar;uid
+				Pérez;Ana;TEST-CURSO;TEST-GRUPO;2098-2099;UID-1
+				"García; López";Luis;test-curso; test-grupo ;2098-2099;
+				Ruiz;Eva;TEST-CURSO;NO-EXISTE;2098-2099;UID-2
+				Gil;;TEST-CURSO;TEST-GRUPO;2098-2099;UID-3
+				Sanz;Leo;TEST-CURSO;TEST-GRUPO;2098-2099;UID-EXISTENTE
+				Mora;Pía;TEST-CURSO;TEST-GRUPO;2098-2100;UID-4
+
+				Vega;Raúl;TEST-CURSO;TEST-GRUPO;2098-2099;UID-1
+				Luna;Sol;TEST-OTRO;TEST-GRUPO2;2098-2099;UID-5
+				Rey;Max;TEST-CURSO;TEST-GRUPO2;2098-2099;UID-6
+				""";
+
+		ResultadoImportacionMatriculasDto resultado = importacionMatriculasServicio.importar(flujo(csv));
+
+		assertEquals(9, resultado.getFilasLeidas());
+		assertEquals(3, resultado.getMatriculasCreadas());
+		assertEquals(2, resultado.getLotes());
+		Map<Integer, String> errores = resultado.getErrores();
+		assertEquals(List.of(4, 5, 6, 7, 9, 11), List.copyOf(errores.keySet()));
+		assertEquals("El grupo NO-EXISTE no existe en el curso TEST-CURSO", errores.get(4));
+		assertEquals("Falta el campo nombre", errores.get(5));
+		assertTrue(errores.get(6).contains("UID-EXISTENTE"));
+		assertTrue(errores.get(7).startsWith("Año escolar no válido"));
+		assertTrue(errores.get(9).contains("UID-1"));
+		assertEquals("El grupo TEST-GRUPO2 no existe en el curso TEST-CURSO", errores.get(11));
+
+		List<Map<String, Object>> matriculas = jdbcTemplate.queryForList("SELECT a.nombre_alumno, "
+				+ "a.apellido_alumno, c.nombre_curso, g.nombre_grupo, m.uid_llave, m.fecha_alta FROM matriculacion m "
+				+ "JOIN alumno a ON a.id_alumno = m.alumno_id JOIN curso c ON c.id_curso = m.curso_id "
+				+ "JOIN grupo g ON g.id_grupo = m.grupo_id "
+				+ "WHERE m.anio_escolar = '2098-2099' AND a.apellido_alumno <> 'EXISTENTE' ORDER BY a.nombre_alumno");
+		assertEquals(3, matriculas.size());
+		assertEquals(List.of("Ana", "Luis", "Sol"), matriculas.stream().map(m -> m.get("nombre_alumno")).toList());
+		assertEquals("García; López", matriculas.get(1).get("apellido_alumno"));
+		assertEquals("TEST-GRUPO", matriculas.get(1).get("nombre_grupo"));
+		assertEquals(null, matriculas.get(1).get("uid_llave"));
+		assertEquals("TEST-OTRO", matriculas.get(2).get("nombre_curso"));
+		assertEquals(LocalDate.now(), ((Date) matriculas.get(0).get("fecha_alta")).toLocalDate());
+	}
+
+	@Test
+	void rechazaUnaCabeceraSinLasColumnasObligatorias() {
+		IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+				() -> importacionMatriculasServicio.importar(flujo("nombre,apellido,curso\nAna,Pérez,TEST-CURSO\n")));
+		assertEquals("Faltan columnas en la cabecera del CSV: [grupo, anio_escolar]", error.getMessage());
+	}
+
+	private Long crearCurso(String nombre) {
+		return jdbcTemplate.queryForObject("INSERT INTO curso (nombre_curso) VALUES (?) RETURNING id_curso",
+				Long.class, nombre);
+	}
+
+	private Long crearGrupo(String nombre, Long idCurso) {
+		return jdbcTemplate.queryForObject(
+				"INSERT INTO grupo (nombre_grupo, curso_id) VALUES (?, ?) RETURNING id_grupo", Long.class, nombre,
+				idCurso);
+	}
+
+	private static InputStream flujo(String csv) {
+		return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,116 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.AlumnoDto;
+import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.dtos.PaginaDto;
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import altair.fichajes_api.utilidades.CursorPaginacion;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Comprueba que la paginación por cursor recorre todas las filas sin repetir
+ * ninguna y que cada página se obtiene con una sola sentencia SQL.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class PaginacionCursorTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+	private static final int ALUMNOS = 5;
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private AlumnoServicio alumnoServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics estadisticas;
+	private long primerAlumno;
+
+	@BeforeEach
+	void prepararAsistencias() {
+		GrupoPrueba grupo = GrupoPrueba.crear(jdbcTemplate);
+		grupo.matricularAlumnos(ALUMNOS);
+		primerAlumno = jdbcTemplate.queryForObject("SELECT MIN(alumno_id) FROM matriculacion WHERE grupo_id = ?",
+				Long.class, grupo.getIdGrupo());
+		// Dos días de asistencia por alumno, insertando primero el segundo día
+		jdbcTemplate.update("INSERT INTO asistencia (matriculacion_id, fecha, estado) "
+				+ "SELECT m.id_matriculacion, d, ? FROM matriculacion m, (VALUES (?::date), (?::date)) f(d) "
+				+ "WHERE m.grupo_id = ? ORDER BY d DESC", EstadoAsistencia.FALTA.getCodigo(), FECHA.plusDays(1), FECHA,
+				grupo.getIdGrupo());
+
+		estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+	}
+
+	@Test
+	void asistenciasSeRecorrenPorFechaEIdEnPaginasDeUnaSentencia() {
+		List<AsistenciaDto> todas = new ArrayList<>();
+		String cursor = CursorPaginacion.crear(FECHA.minusDays(1), Long.MAX_VALUE);
+		int paginas = 0;
+		do {
+			PaginaDto<AsistenciaDto> pagina = asistenciaServicio.obtenerPaginaAsistencias(cursor, 3);
+			todas.addAll(pagina.getElementos());
+			cursor = pagina.getSiguienteCursor();
+			paginas++;
+		} while (cursor != null);
+
+		assertEquals(ALUMNOS * 2, todas.size());
+		assertEquals(4, paginas);
+		assertEquals(paginas, estadisticas.getPrepareStatementCount());
+		for (int i = 1; i < todas.size(); i++) {
+			AsistenciaDto anterior = todas.get(i - 1);
+			AsistenciaDto actual = todas.get(i);
+			int orden = anterior.getFecha().compareTo(actual.getFecha());
+			assertTrue(orden < 0 || (orden == 0 && anterior.getIdAsistencia() < actual.getIdAsistencia()));
+		}
+	}
+
+	@Test
+	void asistenciasDeUnaFechaTerminanSinCursor() {
+		PaginaDto<AsistenciaDto> primera = asistenciaServicio.obtenerPaginaPorFecha(FECHA, null, ALUMNOS - 1);
+		assertEquals(ALUMNOS - 1, primera.getElementos().size());
+		assertNotNull(primera.getSiguienteCursor());
+
+		PaginaDto<AsistenciaDto> segunda = asistenciaServicio.obtenerPaginaPorFecha(FECHA,
+				primera.getSiguienteCursor(), ALUMNOS - 1);
+		assertEquals(1, segunda.getElementos().size());
+		assertNull(segunda.getSiguienteCursor());
+	}
+
+	@Test
+	void alumnosSePaginanConSusMatriculacionesEnUnaSentencia() {
+		PaginaDto<AlumnoDto> pagina = alumnoServicio.obtenerPaginaAlumnos(CursorPaginacion.crear(primerAlumno - 1),
+				2);
+
+		assertEquals(2, pagina.getElementos().size());
+		assertEquals(primerAlumno, pagina.getElementos().get(0).getIdAlumno());
+		assertEquals(1, pagina.getElementos().get(1).getMatriculacionIds().size());
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+	}
+}
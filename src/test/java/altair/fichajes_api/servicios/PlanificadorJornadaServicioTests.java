@@ -0,0 +1,231 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.ResultadoGeneracionDto;
+import altair.fichajes_api.entidad.AsistenciaEntidad;
+import altair.fichajes_api.entidad.EstadoAsistencia;
+import altair.fichajes_api.lector.DiarioFichajesFuncionalidad;
+import altair.fichajes_api.lector.ReproductorDiarioFuncionalidad;
+import altair.fichajes_api.lector.ResultadoFichaje;
+import altair.fichajes_api.lector.TarjetaMatriculaFuncionalidad;
+import altair.fichajes_api.repositorios.AsistenciaInterfaz;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Comprueba la puesta al día de la jornada: los días anteriores que quedaron
+ * abiertos se cierran y se crean las asistencias del día, registrando la
+ * duración de la tarea. También que el cierre prepara el siguiente día con
+ * lista, que una preparación fallida se reintenta, que los fichajes del
+ * diario se aplican aunque la base de datos no respondiera al preparar el día
+ * y que, aplicados después del cierre de su día, dejan la asistencia cerrada y
+ * con la salida real.
+ */
+@SpringBootTest
+@Transactional
+class PlanificadorJornadaServicioTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+	/** Día ya pasado, y por tanto cerrado, para los fichajes del diario. */
+	private static final LocalDate PASADO = LocalDate.of(2000, 10, 2);
+
+	@Autowired
+	private PlanificadorJornadaServicio planificadorJornadaServicio;
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private AsistenciaInterfaz asistenciaInterfaz;
+
+	@Autowired
+	private MeterRegistry registro;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TarjetaMatriculaFuncionalidad tarjetaMatriculaFuncionalidad;
+
+	@TempDir
+	Path carpetaDiario;
+
+	private GrupoPrueba grupo;
+	private List<Long> matriculas;
+
+	@BeforeEach
+	void prepararGrupo() {
+		grupo = GrupoPrueba.crear(jdbcTemplate);
+		matriculas = grupo.matricularAlumnos(3);
+	}
+
+	@Test
+	void ponerAlDiaCierraLosDiasAbiertosYPreparaHoy() {
+		asistenciaServicio.crearAsistenciasDelDia(FECHA);
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(0), FECHA.atTime(8, 0));
+		LocalDate hoy = FECHA.plusDays(2);
+		assertTrue(asistenciaInterfaz.findFechasSinCerrarAntesDe(hoy).contains(FECHA));
+
+		assertTrue(planificadorJornadaServicio.ponerAlDia(hoy.atTime(7, 0)) >= 1);
+
+		assertFalse(asistenciaInterfaz.findFechasSinCerrarAntesDe(hoy).contains(FECHA));
+		assertEquals(3, contarAsistencias(hoy));
+		assertNotNull(registro.find("fichajes.jornada.duracion").tag("tarea", PlanificadorJornadaServicio.PUESTA_AL_DIA)
+				.tag("resultado", "ok").timer());
+	}
+
+	@Test
+	void ponerAlDiaDespuesDeLaHoraDeCierreCierraHoy() {
+		asistenciaServicio.crearAsistenciasDelDia(FECHA);
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(0), FECHA.atTime(8, 0));
+
+		planificadorJornadaServicio.ponerAlDia(FECHA.atTime(23, 30));
+
+		assertFalse(asistenciaInterfaz.findFechasSinCerrarAntesDe(FECHA.plusDays(1)).contains(FECHA));
+	}
+
+	@Test
+	void cierreDeUnViernesPreparaElLunes() {
+		LocalDate viernes = LocalDate.of(2099, 10, 16);
+		LocalDate lunes = LocalDate.of(2099, 10, 19);
+
+		assertEquals(lunes, planificadorJornadaServicio.cerrarYPrepararSiguiente(viernes));
+
+		assertEquals(3, contarAsistencias(lunes));
+	}
+
+	@Test
+	void preparacionFallidaSeReintenta() {
+		AsistenciaServicio asistencias = mock(AsistenciaServicio.class);
+		TaskScheduler tareas = mock(TaskScheduler.class);
+		PlanificadorJornadaServicio planificador = new PlanificadorJornadaServicio();
+		ReflectionTestUtils.setField(planificador, "asistenciaServicio", asistencias);
+		ReflectionTestUtils.setField(planificador, "planificador", tareas);
+		ReflectionTestUtils.setField(planificador, "registro", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(planificador, "reintentoMaximoMs", 900_000L);
+		LocalDate hoy = LocalDate.now();
+		when(asistencias.crearAsistenciasDelDia(hoy)).thenThrow(new RuntimeException("Base de datos caída"))
+				.thenReturn(new ResultadoGeneracionDto());
+
+		planificador.prepararConReintentos(hoy, 60_000);
+
+		ArgumentCaptor<Runnable> reintento = ArgumentCaptor.forClass(Runnable.class);
+		verify(tareas).schedule(reintento.capture(), any(Instant.class));
+		reintento.getValue().run();
+		verify(asistencias, times(2)).crearAsistenciasDelDia(hoy);
+		// Ha funcionado: no se programa otro intento
+		verify(tareas, times(1)).schedule(any(Runnable.class), any(Instant.class));
+	}
+
+	@Test
+	void fichajesDelDiarioTrasUnaCaidaALaHoraDePreparar() {
+		// La base de datos no respondía a las 00:05: no hay asistencias del día y
+		// los fichajes se quedaron en el diario
+		Long conTarjeta = grupo.matricularConTarjeta("04A1B2C3");
+		DiarioFichajesFuncionalidad diario = new DiarioFichajesFuncionalidad();
+		ReflectionTestUtils.setField(diario, "registro", registro);
+		ReflectionTestUtils.setField(diario, "ruta", carpetaDiario.toString());
+		ReflectionTestUtils.setField(diario, "registrosPorSegmento", 16);
+		diario.abrir();
+		diario.aplazar(diario.anotar("04A1B2C3", "Lector 1", milis(FECHA.atTime(8, 0))));
+		diario.aplazar(diario.anotar("04FFFFFF", "Lector 1", milis(FECHA.atTime(8, 1))));
+		diario.aplazar(diario.anotar("04A1B2C3", "Lector 1", milis(FECHA.atTime(14, 0))));
+		assertEquals(0, contarAsistencias(FECHA));
+
+		// Vuelve la base de datos: se crean las asistencias y se aplican los
+		// fichajes con su hora; solo la tarjeta desconocida se descarta
+		ReproductorDiarioFuncionalidad reproductor = new ReproductorDiarioFuncionalidad();
+		ReflectionTestUtils.setField(reproductor, "diario", diario);
+		ReflectionTestUtils.setField(reproductor, "asistenciaServicio", asistenciaServicio);
+		ReflectionTestUtils.setField(reproductor, "tarjetaMatriculaFuncionalidad", tarjetaMatriculaFuncionalidad);
+		ReflectionTestUtils.setField(reproductor, "registro", registro);
+		assertEquals(3, reproductor.reproducir());
+
+		assertTrue(diario.aplazadas().isEmpty());
+		assertEquals(4, contarAsistencias(FECHA));
+		assertAsistencia(conTarjeta, FECHA, FECHA.atTime(8, 0), FECHA.atTime(14, 0), EstadoAsistencia.COMPLETA);
+		diario.cerrar();
+	}
+
+	@Test
+	void fichajesDelDiarioDespuesDelCierre() {
+		Long sinSalida = matriculas.get(0);
+		Long falta = matriculas.get(1);
+		jdbcTemplate.update("INSERT INTO asistencia (matriculacion_id, fecha, hora_entrada, estado) VALUES (?, ?, ?, ?)",
+				sinSalida, PASADO, PASADO.atTime(8, 0), EstadoAsistencia.PRESENTE.getCodigo());
+		jdbcTemplate.update("INSERT INTO asistencia (matriculacion_id, fecha, estado) VALUES (?, ?, ?)", falta, PASADO,
+				EstadoAsistencia.FALTA.getCodigo());
+		asistenciaServicio.cerrarAsistenciasDelDia(PASADO);
+		entityManager.flush();
+		entityManager.clear();
+
+		// La salida real sustituye a la provisional del cierre
+		assertEquals(ResultadoFichaje.SALIDA, asistenciaServicio.ficharPorMatriculacion(sinSalida, PASADO.atTime(14, 0)));
+		assertAsistencia(sinSalida, PASADO, PASADO.atTime(8, 0), PASADO.atTime(14, 0), EstadoAsistencia.COMPLETA);
+
+		// Una entrada en una falta ya cerrada deja la asistencia cerrada
+		assertEquals(ResultadoFichaje.ENTRADA, asistenciaServicio.ficharPorMatriculacion(falta, PASADO.atTime(9, 0)));
+		assertAsistencia(falta, PASADO, PASADO.atTime(9, 0), PASADO.atTime(23, 0), EstadoAsistencia.SIN_SALIDA);
+		assertEquals(ResultadoFichaje.SALIDA, asistenciaServicio.ficharPorMatriculacion(falta, PASADO.atTime(14, 30)));
+		assertAsistencia(falta, PASADO, PASADO.atTime(9, 0), PASADO.atTime(14, 30), EstadoAsistencia.COMPLETA);
+
+		// Repetir los fichajes no cambia nada
+		assertEquals(ResultadoFichaje.ENTRADA, asistenciaServicio.ficharPorMatriculacion(falta, PASADO.atTime(9, 0)));
+		assertEquals(ResultadoFichaje.SALIDA, asistenciaServicio.ficharPorMatriculacion(falta, PASADO.atTime(14, 30)));
+		assertAsistencia(falta, PASADO, PASADO.atTime(9, 0), PASADO.atTime(14, 30), EstadoAsistencia.COMPLETA);
+	}
+
+	private void assertAsistencia(Long idMatriculacion, LocalDate fecha, LocalDateTime entrada, LocalDateTime salida,
+			EstadoAsistencia estado) {
+		entityManager.flush();
+		entityManager.clear();
+		AsistenciaEntidad asistencia = asistenciaInterfaz
+				.findByMatriculacion_IdMatriculacionAndFecha(idMatriculacion, fecha).orElseThrow();
+		assertEquals(entrada, asistencia.getHoraEntrada());
+		assertEquals(salida, asistencia.getHoraSalida());
+		assertEquals(estado, asistencia.getEstado());
+	}
+
+	private static long milis(LocalDateTime instante) {
+		return instante.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private int contarAsistencias(LocalDate fecha) {
+		entityManager.flush();
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM asistencia a JOIN matriculacion m "
+				+ "ON m.id_matriculacion = a.matriculacion_id WHERE a.fecha = ? AND m.anio_escolar = ?",
+				Integer.class, fecha, GrupoPrueba.ANIO_ESCOLAR);
+	}
+}
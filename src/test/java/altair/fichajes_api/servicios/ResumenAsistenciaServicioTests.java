@@ -0,0 +1,90 @@
+package altair.fichajes_api.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import altair.fichajes_api.GrupoPrueba;
+import altair.fichajes_api.dtos.AsistenciaDto;
+import altair.fichajes_api.dtos.ResumenAsistenciaDto;
+
+/**
+ * Comprueba que el resumen de asistencias mantenido en cada cambio coincide con
+ * el que se obtiene al reconstruirlo desde las asistencias.
+ */
+@SpringBootTest
+@Transactional
+class ResumenAsistenciaServicioTests {
+
+	private static final LocalDate FECHA = LocalDate.of(2099, 10, 6);
+
+	@Autowired
+	private AsistenciaServicio asistenciaServicio;
+
+	@Autowired
+	private ResumenAsistenciaServicio resumenAsistenciaServicio;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long idGrupo;
+	private List<Long> matriculas;
+
+	@BeforeEach
+	void prepararGrupo() {
+		GrupoPrueba grupo = GrupoPrueba.crear(jdbcTemplate);
+		idGrupo = grupo.getIdGrupo();
+		matriculas = grupo.matricularAlumnos(3);
+	}
+
+	@Test
+	void resumenIncrementalCoincideConLaReconstruccion() {
+		asistenciaServicio.crearAsistenciasDelDia(FECHA);
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(0), FECHA.atTime(8, 0));
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(0), FECHA.atTime(14, 0));
+		asistenciaServicio.ficharPorMatriculacion(matriculas.get(1), FECHA.atTime(8, 5));
+
+		Long idAsistencia = jdbcTemplate.queryForObject(
+				"SELECT id_asistencia FROM asistencia WHERE matriculacion_id = ? AND fecha = ?", Long.class,
+				matriculas.get(1), FECHA);
+		AsistenciaDto cambio = new AsistenciaDto();
+		cambio.setHoraEntrada(FECHA.atTime(8, 5));
+		cambio.setHoraSalida(FECHA.atTime(13, 0));
+		asistenciaServicio.modificarAsistencia(idAsistencia, cambio);
+
+		ResumenAsistenciaDto incremental = resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo,
+				PeriodoResumen.DIA, FECHA);
+		assertEquals(Map.of("COMPLETA", 2L, "FALTA", 1L), incremental.getTotales());
+
+		resumenAsistenciaServicio.reconstruir(FECHA, FECHA);
+		ResumenAsistenciaDto reconstruido = resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo,
+				PeriodoResumen.DIA, FECHA);
+		assertEquals(incremental.getTotales(), reconstruido.getTotales());
+	}
+
+	@Test
+	void resumenSemanalYMensualAgrupaPorDia() {
+		asistenciaServicio.crearAsistenciasDelDia(FECHA);
+		asistenciaServicio.crearAsistenciasDelDia(FECHA.plusDays(1));
+		asistenciaServicio.cerrarAsistenciasDelDia(FECHA.plusDays(7));
+
+		ResumenAsistenciaDto semana = resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo, PeriodoResumen.SEMANA,
+				FECHA);
+		assertEquals(LocalDate.of(2099, 10, 5), semana.getDesde());
+		assertEquals(2, semana.getDias().size());
+		assertEquals(6L, semana.getTotales().get("FALTA"));
+
+		ResumenAsistenciaDto mes = resumenAsistenciaServicio.obtenerResumenGrupo(idGrupo, PeriodoResumen.MES, FECHA);
+		assertEquals(3, mes.getDias().size());
+		assertEquals(9L, mes.getTotales().get("FALTA"));
+	}
+}